@@ -0,0 +1,38 @@
+#!/bin/sh
+# Builds and runs checks of the manager code, which does not need Android, on plain JVM.
+# Android classes used by this code (Log, Xml, SystemClock, Context, Resources and
+# the resource identifiers of R) are replaced by shim/.
+#
+# usage: ./run.sh download    - checks of the installer download engine
+#        ./run.sh bench       - benchmark of the GUI RPC reply parsers and the tasks model
+#        ./run.sh selector    - checks of the selector transport of the GUI RPC
+
+JVM_DIR=$(cd "$(dirname "$0")" && pwd)
+SRC_DIR=$JVM_DIR/../src
+OUT_DIR=$JVM_DIR/out
+
+case "$1" in
+	download) MAIN_CLASS=sk.boinc.nativeboinc.jvm.DownloadHarness ;;
+	bench) MAIN_CLASS=sk.boinc.nativeboinc.jvm.ParserBenchmark ;;
+	selector) MAIN_CLASS=sk.boinc.nativeboinc.jvm.SelectorHarness ;;
+	*)
+		echo "usage: $0 download|bench|selector"
+		exit 2
+		;;
+esac
+shift
+
+rm -rf "$OUT_DIR"
+mkdir -p "$OUT_DIR"
+javac -nowarn -d "$OUT_DIR" \
+	$(find "$JVM_DIR/shim" "$JVM_DIR/src" -name "*.java") \
+	"$SRC_DIR"/sk/boinc/nativeboinc/debug/*.java \
+	$(find "$SRC_DIR/edu" -name "*.java") \
+	"$SRC_DIR"/sk/boinc/nativeboinc/installer/ResumableDownload.java \
+	"$SRC_DIR"/sk/boinc/nativeboinc/bridge/Formatter.java \
+	"$SRC_DIR"/sk/boinc/nativeboinc/bridge/TaskInfoCreator.java \
+	"$SRC_DIR"/sk/boinc/nativeboinc/bridge/TasksModel.java \
+	"$SRC_DIR"/sk/boinc/nativeboinc/clientconnection/ProjectInfo.java \
+	"$SRC_DIR"/sk/boinc/nativeboinc/clientconnection/TaskInfo.java \
+	"$SRC_DIR"/sk/boinc/nativeboinc/clientconnection/TasksChanges.java || exit 1
+exec java -cp "$OUT_DIR" $MAIN_CLASS "$@"
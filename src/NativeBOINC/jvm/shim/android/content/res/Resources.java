@@ -0,0 +1,76 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package android.content.res;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import sk.boinc.nativeboinc.R;
+
+/**
+ * Resources of the plain JVM, only strings used by the formatters of the bridge
+ * (English values from res/values)
+ * 
+ * @author mat
+ *
+ */
+public class Resources {
+	private final Map<Integer, String> mStrings = new HashMap<Integer, String>();
+	private final Map<Integer, String[]> mStringArrays = new HashMap<Integer, String[]>();
+	
+	public Resources() {
+		mStrings.put(R.string.unknown, "unknown");
+		mStrings.put(R.string.unitGB, "GB");
+		mStrings.put(R.string.unitMB, "MB");
+		mStrings.put(R.string.unitKB, "KB");
+		mStrings.put(R.string.unitB, "B");
+		mStrings.put(R.string.unitGiB, "GiB");
+		mStrings.put(R.string.unitMiB, "MiB");
+		mStrings.put(R.string.unitKiB, "KiB");
+		mStrings.put(R.string.unitMBps, "MB/s");
+		mStrings.put(R.string.unitKBps, "KB/s");
+		mStrings.put(R.string.unitBps, "B/s");
+		mStrings.put(R.string.defaultText, "Default");
+		mStrings.put(R.string.gflops, "GFLOPS");
+		mStrings.put(R.string.now, "Now");
+		mStrings.put(R.string.projectSuspendedByUser, "Project suspended by user");
+		mStrings.put(R.string.taskSuspendedByUser, "Task suspended by user");
+		mStringArrays.put(R.array.resultStates, new String[] { "New", "Downloading",
+				"Downloaded", "Computation Error", "Uploading", "Ready to report", "Aborted" });
+		mStringArrays.put(R.array.activeTaskStates, new String[] { "Ready to start", "Running",
+				"Exited", "Exited", "Exited", "Aborted", "Aborted", "Failed to start", "Exiting",
+				"Waiting to run" });
+	}
+	
+	public String getString(int id) {
+		String s = mStrings.get(id);
+		if (s == null)
+			throw new IllegalArgumentException("No string resource " + id);
+		return s;
+	}
+	
+	public String[] getStringArray(int id) {
+		String[] array = mStringArrays.get(id);
+		if (array == null)
+			throw new IllegalArgumentException("No string array resource " + id);
+		return array;
+	}
+}
@@ -0,0 +1,48 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package android.util;
+
+/**
+ * Log of the plain JVM: only warnings and errors are printed
+ * 
+ * @author mat
+ *
+ */
+public final class Log {
+	private Log() { }
+	
+	private static int print(String level, String tag, String msg, Throwable tr) {
+		System.err.println(level + "/" + tag + ": " + msg);
+		if (tr != null)
+			tr.printStackTrace();
+		return 0;
+	}
+	
+	public static int v(String tag, String msg) { return 0; }
+	public static int d(String tag, String msg) { return 0; }
+	public static int d(String tag, String msg, Throwable tr) { return 0; }
+	public static int i(String tag, String msg) { return 0; }
+	public static int i(String tag, String msg, Throwable tr) { return 0; }
+	public static int w(String tag, String msg) { return print("W", tag, msg, null); }
+	public static int w(String tag, String msg, Throwable tr) { return print("W", tag, msg, tr); }
+	public static int w(String tag, Throwable tr) { return print("W", tag, "", tr); }
+	public static int e(String tag, String msg) { return print("E", tag, msg, null); }
+	public static int e(String tag, String msg, Throwable tr) { return print("E", tag, msg, tr); }
+}
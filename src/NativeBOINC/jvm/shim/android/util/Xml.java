@@ -0,0 +1,86 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package android.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * SAX parsing of the plain JVM (namespace aware, like Android)
+ * 
+ * @author mat
+ *
+ */
+public final class Xml {
+	private Xml() { }
+	
+	public enum Encoding {
+		US_ASCII("US-ASCII"), UTF_8("UTF-8"), UTF_16("UTF-16"), ISO_8859_1("ISO-8859-1");
+		
+		final String mName;
+		
+		Encoding(String name) {
+			mName = name;
+		}
+	}
+	
+	private static void parse(InputSource source, ContentHandler contentHandler)
+			throws IOException, SAXException {
+		try {
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			XMLReader reader = factory.newSAXParser().getXMLReader();
+			reader.setContentHandler(contentHandler);
+			reader.parse(source);
+		} catch(ParserConfigurationException ex) {
+			throw new SAXException(ex);
+		}
+	}
+	
+	public static void parse(String xml, ContentHandler contentHandler) throws SAXException {
+		try {
+			parse(new InputSource(new StringReader(xml)), contentHandler);
+		} catch(IOException ex) {
+			throw new SAXException(ex);
+		}
+	}
+	
+	public static void parse(Reader in, ContentHandler contentHandler)
+			throws IOException, SAXException {
+		parse(new InputSource(in), contentHandler);
+	}
+	
+	public static void parse(InputStream in, Encoding encoding, ContentHandler contentHandler)
+			throws IOException, SAXException {
+		InputSource source = new InputSource(in);
+		source.setEncoding(encoding.mName);
+		parse(source, contentHandler);
+	}
+}
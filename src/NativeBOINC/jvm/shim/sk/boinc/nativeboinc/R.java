@@ -0,0 +1,54 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package sk.boinc.nativeboinc;
+
+/**
+ * Resource identifiers used by the bridge formatters (generated R is not available
+ * outside of Android build)
+ * 
+ * @author mat
+ *
+ */
+public final class R {
+	public static final class string {
+		public static final int unknown = 1;
+		public static final int unitGB = 2;
+		public static final int unitMB = 3;
+		public static final int unitKB = 4;
+		public static final int unitB = 5;
+		public static final int unitGiB = 6;
+		public static final int unitMiB = 7;
+		public static final int unitKiB = 8;
+		public static final int unitMBps = 9;
+		public static final int unitKBps = 10;
+		public static final int unitBps = 11;
+		public static final int defaultText = 12;
+		public static final int gflops = 13;
+		public static final int now = 14;
+		public static final int projectSuspendedByUser = 15;
+		public static final int taskSuspendedByUser = 16;
+	}
+	
+	public static final class array {
+		public static final int resultStates = 101;
+		public static final int activeTaskStates = 102;
+	}
+}
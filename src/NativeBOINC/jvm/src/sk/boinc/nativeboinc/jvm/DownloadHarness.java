@@ -0,0 +1,444 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.jvm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import sk.boinc.nativeboinc.installer.ResumableDownload;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks ResumableDownload against local HTTP server (Range, If-Range, 200 fallback,
+ * segment resume, cancel, bad state files, expiry of part files).
+ * Run by 'run.sh download', exits with status 1 if any check failed.
+ * 
+ * @author mat
+ *
+ */
+public class DownloadHarness {
+	private static final int FILE_LENGTH = 5*1024*1024 + 123;
+	private static final int CHUNK_SIZE = 8192;
+	
+	/* served content and server behaviour (changed by checks) */
+	private static volatile byte[] sContent;
+	private static volatile String sETag = "\"v1\"";
+	private static volatile boolean sAcceptRanges = true;
+	private static volatile long sDropAfter = -1; // closes connection after this bytes of response
+	private static volatile long sResponseDelay = 0; // delay of every chunk in milliseconds
+	
+	private static int sActiveRequests = 0;
+	private static int sRequests = 0;
+	private static int sRangeRequests = 0;
+	private static long sServedBytes = 0;
+	
+	private static int sFailures = 0;
+	
+	private static File sDir;
+	private static URL sUrl;
+	
+	private static class ContentHandler implements HttpHandler {
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			byte[] content = sContent;
+			String range = exchange.getRequestHeaders().getFirst("Range");
+			String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+			long start = 0;
+			long end = content.length;
+			int code = 200;
+			
+			if (sAcceptRanges)
+				exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+			exchange.getResponseHeaders().add("ETag", sETag);
+			// range is ignored if validator does not match (whole new content is sent)
+			if (sAcceptRanges && range != null && (ifRange == null || ifRange.equals(sETag))) {
+				String bytes = range.substring("bytes=".length());
+				int dash = bytes.indexOf('-');
+				start = Long.parseLong(bytes.substring(0, dash));
+				if (dash < bytes.length()-1)
+					end = Long.parseLong(bytes.substring(dash+1)) + 1;
+				code = 206;
+				exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" +
+						(end-1) + "/" + content.length);
+			}
+			synchronized(DownloadHarness.class) {
+				sActiveRequests++;
+				sRequests++;
+				if (code == 206)
+					sRangeRequests++;
+			}
+			
+			try {
+				exchange.sendResponseHeaders(code, end-start);
+				OutputStream outStream = exchange.getResponseBody();
+				long position = start;
+				while (position < end) {
+					if (sDropAfter >= 0 && position-start >= sDropAfter) {
+						exchange.close();	// broken connection
+						return;
+					}
+					if (sResponseDelay != 0)
+						Thread.sleep(sResponseDelay);
+					int length = (int)Math.min(CHUNK_SIZE, end-position);
+					outStream.write(content, (int)position, length);
+					position += length;
+					synchronized(DownloadHarness.class) {
+						sServedBytes += length;
+					}
+				}
+				outStream.close();
+			} catch(IOException ex) {
+				// client disconnected
+			} catch(InterruptedException ex) {
+			} finally {
+				synchronized(DownloadHarness.class) {
+					sActiveRequests--;
+				}
+			}
+		}
+	}
+	
+	/* computes digest of content passed to content listener */
+	private static class DigestListener implements ResumableDownload.ContentListener {
+		private final MessageDigest mDigest;
+		
+		public DigestListener() throws NoSuchAlgorithmException {
+			mDigest = MessageDigest.getInstance("SHA-1");
+		}
+		
+		@Override
+		public void onContent(byte[] buffer, int offset, int length) {
+			mDigest.update(buffer, offset, length);
+		}
+		
+		public boolean matches(byte[] content) throws NoSuchAlgorithmException {
+			return Arrays.equals(mDigest.digest(), MessageDigest.getInstance("SHA-1").digest(content));
+		}
+	}
+	
+	private static final ResumableDownload.ProgressListener sProgressListener =
+			new ResumableDownload.ProgressListener() {
+		@Override
+		public void onProgress(long downloaded, long length, int bytesPerSecond) { }
+		
+		@Override
+		public void onStreamProgress(long streamed, long length) { }
+	};
+	
+	private static File outFile() {
+		return new File(sDir, "file.zip");
+	}
+	
+	private static File partFile() {
+		return new File(sDir, "file.zip.part");
+	}
+	
+	private static File stateFile() {
+		return new File(sDir, "file.zip.part.state");
+	}
+	
+	/* waits until requests of previous (broken) download are served, they must not be counted */
+	private static void resetCounters() throws InterruptedException {
+		long idleSince = System.currentTimeMillis();
+		while (System.currentTimeMillis() - idleSince < 200) {
+			synchronized(DownloadHarness.class) {
+				if (sActiveRequests != 0)
+					idleSince = System.currentTimeMillis();
+			}
+			Thread.sleep(10);
+		}
+		synchronized(DownloadHarness.class) {
+			sRequests = 0;
+			sRangeRequests = 0;
+			sServedBytes = 0;
+		}
+	}
+	
+	private static void check(String name, boolean condition) {
+		if (condition)
+			System.out.println("  ok: " + name);
+		else {
+			System.out.println("  FAILED: " + name);
+			sFailures++;
+		}
+	}
+	
+	private static boolean outFileMatches() throws IOException {
+		File file = outFile();
+		if (!file.exists() || file.length() != sContent.length)
+			return false;
+		byte[] data = new byte[(int)file.length()];
+		InputStream inStream = new FileInputStream(file);
+		try {
+			int position = 0;
+			while (position < data.length) {
+				int readed = inStream.read(data, position, data.length-position);
+				if (readed == -1)
+					return false;
+				position += readed;
+			}
+		} finally {
+			inStream.close();
+		}
+		return Arrays.equals(data, sContent);
+	}
+	
+	/* returns not downloaded bytes by state file (lines 'start end position' after header) */
+	private static long remainingInState() throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(stateFile()));
+		try {
+			for (int i = 0; i < 3; i++)
+				reader.readLine();
+			int count = Integer.parseInt(reader.readLine());
+			long remaining = 0;
+			for (int i = 0; i < count; i++) {
+				String[] fields = reader.readLine().split(" ");
+				remaining += Long.parseLong(fields[1]) - Long.parseLong(fields[2]);
+			}
+			return remaining;
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/* runs download, checks content passed to listener if download finished */
+	private static boolean download() throws Exception {
+		ResumableDownload download = new ResumableDownload(sUrl, outFile(), partFile(), stateFile());
+		DigestListener digestListener = new DigestListener();
+		download.setContentListener(digestListener);
+		boolean finished = download.run(sProgressListener);
+		if (finished)
+			check("streamed content matches", digestListener.matches(sContent));
+		return finished;
+	}
+	
+	/* runs download, which must fail on broken connection */
+	private static void brokenDownload() throws Exception {
+		try {
+			download();
+			check("broken download fails", false);
+		} catch(IOException ex) {
+			check("broken download fails", true);
+		}
+	}
+	
+	private static void cleanup() {
+		outFile().delete();
+		partFile().delete();
+		stateFile().delete();
+	}
+	
+	private static void checkSegmentedDownload() throws Exception {
+		System.out.println("segmented download");
+		cleanup();
+		resetCounters();
+		check("download finished", download());
+		check("content matches", outFileMatches());
+		check("three segments", sRequests == 3 && sRangeRequests == 2);
+		check("part and state removed", !partFile().exists() && !stateFile().exists());
+	}
+	
+	private static void checkResume() throws Exception {
+		System.out.println("resume after broken connection");
+		cleanup();
+		sDropAfter = 512*1024;
+		brokenDownload();
+		check("state kept", stateFile().exists() && partFile().exists());
+		long remaining = remainingInState();
+		
+		sDropAfter = -1;
+		resetCounters();
+		check("download finished", download());
+		check("content matches", outFileMatches());
+		check("only range requests", sRequests == 3 && sRangeRequests == 3);
+		check("downloaded bytes not served again", sServedBytes == remaining);
+	}
+	
+	private static void checkChangedFile() throws Exception {
+		System.out.println("resume of changed file (If-Range)");
+		cleanup();
+		sDropAfter = 256*1024;
+		brokenDownload();
+		
+		// new version of the file, server replies 200 with whole content
+		sDropAfter = -1;
+		sETag = "\"v2\"";
+		sContent = sContent.clone();
+		sContent[0] ^= 1;
+		sContent[sContent.length-1] ^= 1;
+		check("download finished", download());
+		check("new content downloaded", outFileMatches());
+	}
+	
+	private static void checkWithoutRanges() throws Exception {
+		System.out.println("server without ranges");
+		cleanup();
+		sAcceptRanges = false;
+		sDropAfter = 1024*1024;
+		brokenDownload();
+		
+		sDropAfter = -1;
+		resetCounters();
+		check("download finished", download());
+		check("content matches", outFileMatches());
+		check("single request", sRequests == 1 && sRangeRequests == 0);
+		sAcceptRanges = true;
+	}
+	
+	private static void checkBadStateFiles() throws Exception {
+		System.out.println("bad state files");
+		cleanup();
+		sDropAfter = 512*1024;
+		brokenDownload();
+		sDropAfter = -1;
+		
+		FileWriter writer = new FileWriter(stateFile());
+		writer.write(sUrl.toString() + "\n\"v2\"\nbad length\n");
+		writer.close();
+		resetCounters();
+		check("garbage: download finished", download());
+		check("garbage: content matches", outFileMatches());
+		check("garbage: started from begin", sRangeRequests == 2);
+		
+		cleanup();
+		sDropAfter = 512*1024;
+		brokenDownload();
+		sDropAfter = -1;
+		// part file lost its content (positions in state are behind its end)
+		RandomAccessFile partAccess = new RandomAccessFile(partFile(), "rw");
+		partAccess.setLength(1024);
+		partAccess.close();
+		check("truncated part: download finished", download());
+		check("truncated part: content matches", outFileMatches());
+		
+		cleanup();
+		sDropAfter = 512*1024;
+		brokenDownload();
+		sDropAfter = -1;
+		// state of other url
+		writer = new FileWriter(stateFile());
+		writer.write("http://other/file.zip\n\n" + FILE_LENGTH + "\n1\n0 " + FILE_LENGTH + " 1000\n");
+		writer.close();
+		check("other url: download finished", download());
+		check("other url: content matches", outFileMatches());
+	}
+	
+	private static void checkCancel() throws Exception {
+		System.out.println("cancel and resume");
+		cleanup();
+		sResponseDelay = 2;
+		final Thread downloadThread = Thread.currentThread();
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(300);
+				} catch(InterruptedException ex) { }
+				downloadThread.interrupt();
+			}
+		}.start();
+		boolean finished = download();
+		boolean interrupted = Thread.interrupted();
+		sResponseDelay = 0;
+		check("cancelled", !finished);
+		check("interrupted state kept", interrupted);
+		check("no output file", !outFile().exists());
+		check("state kept", stateFile().exists() && partFile().exists());
+		
+		check("download finished", download());
+		check("content matches", outFileMatches());
+	}
+	
+	private static void checkExpiredParts() throws Exception {
+		System.out.println("expiry of abandoned parts");
+		File oldPart = new File(sDir, "old.zip.part");
+		File oldState = new File(sDir, "old.zip.part.state");
+		File orphanState = new File(sDir, "orphan.zip.part.state");
+		File newPart = new File(sDir, "new.zip.part");
+		File newState = new File(sDir, "new.zip.part.state");
+		File other = new File(sDir, "other.zip");
+		for (File file: new File[] { oldPart, oldState, orphanState, newPart, newState, other })
+			new FileWriter(file).close();
+		long oldTime = System.currentTimeMillis() - 3*24*3600*1000L;
+		oldPart.setLastModified(oldTime);
+		oldState.setLastModified(oldTime);
+		orphanState.setLastModified(oldTime);
+		other.setLastModified(oldTime);
+		
+		ResumableDownload.deleteExpiredParts(sDir, ".part", ".part.state", 2*24*3600*1000L);
+		check("old part removed", !oldPart.exists() && !oldState.exists());
+		check("orphan state removed", !orphanState.exists());
+		check("recent part kept", newPart.exists() && newState.exists());
+		check("other files kept", other.exists());
+		
+		for (File file: new File[] { newPart, newState, other })
+			file.delete();
+	}
+	
+	public static void main(String[] args) throws Exception {
+		sContent = new byte[FILE_LENGTH];
+		new Random(1).nextBytes(sContent);
+		// pooled connections broken by previous check are retried silently (counted twice)
+		System.setProperty("http.keepAlive", "false");
+		
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/file.zip", new ContentHandler());
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		sUrl = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/file.zip");
+		
+		sDir = File.createTempFile("download", "");
+		sDir.delete();
+		sDir.mkdirs();
+		try {
+			checkSegmentedDownload();
+			checkResume();
+			checkChangedFile();
+			checkWithoutRanges();
+			checkBadStateFiles();
+			checkCancel();
+			checkExpiredParts();
+		} finally {
+			cleanup();
+			sDir.delete();
+			server.stop(0);
+		}
+		
+		System.out.println((sFailures == 0) ? "All checks passed" : sFailures + " checks failed");
+		System.exit((sFailures == 0) ? 0 : 1);
+	}
+}
@@ -0,0 +1,482 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package sk.boinc.nativeboinc.jvm;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import sk.boinc.nativeboinc.bridge.Formatter;
+import sk.boinc.nativeboinc.bridge.TasksModel;
+import sk.boinc.nativeboinc.clientconnection.ProjectInfo;
+import sk.boinc.nativeboinc.clientconnection.TasksChanges;
+import sk.boinc.nativeboinc.debug.PerformanceStats;
+
+import android.content.Context;
+
+import edu.berkeley.boinc.lite.App;
+import edu.berkeley.boinc.lite.CcState;
+import edu.berkeley.boinc.lite.CcStateParser;
+import edu.berkeley.boinc.lite.Message;
+import edu.berkeley.boinc.lite.MessagesParser;
+import edu.berkeley.boinc.lite.Notices;
+import edu.berkeley.boinc.lite.NoticesReplyParser;
+import edu.berkeley.boinc.lite.Project;
+import edu.berkeley.boinc.lite.ProjectListEntry;
+import edu.berkeley.boinc.lite.ProjectListParser;
+import edu.berkeley.boinc.lite.Result;
+import edu.berkeley.boinc.lite.ResultsParser;
+import edu.berkeley.boinc.lite.RpcClient;
+import edu.berkeley.boinc.lite.RpcTransport;
+
+/**
+ * Benchmark of the GUI RPC reply parsers and the tasks model on synthetic replies
+ * (10, 100, 1000 and 5000 items).
+ * Every parser is measured directly (from memory) and through RpcClient with fake transport,
+ * which delays reads as slow connection. Time of the transport reads is excluded from
+ * RpcClient timings, so both timings should be close.
+ * Tasks model (dataSetTasks and dataUpdateTasks of the bridge) is built from parsed replies,
+ * every update changes all tasks.
+ * Run by 'run.sh bench', exits with status 1 if any reply was not parsed correctly.
+ * 
+ * @author mat
+ *
+ */
+public class ParserBenchmark {
+	private static final int[] SIZES = { 10, 100, 1000, 5000 };
+	private static final int PROJECTS_COUNT = 10;
+	/* approximate number of the parsed items per measurement */
+	private static final int ITEMS_PER_SIZE = 20000;
+	private static final int WARMUP_RUNS = 3;
+	/* delay of the every read of the fake transport */
+	private static final long READ_DELAY_NANOS = 50000;
+	
+	private static int sFailures = 0;
+	
+	/**
+	 * Transport, which returns prepared reply to every request
+	 */
+	private static class FakeTransport implements RpcTransport {
+		private static final int MAX_READ = 4096;
+		
+		private boolean mConnected = false;
+		private byte[] mReply = null;
+		private byte[] mPending = null;
+		private int mPosition = 0;
+		private long mReadTime = 0;
+		
+		public void setReply(String reply) {
+			try {
+				byte[] bytes = reply.getBytes("UTF-8");
+				mReply = new byte[bytes.length+1];
+				System.arraycopy(bytes, 0, mReply, 0, bytes.length);
+				mReply[bytes.length] = '\003';
+			} catch(UnsupportedEncodingException ex) {
+				throw new RuntimeException(ex);
+			}
+		}
+		
+		/* returns total time spent in reads (nanoseconds) */
+		public long getReadTime() {
+			return mReadTime;
+		}
+		
+		@Override
+		public void open(String address, int port, int connectTimeout, int readTimeout) {
+			mConnected = true;
+		}
+
+		@Override
+		public boolean isConnected() {
+			return mConnected;
+		}
+
+		@Override
+		public void writeRequest(String request) {
+			mPending = mReply;
+			mPosition = 0;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			long start = System.nanoTime();
+			if (mPending == null || mPosition == mPending.length)
+				throw new IOException("No request is pending");
+			LockSupport.parkNanos(READ_DELAY_NANOS);
+			int count = Math.min(Math.min(length, MAX_READ), mPending.length-mPosition);
+			System.arraycopy(mPending, mPosition, buffer, offset, count);
+			mPosition += count;
+			mReadTime += System.nanoTime()-start;
+			return count;
+		}
+
+		@Override
+		public void close() {
+			mConnected = false;
+		}
+	}
+	
+	/**
+	 * Single measured parsing (direct and by RpcClient)
+	 */
+	private static abstract class Case {
+		private final String mName;
+		private final String mRpcName;
+		
+		public Case(String name, String rpcName) {
+			mName = name;
+			mRpcName = rpcName;
+		}
+		
+		/* parses reply from memory, returns number of parsed items or -1 if failed */
+		public abstract int parse(String reply);
+		/* performs call of the RpcClient, returns number of parsed items or -1 if failed */
+		public abstract int call(RpcClient rpcClient);
+		
+		public void run(String reply, int size, int runs) {
+			for (int i = 0; i < WARMUP_RUNS; i++)
+				check(parse(reply), size);
+			for (int i = 0; i < runs; i++) {
+				long start = System.nanoTime();
+				int count = parse(reply);
+				PerformanceStats.record(mName, start, count);
+				check(count, size);
+			}
+			
+			FakeTransport transport = new FakeTransport();
+			transport.setReply(reply);
+			RpcClient rpcClient = new RpcClient(null, transport);
+			rpcClient.open("localhost", 31416);
+			for (int i = 0; i < WARMUP_RUNS; i++)
+				check(call(rpcClient), size);
+			for (int i = 0; i < runs; i++) {
+				long readTime = transport.getReadTime();
+				long start = System.nanoTime();
+				int count = call(rpcClient);
+				// the same accounting as RpcClient with Debugging.PERFORMANCE
+				PerformanceStats.record(mRpcName, start, transport.getReadTime()-readTime, count);
+				check(count, size);
+			}
+			rpcClient.close();
+		}
+		
+		private void check(int count, int size) {
+			if (count != size) {
+				System.out.println("FAIL: " + mName + " parsed " + count + " of " + size + " items");
+				sFailures++;
+			}
+		}
+	}
+	
+	private static final Case STATE_CASE = new Case("CcStateParser", "RpcClient.getState") {
+		@Override
+		public int parse(String reply) {
+			CcState state = CcStateParser.parse(new StringReader(reply));
+			return (state != null) ? state.results.size() : -1;
+		}
+
+		@Override
+		public int call(RpcClient rpcClient) {
+			CcState state = rpcClient.getState();
+			return (state != null) ? state.results.size() : -1;
+		}
+	};
+	
+	private static final Case RESULTS_CASE = new Case("ResultsParser", "RpcClient.getResults") {
+		@Override
+		public int parse(String reply) {
+			ArrayList<Result> results = ResultsParser.parse(new StringReader(reply));
+			return (results != null) ? results.size() : -1;
+		}
+
+		@Override
+		public int call(RpcClient rpcClient) {
+			ArrayList<Result> results = rpcClient.getResults();
+			return (results != null) ? results.size() : -1;
+		}
+	};
+	
+	private static final Case MESSAGES_CASE = new Case("MessagesParser", "RpcClient.getMessages") {
+		@Override
+		public int parse(String reply) {
+			ArrayList<Message> messages = MessagesParser.parse(new StringReader(reply));
+			return (messages != null) ? messages.size() : -1;
+		}
+
+		@Override
+		public int call(RpcClient rpcClient) {
+			ArrayList<Message> messages = rpcClient.getMessages(0);
+			return (messages != null) ? messages.size() : -1;
+		}
+	};
+	
+	private static final Case NOTICES_CASE = new Case("NoticesReplyParser", "RpcClient.getNotices") {
+		@Override
+		public int parse(String reply) {
+			Notices notices = NoticesReplyParser.parse(new StringReader(reply));
+			return (notices != null) ? notices.notices.size() : -1;
+		}
+
+		@Override
+		public int call(RpcClient rpcClient) {
+			Notices notices = rpcClient.getNotices(0);
+			return (notices != null) ? notices.notices.size() : -1;
+		}
+	};
+	
+	private static void checkTasks(String name, boolean passed, int count, int size) {
+		if (!passed || count != size) {
+			System.out.println("FAIL: " + name + " has " + count + " of " + size + " tasks");
+			sFailures++;
+		}
+	}
+	
+	/* measures building of the tasks from state and their updates by results */
+	private static void runTasksModel(int size, int runs) {
+		CcState state = CcStateParser.parse(new StringReader(stateReply(size)));
+		// progress differs, so every update changes all tasks
+		ArrayList<Result> results0 = ResultsParser.parse(new StringReader(resultsReply(size, 1)));
+		ArrayList<Result> results1 = ResultsParser.parse(new StringReader(resultsReply(size, 2)));
+		Map<String, ProjectInfo> projects = new HashMap<String, ProjectInfo>();
+		for (Project project: state.projects) {
+			ProjectInfo projectInfo = new ProjectInfo();
+			projectInfo.masterUrl = project.master_url;
+			projectInfo.project = project.project_name;
+			projects.put(project.master_url, projectInfo);
+		}
+		Map<String, App> apps = new HashMap<String, App>();
+		for (App app: state.apps)
+			apps.put(app.name, app);
+		Formatter formatter = new Formatter(new Context());
+		TasksModel model = new TasksModel();
+		
+		for (int i = 0; i < WARMUP_RUNS+runs; i++) {
+			long start = System.nanoTime();
+			model.setTasks(state.workunits, state.results, projects, apps, formatter);
+			if (i >= WARMUP_RUNS)
+				PerformanceStats.record("TasksModel.setTasks", start, state.results.size());
+			checkTasks("TasksModel.setTasks", true, model.size(), size);
+		}
+		model.publishChanges();
+		for (int i = 0; i < WARMUP_RUNS+runs; i++) {
+			ArrayList<Result> results = ((i & 1) == 0) ? results0 : results1;
+			long start = System.nanoTime();
+			boolean updated = model.updateTasks(results, formatter);
+			TasksChanges changes = model.publishChanges();
+			if (i >= WARMUP_RUNS)
+				PerformanceStats.record("TasksModel.updateTasks", start, results.size());
+			checkTasks("TasksModel.updateTasks", updated, changes.changed.size(), size);
+		}
+	}
+	
+	private static final Case PROJECT_LIST_CASE = new Case("ProjectListParser",
+			"RpcClient.getAllProjectsList") {
+		@Override
+		public int parse(String reply) {
+			ArrayList<ProjectListEntry> projects = ProjectListParser.parse(new StringReader(reply));
+			return (projects != null) ? projects.size() : -1;
+		}
+
+		@Override
+		public int call(RpcClient rpcClient) {
+			ArrayList<ProjectListEntry> projects = rpcClient.getAllProjectsList();
+			return (projects != null) ? projects.size() : -1;
+		}
+	};
+	
+	/*
+	 * Synthetic replies
+	 */
+	
+	private static String projectUrl(int i) {
+		return "http://project" + (i % PROJECTS_COUNT) + ".example.org/";
+	}
+	
+	/* progress is added to times of the result */
+	private static void appendResult(StringBuilder sb, int i, int progress) {
+		sb.append("<result>\n")
+			.append("    <name>wu_").append(i).append("_0</name>\n")
+			.append("    <wu_name>wu_").append(i).append("</wu_name>\n")
+			.append("    <project_url>").append(projectUrl(i)).append("</project_url>\n")
+			.append("    <version_num>612</version_num>\n")
+			.append("    <final_cpu_time>0.000000</final_cpu_time>\n")
+			.append("    <final_elapsed_time>0.000000</final_elapsed_time>\n")
+			.append("    <exit_status>0</exit_status>\n")
+			.append("    <state>2</state>\n")
+			.append("    <report_deadline>1318000000.000000</report_deadline>\n")
+			.append("    <received_time>1317000000.000000</received_time>\n")
+			.append("    <estimated_cpu_time_remaining>").append(3600+i-progress).append(".000000</estimated_cpu_time_remaining>\n");
+		if ((i & 3) == 0) { // every fourth task is running
+			sb.append("    <active_task>\n")
+				.append("        <active_task_state>1</active_task_state>\n")
+				.append("        <app_version_num>612</app_version_num>\n")
+				.append("        <slot>").append(i).append("</slot>\n")
+				.append("        <pid>").append(1000+i).append("</pid>\n")
+				.append("        <scheduler_state>2</scheduler_state>\n")
+				.append("        <checkpoint_cpu_time>120.500000</checkpoint_cpu_time>\n")
+				.append("        <fraction_done>0.").append(i % 1000).append("</fraction_done>\n")
+				.append("        <current_cpu_time>").append(130+progress).append(".250000</current_cpu_time>\n")
+				.append("        <elapsed_time>").append(140+progress).append(".125000</elapsed_time>\n")
+				.append("        <swap_size>104857600.000000</swap_size>\n")
+				.append("        <working_set_size_smoothed>52428800.000000</working_set_size_smoothed>\n")
+				.append("        <supports_graphics/>\n")
+				.append("    </active_task>\n");
+		}
+		sb.append("</result>\n");
+	}
+	
+	private static String resultsReply(int count, int progress) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<boinc_gui_rpc_reply>\n<results>\n");
+		for (int i = 0; i < count; i++)
+			appendResult(sb, i, progress);
+		sb.append("</results>\n</boinc_gui_rpc_reply>\n");
+		return sb.toString();
+	}
+	
+	private static String stateReply(int count) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<boinc_gui_rpc_reply>\n<client_state>\n")
+			.append("<core_client_major_version>6</core_client_major_version>\n")
+			.append("<core_client_minor_version>12</core_client_minor_version>\n")
+			.append("<core_client_release>33</core_client_release>\n");
+		for (int i = 0; i < PROJECTS_COUNT; i++) {
+			sb.append("<project>\n")
+				.append("    <master_url>").append(projectUrl(i)).append("</master_url>\n")
+				.append("    <project_name>Project ").append(i).append("</project_name>\n")
+				.append("    <user_name>user</user_name>\n")
+				.append("    <team_name>team</team_name>\n")
+				.append("    <hostid>").append(100+i).append("</hostid>\n")
+				.append("    <user_total_credit>12345.500000</user_total_credit>\n")
+				.append("    <user_expavg_credit>123.250000</user_expavg_credit>\n")
+				.append("    <host_total_credit>2345.500000</host_total_credit>\n")
+				.append("    <host_expavg_credit>23.250000</host_expavg_credit>\n")
+				.append("    <resource_share>100.000000</resource_share>\n")
+				.append("</project>\n")
+				.append("<app>\n")
+				.append("    <name>app").append(i).append("</name>\n")
+				.append("    <user_friendly_name>Application ").append(i).append("</user_friendly_name>\n")
+				.append("</app>\n")
+				.append("<app_version>\n")
+				.append("    <app_name>app").append(i).append("</app_name>\n")
+				.append("    <version_num>612</version_num>\n")
+				.append("</app_version>\n");
+		}
+		for (int i = 0; i < count; i++) {
+			sb.append("<workunit>\n")
+				.append("    <name>wu_").append(i).append("</name>\n")
+				.append("    <app_name>app").append(i % PROJECTS_COUNT).append("</app_name>\n")
+				.append("    <version_num>612</version_num>\n")
+				.append("    <rsc_fpops_est>30000000000000.000000</rsc_fpops_est>\n")
+				.append("    <rsc_fpops_bound>300000000000000.000000</rsc_fpops_bound>\n")
+				.append("    <rsc_memory_bound>100000000.000000</rsc_memory_bound>\n")
+				.append("    <rsc_disk_bound>200000000.000000</rsc_disk_bound>\n")
+				.append("</workunit>\n");
+		}
+		for (int i = 0; i < count; i++)
+			appendResult(sb, i, 0);
+		sb.append("</client_state>\n</boinc_gui_rpc_reply>\n");
+		return sb.toString();
+	}
+	
+	private static String messagesReply(int count) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<boinc_gui_rpc_reply>\n<msgs>\n");
+		for (int i = 0; i < count; i++) {
+			sb.append("<msg>\n")
+				.append(" <project>Project ").append(i % PROJECTS_COUNT).append("</project>\n")
+				.append(" <pri>1</pri>\n")
+				.append(" <seqno>").append(i+1).append("</seqno>\n")
+				.append(" <body>\nSending scheduler request: To fetch work. Requesting ")
+				.append(i).append(" seconds of work, reporting 0 completed tasks\n</body>\n")
+				.append(" <time>").append(1317000000+i).append("</time>\n")
+				.append("</msg>\n");
+		}
+		sb.append("</msgs>\n</boinc_gui_rpc_reply>\n");
+		return sb.toString();
+	}
+	
+	private static String noticesReply(int count) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<boinc_gui_rpc_reply>\n<notices>\n");
+		for (int i = 0; i < count; i++) {
+			sb.append("<notice>\n")
+				.append("   <title>Notice ").append(i).append("</title>\n")
+				.append("   <description><![CDATA[News of the project: <b>new application</b> ")
+				.append(i).append(" is available]]></description>\n")
+				.append("   <create_time>").append(1317000000+i).append(".000000</create_time>\n")
+				.append("   <arrival_time>").append(1317000100+i).append(".000000</arrival_time>\n")
+				.append("   <is_private>0</is_private>\n")
+				.append("   <project_name>Project ").append(i % PROJECTS_COUNT).append("</project_name>\n")
+				.append("   <category>server</category>\n")
+				.append("   <link>").append(projectUrl(i)).append("forum_thread.php?id=").append(i).append("</link>\n")
+				.append("   <seqno>").append(i+1).append("</seqno>\n")
+				.append("</notice>\n");
+		}
+		sb.append("</notices>\n</boinc_gui_rpc_reply>\n");
+		return sb.toString();
+	}
+	
+	private static String projectListReply(int count) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<boinc_gui_rpc_reply>\n<projects>\n");
+		for (int i = 0; i < count; i++) {
+			sb.append("<project>\n")
+				.append("    <name>Project ").append(i).append("</name>\n")
+				.append("    <url>http://project").append(i).append(".example.org/</url>\n")
+				.append("    <general_area>Physical Science</general_area>\n")
+				.append("    <specific_area>Astrophysics</specific_area>\n")
+				.append("    <description>Synthetic project ").append(i).append(" for benchmark</description>\n")
+				.append("    <home>University ").append(i).append("</home>\n")
+				.append("    <platforms>\n")
+				.append("        <name>i686-pc-linux-gnu</name>\n")
+				.append("        <name>arm-android-linux-gnu</name>\n")
+				.append("    </platforms>\n")
+				.append("    <image>http://project").append(i).append(".example.org/logo.png</image>\n")
+				.append("</project>\n");
+		}
+		sb.append("</projects>\n</boinc_gui_rpc_reply>\n");
+		return sb.toString();
+	}
+	
+	public static void main(String[] args) {
+		for (int size: SIZES) {
+			int runs = Math.max(3, ITEMS_PER_SIZE / size);
+			PerformanceStats.reset();
+			STATE_CASE.run(stateReply(size), size, runs);
+			RESULTS_CASE.run(resultsReply(size, 0), size, runs);
+			MESSAGES_CASE.run(messagesReply(size), size, runs);
+			NOTICES_CASE.run(noticesReply(size), size, runs);
+			PROJECT_LIST_CASE.run(projectListReply(size), size, runs);
+			runTasksModel(size, runs);
+			System.out.println("== " + size + " items, " + runs + " runs ==");
+			System.out.print(PerformanceStats.summary());
+		}
+		if (sFailures != 0) {
+			System.out.println(sFailures + " checks failed");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,358 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package sk.boinc.nativeboinc.jvm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.berkeley.boinc.lite.CcStatus;
+import edu.berkeley.boinc.lite.Result;
+import edu.berkeley.boinc.lite.RpcClient;
+import edu.berkeley.boinc.lite.SelectorTransport;
+import edu.berkeley.boinc.lite.Transfer;
+
+/**
+ * Checks SelectorTransport against local fake GUI RPC servers (many hosts served by
+ * one selector thread, requests held until previous reply begins, replies received
+ * ahead of the calls, connecting ahead, timeouts, dropped pipeline).
+ * Fake server reads requests as BOINC client: data after the first request are dropped.
+ * Run by 'run.sh selector', exits with status 1 if any check failed.
+ * 
+ * @author mat
+ *
+ */
+public class SelectorHarness {
+	private static final int HOSTS_COUNT = 20;
+	private static final int RESULTS_COUNT = 1000;
+	/* delay of the every reply of the fake server */
+	private static final long REPLY_DELAY = 20;
+	
+	private static int sFailures = 0;
+	
+	/* requests, which were dropped by fake server (sent before previous reply) */
+	private static final AtomicInteger sDroppedRequests = new AtomicInteger();
+	
+	/**
+	 * Fake GUI RPC server, every connection is served by own thread
+	 */
+	private static class FakeServer extends Thread {
+		private final ServerSocket mServerSocket;
+		/* connection is closed after this number of replies (0 - never) */
+		private final int mMaxReplies;
+		/* if false, requests are read, but never replied */
+		private final boolean mReplying;
+		
+		public FakeServer(int maxReplies, boolean replying) throws IOException {
+			mServerSocket = new ServerSocket();
+			mServerSocket.bind(new InetSocketAddress("127.0.0.1", 0));
+			mMaxReplies = maxReplies;
+			mReplying = replying;
+			setDaemon(true);
+			start();
+		}
+		
+		public int getPort() {
+			return mServerSocket.getLocalPort();
+		}
+		
+		public void shutdown() throws InterruptedException {
+			try {
+				mServerSocket.close();
+			} catch(IOException ex) { }
+			// socket stops listening, when accept is finished
+			join();
+		}
+		
+		@Override
+		public void run() {
+			while (true) {
+				final Socket socket;
+				try {
+					socket = mServerSocket.accept();
+				} catch(IOException ex) {
+					return;
+				}
+				Thread connection = new Thread() {
+					@Override
+					public void run() {
+						serve(socket);
+					}
+				};
+				connection.setDaemon(true);
+				connection.start();
+			}
+		}
+		
+		private void serve(Socket socket) {
+			try {
+				InputStream input = socket.getInputStream();
+				OutputStream output = socket.getOutputStream();
+				byte[] buffer = new byte[65536];
+				int replies = 0;
+				while (mMaxReplies == 0 || replies < mMaxReplies) {
+					// read one request, rest of the read data is dropped (as BOINC client does)
+					int length = 0;
+					int end = -1;
+					while (end == -1) {
+						int readed = input.read(buffer, length, buffer.length-length);
+						if (readed == -1)
+							return;
+						for (int i = length; i < length+readed; i++)
+							if (buffer[i] == '\003') {
+								end = i;
+								break;
+							}
+						length += readed;
+					}
+					if (end != length-1)
+						sDroppedRequests.incrementAndGet();
+					if (!mReplying)
+						continue;
+					String request = new String(buffer, 0, end, "ISO8859_1");
+					Thread.sleep(REPLY_DELAY);
+					output.write(reply(request).getBytes("UTF-8"));
+					output.write('\003');
+					output.flush();
+					replies++;
+				}
+			} catch(Exception ex) {
+			} finally {
+				try {
+					socket.close();
+				} catch(IOException ex) { }
+			}
+		}
+	}
+	
+	private static String reply(String request) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<boinc_gui_rpc_reply>\n");
+		if (request.contains("<get_cc_status/>"))
+			sb.append("<cc_status>\n<task_mode>2</task_mode>\n</cc_status>\n");
+		else if (request.contains("<get_file_transfers/>"))
+			sb.append("<file_transfers>\n</file_transfers>\n");
+		else if (request.contains("<get_results/>")) {
+			sb.append("<results>\n");
+			for (int i = 0; i < RESULTS_COUNT; i++)
+				sb.append("<result>\n")
+					.append("    <name>wu_").append(i).append("_0</name>\n")
+					.append("    <wu_name>wu_").append(i).append("</wu_name>\n")
+					.append("    <project_url>http://project.example.org/</project_url>\n")
+					.append("    <state>2</state>\n")
+					.append("    <report_deadline>1318000000.000000</report_deadline>\n")
+					.append("    <estimated_cpu_time_remaining>3600.000000</estimated_cpu_time_remaining>\n")
+					.append("</result>\n");
+			sb.append("</results>\n");
+		} else
+			sb.append("<error>unrecognized op</error>\n");
+		sb.append("</boinc_gui_rpc_reply>\n");
+		return sb.toString();
+	}
+	
+	public static void main(String[] args) throws Exception {
+		checkManyHosts();
+		checkRepliesAhead();
+		checkConnectAhead();
+		checkReadTimeout();
+		checkDroppedPipeline();
+		System.out.println((sFailures == 0) ? "all checks passed" : sFailures + " checks FAILED");
+		System.exit((sFailures == 0) ? 0 : 1);
+	}
+	
+	private static void check(String name, boolean condition) {
+		if (condition)
+			System.out.println("  ok: " + name);
+		else {
+			System.out.println("  FAILED: " + name);
+			sFailures++;
+		}
+	}
+	
+	private static int selectorThreadsCount() {
+		int count = 0;
+		for (Thread thread: Thread.getAllStackTraces().keySet())
+			if (thread.getName().equals("RpcSelector"))
+				count++;
+		return count;
+	}
+	
+	private static boolean isCycleCorrect(RpcClient rpcClient) {
+		CcStatus ccStatus = rpcClient.getCcStatus();
+		ArrayList<Result> results = rpcClient.getResults();
+		ArrayList<Transfer> transfers = rpcClient.getFileTransfers();
+		return ccStatus != null && ccStatus.task_mode == 2 && results != null &&
+				results.size() == RESULTS_COUNT && transfers != null && transfers.isEmpty();
+	}
+	
+	private static void checkManyHosts() throws Exception {
+		System.out.println("many hosts, blocking calls");
+		FakeServer server = new FakeServer(0, true);
+		RpcClient[] clients = new RpcClient[HOSTS_COUNT];
+		boolean opened = true;
+		for (int i = 0; i < HOSTS_COUNT; i++) {
+			clients[i] = new RpcClient(null, new SelectorTransport());
+			opened &= clients[i].open("127.0.0.1", server.getPort());
+		}
+		check("all hosts connected", opened);
+		boolean correct = true;
+		for (int i = 0; i < HOSTS_COUNT; i++) {
+			// pipelined as refresh cycle of the bridge
+			clients[i].pipelineCall(RpcClient.CALL_GET_CC_STATUS);
+			clients[i].pipelineCall(RpcClient.CALL_GET_RESULTS);
+			clients[i].pipelineCall(RpcClient.CALL_GET_FILE_TRANSFERS);
+			correct &= isCycleCorrect(clients[i]);
+		}
+		check("replies parsed", correct);
+		check("single selector thread", selectorThreadsCount() == 1);
+		for (int i = 0; i < HOSTS_COUNT; i++)
+			clients[i].close();
+		server.shutdown();
+	}
+	
+	private static void checkRepliesAhead() throws Exception {
+		System.out.println("replies received ahead of calls");
+		// connections are closed after the cycle, so calls can not wait for more data
+		FakeServer server = new FakeServer(3, true);
+		RpcClient[] clients = new RpcClient[HOSTS_COUNT];
+		SelectorTransport[] transports = new SelectorTransport[HOSTS_COUNT];
+		for (int i = 0; i < HOSTS_COUNT; i++) {
+			transports[i] = new SelectorTransport();
+			clients[i] = new RpcClient(null, transports[i]);
+			clients[i].open("127.0.0.1", server.getPort());
+		}
+		sDroppedRequests.set(0);
+		final CountDownLatch received = new CountDownLatch(HOSTS_COUNT);
+		long start = System.nanoTime();
+		for (int i = 0; i < HOSTS_COUNT; i++) {
+			clients[i].pipelineCall(RpcClient.CALL_GET_CC_STATUS);
+			clients[i].pipelineCall(RpcClient.CALL_GET_RESULTS);
+			clients[i].pipelineCall(RpcClient.CALL_GET_FILE_TRANSFERS);
+			clients[i].sendPipelinedRequests();
+			transports[i].awaitReplies(new Runnable() {
+				@Override
+				public void run() {
+					received.countDown();
+				}
+			});
+		}
+		boolean allReceived = received.await(10, TimeUnit.SECONDS);
+		long elapsed = (System.nanoTime()-start) / 1000000;
+		check("all replies received", allReceived);
+		// hosts are served in parallel (every host replies 3 times with delay)
+		check("hosts served in parallel (" + elapsed + " ms)", elapsed < HOSTS_COUNT*REPLY_DELAY);
+		boolean correct = true;
+		for (int i = 0; i < HOSTS_COUNT; i++) {
+			correct &= isCycleCorrect(clients[i]);
+			clients[i].close();
+		}
+		check("replies parsed from received data", correct);
+		check("requests held until previous reply", sDroppedRequests.get() == 0);
+		server.shutdown();
+	}
+	
+	private static void checkConnectAhead() throws Exception {
+		System.out.println("connect ahead");
+		FakeServer server = new FakeServer(0, true);
+		SelectorTransport transport = new SelectorTransport();
+		final CountDownLatch connected = new CountDownLatch(1);
+		transport.connectAhead("127.0.0.1", server.getPort(), 1000, new Runnable() {
+			@Override
+			public void run() {
+				connected.countDown();
+			}
+		});
+		check("not opened before open", !transport.isConnected());
+		check("listener called", connected.await(5, TimeUnit.SECONDS));
+		RpcClient rpcClient = new RpcClient(null, transport);
+		check("opened", rpcClient.open("127.0.0.1", server.getPort()));
+		CcStatus ccStatus = rpcClient.getCcStatus();
+		check("call performed", ccStatus != null && ccStatus.task_mode == 2);
+		rpcClient.close();
+		
+		// nobody listens on the port of the shut down server
+		int port = server.getPort();
+		server.shutdown();
+		transport = new SelectorTransport();
+		final CountDownLatch failed = new CountDownLatch(1);
+		transport.connectAhead("127.0.0.1", port, 1000, new Runnable() {
+			@Override
+			public void run() {
+				failed.countDown();
+			}
+		});
+		check("listener called on failure", failed.await(5, TimeUnit.SECONDS));
+		rpcClient = new RpcClient(null, transport);
+		check("open fails", !rpcClient.open("127.0.0.1", port));
+	}
+	
+	private static void checkReadTimeout() throws Exception {
+		System.out.println("read timeout");
+		FakeServer server = new FakeServer(0, false);
+		SelectorTransport transport = new SelectorTransport();
+		transport.open("127.0.0.1", server.getPort(), 1000, 300);
+		transport.writeRequest("<get_cc_status/>\n");
+		final CountDownLatch failed = new CountDownLatch(1);
+		long start = System.nanoTime();
+		transport.awaitReplies(new Runnable() {
+			@Override
+			public void run() {
+				failed.countDown();
+			}
+		});
+		check("listener called", failed.await(5, TimeUnit.SECONDS));
+		long elapsed = (System.nanoTime()-start) / 1000000;
+		check("after read timeout (" + elapsed + " ms)", elapsed >= 250);
+		boolean readFailed = false;
+		try {
+			transport.read(new byte[16], 0, 16);
+		} catch(IOException ex) {
+			readFailed = true;
+		}
+		check("read fails", readFailed);
+		transport.close();
+		server.shutdown();
+	}
+	
+	private static void checkDroppedPipeline() throws Exception {
+		System.out.println("call not announced");
+		FakeServer server = new FakeServer(0, true);
+		RpcClient rpcClient = new RpcClient(null, new SelectorTransport());
+		rpcClient.open("127.0.0.1", server.getPort());
+		rpcClient.pipelineCall(RpcClient.CALL_GET_RESULTS);
+		rpcClient.pipelineCall(RpcClient.CALL_GET_FILE_TRANSFERS);
+		rpcClient.sendPipelinedRequests();
+		// replies to both requests sent ahead are skipped
+		CcStatus ccStatus = rpcClient.getCcStatus();
+		check("other call performed", ccStatus != null && ccStatus.task_mode == 2);
+		ArrayList<Transfer> transfers = rpcClient.getFileTransfers();
+		check("following call performed", transfers != null && transfers.isEmpty());
+		rpcClient.close();
+		server.shutdown();
+	}
+}
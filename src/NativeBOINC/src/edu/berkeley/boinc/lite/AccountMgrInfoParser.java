@@ -77,9 +77,9 @@ public class AccountMgrInfoParser extends BoincBaseParser {
 					} else if (localName.equalsIgnoreCase("acct_mgr_url")) {
 						mAccountMgrInfo.acct_mgr_url = getCurrentElement();
 					} else if (localName.equalsIgnoreCase("have_credentials")) {
-						mAccountMgrInfo.have_credentials = !getCurrentElement().equals("0");
+						mAccountMgrInfo.have_credentials = getCurrentBoolean();
 					} else if (localName.equalsIgnoreCase("cookie_required")) {
-						mAccountMgrInfo.cookie_required = !getCurrentElement().equals("0");
+						mAccountMgrInfo.cookie_required = getCurrentBoolean();
 					} else if (localName.equalsIgnoreCase("cookie_failure_url"))
 						mAccountMgrInfo.cookie_failure_url = getCurrentElement();
 				}
@@ -73,7 +73,7 @@ public class AccountMgrRPCReplyParser extends BoincBaseParser {
 				else {
 					// Not the closing tag - we decode possible inner tags
 					if (localName.equalsIgnoreCase("error_num")) {
-						mPAR.error_num = Integer.parseInt(getCurrentElement());
+						mPAR.error_num = getCurrentInt();
 					} else if (localName.equalsIgnoreCase("message")) {
 						mPAR.messages.add(getCurrentElement());
 					}
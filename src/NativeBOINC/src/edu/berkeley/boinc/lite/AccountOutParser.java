@@ -64,7 +64,7 @@ public class AccountOutParser extends BoincBaseParser {
 		try {
 			if (mAccountOut != null) {
 				if (localName.equalsIgnoreCase("error_num")) {
-					mAccountOut.error_num = Integer.parseInt(getCurrentElement());
+					mAccountOut.error_num = getCurrentInt();
 				} else if (localName.equalsIgnoreCase("error_msg")) {
 					mAccountOut.error_msg = getCurrentElement();
 				} else if (localName.equalsIgnoreCase("authenticator")) {
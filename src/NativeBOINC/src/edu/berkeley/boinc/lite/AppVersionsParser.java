@@ -55,20 +55,20 @@ public class AppVersionsParser extends BoincBaseParser {
 	}
 
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("app_version")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		if (tag == BoincTags.APP_VERSION) {
 			mAppVersion = new AppVersion();
 		}
 	}
 
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		try {
 			if (mAppVersion != null) {
 				// We are inside <app_version>
-				if (localName.equalsIgnoreCase("app_version")) {
+				if (tag == BoincTags.APP_VERSION) {
 					// Closing tag of <app_version> - add to vector and be ready for next one
 					if (!mAppVersion.app_name.equals("")) {
 						// app_name is a must
@@ -78,11 +78,11 @@ public class AppVersionsParser extends BoincBaseParser {
 				}
 				else {
 					// Not the closing tag - we decode possible inner tags
-					if (localName.equalsIgnoreCase("app_name")) {
+					if (tag == BoincTags.APP_NAME) {
 						mAppVersion.app_name = getCurrentElement();
 					}
-					else if (localName.equalsIgnoreCase("version_num")) {
-						mAppVersion.version_num = Integer.parseInt(getCurrentElement());
+					else if (tag == BoincTags.VERSION_NUM) {
+						mAppVersion.version_num = getCurrentInt();
 					}
 				}
 			}
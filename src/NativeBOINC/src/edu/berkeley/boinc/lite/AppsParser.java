@@ -56,19 +56,19 @@ public class AppsParser extends BoincBaseParser {
 	}
 
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("app")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		if (tag == BoincTags.APP) {
 			mApp = new App();
 		}
 	}
 
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		if (mApp != null) {
 			// We are inside <app>
-			if (localName.equalsIgnoreCase("app")) {
+			if (tag == BoincTags.APP) {
 				// Closing tag of <app> - add to vector and be ready for next one
 				if (!mApp.name.equals("")) {
 					// name is a must
@@ -78,10 +78,10 @@ public class AppsParser extends BoincBaseParser {
 			}
 			else {
 				// Not the closing tag - we decode possible inner tags
-				if (localName.equalsIgnoreCase("name")) {
+				if (tag == BoincTags.NAME) {
 					mApp.name = getCurrentElement();
 				}
-				else if (localName.equalsIgnoreCase("user_friendly_name")) {
+				else if (tag == BoincTags.USER_FRIENDLY_NAME) {
 					mApp.user_friendly_name = getCurrentElement();
 				}
 			}
@@ -20,10 +20,8 @@
 package edu.berkeley.boinc.lite;
 
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.io.Reader;
 import java.io.StringReader;
-import java.util.Stack;
 
 public class BoincBaseParser implements BoincContentHandler {
 
@@ -36,57 +34,6 @@ public class BoincBaseParser implements BoincContentHandler {
 	private boolean mFirstTag = true;
 	private boolean mHaveBoincReplyTag = false;
 	
-	private static final class TagElem {
-		public String name;
-		public int charStartPos;
-		
-		public TagElem(String name) {
-			this.name = name;
-		}
-		
-		public TagElem(String name, int charStartPos) {
-			this.name = name;
-			this.charStartPos = charStartPos;
-		}
-		
-		public boolean equals(Object ob) {
-			if (ob == null)
-				return false;
-			if (ob == this)
-				return false;
-			if (ob instanceof TagElem) {
-				TagElem tagElem = (TagElem)ob;
-				return name.equals(tagElem.name);
-			} else if (ob instanceof String) {
-				// compare string
-				return name.equalsIgnoreCase((String)ob);
-			}
-			return false;
-		}
-	}
-	
-	private static final class LineCharBuferrer extends LineNumberReader {
-		public StringBuilder sb = new StringBuilder();
-		
-		public LineCharBuferrer(Reader reader) {
-			super(reader);
-		}
-		
-		@Override
-		public int read() throws IOException {
-			int readed = super.read();
-			if (readed != -1)
-				sb.append((char)readed);
-			return readed;
-		}
-		
-		@Override
-		public void close() throws IOException {
-			sb = null;
-			super.close();
-		}
-	}
-	
 	public final static void parse(BoincBaseParser parser, String istr, boolean checkBoincReplyTag)
 			throws BoincParserException {
 		StringReader reader = new StringReader(istr);
@@ -107,153 +54,49 @@ public class BoincBaseParser implements BoincContentHandler {
 		parser.mHaveBoincReplyTag = false;
 		parser.mFirstTag = true;
 		
-		LineCharBuferrer lnReader = new LineCharBuferrer(ir);
+		BoincXmlTokenizer tokenizer = new BoincXmlTokenizer(ir);
 		try {
-			/* parse header of xml (ignores) */
 			parser.startDocument();
-			Stack<TagElem> tagStack = new Stack<TagElem>();
-			int c;
-			StringBuilder sb = new StringBuilder();
-			// eating characters
-			int readedChar = -1;
-			
-			while(true) {
-				if (readedChar == -1)
-					c = lnReader.read();
-				else {
-					c = readedChar;
-					readedChar = -1;
-				}
-				if (c == -1)
-					break;
-				
-				if (c == '<') {
-					int tagDelimPos = lnReader.sb.length()-1;
-					
-					c = lnReader.read();
-					if (c == '/') {
-						// checking of tag
-						sb.setLength(0);
-						while((c = lnReader.read()) != -1) {
-							if (c == '<') {
-								readedChar = c;
-								break;
-							}
-							if (c == '>')
+			int token;
+			while ((token = tokenizer.next()) != BoincXmlTokenizer.EOF) {
+				int tag = tokenizer.getTag();
+				String tagName = tokenizer.getTagName();
+				if (token == BoincXmlTokenizer.START_TAG)
+					parser.startElement(tag, tagName);
+				else if (token == BoincXmlTokenizer.EMPTY_TAG) {
+					parser.startElement(tag, tagName);
+					parser.characters(tokenizer.getBody(), 0, 0);
+					parser.endElement(tag, tagName);
+				} else { // END_TAG
+					StringBuilder allBody = tokenizer.getBody();
+					int startPos = tokenizer.getTextStart();
+					int endPos = tokenizer.getTextEnd();
+					if (parser.mTrimCharacters) {
+						for (; startPos < endPos; startPos++)
+							if (!Character.isWhitespace(allBody.charAt(startPos)))
 								break;
-							sb.append((char)c);
-						}
-						if (readedChar != -1)
-							continue;
 						
-						if (c == -1)
-							throw new BoincParserException(lnReader.getLineNumber()+1,
-									"Unexpected end of document");
-						
-						String endedTagName = rtrim(sb.toString());
-						if (tagStack.contains(new TagElem(endedTagName))) {
-							// flushing stack
-							TagElem tagElem = null;
-							boolean foundInStack = false;
-							while ((tagElem = tagStack.pop()) != null) {
-								if (tagElem.name.equalsIgnoreCase(endedTagName)) {
-									foundInStack = true;
+						if (startPos < endPos) {
+							for (endPos = endPos-1; endPos >= startPos; endPos--)
+								if (!Character.isWhitespace(allBody.charAt(endPos)))
 									break;
-								}
-							}
-							
-							if(!foundInStack)	// ignore it
-								continue;
-							
-							// if tag end
-							//String charsString = lnReader.sb.substring(tagElem.charStartPos, tagDelimPos);
-							if (parser.mTrimCharacters) {
-								StringBuilder allBody = lnReader.sb;
-								int startPos = tagElem.charStartPos;
-								int endPos = tagDelimPos;
-								
-								for (; startPos < endPos; startPos++)
-									if (!Character.isWhitespace(allBody.charAt(startPos)))
-										break;
-								
-								if (startPos < endPos) {
-									for (endPos = endPos-1; endPos >= startPos; endPos--)
-										if (!Character.isWhitespace(allBody.charAt(endPos)))
-											break;
-									endPos++;
-								}
-								
-								parser.characters(lnReader.sb, startPos, endPos);
-							} else
-								parser.characters(lnReader.sb, tagElem.charStartPos, tagDelimPos);
-							parser.endElement(endedTagName);
-						}
-					} else if (c == -1)
-						throw new BoincParserException(lnReader.getLineNumber()+1,
-								"Unexpected end of document");
-					else {
-						// check tag begin
-						sb.setLength(0);
-						sb.append((char)c);
-						while ((c = lnReader.read()) != -1) {
-							if (c == '<') {
-								readedChar = c;
-								break;
-							}
-							if (c == '>')
-								break;
-							sb.append((char)c);
-						}
-						
-						if (readedChar != -1)
-							continue;
-						
-						if (c == -1)
-							throw new BoincParserException(lnReader.getLineNumber()+1,
-									"Unexpected end of document");
-						
-						String tagName = rtrim(sb.toString());
-						boolean endedTag = false;
-						if (tagName.endsWith("/")) {
-							endedTag = true;
-							tagName = rtrim(tagName.substring(0, tagName.length()-1));
-						}
-						// verify tag name
-						boolean verified = true;
-						for (int i = 0; i < tagName.length(); i++) {
-							c = tagName.charAt(i);
-							if (!Character.isLetterOrDigit(c) && c != '_') {
-								verified = false;
-								break;
-							}
-						}
-						
-						if (!verified) // ignore if not verified tag name
-							continue;
-						
-						parser.startElement(tagName);
-						if (!endedTag)
-							tagStack.push(new TagElem(tagName, lnReader.sb.length()));
-						else {
-							parser.characters(lnReader.sb, 0, 0);
-							parser.endElement(tagName);
+							endPos++;
 						}
 					}
+					parser.characters(allBody, startPos, endPos);
+					parser.endElement(tag, tagName);
 				}
 			}
-			if (!tagStack.isEmpty())
-				throw new BoincParserException(lnReader.getLineNumber()+1,
-						"Unexpected end of document");
 			parser.endDocument();
 			
 			if (checkBoincReplyTag && !parser.mHaveBoincReplyTag)
-				throw new BoincParserException(lnReader.getLineNumber()+1,
+				throw new BoincParserException(tokenizer.getLineNumber(),
 						"Reply dont have <boinc_gui_rpc_reply> tag.");
 		} catch(IOException ex) {
 			throw new BoincParserException(ex);
 		} finally {
 			try {
-				lnReader.close();
+				ir.close();
 			} catch (IOException ex) { }
 		}
 	}
@@ -261,7 +104,217 @@ public class BoincBaseParser implements BoincContentHandler {
 	public String getCurrentElement() {
 		return mAllBody.substring(mCurrentElementStart, mCurrentElementEnd);
 	}
-	
+
+	/*
+	 * numeric decoders: decode the text of current element directly from the body
+	 * (without creating String). Results are same as from Integer.parseInt,
+	 * Long.parseLong, Double.parseDouble and Float.parseFloat, uncommon forms
+	 * (long mantissas, big exponents, NaN, malformed text) are passed to these methods.
+	 */
+
+	private static final double[] DOUBLE_POWERS_OF_10 = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private static final float[] FLOAT_POWERS_OF_10 = {
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+
+	/* maximal number of significant digits which are exactly represented */
+	private static final int MAX_DOUBLE_DIGITS = 15;
+	private static final int MAX_FLOAT_DIGITS = 7;
+	private static final int MAX_LONG_DIGITS = 18;
+
+	/* results of scanDecimal */
+	private boolean mDecodedNegative;
+	private long mDecodedMantissa;
+	private int mDecodedDigits;
+	private int mDecodedExponent;
+
+	/**
+	 * Decodes integer from current element
+	 * @return integer value
+	 * @throws NumberFormatException if text is not valid integer
+	 */
+	public int getCurrentInt() {
+		long value = scanInteger();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE || mDecodedDigits < 0)
+			return Integer.parseInt(getCurrentElement());
+		return (int)value;
+	}
+
+	/**
+	 * Decodes long integer from current element
+	 * @return long value
+	 * @throws NumberFormatException if text is not valid integer
+	 */
+	public long getCurrentLong() {
+		long value = scanInteger();
+		if (mDecodedDigits < 0)
+			return Long.parseLong(getCurrentElement());
+		return value;
+	}
+
+	/**
+	 * Decodes double from current element
+	 * @return double value
+	 * @throws NumberFormatException if text is not valid number
+	 */
+	public double getCurrentDouble() {
+		if (scanDecimal() && mDecodedDigits <= MAX_DOUBLE_DIGITS) {
+			if (mDecodedMantissa == 0)
+				return mDecodedNegative ? -0.0 : 0.0;
+			/* mantissa and power of 10 are exact, hence single operation gives
+			 * correctly rounded value */
+			double value = (double)mDecodedMantissa;
+			int exponent = mDecodedExponent;
+			if (exponent >= 0 && exponent < DOUBLE_POWERS_OF_10.length)
+				value *= DOUBLE_POWERS_OF_10[exponent];
+			else if (exponent < 0 && -exponent < DOUBLE_POWERS_OF_10.length)
+				value /= DOUBLE_POWERS_OF_10[-exponent];
+			else
+				return Double.parseDouble(getCurrentElement());
+			return mDecodedNegative ? -value : value;
+		}
+		return Double.parseDouble(getCurrentElement());
+	}
+
+	/**
+	 * Decodes float from current element
+	 * @return float value
+	 * @throws NumberFormatException if text is not valid number
+	 */
+	public float getCurrentFloat() {
+		if (scanDecimal() && mDecodedDigits <= MAX_FLOAT_DIGITS) {
+			if (mDecodedMantissa == 0)
+				return mDecodedNegative ? -0.0f : 0.0f;
+			float value = (float)mDecodedMantissa;
+			int exponent = mDecodedExponent;
+			if (exponent >= 0 && exponent < FLOAT_POWERS_OF_10.length)
+				value *= FLOAT_POWERS_OF_10[exponent];
+			else if (exponent < 0 && -exponent < FLOAT_POWERS_OF_10.length)
+				value /= FLOAT_POWERS_OF_10[-exponent];
+			else
+				return Float.parseFloat(getCurrentElement());
+			return mDecodedNegative ? -value : value;
+		}
+		return Float.parseFloat(getCurrentElement());
+	}
+
+	/**
+	 * Decodes boolean flag from current element (anything except '0' is true)
+	 * @return boolean value
+	 */
+	public boolean getCurrentBoolean() {
+		return !(mCurrentElementEnd - mCurrentElementStart == 1 &&
+				mAllBody.charAt(mCurrentElementStart) == '0');
+	}
+
+	/* returns value, mDecodedDigits is negative if text must be decoded by parseXXX */
+	private long scanInteger() {
+		final StringBuilder body = mAllBody;
+		final int end = mCurrentElementEnd;
+		int pos = mCurrentElementStart;
+
+		mDecodedDigits = -1;
+		if (pos < end) {
+			char c = body.charAt(pos);
+			boolean negative = (c == '-');
+			if (negative || c == '+')
+				pos++;
+			if (pos == end || end-pos > MAX_LONG_DIGITS)
+				return 0;
+
+			long value = 0;
+			for (; pos < end; pos++) {
+				c = body.charAt(pos);
+				if (c < '0' || c > '9')
+					return 0;
+				value = value*10 + (c-'0');
+			}
+			mDecodedDigits = MAX_LONG_DIGITS;
+			return negative ? -value : value;
+		}
+		return 0;
+	}
+
+	/*
+	 * scans [sign]digits[.digits][(e|E)[sign]digits] into mantissa, digits and exponent.
+	 * returns false if text has other form or mantissa is too long
+	 */
+	private boolean scanDecimal() {
+		final StringBuilder body = mAllBody;
+		final int end = mCurrentElementEnd;
+		int pos = mCurrentElementStart;
+		if (pos == end)
+			return false;
+
+		char c = body.charAt(pos);
+		mDecodedNegative = (c == '-');
+		if (mDecodedNegative || c == '+')
+			pos++;
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		int trailingZeros = 0;	// zeros not yet included in mantissa
+		boolean haveDigits = false;
+		boolean inFraction = false;
+		for (; pos < end; pos++) {
+			c = body.charAt(pos);
+			if (c >= '0' && c <= '9') {
+				haveDigits = true;
+				if (inFraction)
+					exponent--;
+				if (c == '0') {
+					if (mantissa != 0)
+						trailingZeros++;
+					continue;
+				}
+				digits += trailingZeros+1;
+				if (digits > MAX_LONG_DIGITS)
+					return false;
+				for (; trailingZeros != 0; trailingZeros--)
+					mantissa *= 10;
+				mantissa = mantissa*10 + (c-'0');
+			} else if (c == '.' && !inFraction)
+				inFraction = true;
+			else
+				break;
+		}
+		if (!haveDigits)
+			return false;
+		exponent += trailingZeros;
+
+		if (pos < end) {
+			if (c != 'e' && c != 'E')
+				return false;
+			pos++;
+			if (pos == end)
+				return false;
+			c = body.charAt(pos);
+			boolean negativeExp = (c == '-');
+			if (negativeExp || c == '+')
+				pos++;
+			if (pos == end || end-pos > 4)
+				return false;
+			int exponentPart = 0;
+			for (; pos < end; pos++) {
+				c = body.charAt(pos);
+				if (c < '0' || c > '9')
+					return false;
+				exponentPart = exponentPart*10 + (c-'0');
+			}
+			exponent += negativeExp ? -exponentPart : exponentPart;
+		}
+
+		mDecodedMantissa = mantissa;
+		mDecodedDigits = digits;
+		mDecodedExponent = exponent;
+		return true;
+	}
+
 	@Override
 	public void characters(StringBuilder chars, int startPos, int endPos) {
 		//mCurrentElement = chars.substring(startPos, endPos);
@@ -293,4 +346,15 @@ public class BoincBaseParser implements BoincContentHandler {
 	public void endElement(String qName) {
 		
 	}
+
+	/* parsers which dispatch on tag identifier override these methods */
+	@Override
+	public void startElement(int tag, String qName) {
+		startElement(qName);
+	}
+
+	@Override
+	public void endElement(int tag, String qName) {
+		endElement(qName);
+	}
 }
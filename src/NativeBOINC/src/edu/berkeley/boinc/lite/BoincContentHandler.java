@@ -13,4 +13,7 @@ public interface BoincContentHandler {
 	public abstract void endDocument();
 	public abstract void startElement(String localName);
 	public abstract void endElement(String localName);
+	/* tag is one of BoincTags or BoincTags.UNKNOWN */
+	public abstract void startElement(int tag, String localName);
+	public abstract void endElement(int tag, String localName);
 }
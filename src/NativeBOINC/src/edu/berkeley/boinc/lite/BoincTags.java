@@ -0,0 +1,360 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.lite;
+
+/**
+ * Dictionary of known element names of GUI RPC replies. Tokenizer maps these names
+ * to small identifiers, so parsers can switch on the tag instead of comparing strings.
+ * Names outside of dictionary are reported as UNKNOWN.
+ *
+ * @author mat
+ *
+ */
+public final class BoincTags {
+	public static final int UNKNOWN = -1;
+
+	public static final int ACTIVE_TASK = 0;
+	public static final int ACTIVE_TASK_STATE = 1;
+	public static final int APP = 2;
+	public static final int APP_NAME = 3;
+	public static final int APP_VERSION = 4;
+	public static final int APP_VERSION_NUM = 5;
+	public static final int ARRIVAL_TIME = 6;
+	public static final int ATI_BACKOFF_INTERVAL = 7;
+	public static final int ATI_BACKOFF_TIME = 8;
+	public static final int ATI_DEBT = 9;
+	public static final int ATI_SHORT_TERM_DEBT = 10;
+	public static final int ATTACHED_VIA_ACCT_MGR = 11;
+	public static final int BODY = 12;
+	public static final int BOINC_GUI_RPC_REPLY = 13;
+	public static final int BYTES_XFERRED = 14;
+	public static final int CATEGORY = 15;
+	public static final int CHECKPOINT_CPU_TIME = 16;
+	public static final int CLIENT_STATE = 17;
+	public static final int CORE_CLIENT_MAJOR_VERSION = 18;
+	public static final int CORE_CLIENT_MINOR_VERSION = 19;
+	public static final int CORE_CLIENT_RELEASE = 20;
+	public static final int CPU_BACKOFF_INTERVAL = 21;
+	public static final int CPU_BACKOFF_TIME = 22;
+	public static final int CREATE_TIME = 23;
+	public static final int CUDA_BACKOFF_INTERVAL = 24;
+	public static final int CUDA_BACKOFF_TIME = 25;
+	public static final int CUDA_DEBT = 26;
+	public static final int CUDA_SHORT_TERM_DEBT = 27;
+	public static final int CURRENT_CPU_TIME = 28;
+	public static final int D_FREE = 29;
+	public static final int D_TOTAL = 30;
+	public static final int DESCRIPTION = 31;
+	public static final int DETACH_WHEN_DONE = 32;
+	public static final int DOMAIN_NAME = 33;
+	public static final int DONT_REQUEST_MORE_WORK = 34;
+	public static final int DOWNLOAD_BACKOFF = 35;
+	public static final int DURATION_CORRECTION_FACTOR = 36;
+	public static final int EDF_SCHEDULED = 37;
+	public static final int ELAPSED_TIME = 38;
+	public static final int ENDED = 39;
+	public static final int ESTIMATED_CPU_TIME_REMAINING = 40;
+	public static final int EXIT_STATUS = 41;
+	public static final int FEED_URL = 42;
+	public static final int FILE_TRANSFER = 43;
+	public static final int FILE_TRANSFERS = 44;
+	public static final int FILE_XFER = 45;
+	public static final int FINAL_CPU_TIME = 46;
+	public static final int FINAL_ELAPSED_TIME = 47;
+	public static final int FRACTION_DONE = 48;
+	public static final int GENERATED_LOCALLY = 49;
+	public static final int GOT_SERVER_ACK = 50;
+	public static final int GRAPHIC_MODE_ACKED = 51;
+	public static final int GRAPHICS_EXEC_PATH = 52;
+	public static final int GUI_URL = 53;
+	public static final int GUI_URLS = 54;
+	public static final int GUID = 55;
+	public static final int HAVE_ATI = 56;
+	public static final int HAVE_CUDA = 57;
+	public static final int HOST_CPID = 58;
+	public static final int HOST_EXPAVG_CREDIT = 59;
+	public static final int HOST_INFO = 60;
+	public static final int HOST_TOTAL_CREDIT = 61;
+	public static final int HOST_VENUE = 62;
+	public static final int HOSTID = 63;
+	public static final int IP_ADDR = 64;
+	public static final int IS_PRIVATE = 65;
+	public static final int LAST_BYTES_XFERRED = 66;
+	public static final int LAST_RPC_TIME = 67;
+	public static final int LINK = 68;
+	public static final int LONG_TERM_DEBT = 69;
+	public static final int M_CACHE = 70;
+	public static final int M_NBYTES = 71;
+	public static final int M_SWAP = 72;
+	public static final int MASTER_FETCH_FAILURES = 73;
+	public static final int MASTER_URL = 74;
+	public static final int MASTER_URL_FETCH_PENDING = 75;
+	public static final int MIN_RPC_TIME = 76;
+	public static final int MSG = 77;
+	public static final int MSGS = 78;
+	public static final int NAME = 79;
+	public static final int NBYTES = 80;
+	public static final int NEEDS_SHMEM = 81;
+	public static final int NEXT_REQUEST_TIME = 82;
+	public static final int NO_ATI_PREF = 83;
+	public static final int NO_CPU_PREF = 84;
+	public static final int NO_CUDA_PREF = 85;
+	public static final int NON_CPU_INTENSIVE = 86;
+	public static final int NOTICE = 87;
+	public static final int NOTICES = 88;
+	public static final int NRPC_FAILURES = 89;
+	public static final int OS_NAME = 90;
+	public static final int OS_VERSION = 91;
+	public static final int P_CALCULATED = 92;
+	public static final int P_FEATURES = 93;
+	public static final int P_FPOPS = 94;
+	public static final int P_IOPS = 95;
+	public static final int P_MEMBW = 96;
+	public static final int P_MODEL = 97;
+	public static final int P_NCPUS = 98;
+	public static final int P_VENDOR = 99;
+	public static final int PERSISTENT_FILE_XFER = 100;
+	public static final int PID = 101;
+	public static final int PRI = 102;
+	public static final int PROJECT = 103;
+	public static final int PROJECT_BACKOFF = 104;
+	public static final int PROJECT_FILES_DOWNLOADED_TIME = 105;
+	public static final int PROJECT_NAME = 106;
+	public static final int PROJECT_SUSPENDED_VIA_GUI = 107;
+	public static final int PROJECT_URL = 108;
+	public static final int PROJECTS = 109;
+	public static final int READY_TO_REPORT = 110;
+	public static final int RECEIVED_TIME = 111;
+	public static final int REPORT_DEADLINE = 112;
+	public static final int RESOURCE_SHARE = 113;
+	public static final int RESOURCES = 114;
+	public static final int RESULT = 115;
+	public static final int RESULTS = 116;
+	public static final int RSC_DISK_BOUND = 117;
+	public static final int RSC_FPOPS_BOUND = 118;
+	public static final int RSC_FPOPS_EST = 119;
+	public static final int RSC_MEMORY_BOUND = 120;
+	public static final int SCHED_RPC_PENDING = 121;
+	public static final int SCHEDULER_RPC_IN_PROGRESS = 122;
+	public static final int SCHEDULER_STATE = 123;
+	public static final int SEQNO = 124;
+	public static final int SHORT_TERM_DEBT = 125;
+	public static final int SLOT = 126;
+	public static final int SLOT_PATH = 127;
+	public static final int STATE = 128;
+	public static final int STATUS = 129;
+	public static final int SUPPORTS_GRAPHICS = 130;
+	public static final int SUSPENDED_VIA_GUI = 131;
+	public static final int SWAP_SIZE = 132;
+	public static final int TEAM_NAME = 133;
+	public static final int TIME = 134;
+	public static final int TIME_SO_FAR = 135;
+	public static final int TIMEZONE = 136;
+	public static final int TITLE = 137;
+	public static final int TOO_LARGE = 138;
+	public static final int TRICKLE_UP_PENDING = 139;
+	public static final int UPLOAD_BACKOFF = 140;
+	public static final int URL = 141;
+	public static final int USER_EXPAVG_CREDIT = 142;
+	public static final int USER_FRIENDLY_NAME = 143;
+	public static final int USER_NAME = 144;
+	public static final int USER_TOTAL_CREDIT = 145;
+	public static final int VERSION_NUM = 146;
+	public static final int VIRTUALBOX_VERSION = 147;
+	public static final int WORKING_SET_SIZE_SMOOTHED = 148;
+	public static final int WORKUNIT = 149;
+	public static final int WU_NAME = 150;
+	public static final int XFER_SPEED = 151;
+
+	private static final String[] NAMES = {
+		"active_task",
+		"active_task_state",
+		"app",
+		"app_name",
+		"app_version",
+		"app_version_num",
+		"arrival_time",
+		"ati_backoff_interval",
+		"ati_backoff_time",
+		"ati_debt",
+		"ati_short_term_debt",
+		"attached_via_acct_mgr",
+		"body",
+		"boinc_gui_rpc_reply",
+		"bytes_xferred",
+		"category",
+		"checkpoint_cpu_time",
+		"client_state",
+		"core_client_major_version",
+		"core_client_minor_version",
+		"core_client_release",
+		"cpu_backoff_interval",
+		"cpu_backoff_time",
+		"create_time",
+		"cuda_backoff_interval",
+		"cuda_backoff_time",
+		"cuda_debt",
+		"cuda_short_term_debt",
+		"current_cpu_time",
+		"d_free",
+		"d_total",
+		"description",
+		"detach_when_done",
+		"domain_name",
+		"dont_request_more_work",
+		"download_backoff",
+		"duration_correction_factor",
+		"edf_scheduled",
+		"elapsed_time",
+		"ended",
+		"estimated_cpu_time_remaining",
+		"exit_status",
+		"feed_url",
+		"file_transfer",
+		"file_transfers",
+		"file_xfer",
+		"final_cpu_time",
+		"final_elapsed_time",
+		"fraction_done",
+		"generated_locally",
+		"got_server_ack",
+		"graphic_mode_acked",
+		"graphics_exec_path",
+		"gui_url",
+		"gui_urls",
+		"guid",
+		"have_ati",
+		"have_cuda",
+		"host_cpid",
+		"host_expavg_credit",
+		"host_info",
+		"host_total_credit",
+		"host_venue",
+		"hostid",
+		"ip_addr",
+		"is_private",
+		"last_bytes_xferred",
+		"last_rpc_time",
+		"link",
+		"long_term_debt",
+		"m_cache",
+		"m_nbytes",
+		"m_swap",
+		"master_fetch_failures",
+		"master_url",
+		"master_url_fetch_pending",
+		"min_rpc_time",
+		"msg",
+		"msgs",
+		"name",
+		"nbytes",
+		"needs_shmem",
+		"next_request_time",
+		"no_ati_pref",
+		"no_cpu_pref",
+		"no_cuda_pref",
+		"non_cpu_intensive",
+		"notice",
+		"notices",
+		"nrpc_failures",
+		"os_name",
+		"os_version",
+		"p_calculated",
+		"p_features",
+		"p_fpops",
+		"p_iops",
+		"p_membw",
+		"p_model",
+		"p_ncpus",
+		"p_vendor",
+		"persistent_file_xfer",
+		"pid",
+		"pri",
+		"project",
+		"project_backoff",
+		"project_files_downloaded_time",
+		"project_name",
+		"project_suspended_via_gui",
+		"project_url",
+		"projects",
+		"ready_to_report",
+		"received_time",
+		"report_deadline",
+		"resource_share",
+		"resources",
+		"result",
+		"results",
+		"rsc_disk_bound",
+		"rsc_fpops_bound",
+		"rsc_fpops_est",
+		"rsc_memory_bound",
+		"sched_rpc_pending",
+		"scheduler_rpc_in_progress",
+		"scheduler_state",
+		"seqno",
+		"short_term_debt",
+		"slot",
+		"slot_path",
+		"state",
+		"status",
+		"supports_graphics",
+		"suspended_via_gui",
+		"swap_size",
+		"team_name",
+		"time",
+		"time_so_far",
+		"timezone",
+		"title",
+		"too_large",
+		"trickle_up_pending",
+		"upload_backoff",
+		"url",
+		"user_expavg_credit",
+		"user_friendly_name",
+		"user_name",
+		"user_total_credit",
+		"version_num",
+		"virtualbox_version",
+		"working_set_size_smoothed",
+		"workunit",
+		"wu_name",
+		"xfer_speed"
+	};
+
+	public static final int COUNT = NAMES.length;
+
+	/* lookup table of known names, read-only after initialization */
+	static final TagTable KNOWN_TAGS = new TagTable();
+
+	static {
+		for (String name: NAMES)
+			KNOWN_TAGS.add(name);
+	}
+
+	private BoincTags() { }
+
+	/**
+	 * @param tag identifier of the tag
+	 * @return name of the tag or null if tag is unknown
+	 */
+	public static String getName(int tag) {
+		return (tag >= 0 && tag < COUNT) ? NAMES[tag] : null;
+	}
+}
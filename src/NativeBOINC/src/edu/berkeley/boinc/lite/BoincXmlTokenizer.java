@@ -0,0 +1,340 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.lite;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull tokenizer used by BoincBaseParser.
+ *
+ * Input is read in chunks and appended to the body window (StringBuilder passed
+ * to BoincContentHandler.characters()). Tag names are interned, open tags are held
+ * in the int-array stack and text of the element is returned as offsets in the window.
+ * Names from BoincTags are returned as their identifiers.
+ *
+ * While parsing long documents the window is compacted: text of the elements
+ * at first two levels which contain other elements (boinc_gui_rpc_reply, client_state,
+ * results,...) is dropped and returned as empty.
+ *
+ * @author mat
+ *
+ */
+final class BoincXmlTokenizer {
+	public static final int EOF = 0;
+	public static final int START_TAG = 1;
+	public static final int END_TAG = 2;
+	public static final int EMPTY_TAG = 3;
+
+	private static final int NONE = -1;
+
+	private static final int CHUNK_SIZE = 4096;
+	private static final int COMPACT_THRESHOLD = 16384;
+	private static final int KEPT_CONTAINERS_LEVEL = 2;
+
+	/* states */
+	private static final int STATE_TEXT = 0;
+	private static final int STATE_MARKUP = 1;	// after '<'
+	private static final int STATE_START_TAG = 2;
+	private static final int STATE_END_TAG = 3;
+
+	private final Reader mReader;
+	private final char[] mChunk = new char[CHUNK_SIZE];
+	private int mChunkPos = 0;
+	private int mChunkEnd = 0;
+
+	private final StringBuilder mBody = new StringBuilder(COMPACT_THRESHOLD + CHUNK_SIZE);
+	private int mBodyBase = 0;	// position of the chunk in body
+	private int mDiscardedLines = 0;
+
+	private int mState = STATE_TEXT;
+	private int mMarkupStart = 0;
+	private char[] mName = new char[64];
+	private int mNameLength = 0;
+
+	/* names outside of BoincTags, their identifiers are offset by BoincTags.COUNT */
+	private final TagTable mOtherTags = new TagTable();
+
+	/* open tags stack */
+	private int[] mStackTags = new int[16];
+	private int[] mStackStarts = new int[16];
+	private boolean[] mStackHasChildren = new boolean[16];
+	private int mDepth = 0;
+
+	/* current token */
+	private int mTag = NONE;
+	private int mTextStart = 0;
+	private int mTextEnd = 0;
+
+	public BoincXmlTokenizer(Reader reader) {
+		mReader = reader;
+	}
+
+	/**
+	 * Reads next token
+	 * @return token type (START_TAG, END_TAG, EMPTY_TAG or EOF)
+	 * @throws IOException if error occurs while reading input
+	 * @throws BoincParserException if document is unexpectedly ended
+	 */
+	public int next() throws IOException, BoincParserException {
+		while (true) {
+			if (mChunkPos == mChunkEnd && !readChunk()) {
+				if (mState != STATE_TEXT || mDepth != 0)
+					throw new BoincParserException(getLineNumber(), "Unexpected end of document");
+				return EOF;
+			}
+
+			final char[] chunk = mChunk;
+			final int end = mChunkEnd;
+			int pos = mChunkPos;
+			char c;
+
+			switch (mState) {
+			case STATE_TEXT:
+				while (pos < end && chunk[pos] != '<')
+					pos++;
+				if (pos < end) {
+					mMarkupStart = mBodyBase + pos;
+					mState = STATE_MARKUP;
+					pos++;
+				}
+				mChunkPos = pos;
+				break;
+			case STATE_MARKUP:
+				c = chunk[pos++];
+				mChunkPos = pos;
+				mNameLength = 0;
+				if (c == '/')
+					mState = STATE_END_TAG;
+				else if (c == '<') // broken markup, begin again
+					mMarkupStart = mBodyBase + pos - 1;
+				else {
+					mName[mNameLength++] = c;
+					mState = STATE_START_TAG;
+				}
+				break;
+			default: // inside tag
+				c = 0;
+				while (pos < end) {
+					c = chunk[pos];
+					if (c == '>' || c == '<')
+						break;
+					if (mNameLength == mName.length) {
+						char[] newName = new char[mNameLength<<1];
+						System.arraycopy(mName, 0, newName, 0, mNameLength);
+						mName = newName;
+					}
+					mName[mNameLength++] = c;
+					pos++;
+				}
+				if (pos == end) { // tag continues in next chunk
+					mChunkPos = pos;
+					break;
+				}
+				mChunkPos = pos+1;
+				if (c == '<') {
+					// broken markup, begin again from this character
+					mMarkupStart = mBodyBase + pos;
+					mState = STATE_MARKUP;
+					break;
+				}
+
+				int token = (mState == STATE_START_TAG) ? finishStartTag() : finishEndTag();
+				mState = STATE_TEXT;
+				if (token != NONE)
+					return token;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return tag of current token (one of BoincTags or BoincTags.UNKNOWN)
+	 */
+	public int getTag() {
+		return (mTag < BoincTags.COUNT) ? mTag : BoincTags.UNKNOWN;
+	}
+
+	/**
+	 * @return name of the tag of current token
+	 */
+	public String getTagName() {
+		if (mTag < BoincTags.COUNT)
+			return BoincTags.getName(mTag);
+		return mOtherTags.getName(mTag - BoincTags.COUNT);
+	}
+
+	/**
+	 * @return body (window) which contains text of the element
+	 */
+	public StringBuilder getBody() {
+		return mBody;
+	}
+
+	/**
+	 * @return start of the text of ended element in body
+	 */
+	public int getTextStart() {
+		return mTextStart;
+	}
+
+	/**
+	 * @return end of the text of ended element in body
+	 */
+	public int getTextEnd() {
+		return mTextEnd;
+	}
+
+	public int getLineNumber() {
+		int lineNo = mDiscardedLines+1;
+		int end = Math.min(mBodyBase + mChunkPos, mBody.length());
+		for (int i = 0; i < end; i++)
+			if (mBody.charAt(i) == '\n')
+				lineNo++;
+		return lineNo;
+	}
+
+	private int rtrimName(int length) {
+		while (length > 0 && Character.isWhitespace(mName[length-1]))
+			length--;
+		return length;
+	}
+
+	private int lookupTag(int length, boolean add) {
+		int tag = BoincTags.KNOWN_TAGS.lookup(mName, length, false);
+		if (tag != BoincTags.UNKNOWN)
+			return tag;
+		tag = mOtherTags.lookup(mName, length, add);
+		return (tag != BoincTags.UNKNOWN) ? tag + BoincTags.COUNT : NONE;
+	}
+
+	private int finishStartTag() {
+		int length = rtrimName(mNameLength);
+		boolean emptyTag = false;
+		if (length != 0 && mName[length-1] == '/') {
+			emptyTag = true;
+			length = rtrimName(length-1);
+		}
+		if (length == 0)
+			return NONE;
+		// verify tag name
+		for (int i = 0; i < length; i++) {
+			char c = mName[i];
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_')
+				continue;
+			if (c < 0x80 || !Character.isLetterOrDigit(c))
+				return NONE; // ignore if not verified tag name
+		}
+
+		mTag = lookupTag(length, true);
+		if (mDepth != 0)
+			mStackHasChildren[mDepth-1] = true;
+
+		if (emptyTag) {
+			mTextStart = mTextEnd = 0;
+			return EMPTY_TAG;
+		}
+
+		if (mDepth == mStackTags.length) {
+			int newSize = mDepth<<1;
+			int[] newTags = new int[newSize];
+			int[] newStarts = new int[newSize];
+			boolean[] newHasChildren = new boolean[newSize];
+			System.arraycopy(mStackTags, 0, newTags, 0, mDepth);
+			System.arraycopy(mStackStarts, 0, newStarts, 0, mDepth);
+			System.arraycopy(mStackHasChildren, 0, newHasChildren, 0, mDepth);
+			mStackTags = newTags;
+			mStackStarts = newStarts;
+			mStackHasChildren = newHasChildren;
+		}
+		mStackTags[mDepth] = mTag;
+		mStackStarts[mDepth] = mBodyBase + mChunkPos;
+		mStackHasChildren[mDepth] = false;
+		mDepth++;
+		return START_TAG;
+	}
+
+	private int finishEndTag() {
+		int tag = lookupTag(rtrimName(mNameLength), false);
+		if (tag == NONE)
+			return NONE;
+
+		int level;
+		for (level = mDepth-1; level >= 0; level--)
+			if (mStackTags[level] == tag)
+				break;
+		if (level < 0) // not opened, ignore it
+			return NONE;
+
+		// flushing stack (unclosed inner tags are dropped)
+		mDepth = level;
+		mTag = tag;
+		if (mStackStarts[level] >= 0) {
+			mTextStart = mStackStarts[level];
+			mTextEnd = mMarkupStart;
+		} else // text already dropped from window
+			mTextStart = mTextEnd = 0;
+		return END_TAG;
+	}
+
+	private boolean readChunk() throws IOException {
+		if (mBody.length() >= COMPACT_THRESHOLD)
+			compact();
+
+		int readed = mReader.read(mChunk, 0, CHUNK_SIZE);
+		if (readed == -1) {
+			mChunkPos = mChunkEnd = 0;
+			mBodyBase = mBody.length();
+			return false;
+		}
+		mBodyBase = mBody.length();
+		mBody.append(mChunk, 0, readed);
+		mChunkPos = 0;
+		mChunkEnd = readed;
+		return true;
+	}
+
+	/* drop from window text which will not be needed */
+	private void compact() {
+		int keepFrom = (mState != STATE_TEXT) ? mMarkupStart : mBody.length();
+		for (int level = 0; level < mDepth; level++)
+			if (mStackStarts[level] >= 0 &&
+					(level >= KEPT_CONTAINERS_LEVEL || !mStackHasChildren[level])) {
+				keepFrom = Math.min(keepFrom, mStackStarts[level]);
+				break;
+			}
+
+		if (keepFrom < (COMPACT_THRESHOLD>>1))
+			return; // not worth it
+
+		for (int i = 0; i < keepFrom; i++)
+			if (mBody.charAt(i) == '\n')
+				mDiscardedLines++;
+		mBody.delete(0, keepFrom);
+
+		for (int level = 0; level < mDepth; level++) {
+			if (mStackStarts[level] >= keepFrom)
+				mStackStarts[level] -= keepFrom;
+			else
+				mStackStarts[level] = -1;
+		}
+		mMarkupStart -= keepFrom;
+	}
+}
@@ -19,6 +19,8 @@
 
 package edu.berkeley.boinc.lite;
 
+import java.io.Reader;
+
 import sk.boinc.nativeboinc.debug.Logging;
 import android.util.Log;
 
@@ -63,6 +65,23 @@ public class CcStateParser extends BoincBaseParser {
 
 	}
 
+	/**
+	 * Parse the RPC reply directly from stream (while it is received)
+	 * @param rpcReply reader of the reply returned by RPC call of core client
+	 * @return connected client state
+	 */
+	public static CcState parse(Reader rpcReply) {
+		try {
+			CcStateParser parser = new CcStateParser();
+			BoincBaseParser.parse(parser, rpcReply, true);
+			return parser.getCcState();
+		}
+		catch (BoincParserException e) {
+			if (Logging.INFO) Log.i(TAG, "Malformed XML");
+			return null;
+		}
+	}
+
 	@Override
 	public void endDocument() {
 		// Commit sub-parsers data to resulting CcState
@@ -76,49 +95,49 @@ public class CcStateParser extends BoincBaseParser {
 	}
 
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("host_info")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		if (tag == BoincTags.HOST_INFO) {
 			// Just stepped inside <host_info>
 			mInHostInfo = true;
 		}
 		if (mInHostInfo) {
-			mHostInfoParser.startElement(localName);
+			mHostInfoParser.startElement(tag, localName);
 		}
-		if (localName.equalsIgnoreCase("project")) {
+		if (tag == BoincTags.PROJECT) {
 			// Just stepped inside <project>
 			mInProject = true;
 		}
 		if (mInProject) {
-			mProjectsParser.startElement(localName);
+			mProjectsParser.startElement(tag, localName);
 		}
-		if (localName.equalsIgnoreCase("app")) {
+		if (tag == BoincTags.APP) {
 			// Just stepped inside <app>
 			mInApp = true;
 		}
 		if (mInApp) {
-			mAppsParser.startElement(localName);
+			mAppsParser.startElement(tag, localName);
 		}
-		if (localName.equalsIgnoreCase("app_version")) {
+		if (tag == BoincTags.APP_VERSION) {
 			// Just stepped inside <app_version>
 			mInAppVersion = true;
 		}
 		if (mInAppVersion) {
-			mAppVersionsParser.startElement(localName);
+			mAppVersionsParser.startElement(tag, localName);
 		}
-		if (localName.equalsIgnoreCase("workunit")) {
+		if (tag == BoincTags.WORKUNIT) {
 			// Just stepped inside <workunit>
 			mInWorkunit = true;
 		}
 		if (mInWorkunit) {
-			mWorkunitsParser.startElement(localName);
+			mWorkunitsParser.startElement(tag, localName);
 		}
-		if (localName.equalsIgnoreCase("result")) {
+		if (tag == BoincTags.RESULT) {
 			// Just stepped inside <result>
 			mInResult = true;
 		}
 		if (mInResult) {
-			mResultsParser.startElement(localName);
+			mResultsParser.startElement(tag, localName);
 		}
 	}
 
@@ -153,22 +172,22 @@ public class CcStateParser extends BoincBaseParser {
 	}
 
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		try {
 			if (mInHostInfo) {
 				// We are inside <host_info>
 				// parse it by sub-parser in any case (to parse also closing element)
-				mHostInfoParser.endElement(localName);
-				if (localName.equalsIgnoreCase("host_info")) {
+				mHostInfoParser.endElement(tag, localName);
+				if (tag == BoincTags.HOST_INFO) {
 					mInHostInfo = false;
 				}
 			}
 			if (mInProject) {
 				// We are inside <project>
 				// parse it by sub-parser in any case (must parse also closing element!)
-				mProjectsParser.endElement(localName);
-				if (localName.equalsIgnoreCase("project")) {
+				mProjectsParser.endElement(tag, localName);
+				if (tag == BoincTags.PROJECT) {
 					// Closing tag of <project>
 					mInProject = false;
 				}
@@ -176,8 +195,8 @@ public class CcStateParser extends BoincBaseParser {
 			if (mInApp) {
 				// We are inside <app>
 				// parse it by sub-parser in any case (must parse also closing element!)
-				mAppsParser.endElement(localName);
-				if (localName.equalsIgnoreCase("app")) {
+				mAppsParser.endElement(tag, localName);
+				if (tag == BoincTags.APP) {
 					// Closing tag of <app>
 					mInApp = false;
 				}
@@ -185,8 +204,8 @@ public class CcStateParser extends BoincBaseParser {
 			if (mInAppVersion) {
 				// We are inside <app_version>
 				// parse it by sub-parser in any case (must parse also closing element!)
-				mAppsParser.endElement(localName);
-				if (localName.equalsIgnoreCase("app_version")) {
+				mAppVersionsParser.endElement(tag, localName);
+				if (tag == BoincTags.APP_VERSION) {
 					// Closing tag of <app_version>
 					mInAppVersion = false;
 				}
@@ -194,8 +213,8 @@ public class CcStateParser extends BoincBaseParser {
 			if (mInWorkunit) {
 				// We are inside <workunit>
 				// parse it by sub-parser in any case (must parse also closing element!)
-				mWorkunitsParser.endElement(localName);
-				if (localName.equalsIgnoreCase("workunit")) {
+				mWorkunitsParser.endElement(tag, localName);
+				if (tag == BoincTags.WORKUNIT) {
 					// Closing tag of <workunit>
 					mInWorkunit = false;
 				}
@@ -203,28 +222,30 @@ public class CcStateParser extends BoincBaseParser {
 			if (mInResult) {
 				// We are inside <result>
 				// parse it by sub-parser in any case (must parse also closing element!)
-				mResultsParser.endElement(localName);
-				if (localName.equalsIgnoreCase("result")) {
+				mResultsParser.endElement(tag, localName);
+				if (tag == BoincTags.RESULT) {
 					// Closing tag of <result>
 					mInResult = false;
 				}
 			}
 			// VersionInfo?
 			if (!(mInHostInfo || mInProject || mInApp || mInAppVersion || mInWorkunit || mInResult)) {
-				if (localName.equalsIgnoreCase("core_client_major_version")) {
-					mVersionInfo.major = Integer.parseInt(getCurrentElement());
-				}
-				else if (localName.equalsIgnoreCase("core_client_minor_version")) {
-					mVersionInfo.minor = Integer.parseInt(getCurrentElement());
-				}
-				else if (localName.equalsIgnoreCase("core_client_release")) {
-					mVersionInfo.release = Integer.parseInt(getCurrentElement());
-				}
-				else if (localName.equalsIgnoreCase("have_ati")) {
-					mCcState.have_ati = !getCurrentElement().equals("0");
-				}
-				else if (localName.equalsIgnoreCase("have_cuda")) {
-					mCcState.have_cuda = !getCurrentElement().equals("0");
+				switch (tag) {
+				case BoincTags.CORE_CLIENT_MAJOR_VERSION:
+					mVersionInfo.major = getCurrentInt();
+					break;
+				case BoincTags.CORE_CLIENT_MINOR_VERSION:
+					mVersionInfo.minor = getCurrentInt();
+					break;
+				case BoincTags.CORE_CLIENT_RELEASE:
+					mVersionInfo.release = getCurrentInt();
+					break;
+				case BoincTags.HAVE_ATI:
+					mCcState.have_ati = getCurrentBoolean();
+					break;
+				case BoincTags.HAVE_CUDA:
+					mCcState.have_cuda = getCurrentBoolean();
+					break;
 				}
 			}
 		}
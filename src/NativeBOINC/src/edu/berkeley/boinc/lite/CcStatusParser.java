@@ -71,43 +71,43 @@ public class CcStatusParser extends BoincBaseParser {
 				else {
 					// Not the closing tag - we decode possible inner tags
 					if (localName.equalsIgnoreCase("task_mode")) {
-						mCcStatus.task_mode = Integer.parseInt(getCurrentElement());
+						mCcStatus.task_mode = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("task_mode_perm")) {
-						mCcStatus.task_mode_perm = Integer.parseInt(getCurrentElement());
+						mCcStatus.task_mode_perm = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("task_mode_delay")) {
-						mCcStatus.task_mode_delay = Double.parseDouble(getCurrentElement());
+						mCcStatus.task_mode_delay = getCurrentDouble();
 					}
 					else if (localName.equalsIgnoreCase("task_suspend_reason")) {
-						mCcStatus.task_suspend_reason = Integer.parseInt(getCurrentElement());
+						mCcStatus.task_suspend_reason = getCurrentInt();
 					}
 					if (localName.equalsIgnoreCase("network_mode")) {
-						mCcStatus.network_mode = Integer.parseInt(getCurrentElement());
+						mCcStatus.network_mode = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("network_mode_perm")) {
-						mCcStatus.network_mode_perm = Integer.parseInt(getCurrentElement());
+						mCcStatus.network_mode_perm = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("network_mode_delay")) {
-						mCcStatus.network_mode_delay = Double.parseDouble(getCurrentElement());
+						mCcStatus.network_mode_delay = getCurrentDouble();
 					}
 					else if (localName.equalsIgnoreCase("network_suspend_reason")) {
-						mCcStatus.network_suspend_reason = Integer.parseInt(getCurrentElement());
+						mCcStatus.network_suspend_reason = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("network_status")) {
-						mCcStatus.network_status = Integer.parseInt(getCurrentElement());
+						mCcStatus.network_status = getCurrentInt();
 					}
 					if (localName.equalsIgnoreCase("gpu_mode")) {
-						mCcStatus.gpu_mode = Integer.parseInt(getCurrentElement());
+						mCcStatus.gpu_mode = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("gpu_mode_perm")) {
-						mCcStatus.gpu_mode_perm = Integer.parseInt(getCurrentElement());
+						mCcStatus.gpu_mode_perm = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("gpu_mode_delay")) {
-						mCcStatus.gpu_mode_delay = Double.parseDouble(getCurrentElement());
+						mCcStatus.gpu_mode_delay = getCurrentDouble();
 					}
 					else if (localName.equalsIgnoreCase("gpu_suspend_reason")) {
-						mCcStatus.gpu_suspend_reason = Integer.parseInt(getCurrentElement());
+						mCcStatus.gpu_suspend_reason = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("ams_password_error")) {
 						String current = getCurrentElement();
@@ -19,6 +19,7 @@
 
 package edu.berkeley.boinc.lite;
 
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -53,6 +54,26 @@ public class DiskUsageParser extends BoincBaseParser {
 		}
 	}
 	
+	/**
+	 * Parse the RPC reply directly from stream (while it is received)
+	 * @param rpcReply reader of the reply returned by RPC call of core client
+	 * @param projects projects, whose disk usage is set
+	 * @return true if reply was parsed
+	 */
+	public static boolean parse(Reader rpcReply, ArrayList<Project> projects) {
+		try {
+			DiskUsageParser parser = new DiskUsageParser();
+			BoincBaseParser.parse(parser, rpcReply, true);
+			
+			parser.setUpDiskUsage(projects);
+			return true;
+		}
+		catch (BoincParserException e) {
+			if (Logging.INFO) Log.i(TAG, "Malformed XML");
+			return false;
+		}
+	}
+	
 	private void setUpDiskUsage(ArrayList<Project> projects) {
 		for (Project project: projects) {
 			Double diskUsage = mDiskUsageMap.get(project.master_url);
@@ -86,7 +107,7 @@ public class DiskUsageParser extends BoincBaseParser {
 				if (localName.equalsIgnoreCase("master_url")) {
 					mMasterUrl = getCurrentElement();
 				} else if (localName.equalsIgnoreCase("disk_usage")) {
-					mDiskUsage = Double.parseDouble(getCurrentElement());
+					mDiskUsage = getCurrentDouble();
 				}
 			}
 		} catch (NumberFormatException e) {
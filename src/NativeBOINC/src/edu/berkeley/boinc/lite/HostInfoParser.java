@@ -49,13 +49,13 @@ public class HostInfoParser extends BoincBaseParser {
 			if (Logging.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
 			else if (Logging.INFO) Log.i(TAG, "Malformed XML");
 			return null;
-		}		
+		}
 	}
 
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("host_info")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		if (tag == BoincTags.HOST_INFO) {
 			if (Logging.INFO) { 
 				if (mHostInfo != null) {
 					// previous <host_info> not closed - dropping it!
@@ -67,75 +67,77 @@ public class HostInfoParser extends BoincBaseParser {
 	}
 	
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		try {
 			if (mHostInfo != null) {
 				// we are inside <host_info>
-				if (localName.equalsIgnoreCase("host_info")) {
+				if (tag == BoincTags.HOST_INFO) {
 					// Closing tag of <host_info> - nothing to do at the moment
 				}
 				else {
 					// Not the closing tag - we decode possible inner tags
-					if (localName.equalsIgnoreCase("timezone")) {
-						mHostInfo.timezone = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("domain_name")) {
+					switch (tag) {
+					case BoincTags.TIMEZONE:
+						mHostInfo.timezone = getCurrentInt();
+						break;
+					case BoincTags.DOMAIN_NAME:
 						mHostInfo.domain_name = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("ip_addr")) {
+						break;
+					case BoincTags.IP_ADDR:
 						mHostInfo.ip_addr = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("host_cpid")) {
+						break;
+					case BoincTags.HOST_CPID:
 						mHostInfo.host_cpid = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("p_ncpus")) {
-						mHostInfo.p_ncpus = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("p_vendor")) {
+						break;
+					case BoincTags.P_NCPUS:
+						mHostInfo.p_ncpus = getCurrentInt();
+						break;
+					case BoincTags.P_VENDOR:
 						mHostInfo.p_vendor = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("p_model")) {
+						break;
+					case BoincTags.P_MODEL:
 						mHostInfo.p_model = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("p_features")) {
+						break;
+					case BoincTags.P_FEATURES:
 						mHostInfo.p_features = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("p_fpops")) {
-						mHostInfo.p_fpops = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("p_iops")) {
-						mHostInfo.p_iops = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("p_membw")) {
-						mHostInfo.p_membw = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("p_calculated")) {
-						mHostInfo.p_calculated = (long)Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("m_nbytes")) {
-						mHostInfo.m_nbytes = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("m_cache")) {
-						mHostInfo.m_cache = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("m_swap")) {
-						mHostInfo.m_swap = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("d_total")) {
-						mHostInfo.d_total = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("d_free")) {
-						mHostInfo.d_free = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("os_name")) {
+						break;
+					case BoincTags.P_FPOPS:
+						mHostInfo.p_fpops = getCurrentDouble();
+						break;
+					case BoincTags.P_IOPS:
+						mHostInfo.p_iops = getCurrentDouble();
+						break;
+					case BoincTags.P_MEMBW:
+						mHostInfo.p_membw = getCurrentDouble();
+						break;
+					case BoincTags.P_CALCULATED:
+						mHostInfo.p_calculated = (long)getCurrentDouble();
+						break;
+					case BoincTags.M_NBYTES:
+						mHostInfo.m_nbytes = getCurrentDouble();
+						break;
+					case BoincTags.M_CACHE:
+						mHostInfo.m_cache = getCurrentDouble();
+						break;
+					case BoincTags.M_SWAP:
+						mHostInfo.m_swap = getCurrentDouble();
+						break;
+					case BoincTags.D_TOTAL:
+						mHostInfo.d_total = getCurrentDouble();
+						break;
+					case BoincTags.D_FREE:
+						mHostInfo.d_free = getCurrentDouble();
+						break;
+					case BoincTags.OS_NAME:
 						mHostInfo.os_name = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("os_version")) {
+						break;
+					case BoincTags.OS_VERSION:
 						mHostInfo.os_version = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("virtualbox_version")) {
+						break;
+					case BoincTags.VIRTUALBOX_VERSION:
 						mHostInfo.virtualbox_version = getCurrentElement();
+						break;
 					}
 				}
 			}
@@ -68,7 +68,7 @@ public class MessageCountParser extends BoincBaseParser {
 			}
 			else if (mInReply && !mParsed) {
 				if (localName.equalsIgnoreCase("seqno")) {
-					mSeqno = Integer.parseInt(getCurrentElement());
+					mSeqno = getCurrentInt();
 					mParsed = true;
 				}
 			}
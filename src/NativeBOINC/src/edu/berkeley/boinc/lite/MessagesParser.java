@@ -19,6 +19,7 @@
 
 package edu.berkeley.boinc.lite;
 
+import java.io.Reader;
 import java.util.ArrayList;
 
 import sk.boinc.nativeboinc.debug.Logging;
@@ -45,25 +46,42 @@ public class MessagesParser extends BoincBaseParser {
 		}
 	}
 
+	/**
+	 * Parse the RPC reply directly from stream (while it is received)
+	 * @param rpcReply reader of the reply returned by RPC call of core client
+	 * @return vector of messages
+	 */
+	public static ArrayList<Message> parse(Reader rpcReply) {
+		try {
+			MessagesParser parser = new MessagesParser();
+			BoincBaseParser.parse(parser, rpcReply, true);
+			return parser.getMessages();
+		}
+		catch (BoincParserException e) {
+			if (Logging.INFO) Log.i(TAG, "Malformed XML");
+			return null;
+		}
+	}
+
 	public final ArrayList<Message> getMessages() {
 		return mMessages;
 	}
 
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("msg")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		if (tag == BoincTags.MSG) {
 			mMessage = new Message();
 		}
 	}
 	
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		try {
 			if (mMessage != null) {
 				// We are inside <msg>
-				if (localName.equalsIgnoreCase("msg")) {
+				if (tag == BoincTags.MSG) {
 					// Closing tag of <msg> - add to vector and be ready for next one
 					if (mMessage.seqno != 0) {
 						// seqno is a must
@@ -73,20 +91,22 @@ public class MessagesParser extends BoincBaseParser {
 				}
 				else {
 					// Not the closing tag - we decode possible inner tags
-					if (localName.equalsIgnoreCase("project")) {
+					switch (tag) {
+					case BoincTags.PROJECT:
 						mMessage.project = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("seqno")) {
-						mMessage.seqno = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("pri")) {
-						mMessage.priority = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("time")) {
-						mMessage.timestamp = (long)Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("body")) {
+						break;
+					case BoincTags.SEQNO:
+						mMessage.seqno = getCurrentInt();
+						break;
+					case BoincTags.PRI:
+						mMessage.priority = getCurrentInt();
+						break;
+					case BoincTags.TIME:
+						mMessage.timestamp = (long)getCurrentDouble();
+						break;
+					case BoincTags.BODY:
 						mMessage.body = getCurrentElement();
+						break;
 					}
 				}
 			}
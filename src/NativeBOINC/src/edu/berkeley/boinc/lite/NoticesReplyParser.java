@@ -3,6 +3,8 @@
  */
 package edu.berkeley.boinc.lite;
 
+import java.io.Reader;
+
 import sk.boinc.nativeboinc.debug.Logging;
 import android.util.Log;
 
@@ -33,22 +35,39 @@ public class NoticesReplyParser extends BoincBaseParser {
 			return null;
 		}
 	}
+
+	/**
+	 * Parse the RPC reply directly from stream (while it is received)
+	 * @param rpcReply reader of the reply returned by RPC call of core client
+	 * @return notices
+	 */
+	public static Notices parse(Reader rpcReply) {
+		try {
+			NoticesReplyParser parser = new NoticesReplyParser();
+			BoincBaseParser.parse(parser, rpcReply, true);
+			return parser.getNotices();
+		}
+		catch (BoincParserException e) {
+			if (Logging.INFO) Log.i(TAG, "Malformed XML");
+			return null;
+		}
+	}
 	
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("notice")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		if (tag == BoincTags.NOTICE) {
 			mNotice = new Notice();
 		}
 	}
 	
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		try {
 			if (mNotice != null) {
 				// We are inside <msg>
-				if (localName.equalsIgnoreCase("notice")) {
+				if (tag == BoincTags.NOTICE) {
 					// Closing tag of <msg> - add to vector and be ready for next one
 					if (mNotice.seqno != -1) {
 						// seqno is a must
@@ -61,32 +80,44 @@ public class NoticesReplyParser extends BoincBaseParser {
 				}
 				else {
 					// Not the closing tag - we decode possible inner tags
-					if (localName.equalsIgnoreCase("seqno")) {
-						mNotice.seqno = Integer.parseInt(getCurrentElement());
-					} else if (localName.equalsIgnoreCase("title")) {
+					switch (tag) {
+					case BoincTags.SEQNO:
+						mNotice.seqno = getCurrentInt();
+						break;
+					case BoincTags.TITLE:
 						mNotice.title = getCurrentElement();
-					} else if (localName.equalsIgnoreCase("description")) {
+						break;
+					case BoincTags.DESCRIPTION:
 						String current = getCurrentElement();
 						if (current.startsWith("<![CDATA["))
 							mNotice.description = current.substring(8, current.length()-3);
 						else
 							mNotice.description = current;
-					} else if (localName.equalsIgnoreCase("create_time")) {
-						mNotice.create_time = Double.parseDouble(getCurrentElement());
-					} else if (localName.equalsIgnoreCase("arrival_time")) {
-						mNotice.arrival_time = Double.parseDouble(getCurrentElement());
-					} else if (localName.equalsIgnoreCase("category")) {
+						break;
+					case BoincTags.CREATE_TIME:
+						mNotice.create_time = getCurrentDouble();
+						break;
+					case BoincTags.ARRIVAL_TIME:
+						mNotice.arrival_time = getCurrentDouble();
+						break;
+					case BoincTags.CATEGORY:
 						mNotice.category = getCurrentElement();
-					} else if (localName.equalsIgnoreCase("link")) {
+						break;
+					case BoincTags.LINK:
 						mNotice.link = getCurrentElement();
-					} else if (localName.equalsIgnoreCase("project_name")) {
+						break;
+					case BoincTags.PROJECT_NAME:
 						mNotice.project_name = getCurrentElement();
-					} else if (localName.equalsIgnoreCase("guid")) {
+						break;
+					case BoincTags.GUID:
 						mNotice.guid = getCurrentElement();
-					} else if (localName.equalsIgnoreCase("feed_url")) {
+						break;
+					case BoincTags.FEED_URL:
 						mNotice.feed_url = getCurrentElement();
-					} else if (localName.equalsIgnoreCase("is_private")) {
-						mNotice.is_private = !getCurrentElement().equals("0");
+						break;
+					case BoincTags.IS_PRIVATE:
+						mNotice.is_private = getCurrentBoolean();
+						break;
 					}
 				}
 			}
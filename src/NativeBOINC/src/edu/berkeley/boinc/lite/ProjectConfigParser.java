@@ -78,7 +78,7 @@ public class ProjectConfigParser extends BoincBaseParser {
 				else {
 					// Not the closing tag - we decode possible inner tags
 					if (localName.equalsIgnoreCase("error_num")) {
-						mProjectConfig.error_num = Integer.parseInt(getCurrentElement());
+						mProjectConfig.error_num = getCurrentInt();
 					} else if (localName.equalsIgnoreCase("error_msg")) {
 						mProjectConfig.error_msg = getCurrentElement();
 					} else if (localName.equalsIgnoreCase("name")) {
@@ -88,23 +88,23 @@ public class ProjectConfigParser extends BoincBaseParser {
 					} else if (localName.equalsIgnoreCase("master_url")) {
 						mProjectConfig.master_url = getCurrentElement();
 					} else if (localName.equalsIgnoreCase("local_revision")) {
-						mProjectConfig.local_revision = Integer.parseInt(getCurrentElement());
+						mProjectConfig.local_revision = getCurrentInt();
 					} else if (localName.equalsIgnoreCase("min_passwd_length")) {
-						mProjectConfig.min_passwd_length = Integer.parseInt(getCurrentElement());
+						mProjectConfig.min_passwd_length = getCurrentInt();
 					} else if (localName.equalsIgnoreCase("account_manager")) {
-						mProjectConfig.account_manager = Integer.parseInt(getCurrentElement())!=0;
+						mProjectConfig.account_manager = getCurrentInt()!=0;
 					} else if (localName.equalsIgnoreCase("use_username")) {
-						mProjectConfig.use_username = Integer.parseInt(getCurrentElement())!=0;
+						mProjectConfig.use_username = getCurrentInt()!=0;
 					} else if (localName.equalsIgnoreCase("account_creation_disabled")) {
 						mProjectConfig.account_creation_disabled = true;
 					} else if (localName.equalsIgnoreCase("client_account_creation_disabled")) {
 						mProjectConfig.client_account_creation_disabled = true;
 					} else if (localName.equalsIgnoreCase("sched_stopped")) {
-						mProjectConfig.sched_stopped = Integer.parseInt(getCurrentElement())!=0;
+						mProjectConfig.sched_stopped = getCurrentInt()!=0;
 					} else if (localName.equalsIgnoreCase("web_stopped")) {
-						mProjectConfig.web_stopped = Integer.parseInt(getCurrentElement())!=0;
+						mProjectConfig.web_stopped = getCurrentInt()!=0;
 					} else if (localName.equalsIgnoreCase("min_client_version")) {
-						mProjectConfig.min_client_version = Integer.parseInt(getCurrentElement());
+						mProjectConfig.min_client_version = getCurrentInt();
 					} else if (localName.equalsIgnoreCase("terms_of_use")) {
 						mProjectConfig.terms_of_use = getCurrentElement();
 					}
@@ -19,6 +19,7 @@
 
 package edu.berkeley.boinc.lite;
 
+import java.io.Reader;
 import java.util.ArrayList;
 
 import sk.boinc.nativeboinc.debug.Logging;
@@ -51,6 +52,23 @@ public class ProjectListParser extends BoincBaseParser {
 			return null;
 		}
 	}
+
+	/**
+	 * Parse the RPC reply directly from stream (while it is received)
+	 * @param rpcReply reader of the reply returned by RPC call of core client
+	 * @return list of all projects
+	 */
+	public static ArrayList<ProjectListEntry> parse(Reader rpcReply) {
+		try {
+			ProjectListParser parser = new ProjectListParser();
+			BoincBaseParser.parse(parser, rpcReply, true);
+			return parser.getProjectList();
+		}
+		catch (BoincParserException e) {
+			if (Logging.INFO) Log.i(TAG, "Malformed XML");
+			return null;
+		}
+	}
 	
 	@Override
 	public void startElement(String localName)  {
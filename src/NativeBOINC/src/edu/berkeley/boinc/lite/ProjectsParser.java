@@ -19,6 +19,7 @@
 
 package edu.berkeley.boinc.lite;
 
+import java.io.Reader;
 import java.util.ArrayList;
 
 import sk.boinc.nativeboinc.debug.Logging;
@@ -55,10 +56,27 @@ public class ProjectsParser extends BoincBaseParser {
 		}
 	}
 
+	/**
+	 * Parse the RPC reply directly from stream (while it is received)
+	 * @param rpcReply reader of the reply returned by RPC call of core client
+	 * @return vector of projects info
+	 */
+	public static ArrayList<Project> parse(Reader rpcReply) {
+		try {
+			ProjectsParser parser = new ProjectsParser();
+			BoincBaseParser.parse(parser, rpcReply, true);
+			return parser.getProjects();
+		}
+		catch (BoincParserException e) {
+			if (Logging.INFO) Log.i(TAG, "Malformed XML");
+			return null;
+		}
+	}
+
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("project")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		if (tag == BoincTags.PROJECT) {
 			if (Logging.INFO) {
 				if (mProject != null) {
 					// previous <project> not closed - dropping it!
@@ -67,7 +85,7 @@ public class ProjectsParser extends BoincBaseParser {
 			}
 			mProject = new Project();
 		}
-		else if (localName.equalsIgnoreCase("gui_url")) {
+		else if (tag == BoincTags.GUI_URL) {
 			if (Logging.INFO) {
 				if (mGuiUrl != null) {
 					// previous <gui_url> not closed - dropping it!
@@ -79,12 +97,12 @@ public class ProjectsParser extends BoincBaseParser {
 	}
 
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		try {
 			if (mProject != null) {
 				// We are inside <project>
-				if (localName.equalsIgnoreCase("project")) {
+				if (tag == BoincTags.PROJECT) {
 					// Closing tag of <project> - add to vector and be ready for next one
 					if (!mProject.master_url.equals("")) {
 						// master_url is a must
@@ -96,163 +114,169 @@ public class ProjectsParser extends BoincBaseParser {
 					// Not the closing tag - we decode possible inner tags
 					if (mGuiUrl != null) {
 						// We are inside <gui_url> element
-						if (localName.equalsIgnoreCase("gui_url")) {
+						if (tag == BoincTags.GUI_URL) {
 							// finish of this <gui_url> element
 							mProject.gui_urls.add(mGuiUrl);
 							mGuiUrl = null;
 						}
 						else {
-							if (localName.equalsIgnoreCase("name")) {
+							switch (tag) {
+							case BoincTags.NAME:
 								mGuiUrl.name = getCurrentElement();
-							}
-							else if (localName.equalsIgnoreCase("description")) {
+								break;
+							case BoincTags.DESCRIPTION:
 								mGuiUrl.description = getCurrentElement();
-							}
-							else if (localName.equalsIgnoreCase("url")) {
+								break;
+							case BoincTags.URL:
 								mGuiUrl.url = getCurrentElement();
+								break;
 							}
 						}
 					}
-					else if (localName.equalsIgnoreCase("master_url")) {
-						mProject.master_url = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("resource_share")) {
-						mProject.resource_share = Float.parseFloat(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("project_name")) {
-						mProject.project_name = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("user_name")) {
-						mProject.user_name = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("team_name")) {
-						mProject.team_name = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("hostid")) {
-						mProject.hostid = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("host_venue")) {
-						mProject.venue = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("user_total_credit")) {
-						mProject.user_total_credit = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("user_expavg_credit")) {
-						mProject.user_expavg_credit = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("host_total_credit")) {
-						mProject.host_total_credit = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("host_expavg_credit")) {
-						mProject.host_expavg_credit = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("nrpc_failures")) {
-						mProject.nrpc_failures = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("master_fetch_failures")) {
-						mProject.master_fetch_failures = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("min_rpc_time")) {
-						mProject.min_rpc_time = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("download_backoff")) {
-						mProject.download_backoff = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("upload_backoff")) {
-						mProject.upload_backoff = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("short_term_debt")) {
-						mProject.cpu_short_term_debt = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("long_term_debt")) {
-						mProject.cpu_long_term_debt = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("cpu_backoff_time")) {
-						mProject.cpu_backoff_time = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("cpu_backoff_interval")) {
-						mProject.cpu_backoff_interval = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("cuda_debt")) {
-						mProject.cuda_debt = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("cuda_short_term_debt")) {
-						mProject.cuda_short_term_debt = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("cuda_backoff_time")) {
-						mProject.cuda_backoff_time = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("cuda_backoff_interval")) {
-						mProject.cuda_backoff_interval = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("ati_debt")) {
-						mProject.ati_debt = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("ati_short_term_debt")) {
-						mProject.ati_short_term_debt = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("ati_backoff_time")) {
-						mProject.ati_backoff_time = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("ati_backoff_interval")) {
-						mProject.ati_backoff_interval = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("duration_correction_factor")) {
-						mProject.duration_correction_factor = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("master_url_fetch_pending")) {
-//						String trimmed = mCurrentElement.trim();
-//						mProject.master_url_fetch_pending = !trimmed.equals("0");
-						mProject.master_url_fetch_pending = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("sched_rpc_pending")) {
-						mProject.sched_rpc_pending = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("non_cpu_intensive")) {
-						//String trimmed = mCurrentElement.trim();
-						mProject.non_cpu_intensive = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("suspended_via_gui")) {
-						mProject.suspended_via_gui = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("dont_request_more_work")) {
-						mProject.dont_request_more_work = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("scheduler_rpc_in_progress")) {
-						mProject.scheduler_rpc_in_progress = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("attached_via_acct_mgr")) {
-						//String trimmed = mCurrentElement.trim();
-						mProject.attached_via_acct_mgr = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("detach_when_done")) {
-						//String trimmed = mCurrentElement.trim();
-						mProject.detach_when_done = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("ended")) {
-						//String trimmed = mCurrentElement.trim();
-						mProject.ended = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("trickle_up_pending")) {
-						mProject.trickle_up_pending = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("project_files_downloaded_time")) {
-						mProject.project_files_downloaded_time = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("last_rpc_time")) {
-						mProject.last_rpc_time = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("no_cpu_pref")) {
-						//String trimmed = mCurrentElement.trim();
-						mProject.no_cpu_pref = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("no_cuda_pref")) {
-						//String trimmed = mCurrentElement.trim();
-						mProject.no_cuda_pref = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("no_ati_pref")) {
-						//String trimmed = mCurrentElement.trim();
-						mProject.no_ati_pref = !getCurrentElement().equals("0");
+					else {
+						switch (tag) {
+						case BoincTags.MASTER_URL:
+							mProject.master_url = getCurrentElement();
+							break;
+						case BoincTags.RESOURCE_SHARE:
+							mProject.resource_share = getCurrentFloat();
+							break;
+						case BoincTags.PROJECT_NAME:
+							mProject.project_name = getCurrentElement();
+							break;
+						case BoincTags.USER_NAME:
+							mProject.user_name = getCurrentElement();
+							break;
+						case BoincTags.TEAM_NAME:
+							mProject.team_name = getCurrentElement();
+							break;
+						case BoincTags.HOSTID:
+							mProject.hostid = getCurrentInt();
+							break;
+						case BoincTags.HOST_VENUE:
+							mProject.venue = getCurrentElement();
+							break;
+						case BoincTags.USER_TOTAL_CREDIT:
+							mProject.user_total_credit = getCurrentDouble();
+							break;
+						case BoincTags.USER_EXPAVG_CREDIT:
+							mProject.user_expavg_credit = getCurrentDouble();
+							break;
+						case BoincTags.HOST_TOTAL_CREDIT:
+							mProject.host_total_credit = getCurrentDouble();
+							break;
+						case BoincTags.HOST_EXPAVG_CREDIT:
+							mProject.host_expavg_credit = getCurrentDouble();
+							break;
+						case BoincTags.NRPC_FAILURES:
+							mProject.nrpc_failures = getCurrentInt();
+							break;
+						case BoincTags.MASTER_FETCH_FAILURES:
+							mProject.master_fetch_failures = getCurrentInt();
+							break;
+						case BoincTags.MIN_RPC_TIME:
+							mProject.min_rpc_time = getCurrentDouble();
+							break;
+						case BoincTags.DOWNLOAD_BACKOFF:
+							mProject.download_backoff = getCurrentDouble();
+							break;
+						case BoincTags.UPLOAD_BACKOFF:
+							mProject.upload_backoff = getCurrentDouble();
+							break;
+						case BoincTags.SHORT_TERM_DEBT:
+							mProject.cpu_short_term_debt = getCurrentDouble();
+							break;
+						case BoincTags.LONG_TERM_DEBT:
+							mProject.cpu_long_term_debt = getCurrentDouble();
+							break;
+						case BoincTags.CPU_BACKOFF_TIME:
+							mProject.cpu_backoff_time = getCurrentDouble();
+							break;
+						case BoincTags.CPU_BACKOFF_INTERVAL:
+							mProject.cpu_backoff_interval = getCurrentDouble();
+							break;
+						case BoincTags.CUDA_DEBT:
+							mProject.cuda_debt = getCurrentDouble();
+							break;
+						case BoincTags.CUDA_SHORT_TERM_DEBT:
+							mProject.cuda_short_term_debt = getCurrentDouble();
+							break;
+						case BoincTags.CUDA_BACKOFF_TIME:
+							mProject.cuda_backoff_time = getCurrentDouble();
+							break;
+						case BoincTags.CUDA_BACKOFF_INTERVAL:
+							mProject.cuda_backoff_interval = getCurrentDouble();
+							break;
+						case BoincTags.ATI_DEBT:
+							mProject.ati_debt = getCurrentDouble();
+							break;
+						case BoincTags.ATI_SHORT_TERM_DEBT:
+							mProject.ati_short_term_debt = getCurrentDouble();
+							break;
+						case BoincTags.ATI_BACKOFF_TIME:
+							mProject.ati_backoff_time = getCurrentDouble();
+							break;
+						case BoincTags.ATI_BACKOFF_INTERVAL:
+							mProject.ati_backoff_interval = getCurrentDouble();
+							break;
+						case BoincTags.DURATION_CORRECTION_FACTOR:
+							mProject.duration_correction_factor = getCurrentDouble();
+							break;
+						case BoincTags.MASTER_URL_FETCH_PENDING:
+	//						String trimmed = mCurrentElement.trim();
+	//						mProject.master_url_fetch_pending = !trimmed.equals("0");
+							mProject.master_url_fetch_pending = getCurrentBoolean();
+							break;
+						case BoincTags.SCHED_RPC_PENDING:
+							mProject.sched_rpc_pending = getCurrentInt();
+							break;
+						case BoincTags.NON_CPU_INTENSIVE:
+							//String trimmed = mCurrentElement.trim();
+							mProject.non_cpu_intensive = getCurrentBoolean();
+							break;
+						case BoincTags.SUSPENDED_VIA_GUI:
+							mProject.suspended_via_gui = getCurrentBoolean();
+							break;
+						case BoincTags.DONT_REQUEST_MORE_WORK:
+							mProject.dont_request_more_work = getCurrentBoolean();
+							break;
+						case BoincTags.SCHEDULER_RPC_IN_PROGRESS:
+							mProject.scheduler_rpc_in_progress = getCurrentBoolean();
+							break;
+						case BoincTags.ATTACHED_VIA_ACCT_MGR:
+							//String trimmed = mCurrentElement.trim();
+							mProject.attached_via_acct_mgr = getCurrentBoolean();
+							break;
+						case BoincTags.DETACH_WHEN_DONE:
+							//String trimmed = mCurrentElement.trim();
+							mProject.detach_when_done = getCurrentBoolean();
+							break;
+						case BoincTags.ENDED:
+							//String trimmed = mCurrentElement.trim();
+							mProject.ended = getCurrentBoolean();
+							break;
+						case BoincTags.TRICKLE_UP_PENDING:
+							mProject.trickle_up_pending = getCurrentBoolean();
+							break;
+						case BoincTags.PROJECT_FILES_DOWNLOADED_TIME:
+							mProject.project_files_downloaded_time = getCurrentDouble();
+							break;
+						case BoincTags.LAST_RPC_TIME:
+							mProject.last_rpc_time = getCurrentDouble();
+							break;
+						case BoincTags.NO_CPU_PREF:
+							//String trimmed = mCurrentElement.trim();
+							mProject.no_cpu_pref = getCurrentBoolean();
+							break;
+						case BoincTags.NO_CUDA_PREF:
+							//String trimmed = mCurrentElement.trim();
+							mProject.no_cuda_pref = getCurrentBoolean();
+							break;
+						case BoincTags.NO_ATI_PREF:
+							//String trimmed = mCurrentElement.trim();
+							mProject.no_ati_pref = getCurrentBoolean();
+							break;
+						}
 					}
 				}
 			}
@@ -63,19 +63,19 @@ public class ProxyInfoParser extends BoincBaseParser {
 				} else {
 					// Not the closing tag - we decode possible inner tags
 					if (localName.equalsIgnoreCase("use_http_proxy")) {
-						mProxyInfo.use_http_proxy = !getCurrentElement().equals("0");
+						mProxyInfo.use_http_proxy = getCurrentBoolean();
 					} else if (localName.equalsIgnoreCase("use_socks_proxy")) {
-						mProxyInfo.use_socks_proxy = !getCurrentElement().equals("0");
+						mProxyInfo.use_socks_proxy = getCurrentBoolean();
 					} else if (localName.equalsIgnoreCase("use_http_auth")) {
-						mProxyInfo.use_http_auth = !getCurrentElement().equals("0");
+						mProxyInfo.use_http_auth = getCurrentBoolean();
 					} else if (localName.equalsIgnoreCase("socks_server_name")) {
 						mProxyInfo.socks_server_name = getCurrentElement();
 					} else if (localName.equalsIgnoreCase("socks_server_port")) {
-						mProxyInfo.socks_server_port = Integer.parseInt(getCurrentElement());
+						mProxyInfo.socks_server_port = getCurrentInt();
 					} else if (localName.equalsIgnoreCase("http_server_name")) {
 						mProxyInfo.http_server_name = getCurrentElement();
 					} else if (localName.equalsIgnoreCase("http_server_port")) {
-						mProxyInfo.http_server_port = Integer.parseInt(getCurrentElement());
+						mProxyInfo.http_server_port = getCurrentInt();
 					} else if (localName.equalsIgnoreCase("socks5_user_name")) {
 						mProxyInfo.socks5_user_name = getCurrentElement();
 					} else if (localName.equalsIgnoreCase("socks5_user_passwd")) {
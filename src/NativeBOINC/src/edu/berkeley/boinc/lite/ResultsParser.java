@@ -19,6 +19,7 @@
 
 package edu.berkeley.boinc.lite;
 
+import java.io.Reader;
 import java.util.ArrayList;
 
 import sk.boinc.nativeboinc.debug.Logging;
@@ -56,10 +57,27 @@ public class ResultsParser extends BoincBaseParser {
 
 	}
 
+	/**
+	 * Parse the RPC reply directly from stream (while it is received)
+	 * @param rpcReply reader of the reply returned by RPC call of core client
+	 * @return vector of results info
+	 */
+	public static ArrayList<Result> parse(Reader rpcReply) {
+		try {
+			ResultsParser parser = new ResultsParser();
+			BoincBaseParser.parse(parser, rpcReply, true);
+			return parser.getResults();
+		}
+		catch (BoincParserException e) {
+			if (Logging.INFO) Log.i(TAG, "Malformed XML");
+			return null;
+		}
+	}
+
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("result")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		if (tag == BoincTags.RESULT) {
 			if (Logging.INFO) {
 				if (mResult != null) {
 					// previous <result> not closed - dropping it!
@@ -68,18 +86,18 @@ public class ResultsParser extends BoincBaseParser {
 			}
 			mResult = new Result();
 		}
-		else if (localName.equalsIgnoreCase("active_task")) {
+		else if (tag == BoincTags.ACTIVE_TASK) {
 			mInActiveTask = true;
 		}
 	}
  
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		try {
 			if (mResult != null) {
 				// We are inside <result>
-				if (localName.equalsIgnoreCase("result")) {
+				if (tag == BoincTags.RESULT) {
 					// Closing tag of <result> - add to vector and be ready for
 					// next one
 					if (!mResult.name.equals("")) {
@@ -92,118 +110,122 @@ public class ResultsParser extends BoincBaseParser {
 					// Not the closing tag - we decode possible inner tags
 					if (mInActiveTask) {
 						// we are in <active_task>
-						if (localName.equalsIgnoreCase("active_task")) {
+						switch (tag) {
+						case BoincTags.ACTIVE_TASK:
 							// Closing of <active_task>
 							mResult.active_task = true;
 							mInActiveTask = false;
-						}
-						else if (localName.equalsIgnoreCase("active_task_state")) {
-							mResult.active_task_state = Integer.parseInt(getCurrentElement());
-						} 
-						else if (localName.equalsIgnoreCase("app_version_num")) {
-							mResult.app_version_num = Integer.parseInt(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("scheduler_state")) {
-							mResult.scheduler_state = Integer.parseInt(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("checkpoint_cpu_time")) {
-							mResult.checkpoint_cpu_time = Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("current_cpu_time")) {
-							mResult.current_cpu_time = Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("fraction_done")) {
-							mResult.fraction_done = Float.parseFloat(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("elapsed_time")) {
-							mResult.elapsed_time = Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("swap_size")) {
-							mResult.swap_size = Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("working_set_size_smoothed")) {
-							mResult.working_set_size_smoothed = Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("estimated_cpu_time_remaining")) {
-							mResult.estimated_cpu_time_remaining = Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("supports_graphics")) {
-							mResult.supports_graphics = !getCurrentElement().equals("0");
-						}
-						else if (localName.equalsIgnoreCase("graphic_mode_acked")) {
-							mResult.graphics_mode_acked = Integer.parseInt(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("too_large")) {
-							mResult.too_large = !getCurrentElement().equals("0");
-						}
-						else if (localName.equalsIgnoreCase("needs_shmem")) {
-							mResult.needs_shmem = !getCurrentElement().equals("0");
-						}
-						else if (localName.equalsIgnoreCase("edf_scheduled")) {
-							mResult.edf_scheduled = !getCurrentElement().equals("0");
-						}
-						else if (localName.equalsIgnoreCase("pid")) {
-							mResult.pid = Integer.parseInt(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("slot")) {
-							mResult.slot = Integer.parseInt(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("graphics_exec_path")) {
+							break;
+						case BoincTags.ACTIVE_TASK_STATE:
+							mResult.active_task_state = getCurrentInt();
+							break;
+						case BoincTags.APP_VERSION_NUM:
+							mResult.app_version_num = getCurrentInt();
+							break;
+						case BoincTags.SCHEDULER_STATE:
+							mResult.scheduler_state = getCurrentInt();
+							break;
+						case BoincTags.CHECKPOINT_CPU_TIME:
+							mResult.checkpoint_cpu_time = getCurrentDouble();
+							break;
+						case BoincTags.CURRENT_CPU_TIME:
+							mResult.current_cpu_time = getCurrentDouble();
+							break;
+						case BoincTags.FRACTION_DONE:
+							mResult.fraction_done = getCurrentFloat();
+							break;
+						case BoincTags.ELAPSED_TIME:
+							mResult.elapsed_time = getCurrentDouble();
+							break;
+						case BoincTags.SWAP_SIZE:
+							mResult.swap_size = getCurrentDouble();
+							break;
+						case BoincTags.WORKING_SET_SIZE_SMOOTHED:
+							mResult.working_set_size_smoothed = getCurrentDouble();
+							break;
+						case BoincTags.ESTIMATED_CPU_TIME_REMAINING:
+							mResult.estimated_cpu_time_remaining = getCurrentDouble();
+							break;
+						case BoincTags.SUPPORTS_GRAPHICS:
+							mResult.supports_graphics = getCurrentBoolean();
+							break;
+						case BoincTags.GRAPHIC_MODE_ACKED:
+							mResult.graphics_mode_acked = getCurrentInt();
+							break;
+						case BoincTags.TOO_LARGE:
+							mResult.too_large = getCurrentBoolean();
+							break;
+						case BoincTags.NEEDS_SHMEM:
+							mResult.needs_shmem = getCurrentBoolean();
+							break;
+						case BoincTags.EDF_SCHEDULED:
+							mResult.edf_scheduled = getCurrentBoolean();
+							break;
+						case BoincTags.PID:
+							mResult.pid = getCurrentInt();
+							break;
+						case BoincTags.SLOT:
+							mResult.slot = getCurrentInt();
+							break;
+						case BoincTags.GRAPHICS_EXEC_PATH:
 							mResult.graphics_exec_path = getCurrentElement();
-						}
-						else if (localName.equalsIgnoreCase("slot_path")) {
+							break;
+						case BoincTags.SLOT_PATH:
 							mResult.slot_path = getCurrentElement();
+							break;
 						}
 					}
 					else {
 					// Not in <active_task>
-						if (localName.equalsIgnoreCase("name")) {
+						switch (tag) {
+						case BoincTags.NAME:
 							mResult.name = getCurrentElement();
-						}
-						else if (localName.equalsIgnoreCase("wu_name")) {
+							break;
+						case BoincTags.WU_NAME:
 							mResult.wu_name = getCurrentElement();
-						}
-						else if (localName.equalsIgnoreCase("project_url")) {
+							break;
+						case BoincTags.PROJECT_URL:
 							mResult.project_url = getCurrentElement();
-						}
-						else if (localName.equalsIgnoreCase("version_num")) {
-							mResult.version_num = Integer.parseInt(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("ready_to_report")) {
-							mResult.ready_to_report = !getCurrentElement().equals("0");
-						}
-						else if (localName.equalsIgnoreCase("got_server_ack")) {
-							mResult.got_server_ack = !getCurrentElement().equals("0");
-						}
-						else if (localName.equalsIgnoreCase("final_cpu_time")) {
-							mResult.final_cpu_time = Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("final_elapsed_time")) {
-							mResult.final_elapsed_time = Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("state")) {
-							mResult.state = Integer.parseInt(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("report_deadline")) {
-							mResult.report_deadline = (long)Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("received_time")) {
-							mResult.received_time = (long)Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("estimated_cpu_time_remaining")) {
-							mResult.estimated_cpu_time_remaining = Double.parseDouble(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("exit_status")) {
-							mResult.exit_status = Integer.parseInt(getCurrentElement());
-						}
-						else if (localName.equalsIgnoreCase("suspended_via_gui")) {
-							mResult.suspended_via_gui = !getCurrentElement().equals("0");
-						}
-						else if (localName.equalsIgnoreCase("project_suspended_via_gui")) {
-							mResult.project_suspended_via_gui = !getCurrentElement().equals("0");
-						}
-						else if (localName.equalsIgnoreCase("resources")) {
+							break;
+						case BoincTags.VERSION_NUM:
+							mResult.version_num = getCurrentInt();
+							break;
+						case BoincTags.READY_TO_REPORT:
+							mResult.ready_to_report = getCurrentBoolean();
+							break;
+						case BoincTags.GOT_SERVER_ACK:
+							mResult.got_server_ack = getCurrentBoolean();
+							break;
+						case BoincTags.FINAL_CPU_TIME:
+							mResult.final_cpu_time = getCurrentDouble();
+							break;
+						case BoincTags.FINAL_ELAPSED_TIME:
+							mResult.final_elapsed_time = getCurrentDouble();
+							break;
+						case BoincTags.STATE:
+							mResult.state = getCurrentInt();
+							break;
+						case BoincTags.REPORT_DEADLINE:
+							mResult.report_deadline = (long)getCurrentDouble();
+							break;
+						case BoincTags.RECEIVED_TIME:
+							mResult.received_time = (long)getCurrentDouble();
+							break;
+						case BoincTags.ESTIMATED_CPU_TIME_REMAINING:
+							mResult.estimated_cpu_time_remaining = getCurrentDouble();
+							break;
+						case BoincTags.EXIT_STATUS:
+							mResult.exit_status = getCurrentInt();
+							break;
+						case BoincTags.SUSPENDED_VIA_GUI:
+							mResult.suspended_via_gui = getCurrentBoolean();
+							break;
+						case BoincTags.PROJECT_SUSPENDED_VIA_GUI:
+							mResult.project_suspended_via_gui = getCurrentBoolean();
+							break;
+						case BoincTags.RESOURCES:
 							mResult.resources = getCurrentElement();
+							break;
 						}
 					}
 				}
@@ -22,12 +22,12 @@ package edu.berkeley.boinc.lite;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
-import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -35,6 +35,7 @@ import org.xml.sax.helpers.DefaultHandler;
 import sk.boinc.nativeboinc.debug.Debugging;
 import sk.boinc.nativeboinc.debug.Logging;
 import sk.boinc.nativeboinc.debug.NetStats;
+import sk.boinc.nativeboinc.debug.PerformanceStats;
 import android.util.Log;
 import android.util.Xml;
 
@@ -48,11 +49,15 @@ import android.util.Xml;
  */
 public class RpcClient {
 	private static final String TAG = "RpcClient";
-	private static final int CONNECT_TIMEOUT = 30000;      // 30s
+	public static final int CONNECT_TIMEOUT = 30000;       // 30s
 	private static final int READ_TIMEOUT = 15000;         // 15s
 	private static final int READ_BUF_SIZE = 2048;
 	private static final int RESULT_BUILDER_INIT_SIZE = 131072; // Yes, 128K
 	private static final int REQUEST_BUILDER_INIT_SIZE = 80;
+
+	/* FNV-1a (64-bit) parameters for reply fingerprints */
+	private static final long FINGERPRINT_OFFSET = 0xcbf29ce484222325L;
+	private static final long FINGERPRINT_PRIME = 0x100000001b3L;
 	
 	public static final int SUCCESS = 0;
 	public static final int ERR_RETRY = -199;
@@ -72,20 +77,74 @@ public class RpcClient {
 	public static final int TRANSFER_RETRY  = 1;
 	public static final int TRANSFER_ABORT  = 2;
 
-	private Socket mSocket;
-	private OutputStreamWriter mOutput;
-	private InputStream mInput;
+	/* calls which can be pipelined */
+	public static final int CALL_GET_STATE = 1;
+	public static final int CALL_GET_PROJECT_STATUS = 2;
+	public static final int CALL_GET_DISK_USAGE = 3;
+	public static final int CALL_GET_FILE_TRANSFERS = 4;
+	public static final int CALL_GET_RESULTS = 5;
+	public static final int CALL_GET_MESSAGE_COUNT = 6;
+	public static final int CALL_GET_MESSAGES = 7;
+	public static final int CALL_GET_NOTICES = 8;
+	public static final int CALL_GET_CC_STATUS = 9;
+
+	private static final String GET_STATE_REQUEST = "<get_state/>\n";
+	private static final String GET_PROJECT_STATUS_REQUEST = "<get_project_status/>\n";
+	private static final String GET_DISK_USAGE_REQUEST = "<get_disk_usage/>\n";
+	private static final String GET_FILE_TRANSFERS_REQUEST = "<get_file_transfers/>\n";
+	private static final String GET_RESULTS_REQUEST = "<get_results/>\n";
+	private static final String GET_MESSAGE_COUNT_REQUEST = "<get_message_count/>\n";
+	private static final String GET_CC_STATUS_REQUEST = "<get_cc_status/>\n";
+
+	private final RpcTransport mTransport;
 	private byte[] mReadBuffer = new byte[READ_BUF_SIZE];
+	private int mReadBufferPos = 0;
+	private int mReadBufferEnd = 0;
+	private char[] mReadCharBuffer = new char[READ_BUF_SIZE];
 	protected StringBuilder mResult = new StringBuilder(RESULT_BUILDER_INIT_SIZE);
 	protected StringBuilder mRequest = new StringBuilder(REQUEST_BUILDER_INIT_SIZE);
 	private NetStats mNetStats = null;
 
+	/* announced calls, whose requests will be sent ahead */
+	private LinkedList<String> mPipelinedRequests = new LinkedList<String>();
+	/* requests sent before their calls were performed */
+	private LinkedList<String> mRequestsSentAhead = new LinkedList<String>();
+
+	/* fingerprints of the replies, whose data are used by caller (indexed by CALL_XXX) */
+	private boolean mSkipUnchangedReplies = false;
+	private boolean[] mHaveFingerprint = new boolean[CALL_GET_CC_STATUS+1];
+	private long[] mReplyFingerprints = new long[CALL_GET_CC_STATUS+1];
+	private int[] mReplyLengths = new int[CALL_GET_CC_STATUS+1];
+	/* fingerprints of the parsed replies, not committed by caller yet */
+	private boolean[] mHavePendingFingerprint = new boolean[CALL_GET_CC_STATUS+1];
+	private long[] mPendingFingerprints = new long[CALL_GET_CC_STATUS+1];
+	private int[] mPendingLengths = new int[CALL_GET_CC_STATUS+1];
+	private int[] mUnchangedReplies = new int[CALL_GET_CC_STATUS+1];
+	private boolean mLastReplyUnchanged = false;
+	/* reply opened by openFingerprintedReply */
+	private ReplyInputStream mFingerprintedReply = null;
+
+	/* time spent in transport I/O of the replies (only if Debugging.PERFORMANCE) */
+	private long mTransportTime = 0;
+	private long mParseTransportTime = 0;
+
 	protected String mLastErrorMessage = null;
 	
-	public RpcClient() {}
+	public RpcClient() {
+		this(null, null);
+	}
 
 	public RpcClient(NetStats netStats) {
+		this(netStats, null);
+	}
+
+	/**
+	 * @param netStats network statistics (can be null)
+	 * @param transport transport of the requests and replies (null - blocking socket)
+	 */
+	public RpcClient(NetStats netStats, RpcTransport transport) {
 		mNetStats = netStats;
+		mTransport = (transport != null) ? transport : new SocketTransport();
 	}
 
 
@@ -142,10 +201,160 @@ public class RpcClient {
 		}
 	}
 
+	/**
+	 * Stream of the single reply. Returns bytes read from socket up to the '\003' marker
+	 * (marker is consumed, but not returned), so the reply can be passed directly
+	 * to the parser without collecting it in memory. Closing stream skips rest of the reply.
+	 * Fingerprinted stream computes fingerprint of the all bytes of the reply (also skipped).
+	 */
+	private final class ReplyInputStream extends InputStream {
+		private final boolean mFingerprinted;
+		private long mFingerprint = FINGERPRINT_OFFSET;
+		private boolean mReplyEnd = false;
+		private int mBytesCount = 0;
+		private long mReadStart;
+		private byte[] mSingleByte = null;
+		private boolean mReplyBegun = false;
+
+		public ReplyInputStream() {
+			this(false);
+		}
+
+		public ReplyInputStream(boolean fingerprinted) {
+			mFingerprinted = fingerprinted;
+			if (Debugging.PERFORMANCE) mReadStart = System.nanoTime();
+		}
+
+		public long getFingerprint() {
+			return mFingerprint;
+		}
+
+		public int getBytesCount() {
+			return mBytesCount;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (mSingleByte == null)
+				mSingleByte = new byte[1];
+			if (read(mSingleByte, 0, 1) == -1)
+				return -1;
+			return mSingleByte[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (length == 0)
+				return 0;
+			int readed = scanReply(buffer, offset, length);
+			while (readed == 0 && !mReplyEnd)
+				readed = scanReply(buffer, offset, length);
+			return (readed == 0) ? -1 : readed;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// skip rest of the reply, next reply must start at the correct position
+			while (!mReplyEnd)
+				scanReply(null, 0, Integer.MAX_VALUE);
+		}
+
+		/*
+		 * copies (or skips, if buffer is null) bytes from read buffer up to the end marker
+		 */
+		private int scanReply(byte[] buffer, int offset, int length) throws IOException {
+			if (mReplyEnd)
+				return 0;
+			if (mReadBufferPos == mReadBufferEnd) {
+				long ioStart = (Debugging.PERFORMANCE) ? System.nanoTime() : 0;
+				boolean filled = fillReadBuffer();
+				if (Debugging.PERFORMANCE) mTransportTime += System.nanoTime() - ioStart;
+				if (!filled) {
+					// end of stream
+					finishReply();
+					return 0;
+				}
+			}
+			if (!mReplyBegun) {
+				// client already read our request, so next request can be sent
+				mReplyBegun = true;
+				long ioStart = (Debugging.PERFORMANCE) ? System.nanoTime() : 0;
+				sendPipelinedRequest();
+				if (Debugging.PERFORMANCE) mTransportTime += System.nanoTime() - ioStart;
+			}
+			int end = mReadBufferPos + Math.min(length, mReadBufferEnd - mReadBufferPos);
+			int pos;
+			if (mFingerprinted) {
+				long fingerprint = mFingerprint;
+				for (pos = mReadBufferPos; pos < end; pos++) {
+					final byte b = mReadBuffer[pos];
+					if (b == '\003')
+						break;
+					fingerprint = (fingerprint ^ (b & 0xff)) * FINGERPRINT_PRIME;
+				}
+				mFingerprint = fingerprint;
+			} else {
+				for (pos = mReadBufferPos; pos < end; pos++)
+					if (mReadBuffer[pos] == '\003')
+						break;
+			}
+			
+			int count = pos - mReadBufferPos;
+			if (buffer != null)
+				System.arraycopy(mReadBuffer, mReadBufferPos, buffer, offset, count);
+			mBytesCount += count;
+			mReadBufferPos = pos;
+			if (pos < end) {
+				// Last read byte marks the end of transfer
+				mReadBufferPos++;
+				finishReply();
+			}
+			return count;
+		}
+
+		private void finishReply() throws IOException {
+			mReplyEnd = true;
+			if (mBytesCount == 0) // if nothing received, trigger IO error
+				throw new IOException("Nothing received");
+
+			if (Debugging.PERFORMANCE) {
+				float duration = (System.nanoTime() - mReadStart)/1000000000.0F;
+				if (duration == 0) duration = 0.001F;
+				Log.d(TAG, "Reading from socket took " + duration + " seconds, " + mBytesCount + " bytes read (" + (mBytesCount / duration) + " bytes/second)");
+			}
+			if (mNetStats != null) {
+				mNetStats.bytesReceived(mBytesCount);
+			}
+		}
+	}
+
 	/*
 	 * Helper methods
 	 */
 
+	/* returns start time of the parsing (transport time is excluded from parsing time) */
+	private long startParse() {
+		mParseTransportTime = mTransportTime;
+		return System.nanoTime();
+	}
+
+	/* records parsing time, time spent in reading from socket is not included */
+	private void recordParse(String name, long parseStart, int itemsCount) {
+		PerformanceStats.record(name, parseStart, mTransportTime - mParseTransportTime, itemsCount);
+	}
+
+	private static final String messagesRequest(int seqNo) {
+		if (seqNo == 0) // get all messages
+			return "<get_messages/>\n";
+		return "<get_messages>\n" +
+			" <seqno>" + seqNo + "</seqno>\n" +
+			"</get_messages>\n";
+	}
+
+	private static final String noticesRequest(int seqNo) {
+		return "<get_notices>\n  <seqno>" + seqNo + "</seqno>\n</get_notices>\n";
+	}
+
 	private static final String modeName(int mode) {
 		switch (mode) {
 		case 1: return "<always/>";
@@ -174,25 +383,22 @@ public class RpcClient {
 			close();
 		}
 		try {
-			mSocket = new Socket();
-			mSocket.connect(new InetSocketAddress(address, port), CONNECT_TIMEOUT);
-			mSocket.setSoTimeout(READ_TIMEOUT);
-			mInput = mSocket.getInputStream();
-			mOutput = new OutputStreamWriter(mSocket.getOutputStream(), "ISO8859_1");
+			mTransport.open(address, port, CONNECT_TIMEOUT, READ_TIMEOUT);
+			mReadBufferPos = mReadBufferEnd = 0;
+			mPipelinedRequests.clear();
+			mRequestsSentAhead.clear();
+			resetReplyFingerprints();
 		}
 		catch (UnknownHostException e) {
 			if (Logging.WARNING) Log.w(TAG, "connect failure: unknown host \"" + address + "\"", e);
-			mSocket = null;
 			return false;
 		}
 		catch (IllegalArgumentException e) {
 			if (Logging.ERROR) Log.e(TAG, "connect failure: illegal argument", e);
-			mSocket = null;
 			return false;
 		}
 		catch (IOException e) {
 			if (Logging.WARNING) Log.w(TAG, "connect failure", e);
-			mSocket = null;
 			return false;
 		}
 		if (mNetStats != null) {
@@ -210,29 +416,13 @@ public class RpcClient {
 			// Not connected - just return (can be cleanup "for sure")
 			return;
 		}
-		try {
-			mInput.close();
-		}
-		catch (IOException e) {
-			if (Logging.WARNING) Log.w(TAG, "input close failure", e);
-		}
-		try {
-			mOutput.close();
-		}
-		catch (IOException e) {
-			if (Logging.WARNING) Log.w(TAG, "output close failure", e);
-		}
-		try {
-			mSocket.close();
-			if (Logging.DEBUG) Log.d(TAG, "close() - Socket closed");
-		}
-		catch (IOException e) {
-			if (Logging.WARNING) Log.w(TAG, "socket close failure", e);
-		}
+		mTransport.close();
 		if (mNetStats != null) {
 			mNetStats.connectionClosed();
 		}
-		mSocket = null;
+		mPipelinedRequests.clear();
+		mRequestsSentAhead.clear();
+		resetReplyFingerprints();
 	}
 	
 	public String getLastErrorMessage() {
@@ -290,7 +480,7 @@ public class RpcClient {
 	 * @return true if connected to BOINC core client, false if not connected
 	 */
 	public final boolean isConnected() {
-		return (mSocket != null) ? mSocket.isConnected() : false;
+		return mTransport.isConnected();
 	}
 
 	/**
@@ -329,18 +519,121 @@ public class RpcClient {
 	 */
 	protected void sendRequest(String request) throws IOException {
 		if (Debugging.PERFORMANCE) Log.d(TAG, "mRequest.capacity() = " + mRequest.capacity());
+		if (!mRequestsSentAhead.isEmpty()) {
+			if (mRequestsSentAhead.getFirst().equals(request)) {
+				mRequestsSentAhead.removeFirst();
+				return; // already sent, while previous reply was received
+			}
+			// calls differ from announced, skip replies to the requests sent ahead
+			if (Logging.DEBUG) Log.d(TAG, "Call not announced, dropping pipeline");
+			mPipelinedRequests.clear();
+			while (!mRequestsSentAhead.isEmpty()) {
+				mRequestsSentAhead.removeFirst();
+				new ReplyInputStream().close();
+			}
+		} else if (!mPipelinedRequests.isEmpty()) {
+			if (mPipelinedRequests.getFirst().equals(request))
+				mPipelinedRequests.removeFirst();
+			else
+				mPipelinedRequests.clear();
+		}
+		writeRequest(request);
+	}
+
+	/**
+	 * Announces call, which will be performed after previously announced calls.
+	 * Request of the announced call is sent, when reply to the previous call begins to arrive,
+	 * so the client prepares the reply while previous reply is transferred and parsed.
+	 * All requests can not be sent at once, because BOINC client reads only one request
+	 * at once (rest of the read data is dropped). Transport, which holds the requests,
+	 * can get them all at once by sendPipelinedRequests.
+	 * Calls must be performed in the announced order, otherwise rest of announced calls is dropped.
+	 * @param call call (one of CALL_XXX)
+	 * @param seqNo sequence number for CALL_GET_MESSAGES and CALL_GET_NOTICES
+	 */
+	public void pipelineCall(int call, int seqNo) {
+		String request;
+		switch (call) {
+		case CALL_GET_STATE: request = GET_STATE_REQUEST; break;
+		case CALL_GET_PROJECT_STATUS: request = GET_PROJECT_STATUS_REQUEST; break;
+		case CALL_GET_DISK_USAGE: request = GET_DISK_USAGE_REQUEST; break;
+		case CALL_GET_FILE_TRANSFERS: request = GET_FILE_TRANSFERS_REQUEST; break;
+		case CALL_GET_RESULTS: request = GET_RESULTS_REQUEST; break;
+		case CALL_GET_MESSAGE_COUNT: request = GET_MESSAGE_COUNT_REQUEST; break;
+		case CALL_GET_MESSAGES: request = messagesRequest(seqNo); break;
+		case CALL_GET_NOTICES: request = noticesRequest(seqNo); break;
+		case CALL_GET_CC_STATUS: request = GET_CC_STATUS_REQUEST; break;
+		default:
+			throw new IllegalArgumentException("Call can not be pipelined");
+		}
+		mPipelinedRequests.add(request);
+	}
+
+	public void pipelineCall(int call) {
+		pipelineCall(call, 0);
+	}
+
+	/**
+	 * Sends next announced request (if previous reply is not awaiting)
+	 * @throws IOException if error occurs when sending the request
+	 */
+	private void sendPipelinedRequest() throws IOException {
+		if (!mRequestsSentAhead.isEmpty() || mPipelinedRequests.isEmpty())
+			return;
+		String request = mPipelinedRequests.removeFirst();
+		mRequestsSentAhead.add(request);
+		writeRequest(request);
+	}
+
+	/**
+	 * Sends all announced requests at once, so their replies can be received before
+	 * the calls are performed. Only for transport, which holds every request until
+	 * reply to the previous request begins to arrive (SelectorTransport).
+	 * @return true for success, false for failure
+	 */
+	public boolean sendPipelinedRequests() {
+		try {
+			while (!mPipelinedRequests.isEmpty()) {
+				String request = mPipelinedRequests.removeFirst();
+				mRequestsSentAhead.add(request);
+				writeRequest(request);
+			}
+			return true;
+		}
+		catch (IOException e) {
+			if (Logging.WARNING) Log.w(TAG, "error in sendPipelinedRequests()", e);
+			return false;
+		}
+	}
+
+	private void writeRequest(String request) throws IOException {
 		if (Debugging.DATA) Log.d(TAG, "Sending request: \n" + request.toString());
-		if (mOutput == null)
+		if (!mTransport.isConnected())
 			return;
-		mOutput.write("<boinc_gui_rpc_request>\n");
-		mOutput.write(request);
-		mOutput.write("</boinc_gui_rpc_request>\n\003");
-		mOutput.flush();
+		mTransport.writeRequest(request);
 		if (mNetStats != null) {
 			mNetStats.bytesTransferred(50 + request.length());
 		}
 	}
 
+	/**
+	 * Fill read buffer with data from socket
+	 * @return false if end of stream reached
+	 * @throws IOException if error occurs when reading from socket
+	 */
+	private boolean fillReadBuffer() throws IOException {
+		// Speed is (with large data): ~ 45 KB/s for buffer size 1024
+		//                             ~ 90 KB/s for buffer size 2048
+		//                             ~ 95 KB/s for buffer size 4096
+		// The chosen buffer size is 2048
+		int bytesRead = mTransport.read(mReadBuffer, 0, mReadBuffer.length);
+		if (bytesRead == -1)
+			return false;
+		mReadBufferPos = 0;
+		mReadBufferEnd = bytesRead;
+		return true;
+	}
+
 	/**
 	 * Read the reply from BOINC core client
 	 * @return the data read from socket
@@ -350,43 +643,17 @@ public class RpcClient {
 		mResult.setLength(0);
 		if (Debugging.PERFORMANCE) Log.d(TAG, "mResult.capacity() = " + mResult.capacity());
 
-		long readStart;
-		if (Debugging.PERFORMANCE) readStart = System.nanoTime();
-
-		// Speed is (with large data): ~ 45 KB/s for buffer size 1024
-		//                             ~ 90 KB/s for buffer size 2048
-		//                             ~ 95 KB/s for buffer size 4096
-		// The chosen buffer size is 2048
-		int bytesRead;
-		if (mInput == null)
-			return mResult.toString();	// empty string
-		do {
-			bytesRead = mInput.read(mReadBuffer);
-			if (bytesRead == -1) break;
-			mResult.append(new String(mReadBuffer, 0, bytesRead));
-			if (mReadBuffer[bytesRead-1] == '\003') {
-				// Last read byte marks the end of transfer
-				mResult.setLength(mResult.length() - 1);
-				break;
-			}
-		} while (true);
-		
-		if (mResult.length() == 0) // if nothing received, trigger IO error
-			throw new IOException("Nothing received");
-
-		if (Debugging.PERFORMANCE) {
-			float duration = (System.nanoTime() - readStart)/1000000000.0F;
-			long bytesCount = mResult.length();
-			if (duration == 0) duration = 0.001F;
-			Log.d(TAG, "Reading from socket took " + duration + " seconds, " + bytesCount + " bytes read (" + (bytesCount / duration) + " bytes/second)");
+		Reader reader = new InputStreamReader(new ReplyInputStream(), "UTF-8");
+		try {
+			int charsRead;
+			while ((charsRead = reader.read(mReadCharBuffer)) != -1)
+				mResult.append(mReadCharBuffer, 0, charsRead);
+		} finally {
+			reader.close();
 		}
 
 		if (Debugging.PERFORMANCE) Log.d(TAG, "mResult.capacity() = " + mResult.capacity());
 
-		if (mNetStats != null) {
-			mNetStats.bytesReceived(mResult.length());
-		}
-
 		if (Debugging.DATA) {
 			BufferedReader dbr = new BufferedReader(new StringReader(mResult.toString()));
 			String dl;
@@ -403,6 +670,120 @@ public class RpcClient {
 		return mResult.toString();
 	}
 
+	/**
+	 * Open the reply from BOINC core client as stream, which is parsed directly
+	 * while it is read from socket. Reply must be read up to end or closed
+	 * before next request is sent.
+	 * @return the reader of the reply
+	 * @throws IOException if error occurs when reading from socket
+	 */
+	protected Reader openReply() throws IOException {
+		if (Debugging.DATA) // dumping needs whole reply
+			return new StringReader(receiveReply());
+		return new InputStreamReader(new ReplyInputStream(), "UTF-8");
+	}
+
+	/**
+	 * Opens the reply as stream (as openReply), whose fingerprint is computed while
+	 * it is parsed. Parsing must be followed by finishFingerprintedReply.
+	 * @return the reader of the reply
+	 * @throws IOException if error occurs when reading from socket
+	 */
+	private Reader openFingerprintedReply() throws IOException {
+		mFingerprintedReply = new ReplyInputStream(true);
+		return new InputStreamReader(mFingerprintedReply, "UTF-8");
+	}
+
+	/**
+	 * Reads rest of the fingerprinted reply and compares its fingerprint with
+	 * fingerprint of the last committed reply of the call
+	 * @param call call (one of CALL_XXX)
+	 * @param parsed true if reply was successfully parsed
+	 * @return true if reply is the same as last committed reply of the call
+	 * @throws IOException if error occurs when reading from socket
+	 */
+	private boolean finishFingerprintedReply(int call, boolean parsed) throws IOException {
+		ReplyInputStream reply = mFingerprintedReply;
+		mFingerprintedReply = null;
+		reply.close(); // rest of reply is also fingerprinted
+		long fingerprint = reply.getFingerprint();
+		int length = reply.getBytesCount();
+
+		mHavePendingFingerprint[call] = false;
+		mLastReplyUnchanged = parsed && mHaveFingerprint[call] &&
+				mReplyFingerprints[call] == fingerprint && mReplyLengths[call] == length;
+		if (mLastReplyUnchanged)
+			mUnchangedReplies[call]++;
+		else if (parsed) {
+			// will be committed, when caller uses data of the reply
+			mHavePendingFingerprint[call] = true;
+			mPendingFingerprints[call] = fingerprint;
+			mPendingLengths[call] = length;
+		}
+		return mLastReplyUnchanged;
+	}
+
+	private void resetReplyFingerprints() {
+		for (int i = 0; i < mHaveFingerprint.length; i++) {
+			mHaveFingerprint[i] = false;
+			mHavePendingFingerprint[i] = false;
+		}
+		mLastReplyUnchanged = false;
+	}
+
+	/**
+	 * Enables skipping of the replies, which are the same as last committed reply of the call.
+	 * Then getProjectStatus, getDiskUsage, getResults and getFileTransfers return null
+	 * for unchanged reply (getDiskUsage returns true) and isLastReplyUnchanged() returns true.
+	 * Reply is fingerprinted while it is parsed; its fingerprint must be committed by
+	 * commitReplyFingerprint, when caller has updated its data from the reply.
+	 * @param skip true if unchanged replies should be skipped
+	 */
+	public void setSkipUnchangedReplies(boolean skip) {
+		mSkipUnchangedReplies = skip;
+		if (!skip)
+			resetReplyFingerprints();
+	}
+
+	/**
+	 * @return true if reply of the last call was skipped, because it was unchanged
+	 */
+	public boolean isLastReplyUnchanged() {
+		return mLastReplyUnchanged;
+	}
+
+	/**
+	 * Forgets fingerprint of the call, so next reply will be parsed
+	 * (must be called when data retrieved by call was replaced from other source)
+	 * @param call call (one of CALL_XXX)
+	 */
+	public void invalidateReplyFingerprint(int call) {
+		mHaveFingerprint[call] = false;
+		mHavePendingFingerprint[call] = false;
+	}
+
+	/**
+	 * Commits fingerprint of the last parsed reply of the call, so next same reply
+	 * will be skipped (must be called after caller updated its data from the reply)
+	 * @param call call (one of CALL_XXX)
+	 */
+	public void commitReplyFingerprint(int call) {
+		if (!mHavePendingFingerprint[call])
+			return; // reply was unchanged or failed
+		mHavePendingFingerprint[call] = false;
+		mHaveFingerprint[call] = true;
+		mReplyFingerprints[call] = mPendingFingerprints[call];
+		mReplyLengths[call] = mPendingLengths[call];
+	}
+
+	/**
+	 * @param call call (one of CALL_XXX)
+	 * @return number of skipped (unchanged) replies of the call
+	 */
+	public int getUnchangedRepliesCount(int call) {
+		return mUnchangedReplies[call];
+	}
+
 	/*
 	 * GUI RPC calls
 	 */
@@ -452,7 +833,7 @@ public class RpcClient {
 	public CcStatus getCcStatus() {
 		mLastErrorMessage = null;
 		try {
-			sendRequest("<get_cc_status/>\n");
+			sendRequest(GET_CC_STATUS_REQUEST);
 			CcStatus ccStatus = CcStatusParser.parse(receiveReply());
 			return ccStatus;
 		}
@@ -469,8 +850,15 @@ public class RpcClient {
 	public ArrayList<Transfer> getFileTransfers() {
 		mLastErrorMessage = null;
 		try {
-			sendRequest("<get_file_transfers/>\n");
-			ArrayList<Transfer> transfers = TransfersParser.parse(receiveReply());
+			sendRequest(GET_FILE_TRANSFERS_REQUEST);
+			mLastReplyUnchanged = false;
+			if (mSkipUnchangedReplies) {
+				ArrayList<Transfer> transfers = TransfersParser.parse(openFingerprintedReply());
+				if (finishFingerprintedReply(CALL_GET_FILE_TRANSFERS, transfers != null))
+					return null; // unchanged
+				return transfers;
+			}
+			ArrayList<Transfer> transfers = TransfersParser.parse(openReply());
 			return transfers;
 		}
 		catch (IOException e) {
@@ -505,7 +893,7 @@ public class RpcClient {
 	public int getMessageCount() {
 		mLastErrorMessage = null;
 		try {
-			sendRequest("<get_message_count/>\n");
+			sendRequest(GET_MESSAGE_COUNT_REQUEST);
 			return MessageCountParser.getSeqno(receiveReply());
 		}
 		catch (IOException e) {
@@ -522,19 +910,11 @@ public class RpcClient {
 	public ArrayList<Message> getMessages(int seqNo) {
 		mLastErrorMessage = null;
 		try {
-			String request;
-			if (seqNo == 0) {
-				// get all messages
-				request = "<get_messages/>\n";
-			}
-			else {
-				request =
-					"<get_messages>\n" +
-					" <seqno>" + seqNo + "</seqno>\n" +
-					"</get_messages>\n";
-			}
-			sendRequest(request);
-			ArrayList<Message> messages = MessagesParser.parse(receiveReply());
+			sendRequest(messagesRequest(seqNo));
+			long parseStart = (Debugging.PERFORMANCE) ? startParse() : 0;
+			ArrayList<Message> messages = MessagesParser.parse(openReply());
+			if (Debugging.PERFORMANCE) recordParse("getMessages", parseStart,
+					(messages != null) ? messages.size() : 0);
 			return messages;
 		}
 		catch (IOException e) {
@@ -551,8 +931,15 @@ public class RpcClient {
 	public ArrayList<Project> getProjectStatus() {
 		mLastErrorMessage = null;
 		try {
-			sendRequest("<get_project_status/>\n");
-			ArrayList<Project> projects = ProjectsParser.parse(receiveReply());
+			sendRequest(GET_PROJECT_STATUS_REQUEST);
+			mLastReplyUnchanged = false;
+			if (mSkipUnchangedReplies) {
+				ArrayList<Project> projects = ProjectsParser.parse(openFingerprintedReply());
+				if (finishFingerprintedReply(CALL_GET_PROJECT_STATUS, projects != null))
+					return null; // unchanged
+				return projects;
+			}
+			ArrayList<Project> projects = ProjectsParser.parse(openReply());
 			return projects;
 		}
 		catch (IOException e) {
@@ -570,7 +957,13 @@ public class RpcClient {
 	public boolean getDiskUsage(ArrayList<Project> projects) {
 		mLastErrorMessage = null;
 		try {
-			sendRequest("<get_disk_usage/>\n");
+			sendRequest(GET_DISK_USAGE_REQUEST);
+			mLastReplyUnchanged = false;
+			if (mSkipUnchangedReplies) {
+				boolean parsed = DiskUsageParser.parse(openFingerprintedReply(), projects);
+				finishFingerprintedReply(CALL_GET_DISK_USAGE, parsed);
+				return parsed;
+			}
 			return DiskUsageParser.parse(receiveReply(), projects);
 		} catch(IOException e) {
 			if (Logging.WARNING) Log.w(TAG, "error in getDiskUsage()", e);
@@ -591,7 +984,10 @@ public class RpcClient {
 			"</get_results>\n";
 		try {
 			sendRequest(request);
-			ArrayList<Result> results = ResultsParser.parse(receiveReply());
+			long parseStart = (Debugging.PERFORMANCE) ? startParse() : 0;
+			ArrayList<Result> results = ResultsParser.parse(openReply());
+			if (Debugging.PERFORMANCE) recordParse("getActiveResults", parseStart,
+					(results != null) ? results.size() : 0);
 			return results;
 		}
 		catch (IOException e) {
@@ -608,8 +1004,15 @@ public class RpcClient {
 	public ArrayList<Result> getResults() {
 		mLastErrorMessage = null;
 		try {
-			sendRequest("<get_results/>\n");
-			ArrayList<Result> results = ResultsParser.parse(receiveReply());
+			sendRequest(GET_RESULTS_REQUEST);
+			mLastReplyUnchanged = false;
+			long parseStart = (Debugging.PERFORMANCE) ? startParse() : 0;
+			ArrayList<Result> results = ResultsParser.parse((mSkipUnchangedReplies) ?
+					openFingerprintedReply() : openReply());
+			if (Debugging.PERFORMANCE) recordParse("getResults", parseStart,
+					(results != null) ? results.size() : 0);
+			if (mSkipUnchangedReplies && finishFingerprintedReply(CALL_GET_RESULTS, results != null))
+				return null; // unchanged
 			return results;
 		}
 		catch (IOException e) {
@@ -625,12 +1028,11 @@ public class RpcClient {
 	public Notices getNotices(int seqNo) {
 		mLastErrorMessage = null;
 		try {
-			mRequest.setLength(0);
-			mRequest.append("<get_notices>\n  <seqno>");
-			mRequest.append(seqNo);
-			mRequest.append("</seqno>\n</get_notices>\n");
-			sendRequest(mRequest.toString());
-			Notices notices = NoticesReplyParser.parse(receiveReply());
+			sendRequest(noticesRequest(seqNo));
+			long parseStart = (Debugging.PERFORMANCE) ? startParse() : 0;
+			Notices notices = NoticesReplyParser.parse(openReply());
+			if (Debugging.PERFORMANCE) recordParse("getNotices", parseStart,
+					(notices != null) ? notices.notices.size() : 0);
 			return notices;
 		} catch(IOException e) {
 			if (Logging.WARNING) Log.w(TAG, "error in getNotices()", e);
@@ -646,8 +1048,11 @@ public class RpcClient {
 	public CcState getState() {
 		mLastErrorMessage = null;
 		try {
-			sendRequest("<get_state/>\n");
-			CcState result = CcStateParser.parse(receiveReply());
+			sendRequest(GET_STATE_REQUEST);
+			long parseStart = (Debugging.PERFORMANCE) ? startParse() : 0;
+			CcState result = CcStateParser.parse(openReply());
+			if (Debugging.PERFORMANCE) recordParse("getState", parseStart,
+					(result != null) ? result.results.size() : 0);
 			return result;
 		}
 		catch (IOException e) {
@@ -665,7 +1070,11 @@ public class RpcClient {
 		mLastErrorMessage = null;
 		try {
 			sendRequest("<get_all_projects_list/>\n");
-			return ProjectListParser.parse(receiveReply());
+			long parseStart = (Debugging.PERFORMANCE) ? startParse() : 0;
+			ArrayList<ProjectListEntry> projects = ProjectListParser.parse(openReply());
+			if (Debugging.PERFORMANCE) recordParse("getAllProjectsList", parseStart,
+					(projects != null) ? projects.size() : 0);
+			return projects;
 		} catch(IOException e) {
 			if (Logging.WARNING) Log.w(TAG, "error in getAllProjectsList()", e);
 			return null;
@@ -0,0 +1,163 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.lite;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import sk.boinc.nativeboinc.debug.Logging;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Selector thread, which performs I/O of all selector transports.
+ * Thread is started with first transport and finishes, when no channel
+ * is registered for a while.
+ * 
+ * @author mat
+ *
+ */
+final class RpcSelector extends Thread {
+	private static final String TAG = "RpcSelector";
+
+	private static final long IDLE_TIMEOUT = 30000;	// 30s
+
+	private static RpcSelector sInstance = null;
+
+	private final Selector mSelector;
+	/* transports, whose registration must be updated (guarded by RpcSelector.class) */
+	private ArrayList<SelectorTransport> mPendingUpdates = new ArrayList<SelectorTransport>();
+	private ArrayList<SelectorTransport> mUpdates = new ArrayList<SelectorTransport>();
+
+	private RpcSelector() throws IOException {
+		super("RpcSelector");
+		setDaemon(true);
+		mSelector = Selector.open();
+	}
+
+	/**
+	 * Requests update of the transport registration (interest set or closing)
+	 * @param transport transport
+	 * @throws IOException if selector can not be opened
+	 */
+	static void update(SelectorTransport transport) throws IOException {
+		RpcSelector selector;
+		synchronized(RpcSelector.class) {
+			if (sInstance == null) {
+				sInstance = new RpcSelector();
+				sInstance.start();
+			}
+			selector = sInstance;
+			if (!selector.mPendingUpdates.contains(transport))
+				selector.mPendingUpdates.add(transport);
+		}
+		selector.mSelector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		if (Logging.DEBUG) Log.d(TAG, "Selector thread started");
+		long idleSince = SystemClock.uptimeMillis();
+		try {
+			while (true) {
+				long now = SystemClock.uptimeMillis();
+				long nextDeadline = checkTimeouts(now);
+				long timeout;
+				if (mSelector.keys().isEmpty())
+					timeout = Math.max(idleSince + IDLE_TIMEOUT - now, 1);
+				else
+					timeout = (nextDeadline != 0) ? Math.max(nextDeadline - now, 1) : 0;
+
+				mSelector.select(timeout);
+
+				Iterator<SelectionKey> it = mSelector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					try {
+						((SelectorTransport)key.attachment()).handleReady(key);
+					} catch (CancelledKeyException e) {
+						// channel closed meanwhile
+					}
+				}
+				processUpdates();
+
+				if (!mSelector.keys().isEmpty())
+					idleSince = SystemClock.uptimeMillis();
+				else if (SystemClock.uptimeMillis() - idleSince >= IDLE_TIMEOUT) {
+					synchronized(RpcSelector.class) {
+						if (mPendingUpdates.isEmpty()) {
+							sInstance = null;
+							break;
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			if (Logging.ERROR) Log.e(TAG, "Selector failure", e);
+			synchronized(RpcSelector.class) {
+				if (sInstance == this)
+					sInstance = null;
+			}
+			abortAll(e);
+		} finally {
+			try {
+				mSelector.close();
+			} catch (IOException e) { }
+		}
+		if (Logging.DEBUG) Log.d(TAG, "Selector thread finished");
+	}
+
+	private void processUpdates() {
+		synchronized(RpcSelector.class) {
+			ArrayList<SelectorTransport> updates = mPendingUpdates;
+			mPendingUpdates = mUpdates;
+			mUpdates = updates;
+		}
+		for (SelectorTransport transport: mUpdates)
+			transport.updateRegistration(mSelector);
+		mUpdates.clear();
+	}
+
+	/* returns nearest time of timeout (0 if no timeout) */
+	private long checkTimeouts(long now) {
+		long nextDeadline = 0;
+		for (SelectionKey key: mSelector.keys()) {
+			long deadline = ((SelectorTransport)key.attachment()).checkTimeout(now);
+			if (deadline != 0 && (nextDeadline == 0 || deadline < nextDeadline))
+				nextDeadline = deadline;
+		}
+		return nextDeadline;
+	}
+
+	private void abortAll(IOException cause) {
+		for (SelectionKey key: mSelector.keys())
+			((SelectorTransport)key.attachment()).abort(cause);
+		synchronized(RpcSelector.class) {
+			for (SelectorTransport transport: mPendingUpdates)
+				transport.abort(cause);
+			mPendingUpdates.clear();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.lite;
+
+import java.io.IOException;
+
+/**
+ * Transport of the GUI RPC requests and replies. RpcClient uses one transport
+ * for its connection, transport sends framed requests and returns raw reply bytes
+ * (replies are separated by '\003' marker).
+ * 
+ * @author mat
+ *
+ */
+public interface RpcTransport {
+	/**
+	 * Opens connection
+	 * @param address address of the client
+	 * @param port port of the client
+	 * @param connectTimeout timeout of connecting (milliseconds)
+	 * @param readTimeout timeout of waiting for reply data (milliseconds)
+	 * @throws IOException if connection can not be opened
+	 */
+	public abstract void open(String address, int port, int connectTimeout, int readTimeout)
+			throws IOException;
+
+	/**
+	 * @return true if connection is opened
+	 */
+	public abstract boolean isConnected();
+
+	/**
+	 * Sends request (enclosed in boinc_gui_rpc_request and terminated by '\003')
+	 * @param request body of the request
+	 * @throws IOException if request can not be sent
+	 */
+	public abstract void writeRequest(String request) throws IOException;
+
+	/**
+	 * Reads reply data, blocks until some data are available
+	 * @return number of read bytes or -1 if end of stream reached
+	 * @throws IOException if error occurs when reading
+	 */
+	public abstract int read(byte[] buffer, int offset, int length) throws IOException;
+
+	/**
+	 * Closes connection (can be called, when not connected)
+	 */
+	public abstract void close();
+}
@@ -0,0 +1,514 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.lite;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.LinkedList;
+
+import sk.boinc.nativeboinc.debug.Logging;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Transport over non-blocking socket channel. I/O of all selector transports is done
+ * by single selector thread (RpcSelector), so many hosts do not need own threads
+ * blocked in socket reads. Requests are queued and written by selector thread, every
+ * request after reply to the previous request begins to arrive (BOINC client reads
+ * only one request at once). Reply data are read to direct buffer, from which they are
+ * taken by calling thread. Caller, which does not want to wait for the replies, can be
+ * notified by listener when all replies are received (see awaitReplies and connectAhead).
+ * Timeouts are checked by selector thread, read timeout applies only while
+ * some reply is awaited (reply ends are found by '\003' marker).
+ * 
+ * @author mat
+ *
+ */
+public class SelectorTransport implements RpcTransport {
+	private static final String TAG = "SelectorTransport";
+
+	private static final int INPUT_BUFFER_SIZE = 16384;
+	private static final int MIN_REQUEST_BUFFER_SIZE = 256;
+	private static final int MAX_FREE_BUFFERS = 2;
+
+	private static final String REQUEST_HEADER = "<boinc_gui_rpc_request>\n";
+	private static final String REQUEST_FOOTER = "</boinc_gui_rpc_request>\n\003";
+
+	private static final int STATE_CLOSED = 0;
+	private static final int STATE_CONNECTING = 1;
+	private static final int STATE_CONNECTED = 2;
+	private static final int STATE_FAILED = 3;
+
+	/* fields are guarded by this object */
+	private SocketChannel mChannel = null;
+	private SelectionKey mKey = null;	// used only by selector thread
+	private int mState = STATE_CLOSED;
+	private IOException mError = null;
+	private boolean mEndOfStream = false;
+	private int mReadTimeout = 0;
+	/* address of the connection started by connectAhead (not opened yet) */
+	private InetSocketAddress mAheadAddress = null;
+	/* called when connection is established and no reply is awaited */
+	private Runnable mListener = null;
+
+	/* requests waiting for writing */
+	private final LinkedList<ByteBuffer> mWriteQueue = new LinkedList<ByteBuffer>();
+	private final LinkedList<ByteBuffer> mFreeBuffers = new LinkedList<ByteBuffer>();
+	/* read data, which are not taken (buffer is in write mode) */
+	private ByteBuffer mInput = ByteBuffer.allocateDirect(INPUT_BUFFER_SIZE);
+	private boolean mReadSuspended = false;	// if input buffer is full
+	/* number of queued and sent requests, whose reply did not end */
+	private int mAwaitedReplies = 0;
+	/* number of sent requests, whose reply did not begin (next request is held) */
+	private int mUnstartedReplies = 0;
+	/* if data of the reply are received (its end marker did not arrive yet) */
+	private boolean mInReply = false;
+	/* time of timeout (0 if no timeout) */
+	private long mDeadline = 0;
+
+	@Override
+	public void open(String address, int port, int connectTimeout, int readTimeout)
+			throws IOException {
+		InetSocketAddress socketAddress = resolve(address, port);
+		try {
+			synchronized(this) {
+				if (mAheadAddress != null && mAheadAddress.equals(socketAddress)) {
+					// connection started by connectAhead is used
+					mAheadAddress = null;
+					mListener = null;
+					mReadTimeout = readTimeout;
+					while (mState == STATE_CONNECTING)
+						waitForSelector();
+					if (mState != STATE_CONNECTED)
+						throw newError("Connect failed");
+					return;
+				}
+			}
+			close();
+			startConnect(socketAddress, connectTimeout, readTimeout, null);
+			synchronized(this) {
+				while (mState == STATE_CONNECTING)
+					waitForSelector();
+				if (mState != STATE_CONNECTED)
+					throw newError("Connect failed");
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Starts connecting without waiting for the connection. Following open
+	 * with the same address uses this connection (until then, transport is not connected).
+	 * @param address address of the client
+	 * @param port port of the client
+	 * @param connectTimeout timeout of connecting (milliseconds)
+	 * @param listener called (by selector thread) when connection is established or fails,
+	 * it must not block
+	 * @throws IOException if connecting can not be started
+	 */
+	public void connectAhead(String address, int port, int connectTimeout, Runnable listener)
+			throws IOException {
+		close();
+		InetSocketAddress socketAddress = resolve(address, port);
+		try {
+			if (startConnect(socketAddress, connectTimeout, 0, listener))
+				listener.run(); // connected at once
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Calls listener when replies to all sent requests are received or connection fails.
+	 * Received replies are kept (input buffer grows), until they are read.
+	 * @param listener called by selector thread (or by this thread if no reply is awaited),
+	 * it must not block
+	 */
+	public void awaitReplies(Runnable listener) {
+		boolean awaited;
+		boolean resumeRead = false;
+		synchronized(this) {
+			awaited = (mState == STATE_CONNECTED && !mEndOfStream && mAwaitedReplies != 0);
+			if (awaited) {
+				mListener = listener;
+				if (mReadSuspended) {
+					growInput();
+					mReadSuspended = false;
+					resumeRead = true;
+					mDeadline = SystemClock.uptimeMillis() + mReadTimeout;
+				}
+			}
+		}
+		if (!awaited) {
+			listener.run();
+			return;
+		}
+		if (resumeRead) {
+			try {
+				RpcSelector.update(this);
+			} catch (IOException e) {
+				synchronized(this) {
+					fail(e);
+				}
+			}
+		}
+	}
+
+	@Override
+	public synchronized boolean isConnected() {
+		if (mAheadAddress != null)
+			return false; // not opened yet
+		// as Socket.isConnected, failed connection remains connected until it is closed
+		return mState == STATE_CONNECTED || mState == STATE_FAILED;
+	}
+
+	@Override
+	public void writeRequest(String request) throws IOException {
+		synchronized(this) {
+			if (mState != STATE_CONNECTED)
+				throw newError("Not connected");
+			ByteBuffer buffer = obtainBuffer(REQUEST_HEADER.length() + request.length() +
+					REQUEST_FOOTER.length());
+			putString(buffer, REQUEST_HEADER);
+			putString(buffer, request);
+			putString(buffer, REQUEST_FOOTER);
+			buffer.flip();
+			mWriteQueue.add(buffer);
+			if (mAwaitedReplies++ == 0)
+				mDeadline = SystemClock.uptimeMillis() + mReadTimeout;
+		}
+		RpcSelector.update(this);
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		int count;
+		boolean resumeRead = false;
+		synchronized(this) {
+			while (mInput.position() == 0 && mState == STATE_CONNECTED && !mEndOfStream)
+				waitForSelector();
+			if (mInput.position() == 0) {
+				if (mState == STATE_FAILED)
+					throw newError("Connection failed");
+				return -1;	// end of stream or closed
+			}
+			mInput.flip();
+			count = Math.min(length, mInput.remaining());
+			mInput.get(buffer, offset, count);
+			mInput.compact();
+			if (mInput.position() == 0 && mInput.capacity() > INPUT_BUFFER_SIZE && mListener == null)
+				mInput = ByteBuffer.allocateDirect(INPUT_BUFFER_SIZE); // grown for awaited replies
+			if (mReadSuspended) {
+				mReadSuspended = false;
+				resumeRead = true;
+				if (mAwaitedReplies != 0)
+					mDeadline = SystemClock.uptimeMillis() + mReadTimeout;
+			}
+		}
+		if (resumeRead)
+			RpcSelector.update(this);
+		return count;
+	}
+
+	@Override
+	public void close() {
+		SocketChannel channel;
+		synchronized(this) {
+			mAheadAddress = null;
+			mListener = null;
+			channel = mChannel;
+			if (channel == null)
+				return;
+			mChannel = null;
+			mState = STATE_CLOSED;
+			mWriteQueue.clear();
+			notifyAll();
+		}
+		try {
+			channel.close();
+			if (Logging.DEBUG) Log.d(TAG, "close() - Channel closed");
+		} catch (IOException e) {
+			if (Logging.WARNING) Log.w(TAG, "channel close failure", e);
+		}
+		// selector thread releases key of the closed channel
+		try {
+			RpcSelector.update(this);
+		} catch (IOException e) { }
+	}
+
+	/* returns true if channel connected at once */
+	private boolean startConnect(InetSocketAddress socketAddress, int connectTimeout,
+			int readTimeout, Runnable listener) throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		boolean connected;
+		try {
+			channel.configureBlocking(false);
+			connected = channel.connect(socketAddress);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		synchronized(this) {
+			mChannel = channel;
+			mKey = null;
+			mState = connected ? STATE_CONNECTED : STATE_CONNECTING;
+			mError = null;
+			mEndOfStream = false;
+			mReadTimeout = readTimeout;
+			mAheadAddress = (listener != null) ? socketAddress : null;
+			mListener = connected ? null : listener;
+			mWriteQueue.clear();
+			mInput = ByteBuffer.allocateDirect(INPUT_BUFFER_SIZE);
+			mReadSuspended = false;
+			mAwaitedReplies = 0;
+			mUnstartedReplies = 0;
+			mInReply = false;
+			mDeadline = connected ? 0 : SystemClock.uptimeMillis() + connectTimeout;
+		}
+		RpcSelector.update(this);
+		return connected;
+	}
+
+	/*
+	 * methods called by selector thread
+	 */
+
+	/**
+	 * Registers channel or updates its interest set
+	 * @param selector selector
+	 */
+	synchronized void updateRegistration(Selector selector) {
+		if (mChannel == null)
+			return;
+		try {
+			if (mKey == null)
+				mKey = mChannel.register(selector, getInterestOps(), this);
+			else if (mKey.isValid())
+				mKey.interestOps(getInterestOps());
+		} catch (ClosedChannelException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Performs ready operations of the channel
+	 * @param key selection key of the channel
+	 */
+	synchronized void handleReady(SelectionKey key) {
+		if (key != mKey || mChannel == null || !key.isValid())
+			return;	// old or closed channel
+		try {
+			if (key.isConnectable()) {
+				if (mChannel.finishConnect()) {
+					mState = STATE_CONNECTED;
+					mDeadline = 0;
+					notifyAll();
+					notifyListener();
+				}
+			}
+			if (key.isValid() && key.isWritable())
+				writeQueued();
+			if (key.isValid() && key.isReadable())
+				readAvailable();
+			if (key.isValid())
+				key.interestOps(getInterestOps());
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Checks timeout
+	 * @param now current time (uptime)
+	 * @return time of timeout or 0 if no timeout
+	 */
+	synchronized long checkTimeout(long now) {
+		if (mDeadline == 0 || mReadSuspended)
+			return 0;
+		if (now < mDeadline)
+			return mDeadline;
+		if (mState == STATE_CONNECTING)
+			fail(new SocketTimeoutException("Connect timed out"));
+		else
+			fail(new SocketTimeoutException("Read timed out"));
+		return 0;
+	}
+
+	/**
+	 * Fails connection, because selector thread finishes
+	 */
+	synchronized void abort(IOException cause) {
+		fail(cause);
+	}
+
+	private int getInterestOps() {
+		if (mState == STATE_CONNECTING)
+			return SelectionKey.OP_CONNECT;
+		int ops = 0;
+		if (!mReadSuspended && !mEndOfStream)
+			ops |= SelectionKey.OP_READ;
+		if (!mWriteQueue.isEmpty() && (mUnstartedReplies == 0 || mWriteQueue.getFirst().position() != 0))
+			ops |= SelectionKey.OP_WRITE;
+		return ops;
+	}
+
+	private void writeQueued() throws IOException {
+		while (!mWriteQueue.isEmpty()) {
+			ByteBuffer buffer = mWriteQueue.getFirst();
+			if (buffer.position() == 0) {
+				if (mUnstartedReplies != 0)
+					return;	// held until reply to the previous request begins
+				mUnstartedReplies++;
+			}
+			mChannel.write(buffer);
+			if (buffer.hasRemaining())
+				return;	// socket buffer is full
+			mWriteQueue.removeFirst();
+			if (mFreeBuffers.size() < MAX_FREE_BUFFERS) {
+				buffer.clear();
+				mFreeBuffers.add(buffer);
+			}
+		}
+	}
+
+	private void readAvailable() throws IOException {
+		int start = mInput.position();
+		int readed = mChannel.read(mInput);
+		if (readed == -1) {
+			mEndOfStream = true;
+			mDeadline = 0;
+			notifyAll();
+			notifyListener();
+			return;
+		}
+		if (readed == 0)
+			return;
+		// find beginnings and ends of the replies
+		int end = mInput.position();
+		for (int pos = start; pos < end; pos++) {
+			if (!mInReply) {
+				// client already read the request, next request can be written
+				mInReply = true;
+				if (mUnstartedReplies != 0)
+					mUnstartedReplies--;
+			}
+			if (mInput.get(pos) == '\003') {
+				mInReply = false;
+				if (mAwaitedReplies != 0)
+					mAwaitedReplies--;
+			}
+		}
+		mDeadline = (mAwaitedReplies != 0) ? SystemClock.uptimeMillis() + mReadTimeout : 0;
+		if (!mInput.hasRemaining()) {
+			if (mListener != null && mAwaitedReplies != 0)
+				growInput();	// replies are taken after all of them are received
+			else
+				mReadSuspended = true;	// until data are taken
+		}
+		notifyAll();
+		if (mAwaitedReplies == 0)
+			notifyListener();
+	}
+
+	private void fail(IOException cause) {
+		if (mState == STATE_CLOSED || mState == STATE_FAILED)
+			return;
+		if (Logging.WARNING) Log.w(TAG, "Connection failed", cause);
+		mError = cause;
+		mState = STATE_FAILED;
+		mDeadline = 0;
+		mWriteQueue.clear();
+		try {
+			mChannel.close();
+		} catch (IOException e) { }
+		notifyAll();
+		notifyListener();
+	}
+
+	/*
+	 * helpers
+	 */
+
+	private void notifyListener() {
+		Runnable listener = mListener;
+		mListener = null;
+		if (listener != null)
+			listener.run();
+	}
+
+	private void growInput() {
+		ByteBuffer input = ByteBuffer.allocateDirect(mInput.capacity()*2);
+		mInput.flip();
+		input.put(mInput);
+		mInput = input;
+	}
+
+	private void waitForSelector() throws IOException {
+		try {
+			wait();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Waiting for data interrupted");
+		}
+	}
+
+	private static InetSocketAddress resolve(String address, int port) throws IOException {
+		InetSocketAddress socketAddress = new InetSocketAddress(address, port);
+		if (socketAddress.isUnresolved())
+			throw new UnknownHostException(address);
+		return socketAddress;
+	}
+
+	private IOException newError(String message) {
+		if (mError == null)
+			return new IOException(message);
+		IOException error = new IOException(message + ": " + mError.getMessage());
+		error.initCause(mError);
+		return error;
+	}
+
+	private ByteBuffer obtainBuffer(int size) {
+		while (!mFreeBuffers.isEmpty()) {
+			ByteBuffer buffer = mFreeBuffers.removeFirst();
+			if (buffer.capacity() >= size)
+				return buffer;
+		}
+		return ByteBuffer.allocateDirect(Math.max(size, MIN_REQUEST_BUFFER_SIZE));
+	}
+
+	/* puts string in ISO8859_1 encoding */
+	private static void putString(ByteBuffer buffer, String s) {
+		int length = s.length();
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			buffer.put((c < 256) ? (byte)c : (byte)'?');
+		}
+	}
+}
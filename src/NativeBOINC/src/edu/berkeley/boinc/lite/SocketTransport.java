@@ -0,0 +1,116 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.lite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import sk.boinc.nativeboinc.debug.Logging;
+import android.util.Log;
+
+/**
+ * Transport over blocking socket, the default transport of RpcClient.
+ * Calling thread is blocked for whole I/O.
+ * 
+ * @author mat
+ *
+ */
+public class SocketTransport implements RpcTransport {
+	private static final String TAG = "SocketTransport";
+
+	private Socket mSocket = null;
+	private OutputStreamWriter mOutput = null;
+	private InputStream mInput = null;
+
+	@Override
+	public void open(String address, int port, int connectTimeout, int readTimeout)
+			throws IOException {
+		mSocket = new Socket();
+		try {
+			mSocket.connect(new InetSocketAddress(address, port), connectTimeout);
+			mSocket.setSoTimeout(readTimeout);
+			mInput = mSocket.getInputStream();
+			mOutput = new OutputStreamWriter(mSocket.getOutputStream(), "ISO8859_1");
+		} catch (IOException e) {
+			close();
+			throw e;
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean isConnected() {
+		return (mSocket != null) ? mSocket.isConnected() : false;
+	}
+
+	@Override
+	public void writeRequest(String request) throws IOException {
+		if (mOutput == null)
+			return;
+		mOutput.write("<boinc_gui_rpc_request>\n");
+		mOutput.write(request);
+		mOutput.write("</boinc_gui_rpc_request>\n\003");
+		mOutput.flush();
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		if (mInput == null)
+			return -1;
+		return mInput.read(buffer, offset, length);
+	}
+
+	@Override
+	public void close() {
+		if (mSocket == null)
+			return;
+		if (mInput != null) {
+			try {
+				mInput.close();
+			}
+			catch (IOException e) {
+				if (Logging.WARNING) Log.w(TAG, "input close failure", e);
+			}
+		}
+		if (mOutput != null) {
+			try {
+				mOutput.close();
+			}
+			catch (IOException e) {
+				if (Logging.WARNING) Log.w(TAG, "output close failure", e);
+			}
+		}
+		try {
+			mSocket.close();
+			if (Logging.DEBUG) Log.d(TAG, "close() - Socket closed");
+		}
+		catch (IOException e) {
+			if (Logging.WARNING) Log.w(TAG, "socket close failure", e);
+		}
+		mSocket = null;
+		mInput = null;
+		mOutput = null;
+	}
+}
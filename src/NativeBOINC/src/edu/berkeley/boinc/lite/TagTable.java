@@ -0,0 +1,106 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.lite;
+
+/**
+ * Table of interned tag names. Identifiers are given in order of adding.
+ * 
+ * @author mat
+ *
+ */
+final class TagTable {
+	private int[] mSlots = new int[256];	// tag+1, 0 - empty slot
+	private String[] mNames = new String[64];
+	private int[] mHashes = new int[64];
+	private int mCount = 0;
+
+	/**
+	 * Finds tag name in table
+	 * @param name buffer with tag name
+	 * @param length length of tag name
+	 * @param add if true, adds name if not found
+	 * @return identifier of the tag or BoincTags.UNKNOWN if not found
+	 */
+	public int lookup(char[] name, int length, boolean add) {
+		int hash = 0;
+		for (int i = 0; i < length; i++)
+			hash = 31*hash + name[i];
+
+		int mask = mSlots.length-1;
+		int slot = hash & mask;
+		while (mSlots[slot] != 0) {
+			int tag = mSlots[slot]-1;
+			if (mHashes[tag] == hash && equalName(mNames[tag], name, length))
+				return tag;
+			slot = (slot+1) & mask;
+		}
+		if (!add)
+			return BoincTags.UNKNOWN;
+
+		if (mCount == mNames.length) {
+			String[] newNames = new String[mCount<<1];
+			int[] newHashes = new int[mCount<<1];
+			System.arraycopy(mNames, 0, newNames, 0, mCount);
+			System.arraycopy(mHashes, 0, newHashes, 0, mCount);
+			mNames = newNames;
+			mHashes = newHashes;
+		}
+		int tag = mCount++;
+		mNames[tag] = new String(name, 0, length);
+		mHashes[tag] = hash;
+		mSlots[slot] = tag+1;
+		if ((mCount<<1) > mSlots.length)
+			rehash();
+		return tag;
+	}
+
+	/**
+	 * Adds name to table
+	 * @param name tag name
+	 * @return identifier of the tag
+	 */
+	public int add(String name) {
+		return lookup(name.toCharArray(), name.length(), true);
+	}
+
+	public String getName(int tag) {
+		return mNames[tag];
+	}
+
+	private void rehash() {
+		mSlots = new int[mSlots.length<<1];
+		int mask = mSlots.length-1;
+		for (int tag = 0; tag < mCount; tag++) {
+			int slot = mHashes[tag] & mask;
+			while (mSlots[slot] != 0)
+				slot = (slot+1) & mask;
+			mSlots[slot] = tag+1;
+		}
+	}
+
+	private static boolean equalName(String s, char[] name, int length) {
+		if (s.length() != length)
+			return false;
+		for (int i = 0; i < length; i++)
+			if (s.charAt(i) != name[i])
+				return false;
+		return true;
+	}
+}
@@ -19,6 +19,7 @@
 
 package edu.berkeley.boinc.lite;
 
+import java.io.Reader;
 import java.util.ArrayList;
 
 import sk.boinc.nativeboinc.debug.Logging;
@@ -55,10 +56,28 @@ public class TransfersParser extends BoincBaseParser {
 		}
 	}
 
+	/**
+	 * Parse the RPC reply directly from stream (while it is received)
+	 * @param rpcReply reader of the reply returned by RPC call of core client
+	 * @return vector of transfers info
+	 */
+	public static ArrayList<Transfer> parse(Reader rpcReply) {
+		try {
+			TransfersParser parser = new TransfersParser();
+			BoincBaseParser.parse(parser, rpcReply, true);
+			return parser.getTransfers();
+		}
+		catch (BoincParserException e) {
+			if (Logging.INFO) Log.i(TAG, "Malformed XML");
+			return null;
+		}
+	}
+
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("file_transfer")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		switch (tag) {
+		case BoincTags.FILE_TRANSFER:
 			if (Logging.INFO) {
 				if (mTransfer != null) {
 					// previous <file_transfer> not closed - dropping it!
@@ -66,26 +85,27 @@ public class TransfersParser extends BoincBaseParser {
 				}
 			}
 			mTransfer = new Transfer();
-		}
-		else if (localName.equalsIgnoreCase("file_xfer")) {
+			break;
+		case BoincTags.FILE_XFER:
 			// Just constructor, flag should be set if it's present
 			if (mTransfer != null) {
 				mTransfer.xfer_active = true;
 			}
-		}
-		else if (localName.equalsIgnoreCase("persistent_file_xfer")) {
+			break;
+		case BoincTags.PERSISTENT_FILE_XFER:
 			// Just constructor, but nothing to do here
 			// We just do not set mElementStarted flag here, so we will 
+			break;
 		}
 	}
 
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		try {
 			if (mTransfer != null) {
 				// We are inside <file_transfer>
-				if (localName.equalsIgnoreCase("file_transfer")) {
+				if (tag == BoincTags.FILE_TRANSFER) {
 					// Closing tag of <project> - add to vector and be ready for next one
 					if (!mTransfer.project_url.equals("") && !mTransfer.name.equals("")) {
 						// project_url is a must
@@ -95,49 +115,51 @@ public class TransfersParser extends BoincBaseParser {
 				}
 				else {
 					// Not the closing tag - we decode possible inner tags
-					if (localName.equalsIgnoreCase("project_url")) {
+					switch (tag) {
+					case BoincTags.PROJECT_URL:
 						mTransfer.project_url = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("name")) {
+						break;
+					case BoincTags.NAME:
 						mTransfer.name = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("generated_locally")) {
-						mTransfer.generated_locally = !getCurrentElement().equals("0");
-					}
-					else if (localName.equalsIgnoreCase("nbytes")) {
-						mTransfer.nbytes = (long)Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("status")) {
-						mTransfer.status = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("time_so_far")) {
+						break;
+					case BoincTags.GENERATED_LOCALLY:
+						mTransfer.generated_locally = getCurrentBoolean();
+						break;
+					case BoincTags.NBYTES:
+						mTransfer.nbytes = (long)getCurrentDouble();
+						break;
+					case BoincTags.STATUS:
+						mTransfer.status = getCurrentInt();
+						break;
+					case BoincTags.TIME_SO_FAR:
 						// inside <persistent_file_xfer>
-						mTransfer.time_so_far = (long)Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("next_request_time")) {
+						mTransfer.time_so_far = (long)getCurrentDouble();
+						break;
+					case BoincTags.NEXT_REQUEST_TIME:
 						// inside <persistent_file_xfer>
-						mTransfer.next_request_time = (long)Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("last_bytes_xferred")) {
+						mTransfer.next_request_time = (long)getCurrentDouble();
+						break;
+					case BoincTags.LAST_BYTES_XFERRED:
 						// inside <persistent_file_xfer>
 						// See also <bytes_xferred> below, both are setting the same parameters
 						if (mTransfer.bytes_xferred == 0) {
 							// Not set yet
-							mTransfer.bytes_xferred = (long)Double.parseDouble(getCurrentElement());
+							mTransfer.bytes_xferred = (long)getCurrentDouble();
 						}
-					}
-					else if (localName.equalsIgnoreCase("bytes_xferred")) {
+						break;
+					case BoincTags.BYTES_XFERRED:
 						// Total bytes transferred, but this info is not available if networking
 						// is suspended. This info is present only inside <file_xfer> (active transfer)
 						// In such case we overwrite value set by <last_bytes_xferred>
-						mTransfer.bytes_xferred = (long)Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("xfer_speed")) {
+						mTransfer.bytes_xferred = (long)getCurrentDouble();
+						break;
+					case BoincTags.XFER_SPEED:
 						// inside <file_xfer>
-						mTransfer.xfer_speed = Float.parseFloat(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("project_backoff")) {
-						mTransfer.project_backoff = (long)Double.parseDouble(getCurrentElement());
+						mTransfer.xfer_speed = getCurrentFloat();
+						break;
+					case BoincTags.PROJECT_BACKOFF:
+						mTransfer.project_backoff = (long)getCurrentDouble();
+						break;
 					}
 				}
 			}
@@ -74,13 +74,13 @@ public class VersionInfoParser extends BoincBaseParser {
 				else {
 					// Not the closing tag - we decode possible inner tags
 					if (localName.equalsIgnoreCase("major")) {
-						mVersionInfo.major = Integer.parseInt(getCurrentElement());
+						mVersionInfo.major = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("minor")) {
-						mVersionInfo.minor = Integer.parseInt(getCurrentElement());
+						mVersionInfo.minor = getCurrentInt();
 					}
 					else if (localName.equalsIgnoreCase("release")) {
-						mVersionInfo.release = Integer.parseInt(getCurrentElement());
+						mVersionInfo.release = getCurrentInt();
 					}
 				}
 			}
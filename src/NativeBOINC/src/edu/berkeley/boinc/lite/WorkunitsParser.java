@@ -55,20 +55,20 @@ public class WorkunitsParser extends BoincBaseParser {
 	}
 
 	@Override
-	public void startElement(String localName) {
-		super.startElement(localName);
-		if (localName.equalsIgnoreCase("workunit")) {
+	public void startElement(int tag, String localName) {
+		super.startElement(tag, localName);
+		if (tag == BoincTags.WORKUNIT) {
 			mWorkunit = new Workunit();
 		}
 	}
 
 	@Override
-	public void endElement(String localName) {
-		super.endElement(localName);
+	public void endElement(int tag, String localName) {
+		super.endElement(tag, localName);
 		try {
 			if (mWorkunit != null) {
 				// We are inside <workunit>
-				if (localName.equalsIgnoreCase("workunit")) {
+				if (tag == BoincTags.WORKUNIT) {
 					// Closing tag of <workunit> - add to vector and be ready for next one
 					if (!mWorkunit.name.equals("")) {
 						// name is a must
@@ -78,26 +78,28 @@ public class WorkunitsParser extends BoincBaseParser {
 				}
 				else {
 					// Not the closing tag - we decode possible inner tags
-					if (localName.equalsIgnoreCase("name")) {
+					switch (tag) {
+					case BoincTags.NAME:
 						mWorkunit.name = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("app_name")) {
+						break;
+					case BoincTags.APP_NAME:
 						mWorkunit.app_name = getCurrentElement();
-					}
-					else if (localName.equalsIgnoreCase("version_num")) {
-						mWorkunit.version_num = Integer.parseInt(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("rsc_fpops_est")) {
-						mWorkunit.rsc_fpops_est = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("rsc_fpops_bound")) {
-						mWorkunit.rsc_fpops_bound = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("rsc_memory_bound")) {
-						mWorkunit.rsc_memory_bound = Double.parseDouble(getCurrentElement());
-					}
-					else if (localName.equalsIgnoreCase("rsc_disk_bound")) {
-						mWorkunit.rsc_disk_bound = Double.parseDouble(getCurrentElement());
+						break;
+					case BoincTags.VERSION_NUM:
+						mWorkunit.version_num = getCurrentInt();
+						break;
+					case BoincTags.RSC_FPOPS_EST:
+						mWorkunit.rsc_fpops_est = getCurrentDouble();
+						break;
+					case BoincTags.RSC_FPOPS_BOUND:
+						mWorkunit.rsc_fpops_bound = getCurrentDouble();
+						break;
+					case BoincTags.RSC_MEMORY_BOUND:
+						mWorkunit.rsc_memory_bound = getCurrentDouble();
+						break;
+					case BoincTags.RSC_DISK_BOUND:
+						mWorkunit.rsc_disk_bound = getCurrentDouble();
+						break;
 					}
 				}
 			}
@@ -74,11 +74,11 @@ public class ClientEventParser extends BoincBaseParser {
 			if (mWithClientEvent) {
 				if (!localName.equalsIgnoreCase("reply")) {
 					if (localName.equalsIgnoreCase("type")) {
-						mClientEventType = Integer.parseInt(getCurrentElement());
+						mClientEventType = getCurrentInt();
 					} else if (localName.equalsIgnoreCase("project")) {
 						mProjectUrl = getCurrentElement();
 					} else if (localName.equalsIgnoreCase("suspend_reason")) {
-						mSuspendReason = Integer.parseInt(getCurrentElement());
+						mSuspendReason = getCurrentInt();
 					}
 				}
 			}
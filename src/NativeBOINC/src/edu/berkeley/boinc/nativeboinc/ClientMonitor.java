@@ -20,6 +20,7 @@
 
 package edu.berkeley.boinc.nativeboinc;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
@@ -27,6 +28,8 @@ import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.LinkedList;
+import java.util.List;
 
 import android.util.Log;
 
@@ -46,12 +49,36 @@ public class ClientMonitor {
 	private Writer mOutput;
 	private boolean mConnected = false;
 	
-	private static final int MAX_BUFFER_SIZE = 4096;
+	private static final int INIT_BUFFER_SIZE = 4096;
+	/* longer events are skipped (buffer is not grown further) */
+	private static final int MAX_EVENT_SIZE = 1048576;
+	
+	/* tags of the event */
+	private static final int TAG_UNKNOWN = 0;
+	private static final int TAG_REPLY = 1;
+	private static final int TAG_TYPE = 2;
+	private static final int TAG_PROJECT = 3;
+	private static final int TAG_SUSPEND_REASON = 4;
+	
+	private static final byte[][] TAG_NAMES = {
+		null,
+		{ 'r', 'e', 'p', 'l', 'y' },
+		{ 't', 'y', 'p', 'e' },
+		{ 'p', 'r', 'o', 'j', 'e', 'c', 't' },
+		{ 's', 'u', 's', 'p', 'e', 'n', 'd', '_', 'r', 'e', 'a', 's', 'o', 'n' }
+	};
 	
-	private int mReadBufferPos = 0;
-	private int mReadBufferReaded = 0;
 	private byte[] mReadBuffer = null;
-	private StringBuilder mReply;
+	private int mReadBufferPos = 0;	// start of the unprocessed data
+	private int mReadBufferEnd = 0;	// end of the read data
+	private int mScanPos = 0;		// position, from which end marker is searched
+	private boolean mSkipEvent = false;	// if too long event is skipped
+	
+	/* events read by last pollEvents, which are not returned by poll */
+	private LinkedList<ClientEvent> mPendingEvents = new LinkedList<ClientEvent>();
+	
+	/* results of decodeInt */
+	private boolean mDecodedValid;
 	
 	public ClientMonitor() { }
 	
@@ -81,10 +108,12 @@ public class ClientMonitor {
 		
 		if (Logging.DEBUG) Log.d(TAG, "Connected with client monitor. Now authorizing.");
 		
+		mReadBuffer = new byte[INIT_BUFFER_SIZE];
 		mReadBufferPos = 0;
-		mReadBufferReaded = 0;
-		mReadBuffer = new byte[MAX_BUFFER_SIZE];
-		mReply = new StringBuilder();
+		mReadBufferEnd = 0;
+		mScanPos = 0;
+		mSkipEvent = false;
+		mPendingEvents.clear();
 		mConnected = true;
 		
 		if (Logging.INFO) Log.i(TAG, "Authorizing access to monitor");
@@ -93,14 +122,15 @@ public class ClientMonitor {
 			mOutput.write("<authorize>"+authCode+"</authorize>\n");
 			mOutput.flush();
 			
-			int readed = mInput.read(mReadBuffer);
-			if (readed != -1) {
-				mReply.append(new String(mReadBuffer, 0, readed));
-				if (mReadBuffer[readed-1] == '\003') {
-					mReply.setLength(mReply.length()-1);
-				}
+			if (fillBuffer()) {
+				// reply is first read chunk (up to end marker, if it is present)
+				int end = findEventEnd();
+				int next = end+1;
+				if (end == -1)
+					end = next = mReadBufferEnd;
 				/* if return success */
-				success = mReply.toString().equals("<success/>");
+				success = new String(mReadBuffer, 0, end).equals("<success/>");
+				mReadBufferPos = mScanPos = next;
 			} else
 				success = false;
 		} catch(IOException ex) {
@@ -144,58 +174,218 @@ public class ClientMonitor {
 		mSocket = null;
 		mConnected = false;
 		mReadBuffer = null;
-		mReply = null;
+		mPendingEvents.clear();
 	}
 	
+	/**
+	 * Returns next event (events are read in batches by pollEvents)
+	 * @return client event
+	 * @throws IOException if error occurs or connection is closed
+	 */
 	public ClientEvent poll() throws IOException {
-		mReply.setLength(0);
-		
-		if (mReadBufferPos < mReadBufferReaded) {
-			int readPos = mReadBufferPos;
-			for (;readPos < mReadBufferReaded; readPos++)
-				if (mReadBuffer[readPos] == '\003')
-					break;
-			if (readPos != mReadBufferReaded) { // if found
-				/* parse reply */
-				mReply.append(new String(mReadBuffer, mReadBufferPos, readPos-mReadBufferPos));
-				mReadBufferPos = readPos+1;
-				return ClientEventParser.parse(mReply.toString());
-			} else if (mReadBufferPos != 0) {
-				// shift rest of content
-				System.arraycopy(mReadBuffer, mReadBufferPos, mReadBuffer, 0, mReadBufferReaded-mReadBufferPos);
-				mReadBufferReaded -= mReadBufferPos;
-				mReadBufferPos = 0;
+		if (mPendingEvents.isEmpty())
+			pollEvents(mPendingEvents);
+		return mPendingEvents.removeFirst();
+	}
+	
+	/**
+	 * Waits for events and adds all already received events to list
+	 * @param events list of events
+	 * @return number of added events (at least one)
+	 * @throws IOException if error occurs or connection is closed
+	 */
+	public int pollEvents(List<ClientEvent> events) throws IOException {
+		int count = 0;
+		while (true) {
+			// decode all complete events in buffer
+			int end;
+			while ((end = findEventEnd()) != -1) {
+				int start = mReadBufferPos;
+				mReadBufferPos = mScanPos = end+1;
+				if (mSkipEvent) {
+					mSkipEvent = false;
+					continue;
+				}
+				ClientEvent event = decodeEvent(start, end);
+				if (event != null) {
+					events.add(event);
+					count++;
+				}
 			}
-		} else { // if out of buffer
+			if (count != 0)
+				return count;
+			if (!fillBuffer())
+				throw new EOFException("Client monitor connection closed");
+		}
+	}
+	
+	/* returns position of the end marker of the next event or -1 */
+	private int findEventEnd() {
+		final byte[] buffer = mReadBuffer;
+		final int end = mReadBufferEnd;
+		for (int pos = mScanPos; pos < end; pos++)
+			if (buffer[pos] == '\003')
+				return pos;
+		mScanPos = end;
+		return -1;
+	}
+	
+	/* reads next data to buffer, returns false if end of stream reached */
+	private boolean fillBuffer() throws IOException {
+		if (mReadBufferPos != 0) {
+			// shift rest of content
+			int length = mReadBufferEnd-mReadBufferPos;
+			System.arraycopy(mReadBuffer, mReadBufferPos, mReadBuffer, 0, length);
+			mScanPos -= mReadBufferPos;
+			mReadBufferEnd = length;
 			mReadBufferPos = 0;
-			mReadBufferReaded = 0;
 		}
+		if (mReadBufferEnd == mReadBuffer.length) {
+			if (mReadBuffer.length < MAX_EVENT_SIZE) {
+				byte[] newBuffer = new byte[Math.min(mReadBuffer.length<<1, MAX_EVENT_SIZE)];
+				System.arraycopy(mReadBuffer, 0, newBuffer, 0, mReadBufferEnd);
+				mReadBuffer = newBuffer;
+			} else {
+				// too long event, skip it up to end marker
+				if (Logging.WARNING && !mSkipEvent) Log.w(TAG, "Skipping too long event");
+				mSkipEvent = true;
+				mReadBufferEnd = mScanPos = 0;
+			}
+		}
+		int readed = mInput.read(mReadBuffer, mReadBufferEnd, mReadBuffer.length-mReadBufferEnd);
+		if (readed == -1)
+			return false;
+		mReadBufferEnd += readed;
+		return true;
+	}
+	
+	/*
+	 * decodes event directly from bytes. Event has simple form:
+	 * <reply><type>..</type><project>..</project><suspend_reason>..</suspend_reason></reply>,
+	 * other forms (entities, attributes, comments) are passed to ClientEventParser.
+	 */
+	private ClientEvent decodeEvent(int start, int end) {
+		final byte[] buffer = mReadBuffer;
+		boolean inReply = false;
+		int type = -1;
+		String projectUrl = null;
+		int suspendReason = 0;
 		
-		/* reading reply */
-		while (true) {
-			int readed = mInput.read(mReadBuffer, mReadBufferReaded, MAX_BUFFER_SIZE-mReadBufferReaded);
-			if (readed != -1) {
-				/* if last chunk */
-				mReadBufferReaded += readed;
-			} else // break reading
-				return null;
+		int pos = start;
+		while (pos < end) {
+			if (buffer[pos] != '<') {
+				pos++;
+				continue;
+			}
+			int nameStart = pos+1;
+			int nameEnd;
+			for (nameEnd = nameStart; nameEnd < end; nameEnd++) {
+				byte c = buffer[nameEnd];
+				if (c == '>')
+					break;
+				if (c <= ' ' || c == '!' || c == '?' || c == '"' || c == '=')
+					return parseEvent(start, end);
+			}
+			if (nameEnd == end)
+				return parseEvent(start, end);	// malformed
+			pos = nameEnd+1;
+			if (nameEnd == nameStart || buffer[nameStart] == '/' || buffer[nameEnd-1] == '/')
+				continue;	// end tag or empty tag
 			
-			int readPos = mReadBufferPos;
-			for (;readPos < mReadBufferReaded; readPos++)
-				if (mReadBuffer[readPos] == '\003')
+			int tag = tagOf(nameStart, nameEnd);
+			if (tag == TAG_REPLY) {
+				inReply = true;
+				continue;
+			}
+			if (tag == TAG_UNKNOWN)
+				continue;
+			
+			// text of the element
+			int textStart = pos;
+			for (; pos < end; pos++) {
+				byte c = buffer[pos];
+				if (c == '<')
 					break;
-			if (readPos != mReadBufferReaded) {
-				/* parse reply */
-				mReply.append(new String(mReadBuffer, mReadBufferPos, readPos-mReadBufferPos));
-				mReadBufferPos = readPos+1;
-				return ClientEventParser.parse(mReply.toString());
-			} else if (mReadBufferReaded == MAX_BUFFER_SIZE) { // not handled (longer than 4 kBytes)
-				mReadBufferPos = 0;
-				mReadBufferReaded = 0;
-				return null;
-			} else { // if not found and not buffer overflow: do continue reading
-				mReadBufferPos = mReadBufferReaded;
+				if (c == '&')
+					return parseEvent(start, end);
+			}
+			if (!inReply)
+				continue;
+			int textEnd = pos;
+			while (textStart < textEnd && buffer[textStart] <= ' ' && buffer[textStart] >= 0)
+				textStart++;
+			while (textEnd > textStart && buffer[textEnd-1] <= ' ' && buffer[textEnd-1] >= 0)
+				textEnd--;
+			
+			switch (tag) {
+			case TAG_TYPE:
+				type = decodeInt(textStart, textEnd);
+				if (!mDecodedValid)
+					return parseEvent(start, end);
+				break;
+			case TAG_PROJECT:
+				projectUrl = new String(buffer, textStart, textEnd-textStart);
+				break;
+			case TAG_SUSPEND_REASON:
+				suspendReason = decodeInt(textStart, textEnd);
+				if (!mDecodedValid)
+					return parseEvent(start, end);
+				break;
 			}
 		}
+		
+		if (type == ClientEvent.EVENT_SUSPEND_ALL_TASKS)
+			return new ClientEvent(type, suspendReason);
+		else
+			return new ClientEvent(type, projectUrl);
+	}
+	
+	/* parses event by XML parser */
+	private ClientEvent parseEvent(int start, int end) {
+		return ClientEventParser.parse(new String(mReadBuffer, start, end-start));
+	}
+	
+	/* returns tag of the name (case insensitive) */
+	private int tagOf(int nameStart, int nameEnd) {
+		final byte[] buffer = mReadBuffer;
+		final int length = nameEnd-nameStart;
+		for (int tag = TAG_REPLY; tag < TAG_NAMES.length; tag++) {
+			final byte[] name = TAG_NAMES[tag];
+			if (name.length != length)
+				continue;
+			int i;
+			for (i = 0; i < length; i++) {
+				int c = buffer[nameStart+i];
+				if (c >= 'A' && c <= 'Z')
+					c += 'a'-'A';
+				if (c != name[i])
+					break;
+			}
+			if (i == length)
+				return tag;
+		}
+		return TAG_UNKNOWN;
+	}
+	
+	/* decodes integer, sets mDecodedValid */
+	private int decodeInt(int start, int end) {
+		final byte[] buffer = mReadBuffer;
+		mDecodedValid = false;
+		boolean negative = false;
+		if (start < end && (buffer[start] == '-' || buffer[start] == '+')) {
+			negative = (buffer[start] == '-');
+			start++;
+		}
+		if (start == end || end-start > 9)
+			return 0;
+		int value = 0;
+		for (int pos = start; pos < end; pos++) {
+			byte c = buffer[pos];
+			if (c < '0' || c > '9')
+				return 0;
+			value = value*10 + (c-'0');
+		}
+		mDecodedValid = true;
+		return negative ? -value : value;
 	}
 }
@@ -76,7 +76,7 @@ public class UpdateProjectAppsReplyParser extends BoincBaseParser {
 				else {
 					// Not the closing tag - we decode possible inner tags
 					if (localName.equalsIgnoreCase("error_num")) {
-						mUPAR.error_num = Integer.parseInt(getCurrentElement());
+						mUPAR.error_num = getCurrentInt();
 					} else if (localName.equalsIgnoreCase("message")) {
 						mUPAR.messages.add(getCurrentElement());
 					}
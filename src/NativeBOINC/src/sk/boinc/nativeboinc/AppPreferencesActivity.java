@@ -185,6 +185,19 @@ public class AppPreferencesActivity extends PreferenceActivity implements OnShar
 		// This preference does not need special handling here.
 		// Data in XML file will manage all needed handling.
 
+		// Number of stored messages
+		listPref = (ListPreference)findPreference(PreferenceName.MESSAGES_CAPACITY);
+		listPref.setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
+			@Override
+			public boolean onPreferenceChange(Preference preference, Object newValue) {
+				ListPreference listPref = (ListPreference)preference;
+				int idx = listPref.findIndexOfValue((String)newValue);
+				CharSequence[] allDesc = listPref.getEntries();
+				listPref.setSummary(getString(R.string.prefMessagesCapacitySummary) + " " + allDesc[idx]);
+				return true;
+			}
+		});
+
 		// Data statistics collection
 		cbPref = (CheckBoxPreference)findPreference(PreferenceName.COLLECT_STATS);
 		cbPref.setOnPreferenceChangeListener(new OnPreferenceChangeListener() {
@@ -302,6 +315,10 @@ public class AppPreferencesActivity extends PreferenceActivity implements OnShar
 		else {
 			listPref.setSummary(getString(R.string.prefAutoUpdateIntervalSummary) + " " + listPref.getEntry());
 		}
+		
+		// Number of stored messages
+		listPref = (ListPreference)findPreference(PreferenceName.MESSAGES_CAPACITY);
+		listPref.setSummary(getString(R.string.prefMessagesCapacitySummary) + " " + listPref.getEntry());
 
 		// Register to receive changes in statistics
 		SharedPreferences netStats = getSharedPreferences(NetStatsStorage.NET_STATS_FILE, MODE_PRIVATE);
@@ -0,0 +1,97 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package sk.boinc.nativeboinc;
+
+import java.text.DateFormat;
+import java.util.Date;
+
+import sk.boinc.nativeboinc.clientconnection.AutoRefreshListener;
+import sk.boinc.nativeboinc.clientconnection.ClientSnapshotReceiver;
+import android.app.ListActivity;
+import android.os.SystemClock;
+import android.view.View;
+import android.widget.TextView;
+
+/**
+ * List activity, which data are periodically refreshed (one refresh type).
+ * Holds update state shared by the tabs and marks last known data (snapshot)
+ * as stale until they are retrieved from the client.
+ * 
+ * @author mat
+ *
+ */
+public abstract class AutoRefreshListActivity extends ListActivity implements AutoRefreshListener,
+		ClientSnapshotReceiver {
+	private final int mRefreshType;
+	
+	protected boolean mRequestUpdates = false;
+	protected boolean mUpdateInProgress = false;
+	protected long mLastUpdateTime = -1;
+	
+	/**
+	 * @param refreshType refresh type of the data (AutoRefresh.XXX)
+	 */
+	protected AutoRefreshListActivity(int refreshType) {
+		mRefreshType = refreshType;
+	}
+	
+	/* marks update as finished */
+	protected void updateFinished() {
+		mUpdateInProgress = false;
+		mLastUpdateTime = SystemClock.elapsedRealtime();
+		hideStaleData();
+	}
+	
+	/* hides stale data note (data are retrieved or cleared) */
+	protected void hideStaleData() {
+		View staleView = findViewById(R.id.staleData);
+		if (staleView != null)
+			staleView.setVisibility(View.GONE);
+	}
+	
+	@Override
+	public void restoredSnapshot(int refreshType, long savedTime) {
+		if (refreshType != mRefreshType)
+			return;
+		TextView staleView = (TextView)findViewById(R.id.staleData);
+		if (staleView == null)
+			return;
+		staleView.setText(getString(R.string.staleData,
+				DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT).format(
+						new Date(savedTime))));
+		staleView.setVisibility(View.VISIBLE);
+	}
+	
+	@Override
+	public void onStartAutoRefresh(int requestType) {
+		if (requestType == mRefreshType) // in progress
+			mUpdateInProgress = true;
+	}
+	
+	@Override
+	public boolean onUnchangedRefresh(int requestType) {
+		if (requestType != mRefreshType)
+			return false;
+		// data are not changed, view stays untouched
+		updateFinished();
+		return mRequestUpdates;
+	}
+}
@@ -804,6 +804,10 @@ public class BoincManagerActivity extends TabActivity implements ClientUpdateNot
 			// Launch new activity to select a client
 			startActivityForResult(new Intent(this, HostListActivity.class), ACTIVITY_SELECT_HOST);
 			return true;
+		case R.id.menuFleet:
+			// Launch overview of the monitored hosts, selected host will be connected
+			startActivityForResult(new Intent(this, FleetActivity.class), ACTIVITY_SELECT_HOST);
+			return true;
 		case R.id.menuDisconnect:
 			// Disconnect from currently connected client
 			boincDisconnect();
@@ -1331,6 +1335,10 @@ public class BoincManagerActivity extends TabActivity implements ClientUpdateNot
 						mSelectedClient.getNickname() + ", keeping existing connection");
 				mSelectedClient = null;
 			}
+			else if (mConnectionManager.isFleetMode()) {
+				// Current client stays monitored, connection switches without disconnection
+				boincConnect();
+			}
 			else {
 				/*if (Logging.DEBUG) Log.d(TAG, "Selected new client: " +
 						mSelectedClient.getNickname() +
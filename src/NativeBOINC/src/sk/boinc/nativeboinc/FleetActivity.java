@@ -0,0 +1,260 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package sk.boinc.nativeboinc;
+
+import java.util.ArrayList;
+
+import sk.boinc.nativeboinc.clientconnection.BoincOp;
+import sk.boinc.nativeboinc.clientconnection.ClientFleetReceiver;
+import sk.boinc.nativeboinc.clientconnection.FleetTotals;
+import sk.boinc.nativeboinc.clientconnection.HostSummary;
+import sk.boinc.nativeboinc.clientconnection.VersionInfo;
+import sk.boinc.nativeboinc.debug.Logging;
+import sk.boinc.nativeboinc.service.ConnectionManagerService;
+import sk.boinc.nativeboinc.util.ClientId;
+import sk.boinc.nativeboinc.util.ScreenOrientationHandler;
+import android.app.ListActivity;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.IBinder;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Button;
+import android.widget.ListView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+/**
+ * Overview of the monitored hosts (fleet mode) with aggregate totals.
+ * Selected host is returned to the caller (as in HostListActivity).
+ * 
+ * @author mat
+ *
+ */
+public class FleetActivity extends ListActivity implements ClientFleetReceiver {
+	private static final String TAG = "FleetActivity";
+	
+	private ScreenOrientationHandler mScreenOrientation;
+	
+	private ArrayList<HostSummary> mOverview = new ArrayList<HostSummary>();
+	
+	private TextView mTotalHosts;
+	private TextView mTotalTasks;
+	private ProgressBar mTotalProgress;
+	
+	private class FleetListAdapter extends BaseAdapter {
+		private Context mContext;
+		
+		public FleetListAdapter(Context context) {
+			mContext = context;
+		}
+		
+		@Override
+		public int getCount() {
+			return mOverview.size();
+		}
+
+		@Override
+		public Object getItem(int position) {
+			return mOverview.get(position);
+		}
+
+		@Override
+		public long getItemId(int position) {
+			return position;
+		}
+
+		@Override
+		public View getView(int position, View convertView, ViewGroup parent) {
+			View layout;
+			if (convertView == null) {
+				layout = LayoutInflater.from(mContext).inflate(
+						R.layout.fleet_list_item, parent, false);
+			} else
+				layout = convertView;
+			
+			HostSummary summary = mOverview.get(position);
+			TextView tv = (TextView)layout.findViewById(R.id.fleetHostName);
+			tv.setText(summary.nickname);
+			
+			tv = (TextView)layout.findViewById(R.id.fleetHostState);
+			if (summary.lastError != null)
+				tv.setText(getString(R.string.fleetHostError, summary.lastError));
+			else if (summary.connected)
+				tv.setText(R.string.fleetHostConnected);
+			else
+				tv.setText(R.string.fleetHostDisconnected);
+			
+			tv = (TextView)layout.findViewById(R.id.fleetHostTasks);
+			tv.setText(getString(R.string.fleetHostTasks, summary.tasksCount,
+					summary.runningTasks, summary.progInd/10.0));
+			
+			ProgressBar progress = (ProgressBar)layout.findViewById(R.id.fleetHostProgress);
+			progress.setProgress(summary.progInd);
+			return layout;
+		}
+	}
+	
+	private ConnectionManagerService mConnectionManager = null;
+	
+	private ServiceConnection mServiceConnection = new ServiceConnection() {
+		@Override
+		public void onServiceConnected(ComponentName name, IBinder service) {
+			mConnectionManager = ((ConnectionManagerService.LocalBinder)service).getService();
+			if (Logging.DEBUG) Log.d(TAG, "onServiceConnected()");
+			mConnectionManager.registerStatusObserver(FleetActivity.this);
+			
+			if (!mConnectionManager.isFleetMode())
+				// monitoring notifies us about initial overview
+				mConnectionManager.startFleetMonitoring(ConnectionManagerService.FLEET_MAX_HOSTS);
+			else
+				onFleetOverviewChanged(mConnectionManager.getFleetOverview());
+		}
+
+		@Override
+		public void onServiceDisconnected(ComponentName name) {
+			if (mConnectionManager != null)
+				mConnectionManager.unregisterStatusObserver(FleetActivity.this);
+			mConnectionManager = null;
+			// This should not happen normally, because it's local service 
+			// running in the same process...
+			if (Logging.WARNING) Log.w(TAG, "onServiceDisconnected()");
+		}
+	};
+	
+	private void doBindService() {
+		if (Logging.DEBUG) Log.d(TAG, "doBindService()");
+		getApplicationContext().bindService(new Intent(FleetActivity.this, ConnectionManagerService.class),
+				mServiceConnection, Context.BIND_AUTO_CREATE);
+	}
+
+	private void doUnbindService() {
+		if (Logging.DEBUG) Log.d(TAG, "doUnbindService()");
+		getApplicationContext().unbindService(mServiceConnection);
+	}
+	
+	@Override
+	protected void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		mScreenOrientation = new ScreenOrientationHandler(this);
+		setContentView(R.layout.fleet_list);
+		
+		mTotalHosts = (TextView)findViewById(R.id.fleetTotalHosts);
+		mTotalTasks = (TextView)findViewById(R.id.fleetTotalTasks);
+		mTotalProgress = (ProgressBar)findViewById(R.id.fleetTotalProgress);
+		
+		Button backButton = (Button)findViewById(R.id.back);
+		backButton.setOnClickListener(new View.OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				finish();
+			}
+		});
+		
+		Button stopButton = (Button)findViewById(R.id.fleetStop);
+		stopButton.setOnClickListener(new View.OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				// current host stays connected
+				if (mConnectionManager != null)
+					mConnectionManager.stopFleetMonitoring();
+				finish();
+			}
+		});
+		
+		setListAdapter(new FleetListAdapter(this));
+		updateTotals();
+		doBindService();
+	}
+	
+	@Override
+	protected void onResume() {
+		super.onResume();
+		mScreenOrientation.setOrientation();
+	}
+	
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+		if (mConnectionManager != null) {
+			mConnectionManager.unregisterStatusObserver(this);
+			mConnectionManager = null;
+		}
+		doUnbindService();
+		mScreenOrientation = null;
+	}
+	
+	@Override
+	protected void onListItemClick(ListView l, View v, int position, long id) {
+		ClientId host = mOverview.get(position).host;
+		if (Logging.DEBUG) Log.d(TAG, "Selected monitored host: " + host.getNickname());
+		Intent intent = new Intent().putExtra(ClientId.TAG, host);
+		setResult(RESULT_OK, intent);
+		finish();
+	}
+	
+	private void updateTotals() {
+		FleetTotals totals = new FleetTotals(mOverview);
+		mTotalHosts.setText(getString(R.string.fleetTotalHosts, totals.connectedHosts,
+				totals.hostsCount));
+		mTotalTasks.setText(getString(R.string.fleetTotalTasks, totals.tasksCount,
+				totals.runningTasks, totals.progInd/10.0, totals.failedHosts));
+		mTotalProgress.setProgress(totals.progInd);
+	}
+	
+	@Override
+	public void onFleetOverviewChanged(ArrayList<HostSummary> overview) {
+		mOverview = overview;
+		((BaseAdapter)getListAdapter()).notifyDataSetChanged();
+		updateTotals();
+	}
+	
+	@Override
+	public boolean clientError(BoincOp boincOp, int err_num, String message) {
+		return false; // errors are shown in host summaries
+	}
+
+	@Override
+	public void clientConnectionProgress(BoincOp boincOp, int progress) {
+		// do nothing
+	}
+
+	@Override
+	public void clientConnected(VersionInfo clientVersion) {
+		// do nothing
+	}
+
+	@Override
+	public void clientDisconnected(boolean disconnectedByManager) {
+		// do nothing
+	}
+
+	@Override
+	public void onClientIsWorking(boolean isWorking) {
+		// do nothing
+	}
+}
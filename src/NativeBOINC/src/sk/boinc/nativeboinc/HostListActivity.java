@@ -21,6 +21,7 @@ package sk.boinc.nativeboinc;
 
 import java.util.HashSet;
 
+import sk.boinc.nativeboinc.bridge.ClientSnapshot;
 import sk.boinc.nativeboinc.debug.Logging;
 import sk.boinc.nativeboinc.util.ClientId;
 import sk.boinc.nativeboinc.util.HostListDbAdapter;
@@ -243,12 +244,12 @@ public class HostListActivity extends ListActivity {
 		case DELETE_ID:
 			if (mSelectedClientIds.isEmpty()) {
 				// if not selected
-				mDbHelper.deleteHost(info.id);
+				deleteHost(info.id);
 				mSelectedClientIds.remove(info.id);
 			} else {
 				// selected
 				for (Long rowId: mSelectedClientIds)
-					mDbHelper.deleteHost(rowId);
+					deleteHost(rowId);
 				mSelectedClientIds.clear();
 			}
 			getHostList();
@@ -338,4 +339,11 @@ public class HostListActivity extends ListActivity {
 		Intent intent = new Intent(this, EditHostActivity.class).putExtra(ClientId.TAG, clientId);
 		startActivityForResult(intent, EDIT_EXISTING_HOST);
 	}
+	
+	/* deletes host with its last known data (snapshot) */
+	private void deleteHost(long rowId) {
+		ClientId clientId = mDbHelper.fetchHost(rowId);
+		if (mDbHelper.deleteHost(rowId) && clientId != null)
+			ClientSnapshot.delete(this, clientId);
+	}
 }
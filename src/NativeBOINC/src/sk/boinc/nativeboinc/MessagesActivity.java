@@ -19,14 +19,12 @@
 
 package sk.boinc.nativeboinc;
 
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.ArrayList;
 
 import edu.berkeley.boinc.lite.Message;
 
 import sk.boinc.nativeboinc.bridge.AutoRefresh;
-import sk.boinc.nativeboinc.clientconnection.AutoRefreshListener;
+import sk.boinc.nativeboinc.bridge.MessageStore;
 import sk.boinc.nativeboinc.clientconnection.BoincOp;
 import sk.boinc.nativeboinc.clientconnection.ClientUpdateMessagesReceiver;
 import sk.boinc.nativeboinc.clientconnection.MessageInfo;
@@ -37,7 +35,6 @@ import sk.boinc.nativeboinc.util.ClientId;
 import sk.boinc.nativeboinc.util.PreferenceName;
 import sk.boinc.nativeboinc.util.ScreenOrientationHandler;
 import android.app.Activity;
-import android.app.ListActivity;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
@@ -60,21 +57,17 @@ import android.widget.ListView;
 import android.widget.TextView;
 
 
-public class MessagesActivity extends ListActivity implements ClientUpdateMessagesReceiver,
-		AutoRefreshListener {
+public class MessagesActivity extends AutoRefreshListActivity implements ClientUpdateMessagesReceiver {
 	private static final String TAG = "MessagesActivity";
 
 	private ScreenOrientationHandler mScreenOrientation;
 
-	private boolean mRequestUpdates = false;
 	private boolean mViewUpdatesAllowed = false;
 	private boolean mViewDirty = false;
 
 	private ArrayList<MessageInfo> mUnfilteredMessages = new ArrayList<MessageInfo>();
 	private ArrayList<MessageInfo> mMessages = new ArrayList<MessageInfo>();
 
-	private boolean mUpdateMessagesInProgress = false;
-	private long mLastUpdateTime = -1;
 	private boolean mAfterRecreating = false;
 	
 	private int mFilterType = Message.MSG_INFO;
@@ -89,14 +82,14 @@ public class MessagesActivity extends ListActivity implements ClientUpdateMessag
 		public SavedState(MessagesActivity activity) {
 			unfilteredMessages = activity.mUnfilteredMessages;
 			messages = activity.mMessages;
-			updateMessagesInProgress = activity.mUpdateMessagesInProgress;
+			updateMessagesInProgress = activity.mUpdateInProgress;
 			lastUpdateTime = activity.mLastUpdateTime;
 			filterType = activity.mFilterType;
 		}
 		public void restoreState(MessagesActivity activity) {
 			activity.mUnfilteredMessages = unfilteredMessages;
 			activity.mMessages = messages;
-			activity.mUpdateMessagesInProgress = updateMessagesInProgress;
+			activity.mUpdateInProgress = updateMessagesInProgress;
 			activity.mLastUpdateTime = lastUpdateTime;
 			activity.mFilterType = filterType;
 		}
@@ -208,6 +201,10 @@ public class MessagesActivity extends ListActivity implements ClientUpdateMessag
 	private String[] mFilterLabelsArray = null;
 	private String[] mFilterMenuItemsArray = null;
 	
+	public MessagesActivity() {
+		super(AutoRefresh.MESSAGES);
+	}
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
@@ -259,9 +256,9 @@ public class MessagesActivity extends ListActivity implements ClientUpdateMessag
 		mScreenOrientation.setOrientation();
 		mRequestUpdates = true;
 		
-		if (Logging.DEBUG) Log.d(TAG, "onUpdaMessagesprogress:"+mUpdateMessagesInProgress);
+		if (Logging.DEBUG) Log.d(TAG, "onUpdaMessagesprogress:"+mUpdateInProgress);
 		if (mConnectedClient != null) {
-			if (mUpdateMessagesInProgress) {
+			if (mUpdateInProgress) {
 				ArrayList<MessageInfo> messages = (ArrayList<MessageInfo>)mConnectionManager
 						.getPendingOutput(BoincOp.UpdateMessages);
 				
@@ -291,7 +288,6 @@ public class MessagesActivity extends ListActivity implements ClientUpdateMessag
 		if (mViewDirty) {
 			// There were some updates received while we were not visible
 			// The data are stored, but view is not updated yet; Do it now
-			sortMessages();
 			filterMessages();
 			((BaseAdapter)getListAdapter()).notifyDataSetChanged();
 			mViewDirty = false;
@@ -368,9 +364,9 @@ public class MessagesActivity extends ListActivity implements ClientUpdateMessag
 			// Connected client is retrieved
 			if (Logging.DEBUG) Log.d(TAG, "Client is connected");
 			if (mRequestUpdates) {
-				if (!mUpdateMessagesInProgress && !mAfterRecreating) {
+				if (!mUpdateInProgress && !mAfterRecreating) {
 					if (Logging.DEBUG) Log.d(TAG, "do update messages 2");
-					mUpdateMessagesInProgress = true;
+					mUpdateInProgress = true;
 					mConnectionManager.updateMessages();
 				} else {
 					if (Logging.DEBUG) Log.d(TAG, "do add to scheduled updates");
@@ -392,7 +388,7 @@ public class MessagesActivity extends ListActivity implements ClientUpdateMessag
 	public void clientDisconnected(boolean disconnectedByManager) {
 		if (Logging.DEBUG) Log.d(TAG, "Client is disconnected");
 		mConnectedClient = null;
-		mUpdateMessagesInProgress = false;
+		mUpdateInProgress = false;
 		mUnfilteredMessages.clear();
 		mMessages.clear();
 		((BaseAdapter)getListAdapter()).notifyDataSetChanged();
@@ -405,50 +401,62 @@ public class MessagesActivity extends ListActivity implements ClientUpdateMessag
 		if (!boincOp.equals(BoincOp.UpdateMessages)) // ingore if not this task
 			return false;
 		// do not consume
-		mUpdateMessagesInProgress = false;
+		mUpdateInProgress = false;
 		mAfterRecreating = false;
 		return false;
 	}
 
 	@Override
 	public boolean updatedMessages(ArrayList<MessageInfo> messages) {
-		mUpdateMessagesInProgress = false;
-		mLastUpdateTime = SystemClock.elapsedRealtime();
+		updateFinished();
 		
 		if (Logging.DEBUG) Log.d(TAG, "After message updates");
 		
-		if (mUnfilteredMessages.size() != messages.size()) {
-			// Number of messages has changed (increased)
-			// This is the only case when we need an update, because content of messages
-			// never changes, only fresh arrived messages are added to list
-			mUnfilteredMessages = messages;
-			if (mViewUpdatesAllowed) {
-				// We are visible, update the view with fresh data
-				if (Logging.DEBUG) Log.d(TAG, "Messages are updated, refreshing view");
-				sortMessages();
-				filterMessages();
-				((BaseAdapter)getListAdapter()).notifyDataSetChanged();
-			}
-			else {
-				// We are not visible, do not perform costly tasks now
-				if (Logging.DEBUG) Log.d(TAG, "Messages are updated, but view refresh is delayed");
-				mViewDirty = true;
-			}
+		int lastSeqNo = (mUnfilteredMessages.isEmpty()) ? 0 :
+				mUnfilteredMessages.get(mUnfilteredMessages.size()-1).seqNo;
+		if ((mUnfilteredMessages.isEmpty() || (!messages.isEmpty() &&
+				messages.get(0).seqNo > lastSeqNo+1)) && mConnectionManager != null) {
+			// some updates were missed (or this is first update, possibly without
+			// fresh messages), retrieve all messages after our last message from message store
+			ArrayList<MessageInfo> storedMessages = mConnectionManager.getMessagesSince(lastSeqNo);
+			if (storedMessages != null)
+				messages = storedMessages;
+		}
+		
+		if (messages.isEmpty())
+			return mRequestUpdates; // no fresh messages
+		
+		// Content of messages never changes, only fresh arrived messages
+		// are appended to list (they are ordered by seqNo)
+		int firstNew = mUnfilteredMessages.size();
+		for (MessageInfo msgInfo: messages)
+			if (msgInfo.seqNo > lastSeqNo)
+				mUnfilteredMessages.add(msgInfo);
+		if (firstNew == mUnfilteredMessages.size())
+			return mRequestUpdates; // nothing to add
+		
+		// drop oldest messages (the same as message store does)
+		int toRemove = mUnfilteredMessages.size() - MessageStore.getCapacity(this);
+		if (toRemove > 0) {
+			mUnfilteredMessages.subList(0, toRemove).clear();
+			firstNew -= toRemove;
+			if (firstNew < 0) firstNew = 0;
+		}
+		
+		if (mViewUpdatesAllowed) {
+			// We are visible, update the view with fresh data
+			if (Logging.DEBUG) Log.d(TAG, "Messages are updated, refreshing view");
+			filterNewMessages(firstNew);
+			((BaseAdapter)getListAdapter()).notifyDataSetChanged();
+		}
+		else {
+			// We are not visible, do not perform costly tasks now
+			if (Logging.DEBUG) Log.d(TAG, "Messages are updated, but view refresh is delayed");
+			mViewDirty = true;
 		}
 		return mRequestUpdates;
 	}
 
-
-	private void sortMessages() {
-		Comparator<MessageInfo> comparator = new Comparator<MessageInfo>() {
-			@Override
-			public int compare(MessageInfo object1, MessageInfo object2) {
-				return object1.seqNo - object2.seqNo;
-			}
-		};
-		Collections.sort(mUnfilteredMessages, comparator);
-	}
-	
 	private void filterMessages() {
 		mMessages.clear();
 		for (MessageInfo msgInfo: mUnfilteredMessages)
@@ -456,13 +464,25 @@ public class MessagesActivity extends ListActivity implements ClientUpdateMessag
 				mMessages.add(msgInfo);
 	}
 	
-	@Override
-	public void onClientIsWorking(boolean isWorking) {
+	/* filter messages appended from firstNew index, and remove dropped messages */
+	private void filterNewMessages(int firstNew) {
+		if (!mUnfilteredMessages.isEmpty()) {
+			int firstSeqNo = mUnfilteredMessages.get(0).seqNo;
+			int toRemove = 0;
+			while (toRemove < mMessages.size() && mMessages.get(toRemove).seqNo < firstSeqNo)
+				toRemove++;
+			if (toRemove != 0)
+				mMessages.subList(0, toRemove).clear();
+		}
+		int count = mUnfilteredMessages.size();
+		for (int i = firstNew; i < count; i++) {
+			MessageInfo msgInfo = mUnfilteredMessages.get(i);
+			if (msgInfo.priority >= mFilterType || msgInfo.priority == 0)
+				mMessages.add(msgInfo);
+		}
 	}
 	
 	@Override
-	public void onStartAutoRefresh(int requestType) {
-		if (requestType == AutoRefresh.MESSAGES) // in progress
-			mUpdateMessagesInProgress = true;
+	public void onClientIsWorking(boolean isWorking) {
 	}
 }
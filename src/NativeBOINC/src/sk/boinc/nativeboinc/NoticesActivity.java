@@ -24,7 +24,6 @@ import java.util.Collections;
 import java.util.Comparator;
 
 import sk.boinc.nativeboinc.bridge.AutoRefresh;
-import sk.boinc.nativeboinc.clientconnection.AutoRefreshListener;
 import sk.boinc.nativeboinc.clientconnection.BoincOp;
 import sk.boinc.nativeboinc.clientconnection.ClientUpdateNoticesReceiver;
 import sk.boinc.nativeboinc.clientconnection.NoticeInfo;
@@ -34,7 +33,6 @@ import sk.boinc.nativeboinc.service.ConnectionManagerService;
 import sk.boinc.nativeboinc.util.ClientId;
 import sk.boinc.nativeboinc.util.ScreenOrientationHandler;
 import android.app.Activity;
-import android.app.ListActivity;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
@@ -58,12 +56,10 @@ import android.widget.TextView;
  * @author mat
  *
  */
-public class NoticesActivity extends ListActivity implements ClientUpdateNoticesReceiver,
-	AutoRefreshListener {
+public class NoticesActivity extends AutoRefreshListActivity implements ClientUpdateNoticesReceiver {
 
 	private static final String TAG = "NoticesActivity";
 	
-	private boolean mRequestUpdates = false;
 	private boolean mViewUpdatesAllowed = false;
 	private boolean mViewDirty = false;
 	
@@ -71,8 +67,6 @@ public class NoticesActivity extends ListActivity implements ClientUpdateNotices
 	
 	private ArrayList<NoticeInfo> mNotices = new ArrayList<NoticeInfo>();
 	
-	private boolean mUpdateNoticesInProgress = false;
-	private long mLastUpdateTime = -1;
 	private boolean mAfterRecreating = false;
 	
 	private static class SavedState {
@@ -82,12 +76,12 @@ public class NoticesActivity extends ListActivity implements ClientUpdateNotices
 		
 		public SavedState(NoticesActivity activity) {
 			notices = activity.mNotices;
-			updateNoticesInProgress = activity.mUpdateNoticesInProgress;
+			updateNoticesInProgress = activity.mUpdateInProgress;
 			lastUpdateTime = activity.mLastUpdateTime;
 		}
 		public void restoreState(NoticesActivity activity) {
 			activity.mNotices = notices;
-			activity.mUpdateNoticesInProgress = updateNoticesInProgress;
+			activity.mUpdateInProgress = updateNoticesInProgress;
 			activity.mLastUpdateTime = lastUpdateTime;
 		}
 	}
@@ -193,6 +187,10 @@ public class NoticesActivity extends ListActivity implements ClientUpdateNotices
 		getApplicationContext().unbindService(mServiceConnection);
 	}
 	
+	public NoticesActivity() {
+		super(AutoRefresh.NOTICES);
+	}
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
@@ -238,9 +236,9 @@ public class NoticesActivity extends ListActivity implements ClientUpdateNotices
 		mScreenOrientation.setOrientation();
 		mRequestUpdates = true;
 		
-		if (Logging.DEBUG) Log.d(TAG, "onUpdateNoticesProgress:"+mUpdateNoticesInProgress);
+		if (Logging.DEBUG) Log.d(TAG, "onUpdateNoticesProgress:"+mUpdateInProgress);
 		if (mConnectedClient != null) {
-			if (mUpdateNoticesInProgress) {
+			if (mUpdateInProgress) {
 				ArrayList<NoticeInfo> notices = (ArrayList<NoticeInfo>)mConnectionManager
 						.getPendingOutput(BoincOp.UpdateNotices);
 				
@@ -319,7 +317,7 @@ public class NoticesActivity extends ListActivity implements ClientUpdateNotices
 		if (!boincOp.equals(BoincOp.UpdateNotices))
 			return false;
 		// do not consume
-		mUpdateNoticesInProgress = false;
+		mUpdateInProgress = false;
 		mAfterRecreating = false;
 		return false;
 	}
@@ -335,9 +333,9 @@ public class NoticesActivity extends ListActivity implements ClientUpdateNotices
 			// Connected client is retrieved
 			if (Logging.DEBUG) Log.d(TAG, "Client is connected");
 			if (mRequestUpdates) {
-				if (!mUpdateNoticesInProgress && !mAfterRecreating) {
+				if (!mUpdateInProgress && !mAfterRecreating) {
 					if (Logging.DEBUG) Log.d(TAG, "do update notices");
-					mUpdateNoticesInProgress = true;
+					mUpdateInProgress = true;
 					mConnectionManager.updateNotices();
 				} else {
 					if (Logging.DEBUG) Log.d(TAG, "do add to scheduled updates");
@@ -359,7 +357,7 @@ public class NoticesActivity extends ListActivity implements ClientUpdateNotices
 	public void clientDisconnected(boolean disconnectedByManager) {
 		if (Logging.DEBUG) Log.d(TAG, "Client is disconnected");
 		mConnectedClient = null;
-		mUpdateNoticesInProgress = false;
+		mUpdateInProgress = false;
 		mNotices.clear();
 		((BaseAdapter)getListAdapter()).notifyDataSetChanged();
 		mViewDirty = false;
@@ -372,8 +370,7 @@ public class NoticesActivity extends ListActivity implements ClientUpdateNotices
 
 	@Override
 	public boolean updatedNotices(ArrayList<NoticeInfo> notices) {
-		mUpdateNoticesInProgress = false;
-		mLastUpdateTime = SystemClock.elapsedRealtime();
+		updateFinished();
 		if (Logging.DEBUG) Log.d(TAG, "After update notices");
 		if (mNotices.size() != notices.size()) {
 			// Number of notices has changed (increased)
@@ -404,11 +401,4 @@ public class NoticesActivity extends ListActivity implements ClientUpdateNotices
 		};
 		Collections.sort(mNotices, comparator);
 	}
-	
-
-	@Override
-	public void onStartAutoRefresh(int requestType) {
-		if (requestType == AutoRefresh.NOTICES) // in progress
-			mUpdateNoticesInProgress = true;
-	}
 }
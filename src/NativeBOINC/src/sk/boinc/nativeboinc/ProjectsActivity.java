@@ -25,7 +25,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 
 import sk.boinc.nativeboinc.bridge.AutoRefresh;
-import sk.boinc.nativeboinc.clientconnection.AutoRefreshListener;
 import sk.boinc.nativeboinc.clientconnection.BoincOp;
 import sk.boinc.nativeboinc.clientconnection.ClientOp;
 import sk.boinc.nativeboinc.clientconnection.ClientUpdateProjectsReceiver;
@@ -39,7 +38,6 @@ import sk.boinc.nativeboinc.util.StandardDialogs;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
-import android.app.ListActivity;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.DialogInterface;
@@ -67,8 +65,7 @@ import android.widget.TextView;
 import android.widget.AdapterView.AdapterContextMenuInfo;
 
 
-public class ProjectsActivity extends ListActivity implements ClientUpdateProjectsReceiver,
-		AutoRefreshListener {
+public class ProjectsActivity extends AutoRefreshListActivity implements ClientUpdateProjectsReceiver {
 	private static final String TAG = "ProjectsActivity";
 
 	private static final int DIALOG_DETAILS = 1;
@@ -86,7 +83,6 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 
 	private ScreenOrientationHandler mScreenOrientation;
 
-	private boolean mRequestUpdates = false;
 	private boolean mViewUpdatesAllowed = false;
 	private boolean mViewDirty = false;
 
@@ -98,8 +94,6 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 	private boolean mShowDetailsDialog = false;
 	private boolean mShowWarnDetachDialog = false;
 	
-	private boolean mUpdateProjectsInProgress = false;
-	private long mLastUpdateTime = -1;
 	private boolean mAfterRecreating = false;
 	
 	private StringBuilder mSb = new StringBuilder();
@@ -129,7 +123,7 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 			choosenProject = activity.mChoosenProject;
 			showDetailsDialog = activity.mShowDetailsDialog;
 			showWarnDetachDialog = activity.mShowWarnDetachDialog;
-			updateProjectsInProgress = activity.mUpdateProjectsInProgress;
+			updateProjectsInProgress = activity.mUpdateInProgress;
 			lastUpdateTime = activity.mLastUpdateTime;
 			prevClientId = activity.mPrevClientId;
 			contextMenuOpened = activity.mContextMenuOpened;
@@ -143,7 +137,7 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 			activity.mChoosenProject = choosenProject;
 			activity.mShowDetailsDialog = showDetailsDialog;
 			activity.mShowWarnDetachDialog = showWarnDetachDialog;
-			activity.mUpdateProjectsInProgress = updateProjectsInProgress;
+			activity.mUpdateInProgress = updateProjectsInProgress;
 			activity.mLastUpdateTime = lastUpdateTime;
 			activity.mPrevClientId = prevClientId;
 			activity.mContextMenuOpened = contextMenuOpened;
@@ -305,6 +299,10 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 	}
 
 
+	public ProjectsActivity() {
+		super(AutoRefresh.PROJECTS);
+	}
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
@@ -338,7 +336,7 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 		mRequestUpdates = true;
 		
 		if (mConnectedClient != null) {
-			if (mUpdateProjectsInProgress) {
+			if (mUpdateInProgress) {
 				ArrayList<ProjectInfo> projects = (ArrayList<ProjectInfo>)mConnectionManager
 						.getPendingOutput(BoincOp.UpdateProjects);
 				
@@ -683,9 +681,9 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 			// Connected client is retrieved
 			if (Logging.DEBUG) Log.d(TAG, "Client is connected");
 			if (mRequestUpdates) {
-				if (!mUpdateProjectsInProgress && !mAfterRecreating) {
+				if (!mUpdateInProgress && !mAfterRecreating) {
 					if (Logging.DEBUG) Log.d(TAG, "do update projects");
-					mUpdateProjectsInProgress = true;
+					mUpdateInProgress = true;
 					mConnectionManager.updateProjects();
 				} else {
 					if (Logging.DEBUG) Log.d(TAG, "do add to scheduled updates");
@@ -708,7 +706,8 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 		if (Logging.DEBUG) Log.d(TAG, "Client is disconnected");
 		mPrevClientId = mConnectedClient;
 		mConnectedClient = null;
-		mUpdateProjectsInProgress = false;
+		mUpdateInProgress = false;
+		hideStaleData();
 		mProjs.clear();
 		updateSelectedProjects();
 		((BaseAdapter)getListAdapter()).notifyDataSetChanged();
@@ -722,7 +721,7 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 		if (!boincOp.equals(BoincOp.UpdateProjects))
 			return false;
 		// do not consume
-		mUpdateProjectsInProgress = false;
+		mUpdateInProgress = false;
 		mAfterRecreating = false;
 		return false;
 	}
@@ -730,8 +729,7 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 	@Override
 	public boolean updatedProjects(ArrayList<ProjectInfo> projects) {
 		mPendingProjs = projects;
-		mUpdateProjectsInProgress = false;
-		mLastUpdateTime = SystemClock.elapsedRealtime();
+		updateFinished();
 		
 		sortProjects();
 		updateSelectedProjects();
@@ -808,10 +806,4 @@ public class ProjectsActivity extends ListActivity implements ClientUpdateProjec
 	@Override
 	public void onClientIsWorking(boolean isWorking) {
 	}
-
-	@Override
-	public void onStartAutoRefresh(int requestType) {
-		if (requestType == AutoRefresh.PROJECTS) // in progress
-			mUpdateProjectsInProgress = true;
-	}
 }
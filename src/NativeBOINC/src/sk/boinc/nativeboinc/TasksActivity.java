@@ -26,12 +26,12 @@ import java.util.ArrayList;
 import java.util.HashSet;
 
 import sk.boinc.nativeboinc.bridge.AutoRefresh;
-import sk.boinc.nativeboinc.clientconnection.AutoRefreshListener;
 import sk.boinc.nativeboinc.clientconnection.BoincOp;
 import sk.boinc.nativeboinc.clientconnection.ClientOp;
-import sk.boinc.nativeboinc.clientconnection.ClientUpdateTasksReceiver;
+import sk.boinc.nativeboinc.clientconnection.ClientUpdateTasksDeltaReceiver;
 import sk.boinc.nativeboinc.clientconnection.TaskDescriptor;
 import sk.boinc.nativeboinc.clientconnection.TaskInfo;
+import sk.boinc.nativeboinc.clientconnection.TasksChanges;
 import sk.boinc.nativeboinc.clientconnection.VersionInfo;
 import sk.boinc.nativeboinc.debug.Logging;
 import sk.boinc.nativeboinc.service.ConnectionManagerService;
@@ -41,7 +41,6 @@ import sk.boinc.nativeboinc.util.StandardDialogs;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
-import android.app.ListActivity;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.DialogInterface;
@@ -69,8 +68,7 @@ import android.widget.TextView;
 import android.widget.AdapterView.AdapterContextMenuInfo;
 
 
-public class TasksActivity extends ListActivity implements ClientUpdateTasksReceiver,
-		AutoRefreshListener {
+public class TasksActivity extends AutoRefreshListActivity implements ClientUpdateTasksDeltaReceiver {
 	private static final String TAG = "TasksActivity";
 
 	private static final int DIALOG_DETAILS = 1;
@@ -88,19 +86,17 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 	private ScreenOrientationHandler mScreenOrientation;
 
 	private ClientId mConnectedClient = null;
-	private boolean mRequestUpdates = false;
 	private boolean mViewUpdatesAllowed = false;
 	private boolean mViewDirty = false;
 
 	private ArrayList<TaskInfo> mTasks = new ArrayList<TaskInfo>();
 	private ArrayList<TaskInfo> mPendingTasks = new ArrayList<TaskInfo>();
+	private int mTasksSequence = TasksChanges.NO_SEQUENCE; // sequence of mPendingTasks
 	private HashSet<TaskDescriptor> mSelectedTasks = new HashSet<TaskDescriptor>();
 	private boolean mShowDetailsDialog = false;
 	private boolean mShowWarnAbortDialog = false;
 	private TaskInfo mChoosenTask = null; 
 
-	private boolean mUpdateTasksInProgress = false;
-	private long mLastUpdateTime = -1;
 	private boolean mAfterRecreating = false;
 	private ClientId mPrevClientId = null;
 	private ClientId mOperationClientId = null;
@@ -111,6 +107,7 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 	private static class SavedState {
 		private final ArrayList<TaskInfo> tasks;
 		private final ArrayList<TaskInfo> pendingTasks;
+		private final int tasksSequence;
 		private final HashSet<TaskDescriptor> selectedTasks;
 		private final TaskInfo choosenTask;
 		private final boolean showDetailsDialog;
@@ -125,12 +122,13 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 			tasks = activity.mTasks;
 			if (Logging.DEBUG) Log.d(TAG, "saved: tasks.size()=" + tasks.size());
 			pendingTasks = activity.mPendingTasks;
+			tasksSequence = activity.mTasksSequence;
 			selectedTasks = activity.mSelectedTasks;
 			//position = activity.mPosition;
 			choosenTask = activity.mChoosenTask;
 			showDetailsDialog = activity.mShowDetailsDialog;
 			showWarnAbortDialog = activity.mShowWarnAbortDialog;
-			updateTasksInProgress = activity.mUpdateTasksInProgress;
+			updateTasksInProgress = activity.mUpdateInProgress;
 			lastUpdateTime = activity.mLastUpdateTime;
 			prevClientId = activity.mPrevClientId;
 			contextMenuOpened = activity.mContextMenuOpened;
@@ -140,12 +138,13 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 			activity.mTasks = tasks;
 			if (Logging.DEBUG) Log.d(TAG, "restored: mTasks.size()=" + activity.mTasks.size());
 			activity.mPendingTasks = pendingTasks;
+			activity.mTasksSequence = tasksSequence;
 			activity.mSelectedTasks = selectedTasks;
 			//activity.mPosition = position;
 			activity.mChoosenTask = choosenTask;
 			activity.mShowDetailsDialog = showDetailsDialog;
 			activity.mShowWarnAbortDialog = showWarnAbortDialog;
-			activity.mUpdateTasksInProgress = updateTasksInProgress;
+			activity.mUpdateInProgress = updateTasksInProgress;
 			activity.mLastUpdateTime = lastUpdateTime;
 			activity.mPrevClientId = prevClientId;
 			activity.mContextMenuOpened = contextMenuOpened;
@@ -253,6 +252,7 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 			ProgressBar progressWaiting = (ProgressBar)layout.findViewById(R.id.taskProgressWaiting);
 			ProgressBar progressSuspended = (ProgressBar)layout.findViewById(R.id.taskProgressSuspended);
 			ProgressBar progressFinished = (ProgressBar)layout.findViewById(R.id.taskProgressFinished);
+			int finishedProgress = task.progInd; // task is shared with bridge, do not modify it
 			switch (task.stateControl) {
 			case TaskInfo.SUSPENDED:
 			case TaskInfo.ABORTED:
@@ -267,14 +267,14 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 			case TaskInfo.DOWNLOADING:
 			case TaskInfo.UPLOADING:
 				// Setting progress to 0 will let the secondary progress to display itself (which is always set to 100)
-				task.progInd = 0;
+				finishedProgress = 0;
 				// no break, we continue following case (READY_TO_REPORT)
 			case TaskInfo.READY_TO_REPORT:
 				// Downloading, Uploading or Ready to report
 				progressWaiting.setVisibility(View.GONE);
 				progressSuspended.setVisibility(View.GONE);
 				progressRunning.setVisibility(View.GONE);
-				progressFinished.setProgress(task.progInd);
+				progressFinished.setProgress(finishedProgress);
 				progressFinished.setVisibility(View.VISIBLE);
 				break;
 			case TaskInfo.RUNNING:
@@ -346,6 +346,10 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 		getApplicationContext().unbindService(mServiceConnection);
 	}
 
+	public TasksActivity() {
+		super(AutoRefresh.TASKS);
+	}
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
@@ -378,9 +382,9 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 		mScreenOrientation.setOrientation();
 		mRequestUpdates = true;
 		
-		if (Logging.DEBUG) Log.d(TAG, "onUpdataskprogress:"+mUpdateTasksInProgress);
+		if (Logging.DEBUG) Log.d(TAG, "onUpdataskprogress:"+mUpdateInProgress);
 		if (mConnectedClient != null) {
-			if (mUpdateTasksInProgress) {
+			if (mUpdateInProgress) {
 				ArrayList<TaskInfo> tasks = (ArrayList<TaskInfo>)mConnectionManager
 						.getPendingOutput(BoincOp.UpdateTasks);
 				if (tasks != null) // if already updated
@@ -691,9 +695,9 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 			if (Logging.DEBUG) Log.d(TAG, "Client is connected");
 			if (mRequestUpdates) {
 				// Request fresh data
-				if (!mUpdateTasksInProgress && !mAfterRecreating) {
+				if (!mUpdateInProgress && !mAfterRecreating) {
 					if (Logging.DEBUG) Log.d(TAG, "do update tasks");
-					mUpdateTasksInProgress = true;
+					mUpdateInProgress = true;
 					mConnectionManager.updateTasks();
 				} else {
 					if (Logging.DEBUG) Log.d(TAG, "do add to scheduled updates");
@@ -716,8 +720,10 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 		if (Logging.DEBUG) Log.d(TAG, "Client is disconnected");
 		mPrevClientId = mConnectedClient;
 		mConnectedClient = null;
-		mUpdateTasksInProgress = false;
+		mUpdateInProgress = false;
+		hideStaleData();
 		mTasks.clear();
+		mTasksSequence = TasksChanges.NO_SEQUENCE;
 		updateSelectedTasks();
 		((BaseAdapter)getListAdapter()).notifyDataSetChanged();
 		mViewDirty = false;
@@ -729,16 +735,50 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 		if (!boincOp.equals(BoincOp.UpdateTasks))
 			return false;
 		// do not consume
-		mUpdateTasksInProgress = false;
+		mUpdateInProgress = false;
 		mAfterRecreating = false;
 		return false;
 	}
 	
+	@Override
+	public boolean updatedTasks(ArrayList<TaskInfo> tasks, TasksChanges changes) {
+		if (changes.isFullUpdate() || changes.baseSequence != mTasksSequence) {
+			// we dont have previous snapshot, use whole list
+			boolean periodicAllowed = updatedTasks(tasks);
+			mTasksSequence = changes.sequence;
+			return periodicAllowed;
+		}
+		mTasksSequence = changes.sequence;
+		updateFinished();
+		if (changes.isEmpty()) {
+			if (Logging.DEBUG) Log.d(TAG, "Tasks are not changed");
+			return mRequestUpdates;
+		}
+		if (!applyTasksChanges(changes)) {
+			if (Logging.WARNING) Log.w(TAG, "Tasks changes are inconsistent, doing full update");
+			boolean periodicAllowed = updatedTasks(tasks);
+			mTasksSequence = changes.sequence;
+			return periodicAllowed;
+		}
+		
+		if (mViewUpdatesAllowed) {
+			mTasks = mPendingTasks;
+			if (Logging.DEBUG) Log.d(TAG, "Tasks changes are applied, refreshing view");
+			((BaseAdapter)getListAdapter()).notifyDataSetChanged();
+		}
+		else {
+			if (Logging.DEBUG) Log.d(TAG, "Tasks changes are applied, but view refresh is delayed");
+			mViewDirty = true;
+		}
+		return mRequestUpdates;
+	}
+
 	@Override
 	public boolean updatedTasks(ArrayList<TaskInfo> tasks) {
-		mPendingTasks = tasks;
-		mUpdateTasksInProgress = false;
-		mLastUpdateTime = SystemClock.elapsedRealtime();
+		mTasksSequence = TasksChanges.NO_SEQUENCE;
+		// list is shared with other receivers, it is sorted and patched here
+		mPendingTasks = new ArrayList<TaskInfo>(tasks);
+		updateFinished();
 		
 		sortTasks();
 		updateSelectedTasks();
@@ -774,31 +814,75 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 	// Order is: (1) RUNNING -> (2) PREEMPTED -> (3) SUSPENDED -> (4) UPLOADING & READY_TO_REPORT -> 
 	//        -> (5) ABORTED, ERROR, DOWNLOADING, READY_TO_START -> (last) others - not set states
 
+	private static final Comparator<TaskInfo> cTaskComparator = new Comparator<TaskInfo>() {
+		@Override
+		public int compare(TaskInfo object1, TaskInfo object2) {
+			// First criteria - state
+			if ( (cStatePriority[object1.stateControl] - cStatePriority[object2.stateControl]) != 0 ) {
+				// The priorities for are different - return the order
+				return (cStatePriority[object1.stateControl] - cStatePriority[object2.stateControl]);
+			}
+			// Otherwise continue with further criteria
+			// The next criteria - deadline
+			int deadlineDiff = (int)(object1.deadlineNum - object2.deadlineNum);
+			if (deadlineDiff != 0) {
+				// not the same deadline
+				return deadlineDiff;
+			}
+			// Last, sort by project name, then by task name
+			int prjComp = object1.project.compareToIgnoreCase(object2.project);
+			if (prjComp != 0) {
+				return prjComp;
+			}
+			return object1.taskName.compareToIgnoreCase(object2.taskName);
+		}
+	};
+
 	private void sortTasks() {
-		Comparator<TaskInfo> comparator = new Comparator<TaskInfo>() {
-			@Override
-			public int compare(TaskInfo object1, TaskInfo object2) {
-				// First criteria - state
-				if ( (cStatePriority[object1.stateControl] - cStatePriority[object2.stateControl]) != 0 ) {
-					// The priorities for are different - return the order
-					return (cStatePriority[object1.stateControl] - cStatePriority[object2.stateControl]);
-				}
-				// Otherwise continue with further criteria
-				// The next criteria - deadline
-				int deadlineDiff = (int)(object1.deadlineNum - object2.deadlineNum);
-				if (deadlineDiff != 0) {
-					// not the same deadline
-					return deadlineDiff;
-				}
-				// Last, sort by project name, then by task name
-				int prjComp = object1.project.compareToIgnoreCase(object2.project);
-				if (prjComp != 0) {
-					return prjComp;
-				}
-				return object1.taskName.compareToIgnoreCase(object2.taskName);
+		Collections.sort(mPendingTasks, cTaskComparator);
+	}
+
+	/*
+	 * applies changes to copy of sorted mPendingTasks (positions are found by binary search),
+	 * because mPendingTasks can be still displayed (as mTasks)
+	 * returns false if previous tasks are not found
+	 */
+	private boolean applyTasksChanges(TasksChanges changes) {
+		ArrayList<TaskInfo> tasks = new ArrayList<TaskInfo>(mPendingTasks);
+		for (TaskInfo task: changes.removed) {
+			int index = Collections.binarySearch(tasks, task, cTaskComparator);
+			if (index < 0 || tasks.get(index) != task)
+				return false;
+			tasks.remove(index);
+			mSelectedTasks.remove(new TaskDescriptor(task.projectUrl, task.taskName));
+		}
+		int changedCount = changes.changed.size();
+		for (int i = 0; i < changedCount; i++) {
+			TaskInfo previous = changes.changedPrevious.get(i);
+			TaskInfo task = changes.changed.get(i);
+			int index = Collections.binarySearch(tasks, previous, cTaskComparator);
+			if (index < 0 || tasks.get(index) != previous)
+				return false;
+			if ((changes.getChangedFields(i) & TasksChanges.ORDER_FIELDS) == 0)
+				tasks.set(index, task);
+			else {
+				tasks.remove(index);
+				insertTask(tasks, task);
 			}
-		};
-		Collections.sort(mPendingTasks, comparator);
+			if (mChoosenTask == previous)
+				mChoosenTask = task;
+		}
+		for (TaskInfo task: changes.added)
+			insertTask(tasks, task);
+		mPendingTasks = tasks;
+		return true;
+	}
+
+	private static void insertTask(ArrayList<TaskInfo> tasks, TaskInfo task) {
+		int index = Collections.binarySearch(tasks, task, cTaskComparator);
+		if (index < 0)
+			index = -index-1;
+		tasks.add(index, task);
 	}
 	
 	private void updateSelectedTasks() {
@@ -847,11 +931,4 @@ public class TasksActivity extends ListActivity implements ClientUpdateTasksRece
 	@Override
 	public void onClientIsWorking(boolean isWorking) {
 	}
-
-	@Override
-	public void onStartAutoRefresh(int requestType) {
-		if (Logging.DEBUG) Log.d(TAG, "on start auto refresh");
-		if (requestType == AutoRefresh.TASKS) // in progress
-			mUpdateTasksInProgress = true;
-	}
 }
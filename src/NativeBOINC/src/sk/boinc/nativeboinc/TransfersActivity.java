@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 
 import sk.boinc.nativeboinc.bridge.AutoRefresh;
-import sk.boinc.nativeboinc.clientconnection.AutoRefreshListener;
 import sk.boinc.nativeboinc.clientconnection.BoincOp;
 import sk.boinc.nativeboinc.clientconnection.ClientOp;
 import sk.boinc.nativeboinc.clientconnection.ClientUpdateTransfersReceiver;
@@ -38,7 +37,6 @@ import sk.boinc.nativeboinc.util.StandardDialogs;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
-import android.app.ListActivity;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.DialogInterface;
@@ -66,8 +64,7 @@ import android.widget.TextView;
 import android.widget.AdapterView.AdapterContextMenuInfo;
 
 
-public class TransfersActivity extends ListActivity implements ClientUpdateTransfersReceiver,
-		AutoRefreshListener {
+public class TransfersActivity extends AutoRefreshListActivity implements ClientUpdateTransfersReceiver {
 	private static final String TAG = "TransfersActivity";
 
 	private static final int DIALOG_DETAILS = 1;
@@ -81,7 +78,6 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 
 	private ScreenOrientationHandler mScreenOrientation;
 
-	private boolean mRequestUpdates = false;
 	private boolean mViewUpdatesAllowed = false;
 	private boolean mViewDirty = false;
 
@@ -93,8 +89,6 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 	private boolean mShowDetailsDialog = false;
 	private boolean mShowWarnAbortDialog = false;
 	
-	private boolean mUpdateTransfersInProgress = false;
-	private long mLastUpdateTime = -1;
 	private boolean mAfterRecreating = false;
 	
 	private ClientId mPrevClientId = null;
@@ -122,7 +116,7 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 			choosenTransfer = activity.mChoosenTransfer;
 			showDetailsDialog = activity.mShowDetailsDialog;
 			showWarnAbortDialog = activity.mShowWarnAbortDialog;
-			updateTransfersInProgress = activity.mUpdateTransfersInProgress;
+			updateTransfersInProgress = activity.mUpdateInProgress;
 			lastUpdateTime = activity.mLastUpdateTime;
 			prevClientId = activity.mPrevClientId;
 			contextMenuOpened = activity.mContextMenuOpened;
@@ -135,7 +129,7 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 			activity.mSelectedTransfers = selectedTransfers;
 			activity.mChoosenTransfer = choosenTransfer;
 			activity.mShowDetailsDialog = showDetailsDialog;
-			activity.mUpdateTransfersInProgress = updateTransfersInProgress;
+			activity.mUpdateInProgress = updateTransfersInProgress;
 			activity.mShowWarnAbortDialog = showWarnAbortDialog;
 			activity.mLastUpdateTime = lastUpdateTime;
 			activity.mPrevClientId = prevClientId;
@@ -318,6 +312,10 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 		getApplicationContext().unbindService(mServiceConnection);
 	}
 
+	public TransfersActivity() {
+		super(AutoRefresh.TRANSFERS);
+	}
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
@@ -350,9 +348,9 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 		mScreenOrientation.setOrientation();
 		mRequestUpdates = true;
 		
-		if (Logging.DEBUG) Log.d(TAG, "onUpdaTransfersprogress:"+mUpdateTransfersInProgress);
+		if (Logging.DEBUG) Log.d(TAG, "onUpdaTransfersprogress:"+mUpdateInProgress);
 		if (mConnectedClient != null) {
-			if (mUpdateTransfersInProgress) {
+			if (mUpdateInProgress) {
 				ArrayList<TransferInfo> transfers = (ArrayList<TransferInfo>)mConnectionManager
 						.getPendingOutput(BoincOp.UpdateTransfers);
 				if (transfers != null) // if already updated
@@ -648,9 +646,9 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 			if (Logging.DEBUG) Log.d(TAG, "Client is connected");
 			if (mRequestUpdates) {
 				// Request fresh data
-				if (!mUpdateTransfersInProgress && !mAfterRecreating) {
+				if (!mUpdateInProgress && !mAfterRecreating) {
 					if (Logging.DEBUG) Log.d(TAG, "do update transfers");
-					mUpdateTransfersInProgress = true;
+					mUpdateInProgress = true;
 					mConnectionManager.updateTransfers();
 				} else {
 					if (Logging.DEBUG) Log.d(TAG, "do add to scheduled updates");
@@ -674,7 +672,8 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 		if (Logging.DEBUG) Log.d(TAG, "Client is disconnected");
 		mPrevClientId = mConnectedClient;
 		mConnectedClient = null;
-		mUpdateTransfersInProgress = false;
+		mUpdateInProgress = false;
+		hideStaleData();
 		mTransfers.clear();
 		updateSelectedTransfers();
 		((BaseAdapter)getListAdapter()).notifyDataSetChanged();
@@ -687,7 +686,7 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 		if (!boincOp.equals(BoincOp.UpdateTransfers))
 			return false;
 		// do not consume
-		mUpdateTransfersInProgress = false;
+		mUpdateInProgress = false;
 		mAfterRecreating = false;
 		return false;
 	}
@@ -695,8 +694,7 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 	@Override
 	public boolean updatedTransfers(ArrayList<TransferInfo> transfers) {
 		mPendingTransfers = transfers;
-		mUpdateTransfersInProgress = false;
-		mLastUpdateTime = SystemClock.elapsedRealtime();
+		updateFinished();
 		
 		sortTransfers();
 		updateSelectedTransfers();
@@ -741,10 +739,4 @@ public class TransfersActivity extends ListActivity implements ClientUpdateTrans
 	@Override
 	public void onClientIsWorking(boolean isWorking) {
 	}
-	
-	@Override
-	public void onStartAutoRefresh(int requestType) {
-		if (requestType == AutoRefresh.TRANSFERS) // in progress
-			mUpdateTransfersInProgress = true;
-	}
 }
@@ -22,6 +22,7 @@ package sk.boinc.nativeboinc.bridge;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.TreeSet;
 
 import sk.boinc.nativeboinc.clientconnection.AutoRefreshListener;
 import sk.boinc.nativeboinc.clientconnection.ClientReceiver;
@@ -35,6 +36,7 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.util.Log;
 
@@ -53,9 +55,37 @@ public class AutoRefresh implements OnSharedPreferenceChangeListener {
 
 	private final static int NO_CONNECTIVITY = -1;
 
+	/*
+	 * adaptive mode: period is doubled after each unchanged reply (up to MAX_BACKOFF_SHIFT
+	 * doublings and MAX_ADAPTIVE_PERIOD), and it is reset to base period after change,
+	 * user action or client event
+	 */
+	private final static int MAX_BACKOFF_SHIFT = 3;
+	private final static int MAX_ADAPTIVE_PERIOD = 120000; // in milliseconds
+	/* minimal periods (in milliseconds) in adaptive mode, indexed by request type */
+	private final static int[] MIN_ADAPTIVE_PERIODS = {
+		0,		// unused
+		0,		// CLIENT_MODE
+		10000,	// PROJECTS
+		0,		// TASKS
+		0,		// TRANSFERS
+		0,		// MESSAGES
+		30000	// NOTICES
+	};
+
+	/*
+	 * event-driven mode (localhost with working client monitor): changes are announced
+	 * by client events, which trigger refresh of affected data, so periodic refresh
+	 * is stretched (up to MAX_ADAPTIVE_PERIOD)
+	 */
+	private final static int EVENT_DRIVEN_STRETCH = 3;
+	/* delay (in milliseconds) of the refresh triggered by event, joins close events */
+	private final static int EVENT_REFRESH_DELAY = 300;
+
 	private class UpdateRequest {
 		public final ClientReceiver callback;
 		public final int requestType;
+		public long dueTime = 0; // uptime of the scheduled update
 
 		public UpdateRequest(final ClientReceiver callback, final int requestType) {
 			this.callback = callback;
@@ -78,55 +108,57 @@ public class AutoRefresh implements OnSharedPreferenceChangeListener {
 		}
 	}
 
+	/*
+	 * updates are grouped into ticks: update is aligned to existing tick, if tick is
+	 * close to its due time (within quarter of the period). All updates of the tick
+	 * are executed in one refresh cycle.
+	 */
 	Handler mHandler = new Handler() {
 		@Override
 		public void handleMessage(Message msg) {
 			if (mClientRequests == null) return;
-			UpdateRequest request = (UpdateRequest)msg.obj;
+			Long tick = (Long)msg.obj;
+			mTicks.remove(tick);
 			
-			if (mScheduledUpdates.remove(request)) {
-				// So far so good, update was still scheduled
+			int refreshMask = 0;
+			UpdateRequest[] list = mScheduledUpdates.toArray(new UpdateRequest[0]);
+			for (UpdateRequest request: list) {
+				if (request.dueTime != tick.longValue())
+					continue; // belongs to other tick
+				
+				mScheduledUpdates.remove(request);
+				if (request.requestType <= 0 || request.requestType > NOTICES) {
+					if (Logging.ERROR) Log.e(TAG, "Unhandled request type: " + request.requestType);
+					continue;
+				}
 				if (Logging.DEBUG) Log.d(TAG, "triggering automatic update (" + request.callback.toString() + "," + request.requestType + ")");
 				
 				if (request.callback instanceof AutoRefreshListener) // send notify about starting refresh
 					((AutoRefreshListener)request.callback).onStartAutoRefresh(request.requestType);
-				
-				// We run required update
-				switch (request.requestType) {
-				case CLIENT_MODE:
-					mClientRequests.updateClientMode();
-					break;
-				case PROJECTS:
-					mClientRequests.updateProjects();
-					break;
-				case TASKS:
-					mClientRequests.updateTasks();
-					break;
-				case TRANSFERS:
-					mClientRequests.updateTransfers();
-					break;
-				case MESSAGES:
-					mClientRequests.updateMessages();
-					break;
-				case NOTICES:
-					mClientRequests.updateNotices();
-					break;
-				default:
-					if (Logging.ERROR) Log.e(TAG, "Unhandled request type: " + request.requestType);
-				}
+				refreshMask |= 1<<request.requestType;
 			}
-			else {
-				// Request removed meanwhile, but message was not removed
-				if (Logging.WARNING) Log.w(TAG, "Orphaned message received - update already removed: (" + request.callback.toString() + "," + request.requestType + ")");
+			
+			if (refreshMask != 0) {
+				// We run required updates in one cycle
+				mClientRequests.updateRefreshCycle(refreshMask);
+			} else {
+				// Requests removed meanwhile, but message was not removed
+				if (Logging.DEBUG) Log.d(TAG, "Tick without scheduled updates: " + tick);
 			}
 		}
 	};
 
 	private ClientRequestHandler mClientRequests;
 	private Set<UpdateRequest> mScheduledUpdates = new HashSet<UpdateRequest>();
+	// uptimes of the pending ticks
+	private TreeSet<Long> mTicks = new TreeSet<Long>();
 	private int mConnectionType = ConnectivityManager.TYPE_MOBILE;
 	private int mAutoRefresh = 0;
 	private boolean mConnectedWithLocalhost = false;
+	private boolean mAdaptive = true;
+	// number of consecutive unchanged replies, indexed by request type
+	private int[] mUnchangedCounts = new int[NOTICES+1];
+	private boolean mEventDriven = false;
 
 	public AutoRefresh(final Context context, final ClientRequestHandler clientRequests, boolean localhost) {
 		mClientRequests = clientRequests;
@@ -136,6 +168,7 @@ public class AutoRefresh implements OnSharedPreferenceChangeListener {
 		final NetworkInfo ni = (cm == null) ? null : cm.getActiveNetworkInfo();
 		mConnectionType = (ni == null) ? NO_CONNECTIVITY : ni.getType();
 		mConnectedWithLocalhost = localhost;
+		mAdaptive = globalPrefs.getBoolean(PreferenceName.AUTO_UPDATE_ADAPTIVE, true);
 		
 		if (mConnectedWithLocalhost) {
 			// if native client
@@ -172,10 +205,11 @@ public class AutoRefresh implements OnSharedPreferenceChangeListener {
 		while (it.hasNext()) {
 			// Found pending auto-update; remove its schedule now
 			UpdateRequest req = it.next();
-			mHandler.removeMessages(RUN_UPDATE, req);
 			if (Logging.DEBUG) Log.d(TAG, "cleanup(): Removed schedule for entry (" + req.callback.toString() + "," + req.requestType + ")");
 		}
+		mHandler.removeMessages(RUN_UPDATE);
 		mScheduledUpdates.clear();
+		mTicks.clear();
 		mClientRequests = null;
 	}
 
@@ -193,6 +227,12 @@ public class AutoRefresh implements OnSharedPreferenceChangeListener {
 			mAutoRefresh = Integer.parseInt(sharedPreferences.getString(PreferenceName.AUTO_UPDATE_LOCALHOST, "0"));
 			if (Logging.DEBUG) Log.d(TAG, "Auto-refresh interval for Localhost changed to: " + mAutoRefresh + " seconds");
 		}
+		else if (key.equals(PreferenceName.AUTO_UPDATE_ADAPTIVE)) {
+			mAdaptive = sharedPreferences.getBoolean(PreferenceName.AUTO_UPDATE_ADAPTIVE, true);
+			if (Logging.DEBUG) Log.d(TAG, "Adaptive auto-refresh changed to: " + mAdaptive);
+			if (!mAdaptive)
+				resetBackoff();
+		}
 	}
 
 	public void scheduleAutomaticRefresh(final ClientReceiver callback, final int requestType, final int period) {
@@ -204,19 +244,146 @@ public class AutoRefresh implements OnSharedPreferenceChangeListener {
 		}
 		mScheduledUpdates.add(request);
 		
-		int autoRefresh = (period != -1) ? period : (mAutoRefresh*1000);
-		mHandler.sendMessageDelayed(mHandler.obtainMessage(RUN_UPDATE, request), autoRefresh);
-		if (Logging.DEBUG) Log.d(TAG, "Scheduled automatic refresh for (" + request.callback.toString() + "," + request.requestType + ")");
+		int autoRefresh = (period != -1) ? period : getRefreshPeriod(requestType);
+		scheduleAtTick(request, SystemClock.uptimeMillis() + autoRefresh, autoRefresh / 4);
+		if (Logging.DEBUG) Log.d(TAG, "Scheduled automatic refresh for (" + request.callback.toString() + "," +
+				request.requestType + ") after " + autoRefresh + " ms");
+	}
+	
+	/* assigns request to the nearest tick around dueTime (within window) or to new tick */
+	private void scheduleAtTick(UpdateRequest request, long dueTime, int window) {
+		Long tick = null;
+		Long before = mTicks.floor(dueTime);
+		Long after = mTicks.ceiling(dueTime);
+		if (before != null && dueTime - before.longValue() <= window)
+			tick = before;
+		if (after != null && after.longValue() - dueTime <= window &&
+				(tick == null || after.longValue() - dueTime < dueTime - tick.longValue()))
+			tick = after;
+		
+		if (tick == null) {
+			// create new tick
+			tick = Long.valueOf(dueTime);
+			mTicks.add(tick);
+			mHandler.sendMessageAtTime(mHandler.obtainMessage(RUN_UPDATE, tick), dueTime);
+		} else if (Logging.DEBUG)
+			Log.d(TAG, "Aligned automatic refresh (" + request.callback.toString() + "," +
+					request.requestType + ") to tick " + tick);
+		request.dueTime = tick.longValue();
+	}
+	
+	/**
+	 * Notifies that reply of the update brought changed data
+	 * @param requestType request type
+	 */
+	public void onDataChanged(final int requestType) {
+		if (requestType <= 0 || requestType > NOTICES) return;
+		mUnchangedCounts[requestType] = 0;
+	}
+	
+	/**
+	 * Notifies that reply of the update brought same data as previous
+	 * @param requestType request type
+	 */
+	public void onDataUnchanged(final int requestType) {
+		if (requestType <= 0 || requestType > NOTICES) return;
+		if (mUnchangedCounts[requestType] < MAX_BACKOFF_SHIFT)
+			mUnchangedCounts[requestType]++;
+	}
+	
+	/**
+	 * Resets backoff for all request types (after user action or client event)
+	 * and brings forward already scheduled updates
+	 */
+	public void resetBackoff() {
+		boolean haveBackoff = false;
+		for (int i = 0; i < mUnchangedCounts.length; i++)
+			if (mUnchangedCounts[i] != 0) {
+				haveBackoff = true;
+				mUnchangedCounts[i] = 0;
+			}
+		if (!haveBackoff)
+			return;
+		
+		if (Logging.DEBUG) Log.d(TAG, "Reset backoff of automatic refresh");
+		bringForwardUpdates();
+	}
+	
+	/**
+	 * Enables event-driven mode, when client events announce changes of the client
+	 * @param eventDriven true if client events are delivered
+	 */
+	public void setEventDriven(boolean eventDriven) {
+		if (mEventDriven == eventDriven)
+			return;
+		if (Logging.DEBUG) Log.d(TAG, "Event-driven automatic refresh: " + eventDriven);
+		mEventDriven = eventDriven;
+		if (!eventDriven)
+			bringForwardUpdates(); // polling must catch all changes again
+	}
+	
+	/**
+	 * Refreshes data of the request types immediately (after client event),
+	 * backoff of these types is reset
+	 * @param refreshMask mask of the request types (1<<requestType)
+	 */
+	public void refreshNow(final int refreshMask) {
+		if (mAutoRefresh == 0)
+			return;
+		for (int i = 0; i < mUnchangedCounts.length; i++)
+			if ((refreshMask & (1<<i)) != 0)
+				mUnchangedCounts[i] = 0;
+		
+		long dueTime = SystemClock.uptimeMillis() + EVENT_REFRESH_DELAY;
+		UpdateRequest[] list = mScheduledUpdates.toArray(new UpdateRequest[0]);
+		for (UpdateRequest req: list) {
+			if ((refreshMask & (1<<req.requestType)) == 0 || req.dueTime <= dueTime)
+				continue;
+			if (Logging.DEBUG) Log.d(TAG, "Refresh after client event (" + req.callback.toString() + "," +
+					req.requestType + ")");
+			long oldTick = req.dueTime;
+			scheduleAtTick(req, dueTime, EVENT_REFRESH_DELAY);
+			releaseTick(oldTick);
+		}
+	}
+	
+	/* reschedules updates, which are scheduled after their current period */
+	private void bringForwardUpdates() {
+		if (mAutoRefresh == 0)
+			return;
+		long now = SystemClock.uptimeMillis();
+		UpdateRequest[] list = mScheduledUpdates.toArray(new UpdateRequest[0]);
+		for (UpdateRequest req: list) {
+			int period = getRefreshPeriod(req.requestType);
+			if (req.dueTime > now + period) {
+				// reschedule with current period
+				long oldTick = req.dueTime;
+				scheduleAtTick(req, now + period, period / 4);
+				releaseTick(oldTick);
+			}
+		}
+	}
+	
+	/* returns period (in milliseconds) for request type */
+	private int getRefreshPeriod(final int requestType) {
+		int period = mAutoRefresh*1000;
+		if (mEventDriven)
+			period = Math.max(period, Math.min(period*EVENT_DRIVEN_STRETCH, MAX_ADAPTIVE_PERIOD));
+		if (!mAdaptive || requestType <= 0 || requestType > NOTICES)
+			return period;
+		
+		int backoffPeriod = period << mUnchangedCounts[requestType];
+		if (backoffPeriod > period) // do not exceed maximal period
+			backoffPeriod = Math.max(period, Math.min(backoffPeriod, MAX_ADAPTIVE_PERIOD));
+		return Math.max(backoffPeriod, MIN_ADAPTIVE_PERIODS[requestType]);
 	}
 
 	public void unscheduleAutomaticRefresh(final ClientReceiver callback) {
-		Iterator<UpdateRequest> it = mScheduledUpdates.iterator();
-		while (it.hasNext()) {
+		UpdateRequest[] list = mScheduledUpdates.toArray(new UpdateRequest[0]);
+		for (UpdateRequest req: list) {
 			// Found pending auto-update; remove its schedule now
-			UpdateRequest req = it.next();
 			if (req.callback == callback) {
-				mHandler.removeMessages(RUN_UPDATE, req);
-				mScheduledUpdates.remove(req);
+				removeRequest(req);
 				if (Logging.DEBUG) Log.d(TAG, "unscheduleAutomaticRefresh(): Removed schedule for entry (" + req.callback.toString() + "," + req.requestType + ")");
 			}
 		}
@@ -227,8 +394,7 @@ public class AutoRefresh implements OnSharedPreferenceChangeListener {
 		for (UpdateRequest req: list) {
 			// Found pending auto-update; remove its schedule now
 			if (req.requestType == refreshType) {
-				mHandler.removeMessages(RUN_UPDATE, req);
-				mScheduledUpdates.remove(req);
+				removeRequest(req);
 				if (Logging.DEBUG) Log.d(TAG, "unscheduleAutomaticRefresh(): Removed schedule for entry (" + req.callback.toString() + "," + req.requestType + ")");
 			}
 		}
@@ -237,20 +403,33 @@ public class AutoRefresh implements OnSharedPreferenceChangeListener {
 
 	private void removeAutomaticRefresh(UpdateRequest request) {
 		UpdateRequest[] list = mScheduledUpdates.toArray(new UpdateRequest[0]);
-		if (Logging.DEBUG) Log.d(TAG, "mHandler.hasMessages(RUN_UPDATE)=" + mHandler.hasMessages(RUN_UPDATE));
-		if (Logging.DEBUG) Log.d(TAG, "mHandler.hasMessages(RUN_UPDATE, request)=" + mHandler.hasMessages(RUN_UPDATE, request));
 		for (UpdateRequest req: list) {
 			if (req.equals(request)) {
-				// The same request - retrieve the original object, as it was the one
-				// which was used for posting the delayed message
-				if (Logging.DEBUG) Log.d(TAG, "mHandler.hasMessages(RUN_UPDATE, req)=" + mHandler.hasMessages(RUN_UPDATE, req));
-				mHandler.removeMessages(RUN_UPDATE, req);
-				mScheduledUpdates.remove(req);
+				// The same request - retrieve the original object, as it holds the tick
+				removeRequest(req);
 				break;
 			}
 		}
 	}
 	
+	private void removeRequest(UpdateRequest request) {
+		mScheduledUpdates.remove(request);
+		releaseTick(request.dueTime);
+	}
+	
+	/* removes tick, if no request is assigned to it */
+	private void releaseTick(long tickTime) {
+		for (UpdateRequest req: mScheduledUpdates)
+			if (req.dueTime == tickTime)
+				return;
+		Long tick = mTicks.floor(tickTime);
+		if (tick != null && tick.longValue() == tickTime) {
+			// the same object was used for posting the message
+			mHandler.removeMessages(RUN_UPDATE, tick);
+			mTicks.remove(tick);
+		}
+	}
+	
 	/**
 	 * returns auto refresh period time
 	 */
@@ -29,7 +29,10 @@ import edu.berkeley.boinc.lite.GlobalPreferences;
 import edu.berkeley.boinc.lite.ProjectConfig;
 import edu.berkeley.boinc.lite.ProjectListEntry;
 import edu.berkeley.boinc.lite.ProxyInfo;
+import edu.berkeley.boinc.nativeboinc.ClientEvent;
 
+import sk.boinc.nativeboinc.BoincManagerApplication;
+import sk.boinc.nativeboinc.clientconnection.AutoRefreshListener;
 import sk.boinc.nativeboinc.clientconnection.BoincOp;
 import sk.boinc.nativeboinc.clientconnection.ClientAllProjectsListReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientAccountMgrReceiver;
@@ -41,9 +44,11 @@ import sk.boinc.nativeboinc.clientconnection.ClientProxyReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientManageReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientRequestHandler;
+import sk.boinc.nativeboinc.clientconnection.ClientSnapshotReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientUpdateMessagesReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientUpdateNoticesReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientUpdateProjectsReceiver;
+import sk.boinc.nativeboinc.clientconnection.ClientUpdateTasksDeltaReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientUpdateTasksReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientUpdateTransfersReceiver;
 import sk.boinc.nativeboinc.clientconnection.HostInfo;
@@ -55,11 +60,14 @@ import sk.boinc.nativeboinc.clientconnection.PollOp;
 import sk.boinc.nativeboinc.clientconnection.ProjectInfo;
 import sk.boinc.nativeboinc.clientconnection.TaskDescriptor;
 import sk.boinc.nativeboinc.clientconnection.TaskInfo;
+import sk.boinc.nativeboinc.clientconnection.TasksChanges;
 import sk.boinc.nativeboinc.clientconnection.TransferDescriptor;
 import sk.boinc.nativeboinc.clientconnection.TransferInfo;
 import sk.boinc.nativeboinc.clientconnection.VersionInfo;
 import sk.boinc.nativeboinc.debug.Logging;
 import sk.boinc.nativeboinc.debug.NetStats;
+import sk.boinc.nativeboinc.nativeclient.MonitorListener;
+import sk.boinc.nativeboinc.nativeclient.NativeBoincService;
 import sk.boinc.nativeboinc.util.ClientId;
 import sk.boinc.nativeboinc.util.PendingController;
 import sk.boinc.nativeboinc.util.PendingErrorHandler;
@@ -87,6 +95,12 @@ public class ClientBridge implements ClientRequestHandler {
 		
 	public class ReplyHandler extends Handler {
 		private static final String TAG = "ClientBridge.ReplyHandler";
+		
+		// previous replies, for detecting changes (adaptive auto-refresh)
+		private ModeInfo mLastModeInfo = null;
+		private int mLastNoticesCount = -1;
+		// replies of dropped (redundant) updates are being published
+		private boolean mRepublishing = false;
 
 		public void disconnecting() {
 			// The worker thread started disconnecting
@@ -97,6 +111,7 @@ public class ClientBridge implements ClientRequestHandler {
 			if (Logging.DEBUG) Log.d(TAG, "disconnecting(), stopping ClientBridgeWorkerThread");
 			mWorker.stopThread(null);
 			// Clean up periodic updater as well, because no more periodic updates will be needed
+			unregisterMonitorListener();
 			mAutoRefresh.cleanup();
 			mAutoRefresh = null;
 		}
@@ -222,6 +237,13 @@ public class ClientBridge implements ClientRequestHandler {
 		public void updatedClientMode(final ModeInfo modeInfo) {
 			mClientPendingController.finishWithOutput(BoincOp.UpdateClientMode, modeInfo);
 			
+			boolean changed = (mLastModeInfo == null || modeInfo == null ||
+					mLastModeInfo.task_mode != modeInfo.task_mode ||
+					mLastModeInfo.network_mode != modeInfo.network_mode ||
+					mLastModeInfo.gpu_mode != modeInfo.gpu_mode);
+			mLastModeInfo = modeInfo;
+			notifyDataChanged(AutoRefresh.CLIENT_MODE, changed);
+			
 			ClientReceiver[] observers = null;
 			synchronized(ClientBridge.this) {
 				observers = mObservers.toArray(new ClientReceiver[0]);
@@ -397,6 +419,7 @@ public class ClientBridge implements ClientRequestHandler {
 
 		public void updatedProjects(final ArrayList <ProjectInfo> projects) {
 			mClientPendingController.finishWithOutput(BoincOp.UpdateProjects, projects);
+			notifyDataChanged(AutoRefresh.PROJECTS, true);
 			
 			ClientReceiver[] observers = null;
 			synchronized(ClientBridge.this) {
@@ -413,8 +436,9 @@ public class ClientBridge implements ClientRequestHandler {
 			}
 		}
 
-		public void updatedTasks(final ArrayList <TaskInfo> tasks) {
+		public void updatedTasks(final ArrayList <TaskInfo> tasks, final TasksChanges changes) {
 			mClientPendingController.finishWithOutput(BoincOp.UpdateTasks, tasks);
+			notifyDataChanged(AutoRefresh.TASKS, true);
 			
 			ClientReceiver[] observers = null;
 			synchronized(ClientBridge.this) {
@@ -424,7 +448,11 @@ public class ClientBridge implements ClientRequestHandler {
 				if (observer instanceof ClientUpdateTasksReceiver) {
 					ClientUpdateTasksReceiver callback = (ClientUpdateTasksReceiver)observer;
 					
-					boolean periodicAllowed = callback.updatedTasks(tasks);
+					boolean periodicAllowed;
+					if (callback instanceof ClientUpdateTasksDeltaReceiver)
+						periodicAllowed = ((ClientUpdateTasksDeltaReceiver)callback).updatedTasks(tasks, changes);
+					else
+						periodicAllowed = callback.updatedTasks(tasks);
 					if (periodicAllowed)
 						mAutoRefresh.scheduleAutomaticRefresh(callback, AutoRefresh.TASKS, -1);
 				}
@@ -433,6 +461,7 @@ public class ClientBridge implements ClientRequestHandler {
 
 		public void updatedTransfers(final ArrayList <TransferInfo> transfers) {
 			mClientPendingController.finishWithOutput(BoincOp.UpdateTransfers, transfers);
+			notifyDataChanged(AutoRefresh.TRANSFERS, true);
 			
 			ClientReceiver[] observers = null;
 			synchronized(ClientBridge.this) {
@@ -449,8 +478,111 @@ public class ClientBridge implements ClientRequestHandler {
 			}
 		}
 
+		/*
+		 * unchangedXXX: reply was the same as previous, hence data were not rebuilt.
+		 * Auto-refresh listeners are only notified, other receivers get previous data
+		 */
+		/* last known data are published, but no refresh is scheduled (not connected yet) */
+		public void restoredSnapshot(final ClientSnapshot snapshot) {
+			ClientReceiver[] observers = null;
+			synchronized(ClientBridge.this) {
+				observers = mObservers.toArray(new ClientReceiver[0]);
+			}
+			for (ClientReceiver observer: observers) {
+				if (observer instanceof ClientUpdateProjectsReceiver) {
+					((ClientUpdateProjectsReceiver)observer).updatedProjects(snapshot.projects);
+					if (observer instanceof ClientSnapshotReceiver)
+						((ClientSnapshotReceiver)observer).restoredSnapshot(AutoRefresh.PROJECTS,
+								snapshot.savedTime);
+				}
+				if (observer instanceof ClientUpdateTasksReceiver) {
+					((ClientUpdateTasksReceiver)observer).updatedTasks(snapshot.tasks);
+					if (observer instanceof ClientSnapshotReceiver)
+						((ClientSnapshotReceiver)observer).restoredSnapshot(AutoRefresh.TASKS,
+								snapshot.savedTime);
+				}
+				if (observer instanceof ClientUpdateTransfersReceiver) {
+					((ClientUpdateTransfersReceiver)observer).updatedTransfers(snapshot.transfers);
+					if (observer instanceof ClientSnapshotReceiver)
+						((ClientSnapshotReceiver)observer).restoredSnapshot(AutoRefresh.TRANSFERS,
+								snapshot.savedTime);
+				}
+			}
+		}
+		
+		public void unchangedProjects(final ArrayList <ProjectInfo> projects) {
+			mClientPendingController.finishWithOutput(BoincOp.UpdateProjects, projects);
+			notifyDataChanged(AutoRefresh.PROJECTS, false);
+			
+			ClientReceiver[] observers = null;
+			synchronized(ClientBridge.this) {
+				observers = mObservers.toArray(new ClientReceiver[0]);
+			}
+			for (ClientReceiver observer: observers) {
+				if (observer instanceof ClientUpdateProjectsReceiver) {
+					ClientUpdateProjectsReceiver callback = (ClientUpdateProjectsReceiver)observer;
+					
+					boolean periodicAllowed;
+					if (callback instanceof AutoRefreshListener)
+						periodicAllowed = ((AutoRefreshListener)callback).onUnchangedRefresh(AutoRefresh.PROJECTS);
+					else
+						periodicAllowed = callback.updatedProjects(projects);
+					if (periodicAllowed)
+						mAutoRefresh.scheduleAutomaticRefresh(callback, AutoRefresh.PROJECTS, -1);
+				}
+			}
+		}
+
+		public void unchangedTasks(final ArrayList <TaskInfo> tasks) {
+			mClientPendingController.finishWithOutput(BoincOp.UpdateTasks, tasks);
+			notifyDataChanged(AutoRefresh.TASKS, false);
+			
+			ClientReceiver[] observers = null;
+			synchronized(ClientBridge.this) {
+				observers = mObservers.toArray(new ClientReceiver[0]);
+			}
+			for (ClientReceiver observer: observers) {
+				if (observer instanceof ClientUpdateTasksReceiver) {
+					ClientUpdateTasksReceiver callback = (ClientUpdateTasksReceiver)observer;
+					
+					boolean periodicAllowed;
+					if (callback instanceof AutoRefreshListener)
+						periodicAllowed = ((AutoRefreshListener)callback).onUnchangedRefresh(AutoRefresh.TASKS);
+					else
+						periodicAllowed = callback.updatedTasks(tasks);
+					if (periodicAllowed)
+						mAutoRefresh.scheduleAutomaticRefresh(callback, AutoRefresh.TASKS, -1);
+				}
+			}
+		}
+
+		public void unchangedTransfers(final ArrayList <TransferInfo> transfers) {
+			mClientPendingController.finishWithOutput(BoincOp.UpdateTransfers, transfers);
+			notifyDataChanged(AutoRefresh.TRANSFERS, false);
+			
+			ClientReceiver[] observers = null;
+			synchronized(ClientBridge.this) {
+				observers = mObservers.toArray(new ClientReceiver[0]);
+			}
+			for (ClientReceiver observer: observers) {
+				if (observer instanceof ClientUpdateTransfersReceiver) {
+					ClientUpdateTransfersReceiver callback = (ClientUpdateTransfersReceiver)observer;
+					
+					boolean periodicAllowed;
+					if (callback instanceof AutoRefreshListener)
+						periodicAllowed = ((AutoRefreshListener)callback).onUnchangedRefresh(AutoRefresh.TRANSFERS);
+					else
+						periodicAllowed = callback.updatedTransfers(transfers);
+					if (periodicAllowed)
+						mAutoRefresh.scheduleAutomaticRefresh(callback, AutoRefresh.TRANSFERS, -1);
+				}
+			}
+		}
+
 		public void updatedMessages(final ArrayList <MessageInfo> messages) {
 			mClientPendingController.finishWithOutput(BoincOp.UpdateMessages, messages);
+			// only new messages are published
+			notifyDataChanged(AutoRefresh.MESSAGES, messages != null && !messages.isEmpty());
 			
 			ClientReceiver[] observers = null;
 			synchronized(ClientBridge.this) {
@@ -470,6 +602,10 @@ public class ClientBridge implements ClientRequestHandler {
 		public void updatedNotices(final ArrayList <NoticeInfo> notices) {
 			mClientPendingController.finishWithOutput(BoincOp.UpdateNotices, notices);
 			
+			int noticesCount = (notices != null) ? notices.size() : -1;
+			notifyDataChanged(AutoRefresh.NOTICES, noticesCount != mLastNoticesCount);
+			mLastNoticesCount = noticesCount;
+			
 			ClientReceiver[] observers = null;
 			synchronized(ClientBridge.this) {
 				observers = mObservers.toArray(new ClientReceiver[0]);
@@ -485,6 +621,29 @@ public class ClientBridge implements ClientRequestHandler {
 			}
 		}
 		
+		/*
+		 * publishes current data instead of dropped updates. They were not retrieved again,
+		 * so they are not observations of the unchanged client data (backoff is not changed)
+		 */
+		public void republishedUpdates(final ArrayList<Runnable> replies) {
+			mRepublishing = true;
+			try {
+				for (Runnable reply: replies)
+					reply.run();
+			} finally {
+				mRepublishing = false;
+			}
+		}
+		
+		private void notifyDataChanged(int requestType, boolean changed) {
+			if (mAutoRefresh == null) return; // disconnecting
+			if (mRepublishing) return; // data were not retrieved
+			if (changed)
+				mAutoRefresh.onDataChanged(requestType);
+			else
+				mAutoRefresh.onDataUnchanged(requestType);
+		}
+		
 		public void onChangeIsWorking(boolean isWorking) {
 			ClientReceiver[] observers = null;
 			synchronized(ClientBridge.this) {
@@ -549,6 +708,62 @@ public class ClientBridge implements ClientRequestHandler {
 	private VersionInfo mRemoteClientVersion = null;
 
 	protected AutoRefresh mAutoRefresh = null;
+	
+	/* runner, whose client monitor delivers events (localhost only) */
+	private NativeBoincService mMonitorRunner = null;
+	
+	/*
+	 * client events announce changes of the native client, so affected data are
+	 * refreshed immediately and periodic refresh is stretched
+	 */
+	private MonitorListener mMonitorListener = new MonitorListener() {
+		// cpu throttle suspends and runs tasks continuously, these events are skipped
+		private boolean mThrottleSuspended = false;
+		
+		@Override
+		public void onMonitorEvent(ClientEvent event) {
+			if (mAutoRefresh == null)
+				return; // disconnecting
+			int refreshMask = 0;
+			switch (event.type) {
+			case ClientEvent.EVENT_SUSPEND_ALL_TASKS:
+				mThrottleSuspended = (event.suspendReason == ClientEvent.SUSPEND_REASON_CPU_THROTTLE);
+				if (!mThrottleSuspended)
+					refreshMask = (1<<AutoRefresh.TASKS) | (1<<AutoRefresh.CLIENT_MODE);
+				break;
+			case ClientEvent.EVENT_RUN_TASKS:
+				if (!mThrottleSuspended)
+					refreshMask = (1<<AutoRefresh.TASKS) | (1<<AutoRefresh.CLIENT_MODE);
+				mThrottleSuspended = false;
+				break;
+			case ClientEvent.EVENT_ATTACHED_PROJECT:
+			case ClientEvent.EVENT_DETACHED_PROJECT:
+				refreshMask = (1<<AutoRefresh.PROJECTS) | (1<<AutoRefresh.TASKS);
+				break;
+			case ClientEvent.EVENT_START_DOWNLOAD:
+				refreshMask = (1<<AutoRefresh.TRANSFERS);
+				break;
+			case ClientEvent.EVENT_FINISH_DOWNLOAD:
+				refreshMask = (1<<AutoRefresh.TRANSFERS) | (1<<AutoRefresh.TASKS);
+				break;
+			case ClientEvent.EVENT_RUN_BENCHMARK:
+			case ClientEvent.EVENT_FINISH_BENCHMARK:
+				refreshMask = (1<<AutoRefresh.TASKS);
+				break;
+			}
+			if (Logging.DEBUG) Log.d(TAG, "Client event " + event.type + ", refreshing: " + refreshMask);
+			mAutoRefresh.setEventDriven(true);
+			if (refreshMask != 0)
+				mAutoRefresh.refreshNow(refreshMask);
+		}
+		
+		@Override
+		public void onMonitorDoesntWork() {
+			// changes are not announced, plain polling
+			if (mAutoRefresh != null)
+				mAutoRefresh.setEventDriven(false);
+		}
+	};
 
 	public ClientBridge() {
 	}
@@ -560,20 +775,62 @@ public class ClientBridge implements ClientRequestHandler {
 	 */
 	public ClientBridge(ClientBridgeCallback callback, NetStats netStats, boolean localhost)
 			throws RuntimeException {
+		this(callback, netStats, localhost, false);
+	}
+	
+	/**
+	 * Constructs a new <code>ClientBridge</code> and starts worker thread
+	 * 
+	 * @param sharedWorker if true, bridge uses worker thread shared with other bridges
+	 * (for many monitored hosts), its RPC I/O is done by selector thread
+	 * @throws RuntimeException if worker thread cannot start in a timely fashion
+	 */
+	public ClientBridge(ClientBridgeCallback callback, NetStats netStats, boolean localhost,
+			boolean sharedWorker) throws RuntimeException {
 		mCallback = callback;
-		if (Logging.DEBUG) Log.d(TAG, "Starting ClientBridgeWorkerThread");
-		ConditionVariable lock = new ConditionVariable(false);
 		Context context = (Context)callback;
 		mAutoRefresh = new AutoRefresh(context, this, localhost);
-		mWorker = new ClientBridgeWorkerThread(lock, mReplyHandler, context, netStats);
-		mWorker.start();
-		boolean runningOk = lock.block(2000); // Locking until new thread fully runs
-		if (!runningOk) {
-			// Too long time waiting for worker thread to be on-line - cancel it
-			if (Logging.ERROR) Log.e(TAG, "ClientBridgeWorkerThread did not start in 1 second");
-			throw new RuntimeException("Worker thread cannot start");
+		if (sharedWorker) {
+			if (Logging.DEBUG) Log.d(TAG, "Using shared worker thread");
+			mWorker = new ClientBridgeWorkerThread(mReplyHandler, context, netStats,
+					SharedWorkerThread.acquire());
+		} else {
+			if (Logging.DEBUG) Log.d(TAG, "Starting ClientBridgeWorkerThread");
+			ConditionVariable lock = new ConditionVariable(false);
+			mWorker = new ClientBridgeWorkerThread(lock, mReplyHandler, context, netStats);
+			mWorker.start();
+			boolean runningOk = lock.block(2000); // Locking until new thread fully runs
+			if (!runningOk) {
+				// Too long time waiting for worker thread to be on-line - cancel it
+				if (Logging.ERROR) Log.e(TAG, "ClientBridgeWorkerThread did not start in 1 second");
+				throw new RuntimeException("Worker thread cannot start");
+			}
+			if (Logging.DEBUG) Log.d(TAG, "ClientClientBridgeWorkerThread started successfully");
 		}
-		if (Logging.DEBUG) Log.d(TAG, "ClientClientBridgeWorkerThread started successfully");
+		if (localhost)
+			registerMonitorListener(context);
+	}
+	
+	private void registerMonitorListener(Context context) {
+		BoincManagerApplication app = (BoincManagerApplication)context.getApplicationContext();
+		mMonitorRunner = app.getRunnerService();
+		if (mMonitorRunner == null)
+			return; // runner not bound, only polling
+		mMonitorRunner.addMonitorListener(mMonitorListener);
+		mAutoRefresh.setEventDriven(mMonitorRunner.isMonitorWorks());
+	}
+	
+	private void unregisterMonitorListener() {
+		if (mMonitorRunner == null)
+			return;
+		mMonitorRunner.removeMonitorListener(mMonitorListener);
+		mMonitorRunner = null;
+	}
+	
+	/* user action is expected to change client state: refresh data at base period again */
+	private void userActionPerformed() {
+		if (mAutoRefresh != null)
+			mAutoRefresh.resetBackoff();
 	}
 	
 	public int getAutoRefresh() {
@@ -611,6 +868,26 @@ public class ClientBridge implements ClientRequestHandler {
 		if (Logging.DEBUG) Log.d(TAG, "Detached observer: " + observer.toString());
 	}
 
+	/**
+	 * Unregisters observer and removes its scheduled updates
+	 * (when observer switches to other bridge)
+	 * @param observer observer
+	 */
+	public void releaseStatusObserver(ClientReceiver observer) {
+		unregisterStatusObserver(observer);
+		if (mAutoRefresh != null)
+			mAutoRefresh.unscheduleAutomaticRefresh(observer);
+	}
+	
+	/**
+	 * Publishes already retrieved data to observers (if connected)
+	 */
+	public void publishCachedData() {
+		if (mRemoteClient == null || !mConnected)
+			return;
+		mWorker.publishCachedData();
+	}
+	
 	public boolean isWorking() {
 		return mWorker.isWorking();
 	}
@@ -729,6 +1006,25 @@ public class ClientBridge implements ClientRequestHandler {
 		return false;
 	}
 	
+	@Override
+	public boolean updateRefreshCycle(int refreshMask) {
+		if (mRemoteClient == null || mClientPendingController == null)
+			return false; // not connected
+		
+		// skip updates which are already pending
+		int runMask = 0;
+		for (int refreshType = AutoRefresh.CLIENT_MODE; refreshType <= AutoRefresh.NOTICES; refreshType++)
+			if ((refreshMask & (1<<refreshType)) != 0 &&
+					mClientPendingController.begin(BoincOp.autoRefreshOp(refreshType)))
+				runMask |= 1<<refreshType;
+		
+		if (runMask != 0) {
+			mWorker.updateRefreshCycle(runMask);
+			return true;
+		}
+		return false;
+	}
+	
 	@Override
 	public void addToScheduledUpdates(ClientReceiver callback, int refreshType, int period) {
 		if (mRemoteClient == null || mClientPendingController == null) return; // not connected
@@ -844,6 +1140,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		// if join exists we continue operation by performing project attach
 		if ((mJoinedAddProjectUrl != null && mJoinedAddProjectUrl.equals(url)) ||
 				// otherwise run as standalone (ok)
@@ -945,6 +1243,14 @@ public class ClientBridge implements ClientRequestHandler {
 		return mClientPendingController.isRan(boincOp);
 	}
 	
+	@Override
+	public ArrayList<MessageInfo> getMessagesSince(int seqNo) {
+		if (mRemoteClient == null || mWorker == null)
+			return null; // not connected
+		
+		return mWorker.getMessagesSince(seqNo);
+	}
+	
 	@Override
 	public boolean getGlobalPrefsWorking() {
 		if (mRemoteClient == null || mClientPendingController == null)
@@ -984,6 +1290,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		mClientPendingController.begin(BoincOp.RunBenchmarks);
 		mWorker.runBenchmarks();
 		return true;
@@ -1014,6 +1322,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		// this call always enqueued
 		if (mClientPendingController.begin(BoincOp.SetRunMode))
 		mWorker.setRunMode(mode);
@@ -1025,6 +1335,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		// this call always enqueued
 		mClientPendingController.begin(BoincOp.SetNetworkMode);
 		mWorker.setNetworkMode(mode);
@@ -1036,6 +1348,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		// this call always enqueued
 		mClientPendingController.begin(BoincOp.SetGpuMode);
 		mWorker.setGpuMode(mode);
@@ -1055,6 +1369,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		mClientPendingController.begin(BoincOp.DoNetworkComm);
 		mWorker.doNetworkCommunication();
 		return true;
@@ -1065,6 +1381,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		// this call should be always enqueued
 		mClientPendingController.begin(BoincOp.ProjectOperation);
 		mWorker.projectOperation(operation, projectUrl);
@@ -1076,6 +1394,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		mClientPendingController.begin(BoincOp.ProjectOperation);
 		mWorker.projectsOperation(operation, projectUrls);
 		return true;
@@ -1086,6 +1406,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		mClientPendingController.begin(BoincOp.TaskOperation);
 		mWorker.taskOperation(operation, projectUrl, taskName);
 		return true;
@@ -1096,6 +1418,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		mClientPendingController.begin(BoincOp.TaskOperation);
 		mWorker.tasksOperation(operation, tasks);
 		return true;
@@ -1106,6 +1430,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		mClientPendingController.begin(BoincOp.TransferOperation);
 		mWorker.transferOperation(operation, projectUrl, fileName);
 		return true;
@@ -1116,6 +1442,8 @@ public class ClientBridge implements ClientRequestHandler {
 		if (mRemoteClient == null || mClientPendingController == null)
 			return false; // not connected
 		
+		userActionPerformed();
+		
 		mClientPendingController.begin(BoincOp.TransferOperation);
 		mWorker.transfersOperation(operation, transfers);
 		return true;
@@ -19,11 +19,10 @@
 
 package sk.boinc.nativeboinc.bridge;
 
+import java.io.IOException;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.ArrayList;
@@ -40,18 +39,22 @@ import sk.boinc.nativeboinc.clientconnection.PollOp;
 import sk.boinc.nativeboinc.clientconnection.ProjectInfo;
 import sk.boinc.nativeboinc.clientconnection.TaskDescriptor;
 import sk.boinc.nativeboinc.clientconnection.TaskInfo;
+import sk.boinc.nativeboinc.clientconnection.TasksChanges;
 import sk.boinc.nativeboinc.clientconnection.TransferDescriptor;
 import sk.boinc.nativeboinc.clientconnection.TransferInfo;
 import sk.boinc.nativeboinc.clientconnection.VersionInfo;
 import sk.boinc.nativeboinc.debug.Debugging;
 import sk.boinc.nativeboinc.debug.Logging;
 import sk.boinc.nativeboinc.debug.NetStats;
+import sk.boinc.nativeboinc.debug.PerformanceStats;
+import sk.boinc.nativeboinc.nativeclient.LocalStateCache;
 import sk.boinc.nativeboinc.util.ClientId;
 import sk.boinc.nativeboinc.util.PreferenceName;
 import sk.boinc.nativeboinc.util.StringUtil;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.util.Log;
@@ -73,6 +76,7 @@ import edu.berkeley.boinc.lite.ProjectListEntry;
 import edu.berkeley.boinc.lite.ProxyInfo;
 import edu.berkeley.boinc.lite.Result;
 import edu.berkeley.boinc.lite.RpcClient;
+import edu.berkeley.boinc.lite.SelectorTransport;
 import edu.berkeley.boinc.lite.Transfer;
 import edu.berkeley.boinc.lite.Workunit;
 
@@ -83,12 +87,15 @@ public class ClientBridgeWorkerHandler extends Handler {
 	private static final int MESSAGE_INITIAL_LIMIT = 50;
 	
 	private static final int TIMEOUT = 60000;	// in milliseconds
+	private static final int SNAPSHOT_SAVE_DELAY = 30000; // in milliseconds
 
 	private ClientBridge.ReplyHandler mReplyHandler = null; // write in UI thread only
 	private Context mContext = null;
 	private Boolean mDisconnecting = false; // read by worker thread, write by both threads
 
 	private RpcClient mRpcClient = null; // read/write only by worker thread 
+	/* transport of the handler in shared worker thread (null - blocking socket) */
+	private SelectorTransport mSelectorTransport = null;
 	private NetStats mNetStats = null;
 	private Formatter mFormatter = null;
 
@@ -97,18 +104,55 @@ public class ClientBridgeWorkerHandler extends Handler {
 	
 	private Object mUpdateCancelSync = new Object();
 	private int mUpdateCancelMask = 0;
+	
+	// replies collected during refresh cycle (null if cycle is not running)
+	private ArrayList<Runnable> mCycleReplies = null;
+	
+	// uptimes of the start of last running and last published update (indexed by refresh type)
+	private long[] mRefreshStarts = new long[AutoRefresh.NOTICES+1];
+	private long[] mRefreshTimes = new long[AutoRefresh.NOTICES+1];
+	private ModeInfo mLastClientMode = null;
+	// control operations can be run before queued updates
+	private volatile boolean mConnectionReady = false;
+	// refresh cycle, whose replies are awaited by selector thread (0 if none)
+	private int mPrefetchedCycleMask = 0;
+	// refresh types requested while prefetched cycle is awaited
+	private int mDeferredCycleMask = 0;
+	private Runnable mRunPrefetchedCycle = new Runnable() {
+		@Override
+		public void run() {
+			// called by selector thread
+			post(new Runnable() {
+				@Override
+				public void run() {
+					runPrefetchedCycle();
+				}
+			});
+		}
+	};
 
 	private VersionInfo mClientVersion = null;
 	private Map<String, ProjectInfo> mProjects = new HashMap<String, ProjectInfo>();
+	private ArrayList<Project> mLastProjects = null; // last parsed project status (with disk usage)
 	private Map<String, App> mApps = new HashMap<String, App>();
-	private Map<String, Workunit> mWorkunits = new HashMap<String, Workunit>();
-	private Map<String, TaskInfo> mTasks = new HashMap<String, TaskInfo>();
-	private Set<String> mActiveTasks = new HashSet<String>();
+	private TasksModel mTasks = new TasksModel();
 	private ArrayList<TransferInfo> mTransfers = new ArrayList<TransferInfo>();
-	private SortedMap<Integer, MessageInfo> mMessages = new TreeMap<Integer, MessageInfo>();
+	private MessageStore mMessages = new MessageStore(MessageStore.DEFAULT_CAPACITY);
 	private SortedMap<Integer, NoticeInfo> mNotices = new TreeMap<Integer, NoticeInfo>();
 	private boolean mInitialStateRetrieved = false;
 
+	private ClientId mClientId = null;
+	/* state shared with native client service (only for native client) */
+	private LocalStateCache mLocalCache = null;
+	private int mLocalCacheGeneration = 0; // generation of the results used by us
+	private boolean mSnapshotSaveScheduled = false;
+	private Runnable mSaveSnapshot = new Runnable() {
+		@Override
+		public void run() {
+			saveSnapshot();
+		}
+	};
+
 	private boolean mHaveAti = false;
 	private boolean mHaveCuda = false;
 	
@@ -119,6 +163,16 @@ public class ClientBridgeWorkerHandler extends Handler {
 		mNetStats = netStats;
 		mFormatter = new Formatter(mContext);
 	}
+	
+	/* handler in shared worker thread, its I/O is done by selector thread */
+	public ClientBridgeWorkerHandler(Looper sharedLooper, ClientBridge.ReplyHandler replyHandler,
+			final Context context, final NetStats netStats) {
+		super(sharedLooper);
+		mReplyHandler = replyHandler;
+		mContext = context;
+		mNetStats = netStats;
+		mFormatter = new Formatter(mContext);
+	}
 
 	public void cleanup() {
 		mFormatter.cleanup();
@@ -145,6 +199,11 @@ public class ClientBridgeWorkerHandler extends Handler {
 	}
 
 	private void closeConnection() {
+		if (mSnapshotSaveScheduled) {
+			// save the last data now
+			removeCallbacks(mSaveSnapshot);
+			saveSnapshot();
+		}
 		if (mRpcClient != null) {
 			cancelPollOperations(PollOp.POLL_ALL_MASK);
 			
@@ -152,6 +211,13 @@ public class ClientBridgeWorkerHandler extends Handler {
 			mRpcClient = null;
 			if (Logging.DEBUG) Log.d(TAG, "Connection closed");
 		}
+		if (mSelectorTransport != null) {
+			// connection can be still connecting ahead
+			mSelectorTransport.close();
+			mSelectorTransport = null;
+		}
+		mPrefetchedCycleMask = 0;
+		mDeferredCycleMask = 0;
 	}
 
 	private class ConnectionAliveChecker extends Thread {
@@ -191,11 +257,43 @@ public class ClientBridgeWorkerHandler extends Handler {
 	}
 	
 	private synchronized void changeIsHandlerWorking(boolean isWorking) {
+		if (!isWorking && mCycleReplies != null)
+			return; // refresh cycle is still working
 		mHandlerIsWorking = isWorking;
 		notifyChangeOfIsWorking();
 	}
 
 
+	/**
+	 * Starts connecting by selector thread, connection is opened (by connect),
+	 * when connecting finishes. Shared worker thread does not wait for the connection.
+	 */
+	public void connectAhead(final ClientId client, final boolean retrieveInitialData) {
+		if (mDisconnecting) return;  // already in disconnect phase
+		
+		changeIsHandlerWorking(true);
+		mSelectorTransport = new SelectorTransport();
+		try {
+			mSelectorTransport.connectAhead(client.getAddress(), client.getPort(),
+					RpcClient.CONNECT_TIMEOUT, new Runnable() {
+				@Override
+				public void run() {
+					// called by selector thread
+					post(new Runnable() {
+						@Override
+						public void run() {
+							connect(client, retrieveInitialData);
+						}
+					});
+				}
+			});
+		} catch (IOException e) {
+			// failure is reported by connect
+			if (Logging.WARNING) Log.w(TAG, "Connecting ahead failed", e);
+			connect(client, retrieveInitialData);
+		}
+	}
+
 	public void connect(ClientId client, boolean retrieveInitialData) {
 		if (mDisconnecting) return;  // already in disconnect phase
 		
@@ -203,7 +301,16 @@ public class ClientBridgeWorkerHandler extends Handler {
 		
 		if (Logging.DEBUG) Log.d(TAG, "Opening connection to " + ((client != null) ? client.getNickname() : "(null)"));
 		notifyProgress(BoincOp.Connect, ClientReceiver.PROGRESS_CONNECTING);
-		mRpcClient = new RpcClient(mNetStats);
+		mClientId = client;
+		mLocalCache = client.isNativeClient() ? LocalStateCache.getInstance() : null;
+		if (retrieveInitialData) // last known data are shown while connecting
+			restoreSnapshot();
+		if (Debugging.PERFORMANCE) // timings of the previous connection are not mixed in
+			PerformanceStats.reset();
+		// selector transport is used only in shared worker thread
+		mRpcClient = new RpcClient(mNetStats, mSelectorTransport);
+		// unchanged replies (idle client) do not update data again
+		mRpcClient.setSkipUnchangedReplies(true);
 		if (!mRpcClient.open(client.getAddress(), client.getPort())) {
 			// Connect failed
 			if (Logging.WARNING) Log.w(TAG, "Failed connect to " + client.getAddress() + ":" + client.getPort());
@@ -265,9 +372,24 @@ public class ClientBridgeWorkerHandler extends Handler {
 			}
 			mClientVersion = VersionInfoCreator.create(ccState.version_info);
 		}
+		mConnectionReady = true;
 		notifyConnected(mClientVersion);
 		changeIsHandlerWorking(false);
 	}
+	
+	public boolean isConnectionReady() {
+		return mConnectionReady;
+	}
+	
+	/* publishes already retrieved data (when bridge starts to be used by other observers) */
+	public void publishCachedData() {
+		if (mDisconnecting || !mInitialStateRetrieved) return;
+		if (Logging.DEBUG) Log.d(TAG, "publishCachedData()");
+		updatedProjects(getProjects());
+		updatedTasks(getTasks());
+		if (mRefreshTimes[AutoRefresh.TRANSFERS] != 0) // transfers were retrieved
+			updatedTransfers(getTransfers());
+	}
 
 	public void disconnect() {
 		// Disconnect request
@@ -306,6 +428,70 @@ public class ClientBridgeWorkerHandler extends Handler {
 		});
 	}
 
+	/* marks start of the update (reply will be newer than this time) */
+	private void beginRefresh(int refreshType) {
+		mRefreshStarts[refreshType] = SystemClock.uptimeMillis();
+	}
+	
+	/**
+	 * Drops updates, whose data were published after request of the update
+	 * (for example by update after control operation). Current data are published instead.
+	 * @param refreshMask refresh types (bits 1<<AutoRefresh.XXX)
+	 * @param requestTime uptime of the request
+	 * @return refresh types, which must be updated
+	 */
+	public int dropRedundantUpdates(int refreshMask, long requestTime) {
+		if (mDisconnecting) return refreshMask;
+		int cancelMask;
+		synchronized (mUpdateCancelSync) {
+			cancelMask = mUpdateCancelMask;
+		}
+		synchronized(this) {
+			mCycleReplies = new ArrayList<Runnable>();
+		}
+		for (int refreshType = AutoRefresh.CLIENT_MODE; refreshType <= AutoRefresh.NOTICES; refreshType++) {
+			int bit = 1<<refreshType;
+			// canceled updates are handled by update methods
+			if ((refreshMask & bit) == 0 || (cancelMask & bit) != 0 ||
+					mRefreshTimes[refreshType] <= requestTime)
+				continue;
+			
+			switch (refreshType) {
+			case AutoRefresh.CLIENT_MODE:
+				if (mLastClientMode == null)
+					continue;
+				updatedClientMode(mLastClientMode);
+				break;
+			case AutoRefresh.PROJECTS:
+				unchangedProjects(getProjects());
+				break;
+			case AutoRefresh.TASKS:
+				unchangedTasks(getTasks());
+				break;
+			case AutoRefresh.TRANSFERS:
+				unchangedTransfers(getTransfers());
+				break;
+			case AutoRefresh.MESSAGES:
+				updatedMessages(new ArrayList<MessageInfo>());
+				break;
+			case AutoRefresh.NOTICES:
+				updatedNotices(getNotices());
+				break;
+			}
+			if (Logging.DEBUG) Log.d(TAG, "Dropped redundant update: " + refreshType);
+			refreshMask &= ~bit;
+		}
+		
+		final ArrayList<Runnable> replies;
+		synchronized(this) {
+			replies = mCycleReplies;
+			mCycleReplies = null;
+		}
+		if (!replies.isEmpty())
+			republishedUpdates(replies);
+		return refreshMask;
+	}
+	
 	public void updateClientMode(boolean runInternally) {
 		if (mDisconnecting) return;  // already in disconnect phase
 		synchronized (mUpdateCancelSync) {
@@ -317,6 +503,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 			}
 		}
 		changeIsHandlerWorking(true);
+		beginRefresh(AutoRefresh.CLIENT_MODE);
 		
 		if (runInternally)
 			notifyOperationBegin(BoincOp.UpdateClientMode);
@@ -366,11 +553,23 @@ public class ClientBridgeWorkerHandler extends Handler {
 			}
 		}
 		changeIsHandlerWorking(true);
+		beginRefresh(AutoRefresh.PROJECTS);
 		if (runInternally)
 			notifyOperationBegin(BoincOp.UpdateProjects);
 		
 		notifyProgress(BoincOp.UpdateProjects, ClientReceiver.PROGRESS_XFER_STARTED);
+		if (mCycleReplies == null) { // refresh cycle announces own calls
+			// disk usage request is sent while project status is received
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_PROJECT_STATUS);
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_DISK_USAGE);
+		}
 		ArrayList<Project> projects = mRpcClient.getProjectStatus();
+		boolean projectsUnchanged = false;
+		if (projects == null && mRpcClient.isLastReplyUnchanged() && mLastProjects != null) {
+			// the same reply as previous, disk usage will be filled to previous projects
+			projects = mLastProjects;
+			projectsUnchanged = true;
+		}
 		if (projects == null) {
 			if (Logging.INFO) Log.i(TAG, "RPC failed in updateProjects()");
 			notifyError(BoincOp.UpdateProjects, 0, mContext.getString(R.string.boincOperationError));
@@ -379,17 +578,30 @@ public class ClientBridgeWorkerHandler extends Handler {
 			return;
 		}
 		/* disk usage */
+		if (!projectsUnchanged) // new projects must be filled
+			mRpcClient.invalidateReplyFingerprint(RpcClient.CALL_GET_DISK_USAGE);
 		if (!mRpcClient.getDiskUsage(projects)) {
 			/* if failed */
 			if (Logging.INFO) Log.i(TAG, "RPC failed in getDiskUsage()");
+			// parsed project status is not committed, projects are not updated
 			notifyError(BoincOp.UpdateProjects, 0, mContext.getString(R.string.boincOperationError));
 			rpcFailed();
 			changeIsHandlerWorking(false);
 			return;
 		}
 		
-		dataSetProjects(projects);
-		updatedProjects(getProjects());
+		if (projectsUnchanged && mRpcClient.isLastReplyUnchanged()) {
+			if (Logging.DEBUG) Log.d(TAG, "updateProjects(): replies unchanged, skipped " +
+					mRpcClient.getUnchangedRepliesCount(RpcClient.CALL_GET_DISK_USAGE) + " times");
+			unchangedProjects(getProjects());
+		} else {
+			mLastProjects = projects;
+			dataSetProjects(projects);
+			// next same replies can be skipped
+			mRpcClient.commitReplyFingerprint(RpcClient.CALL_GET_PROJECT_STATUS);
+			mRpcClient.commitReplyFingerprint(RpcClient.CALL_GET_DISK_USAGE);
+			updatedProjects(getProjects());
+		}
 		notifyProgress(BoincOp.UpdateProjects, ClientReceiver.PROGRESS_XFER_FINISHED);
 		changeIsHandlerWorking(false);
 	}
@@ -407,6 +619,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 		
 		if (Logging.DEBUG) Log.d(TAG, "run updateTasks()");
 		changeIsHandlerWorking(true);
+		beginRefresh(AutoRefresh.TASKS);
 		if (runInternally)
 			notifyOperationBegin(BoincOp.UpdateTasks);
 		
@@ -419,9 +632,26 @@ public class ClientBridgeWorkerHandler extends Handler {
 			updateFinished = true;
 		}
 		else {
+			// results recently retrieved by native client service (not after our operation,
+			// because results must show its effect)
+			ArrayList<Result> sharedResults = (!runInternally) ? takeSharedResults() : null;
+			results = sharedResults;
+			long requestTime = SystemClock.uptimeMillis();
 			// First try to get only results
-			results = mRpcClient.getResults();
+			if (results == null)
+				results = mRpcClient.getResults();
 			
+			if (results == null && mRpcClient.isLastReplyUnchanged()) {
+				// nothing changed since last update
+				if (Logging.DEBUG) Log.d(TAG, "updateTasks(): reply unchanged, skipped " +
+						mRpcClient.getUnchangedRepliesCount(RpcClient.CALL_GET_RESULTS) + " times");
+				if (mLocalCache != null)
+					mLocalCache.confirmResults(mLocalCacheGeneration, requestTime);
+				unchangedTasks(getTasks());
+				notifyProgress(BoincOp.UpdateTasks, ClientReceiver.PROGRESS_XFER_FINISHED);
+				changeIsHandlerWorking(false);
+				return;
+			}
 			if (results == null) {
 				if (Logging.INFO) Log.i(TAG, "RPC failed in updateTasks()");
 				notifyError(BoincOp.UpdateTasks, 0, mContext.getString(R.string.boincOperationError));
@@ -429,7 +659,13 @@ public class ClientBridgeWorkerHandler extends Handler {
 				changeIsHandlerWorking(false);
 				return;
 			}
+			if (mLocalCache != null && results != sharedResults)
+				mLocalCacheGeneration = mLocalCache.publishResults(results, requestTime);
+			long updateStart = (Debugging.PERFORMANCE) ? System.nanoTime() : 0;
 			updateFinished = dataUpdateTasks(results);
+			if (Debugging.PERFORMANCE) PerformanceStats.record("dataUpdateTasks", updateStart, results.size());
+			if (updateFinished && results != sharedResults)
+				mRpcClient.commitReplyFingerprint(RpcClient.CALL_GET_RESULTS);
 		}
 		if (!updateFinished) {
 			// Update still not finished :-(
@@ -446,6 +682,41 @@ public class ClientBridgeWorkerHandler extends Handler {
 		changeIsHandlerWorking(false);
 	}
 
+	/* results requested before operation (also by native client service) are not current */
+	private void localStateChanged() {
+		if (mLocalCache != null)
+			mLocalCache.notifyStateChanged();
+	}
+	
+	/* returns true if results retrieved by native client service can be used */
+	private boolean haveSharedResults() {
+		if (mLocalCache == null)
+			return false;
+		synchronized (mLocalCache) {
+			return mLocalCache.getResultsGeneration() != mLocalCacheGeneration &&
+					mLocalCache.getResults(LocalStateCache.SHARED_MAX_AGE) != null;
+		}
+	}
+	
+	/* returns results retrieved by native client service (not used yet) or null */
+	private ArrayList<Result> takeSharedResults() {
+		if (mLocalCache == null)
+			return null;
+		ArrayList<Result> results;
+		synchronized (mLocalCache) {
+			if (mLocalCache.getResultsGeneration() == mLocalCacheGeneration)
+				return null; // our results or already used
+			results = mLocalCache.getResults(LocalStateCache.SHARED_MAX_AGE);
+			if (results == null)
+				return null;
+			mLocalCacheGeneration = mLocalCache.getResultsGeneration();
+		}
+		if (Logging.DEBUG) Log.d(TAG, "updateTasks(): using shared results");
+		// our last reply is not current, next reply must be parsed
+		mRpcClient.invalidateReplyFingerprint(RpcClient.CALL_GET_RESULTS);
+		return results;
+	}
+
 	public void updateTransfers(boolean runInternally) {
 		if (mDisconnecting) return;  // already in disconnect phase
 		synchronized (mUpdateCancelSync) {
@@ -457,11 +728,22 @@ public class ClientBridgeWorkerHandler extends Handler {
 			}
 		}
 		changeIsHandlerWorking(true);
+		beginRefresh(AutoRefresh.TRANSFERS);
 		if (runInternally)
 			notifyOperationBegin(BoincOp.UpdateTransfers);
 		
 		notifyProgress(BoincOp.UpdateTransfers, ClientReceiver.PROGRESS_XFER_STARTED);
+		if (haveSuspendedTransfers()) // 'retry in' time must be refreshed
+			mRpcClient.invalidateReplyFingerprint(RpcClient.CALL_GET_FILE_TRANSFERS);
 		ArrayList<Transfer> transfers = mRpcClient.getFileTransfers();
+		if (transfers == null && mRpcClient.isLastReplyUnchanged()) {
+			if (Logging.DEBUG) Log.d(TAG, "updateTransfers(): reply unchanged, skipped " +
+					mRpcClient.getUnchangedRepliesCount(RpcClient.CALL_GET_FILE_TRANSFERS) + " times");
+			unchangedTransfers(getTransfers());
+			notifyProgress(BoincOp.UpdateTransfers, ClientReceiver.PROGRESS_XFER_FINISHED);
+			changeIsHandlerWorking(false);
+			return;
+		}
 		if (transfers == null) {
 			if (Logging.INFO) Log.i(TAG, "RPC failed in updateTransfers()");
 			notifyError(BoincOp.UpdateTransfers, 0, mContext.getString(R.string.boincOperationError));
@@ -470,6 +752,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 			return;
 		}
 		dataSetTransfers(transfers);
+		mRpcClient.commitReplyFingerprint(RpcClient.CALL_GET_FILE_TRANSFERS);
 		updatedTransfers(getTransfers());
 		notifyProgress(BoincOp.UpdateTransfers, ClientReceiver.PROGRESS_XFER_FINISHED);
 		changeIsHandlerWorking(false);
@@ -486,23 +769,21 @@ public class ClientBridgeWorkerHandler extends Handler {
 			}
 		}
 		changeIsHandlerWorking(true);
+		beginRefresh(AutoRefresh.MESSAGES);
 		if (runInternally)
 			notifyOperationBegin(BoincOp.UpdateMessages);
 		
 		notifyProgress(BoincOp.UpdateMessages, ClientReceiver.PROGRESS_XFER_STARTED);
-		int reqSeqno = (mMessages.isEmpty()) ? 0 : mMessages.lastKey();
-		if (reqSeqno == 0) {
+		mMessages.setCapacity(MessageStore.getCapacity(mContext));	// preference may be changed
+		int reqSeqno = mMessages.getLastSeqno();
+		if (reqSeqno == 0 && isRecentMessagesOnly()) {
 			// No messages stored yet
-			SharedPreferences globalPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
-			boolean recentMessagesOnly = globalPrefs.getBoolean(PreferenceName.LIMIT_MESSAGES, true);
-			if (recentMessagesOnly) {
-				// Preference: Initially retrieve only 50 (MESSAGE_INITIAL_LIMIT) recent messages
-				int lastSeqno = mRpcClient.getMessageCount();
-				if (lastSeqno > 0) {
-					// Retrieval of message count is supported operation - get only last 50 messages
-					reqSeqno = lastSeqno - MESSAGE_INITIAL_LIMIT;
-					if (reqSeqno < 1) reqSeqno = 0; // get all if less than 50 messages are available
-				}
+			// Preference: Initially retrieve only 50 (MESSAGE_INITIAL_LIMIT) recent messages
+			int lastSeqno = mRpcClient.getMessageCount();
+			if (lastSeqno > 0) {
+				// Retrieval of message count is supported operation - get only last 50 messages
+				reqSeqno = lastSeqno - MESSAGE_INITIAL_LIMIT;
+				if (reqSeqno < 1) reqSeqno = 0; // get all if less than 50 messages are available
 			}
 		}
 		if (mDisconnecting) {
@@ -517,8 +798,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 			changeIsHandlerWorking(false);
 			return;
 		}
-		dataUpdateMessages(messages);
-		updatedMessages(getMessages());
+		updatedMessages(dataUpdateMessages(messages));
 		notifyProgress(BoincOp.UpdateMessages, ClientReceiver.PROGRESS_XFER_FINISHED);
 		changeIsHandlerWorking(false);
 	}
@@ -534,6 +814,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 			}
 		}
 		changeIsHandlerWorking(true);
+		beginRefresh(AutoRefresh.NOTICES);
 		if (runInternally)
 			notifyOperationBegin(BoincOp.UpdateNotices);
 		
@@ -561,6 +842,124 @@ public class ClientBridgeWorkerHandler extends Handler {
 		changeIsHandlerWorking(false);
 	}
 	
+	/**
+	 * Runs updates of all types in refreshMask (bits 1<<AutoRefresh.XXX) in one cycle.
+	 * Calls of the cycle are pipelined and replies are published to UI thread at once
+	 * @param refreshMask refresh types
+	 */
+	public void updateRefreshCycle(int refreshMask) {
+		runRefreshCycle(refreshMask, false);
+	}
+	
+	/**
+	 * Runs refresh cycle, whose requests are sent ahead. The cycle runs when all replies
+	 * are received by selector thread, so the shared worker thread does not wait for them.
+	 * @param refreshMask refresh types
+	 */
+	public void prefetchRefreshCycle(int refreshMask) {
+		if (mDisconnecting) return;  // already in disconnect phase
+		if (mPrefetchedCycleMask != 0) {
+			// requests of the awaited cycle are already sent, runs after it
+			mDeferredCycleMask |= refreshMask;
+			return;
+		}
+		if (mSelectorTransport == null || mRpcClient == null || !mInitialStateRetrieved) {
+			// initial state retrieval announces own calls
+			updateRefreshCycle(refreshMask);
+			return;
+		}
+		if (Logging.DEBUG) Log.d(TAG, "prefetchRefreshCycle(" + refreshMask + ")");
+		changeIsHandlerWorking(true);
+		mPrefetchedCycleMask = refreshMask;
+		announceRefreshCycle(refreshMask);
+		mRpcClient.sendPipelinedRequests(); // failure is reported by the cycle
+		mSelectorTransport.awaitReplies(mRunPrefetchedCycle);
+	}
+	
+	private void runPrefetchedCycle() {
+		int refreshMask = mPrefetchedCycleMask;
+		mPrefetchedCycleMask = 0;
+		if (refreshMask == 0)
+			return; // connection closed meanwhile
+		runRefreshCycle(refreshMask, true);
+		if (mDeferredCycleMask != 0) {
+			int deferredMask = mDeferredCycleMask;
+			mDeferredCycleMask = 0;
+			prefetchRefreshCycle(deferredMask);
+		}
+	}
+	
+	private void runRefreshCycle(int refreshMask, boolean announced) {
+		if (mDisconnecting) return;  // already in disconnect phase
+		if (Logging.DEBUG) Log.d(TAG, "run updateRefreshCycle(" + refreshMask + ")");
+		long cycleStart = (Debugging.PERFORMANCE) ? System.nanoTime() : 0;
+		
+		changeIsHandlerWorking(true);
+		synchronized(this) {
+			mCycleReplies = new ArrayList<Runnable>();
+		}
+		
+		if ((refreshMask & (1<<AutoRefresh.TASKS)) != 0 && !mInitialStateRetrieved)
+			// initial state retrieval (run by tasks update) retrieves them too
+			refreshMask &= ~((1<<AutoRefresh.TRANSFERS) | (1<<AutoRefresh.NOTICES) |
+					(1<<AutoRefresh.MESSAGES));
+		if (!announced)
+			announceRefreshCycle(refreshMask);
+		if ((refreshMask & (1<<AutoRefresh.CLIENT_MODE)) != 0)
+			updateClientMode(false);
+		if ((refreshMask & (1<<AutoRefresh.PROJECTS)) != 0)
+			updateProjects(false);
+		if ((refreshMask & (1<<AutoRefresh.TASKS)) != 0)
+			updateTasks(false);
+		if ((refreshMask & (1<<AutoRefresh.TRANSFERS)) != 0)
+			updateTransfers(false);
+		// notices before messages, because request of messages may be unknown in advance
+		if ((refreshMask & (1<<AutoRefresh.NOTICES)) != 0)
+			updateNotices(false);
+		if ((refreshMask & (1<<AutoRefresh.MESSAGES)) != 0)
+			updateMessages(false);
+		
+		final ArrayList<Runnable> replies;
+		synchronized(this) {
+			replies = mCycleReplies;
+			mCycleReplies = null;
+		}
+		if (!replies.isEmpty())
+			updatedRefreshCycle(replies);
+		if (Debugging.PERFORMANCE) PerformanceStats.record("updateRefreshCycle", cycleStart, replies.size());
+		changeIsHandlerWorking(false);
+	}
+	
+	/* announces calls of the refresh cycle in order of execution */
+	private void announceRefreshCycle(int refreshMask) {
+		synchronized (mUpdateCancelSync) {
+			refreshMask &= ~mUpdateCancelMask;
+		}
+		if ((refreshMask & (1<<AutoRefresh.CLIENT_MODE)) != 0)
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_CC_STATUS);
+		if ((refreshMask & (1<<AutoRefresh.PROJECTS)) != 0) {
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_PROJECT_STATUS);
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_DISK_USAGE);
+		}
+		// initial state retrieval announces own calls (and following types are
+		// removed from cycle, see updateRefreshCycle)
+		if ((refreshMask & (1<<AutoRefresh.TASKS)) != 0 && mInitialStateRetrieved &&
+				!haveSharedResults())
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_RESULTS);
+		if ((refreshMask & (1<<AutoRefresh.TRANSFERS)) != 0)
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_FILE_TRANSFERS);
+		if ((refreshMask & (1<<AutoRefresh.NOTICES)) != 0)
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_NOTICES, (mNotices.isEmpty()) ? 0 : mNotices.lastKey());
+		if ((refreshMask & (1<<AutoRefresh.MESSAGES)) != 0) {
+			int reqSeqno = mMessages.getLastSeqno();
+			if (reqSeqno == 0 && isRecentMessagesOnly())
+				// messages are requested after message count
+				mRpcClient.pipelineCall(RpcClient.CALL_GET_MESSAGE_COUNT);
+			else
+				mRpcClient.pipelineCall(RpcClient.CALL_GET_MESSAGES, reqSeqno);
+		}
+	}
+	
 	public void getAllProjectsList(boolean excludeAttachedProjects) {
 		if (mDisconnecting) return;  // already in disconnect phase
 		changeIsHandlerWorking(true);
@@ -1435,6 +1834,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 		changeIsHandlerWorking(true);
 		notifyProgress(BoincOp.SetRunMode, ClientReceiver.PROGRESS_XFER_STARTED);
 		mRpcClient.setRunMode(mode, 0);
+		localStateChanged();
 		notifyOperationFinish(BoincOp.SetRunMode);
 		notifyProgress(BoincOp.SetRunMode, ClientReceiver.PROGRESS_XFER_FINISHED);
 		changeIsHandlerWorking(false);
@@ -1461,6 +1861,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 		changeIsHandlerWorking(true);
 		notifyProgress(BoincOp.SetGpuMode, ClientReceiver.PROGRESS_XFER_STARTED);
 		mRpcClient.setGpuMode(mode, 0);
+		localStateChanged();
 		notifyOperationFinish(BoincOp.SetGpuMode);
 		notifyProgress(BoincOp.SetGpuMode, ClientReceiver.PROGRESS_XFER_FINISHED);
 		changeIsHandlerWorking(false);
@@ -1536,6 +1937,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 		changeIsHandlerWorking(true);
 		notifyProgress(BoincOp.ProjectOperation, ClientReceiver.PROGRESS_XFER_STARTED);
 		mRpcClient.projectOp(operation, projectUrl);
+		localStateChanged();
 		notifyOperationFinish(BoincOp.ProjectOperation);
 		notifyProgress(BoincOp.ProjectOperation, ClientReceiver.PROGRESS_XFER_FINISHED);
 		// Regardless of success we run update of projects
@@ -1550,6 +1952,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 		notifyProgress(BoincOp.ProjectOperation, ClientReceiver.PROGRESS_XFER_STARTED);
 		for (String projectUrl: projectUrls)
 			mRpcClient.projectOp(operation, projectUrl);
+		localStateChanged();
 		notifyOperationFinish(BoincOp.ProjectOperation);
 		notifyProgress(BoincOp.ProjectOperation, ClientReceiver.PROGRESS_XFER_FINISHED);
 		// Regardless of success we run update of projects
@@ -1563,6 +1966,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 		changeIsHandlerWorking(true);
 		notifyProgress(BoincOp.TaskOperation, ClientReceiver.PROGRESS_XFER_STARTED);
 		mRpcClient.resultOp(operation, projectUrl, taskName);
+		localStateChanged();
 		notifyOperationFinish(BoincOp.TaskOperation);
 		notifyProgress(BoincOp.TaskOperation, ClientReceiver.PROGRESS_XFER_FINISHED);
 		// Regardless of success we run update of tasks
@@ -1577,6 +1981,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 		notifyProgress(BoincOp.TaskOperation, ClientReceiver.PROGRESS_XFER_STARTED);
 		for (TaskDescriptor task: tasks)
 			mRpcClient.resultOp(operation, task.projectUrl, task.taskName);
+		localStateChanged();
 		notifyOperationFinish(BoincOp.TaskOperation);
 		notifyProgress(BoincOp.TaskOperation, ClientReceiver.PROGRESS_XFER_FINISHED);
 		// Regardless of success we run update of tasks
@@ -1693,7 +2098,9 @@ public class ClientBridgeWorkerHandler extends Handler {
 
 	private synchronized void updatedClientMode(final ModeInfo clientMode) {
 		if (mDisconnecting) return;
-		mReplyHandler.post(new Runnable() {
+		mRefreshTimes[AutoRefresh.CLIENT_MODE] = mRefreshStarts[AutoRefresh.CLIENT_MODE];
+		mLastClientMode = clientMode;
+		postReply(new Runnable() {
 			@Override
 			public void run() {
 				mReplyHandler.updatedClientMode(clientMode);
@@ -1824,7 +2231,9 @@ public class ClientBridgeWorkerHandler extends Handler {
 
 	private synchronized void updatedProjects(final ArrayList<ProjectInfo> projects) {
 		if (mDisconnecting) return;
-		mReplyHandler.post(new Runnable() {
+		mRefreshTimes[AutoRefresh.PROJECTS] = mRefreshStarts[AutoRefresh.PROJECTS];
+		scheduleSnapshotSave();
+		postReply(new Runnable() {
 			@Override
 			public void run() {
 				mReplyHandler.updatedProjects(projects);
@@ -1834,17 +2243,22 @@ public class ClientBridgeWorkerHandler extends Handler {
 
 	private synchronized void updatedTasks(final ArrayList<TaskInfo> tasks) {
 		if (mDisconnecting) return;
-		mReplyHandler.post(new Runnable() {
+		mRefreshTimes[AutoRefresh.TASKS] = mRefreshStarts[AutoRefresh.TASKS];
+		scheduleSnapshotSave();
+		final TasksChanges changes = mTasks.publishChanges();
+		postReply(new Runnable() {
 			@Override
 			public void run() {
-				mReplyHandler.updatedTasks(tasks);
+				mReplyHandler.updatedTasks(tasks, changes);
 			}
 		});
 	}
 
 	private synchronized void updatedTransfers(final ArrayList<TransferInfo> transfers) {
 		if (mDisconnecting) return;
-		mReplyHandler.post(new Runnable() {
+		mRefreshTimes[AutoRefresh.TRANSFERS] = mRefreshStarts[AutoRefresh.TRANSFERS];
+		scheduleSnapshotSave();
+		postReply(new Runnable() {
 			@Override
 			public void run() {
 				mReplyHandler.updatedTransfers(transfers);
@@ -1852,9 +2266,43 @@ public class ClientBridgeWorkerHandler extends Handler {
 		});
 	}
 
+	private synchronized void unchangedProjects(final ArrayList<ProjectInfo> projects) {
+		if (mDisconnecting) return;
+		mRefreshTimes[AutoRefresh.PROJECTS] = mRefreshStarts[AutoRefresh.PROJECTS];
+		postReply(new Runnable() {
+			@Override
+			public void run() {
+				mReplyHandler.unchangedProjects(projects);
+			}
+		});
+	}
+
+	private synchronized void unchangedTasks(final ArrayList<TaskInfo> tasks) {
+		if (mDisconnecting) return;
+		mRefreshTimes[AutoRefresh.TASKS] = mRefreshStarts[AutoRefresh.TASKS];
+		postReply(new Runnable() {
+			@Override
+			public void run() {
+				mReplyHandler.unchangedTasks(tasks);
+			}
+		});
+	}
+
+	private synchronized void unchangedTransfers(final ArrayList<TransferInfo> transfers) {
+		if (mDisconnecting) return;
+		mRefreshTimes[AutoRefresh.TRANSFERS] = mRefreshStarts[AutoRefresh.TRANSFERS];
+		postReply(new Runnable() {
+			@Override
+			public void run() {
+				mReplyHandler.unchangedTransfers(transfers);
+			}
+		});
+	}
+
 	private synchronized void updatedMessages(final ArrayList<MessageInfo> messages) {
 		if (mDisconnecting) return;
-		mReplyHandler.post(new Runnable() {
+		mRefreshTimes[AutoRefresh.MESSAGES] = mRefreshStarts[AutoRefresh.MESSAGES];
+		postReply(new Runnable() {
 			@Override
 			public void run() {
 				mReplyHandler.updatedMessages(messages);
@@ -1864,7 +2312,8 @@ public class ClientBridgeWorkerHandler extends Handler {
 	
 	private synchronized void updatedNotices(final ArrayList<NoticeInfo> notices) {
 		if (mDisconnecting) return;
-		mReplyHandler.post(new Runnable() {
+		mRefreshTimes[AutoRefresh.NOTICES] = mRefreshStarts[AutoRefresh.NOTICES];
+		postReply(new Runnable() {
 			@Override
 			public void run() {
 				mReplyHandler.updatedNotices(notices);
@@ -1872,6 +2321,37 @@ public class ClientBridgeWorkerHandler extends Handler {
 		});
 	}
 	
+	/* posts reply to UI thread, replies of the refresh cycle are collected */
+	private synchronized void postReply(Runnable reply) {
+		if (mCycleReplies != null)
+			mCycleReplies.add(reply);
+		else
+			mReplyHandler.post(reply);
+	}
+	
+	/* publishes replies of the dropped updates in one message */
+	private synchronized void republishedUpdates(final ArrayList<Runnable> replies) {
+		if (mDisconnecting) return;
+		mReplyHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				mReplyHandler.republishedUpdates(replies);
+			}
+		});
+	}
+	
+	/* publishes all replies of the refresh cycle in one message */
+	private synchronized void updatedRefreshCycle(final ArrayList<Runnable> replies) {
+		if (mDisconnecting) return;
+		mReplyHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				for (Runnable reply: replies)
+					reply.run();
+			}
+		});
+	}
+	
 	private synchronized void notifyChangeOfIsWorking() {
 		final boolean currentIsWorking = isWorking();
 		if (mPreviousStateOfIsWorking != currentIsWorking) {
@@ -1899,6 +2379,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 
 	private void updateState() {
 		if (mDisconnecting) return;  // Started disconnect phase, don't bother with further data retrieval
+		long requestTime = SystemClock.uptimeMillis();
 		CcState ccState = mRpcClient.getState();
 		if (ccState == null) {
 			if (Logging.INFO) Log.i(TAG, "RPC failed in updateCcState()");
@@ -1906,17 +2387,80 @@ public class ClientBridgeWorkerHandler extends Handler {
 			return;
 		}
 		if (mDisconnecting) return;  // already in disconnect phase
+		if (mLocalCache != null)
+			mLocalCacheGeneration = mLocalCache.publishState(ccState, requestTime);
 		mHaveCuda = ccState.have_cuda;
 		mHaveAti = ccState.have_ati;
 		
+		invalidateStateReplies();
 		dataSetProjects(ccState.projects);
 		dataSetApps(ccState.apps);
 		if (mDisconnecting) return;  // already in disconnect phase
+		long setTasksStart = (Debugging.PERFORMANCE) ? System.nanoTime() : 0;
 		dataSetTasks(ccState.workunits, ccState.results);
+		if (Debugging.PERFORMANCE) PerformanceStats.record("dataSetTasks", setTasksStart,
+				ccState.results.size());
+	}
+
+	private void restoreSnapshot() {
+		if (mDisconnecting) return;
+		final ClientSnapshot snapshot = ClientSnapshot.load(mContext, mClientId);
+		if (snapshot == null)
+			return;
+		if (Logging.DEBUG) Log.d(TAG, "Restored snapshot saved at " + snapshot.savedTime);
+		// not treated as retrieved data (no refresh times, no saving),
+		// live data published by initialStateRetrieval() replaces them
+		postReply(new Runnable() {
+			@Override
+			public void run() {
+				mReplyHandler.restoredSnapshot(snapshot);
+			}
+		});
+	}
+
+	/* snapshot is saved after a while, so frequent refreshes are written once */
+	private void scheduleSnapshotSave() {
+		if (mSnapshotSaveScheduled)
+			return;
+		mSnapshotSaveScheduled = true;
+		postDelayed(mSaveSnapshot, SNAPSHOT_SAVE_DELAY);
+	}
+
+	private void saveSnapshot() {
+		mSnapshotSaveScheduled = false;
+		if (!mInitialStateRetrieved || mClientId == null)
+			return; // only complete data
+		long saveStart = (Debugging.PERFORMANCE) ? System.nanoTime() : 0;
+		ClientSnapshot.save(mContext, mClientId, mProjects.values(), mTasks.values(), mTransfers);
+		if (Debugging.PERFORMANCE) PerformanceStats.record("saveSnapshot", saveStart, mTasks.size());
+	}
+
+	/* projects and tasks are replaced by state, next replies must be parsed */
+	private void invalidateStateReplies() {
+		mRpcClient.invalidateReplyFingerprint(RpcClient.CALL_GET_PROJECT_STATUS);
+		mRpcClient.invalidateReplyFingerprint(RpcClient.CALL_GET_DISK_USAGE);
+		mRpcClient.invalidateReplyFingerprint(RpcClient.CALL_GET_RESULTS);
+		mLastProjects = null;
+	}
+
+	private boolean isRecentMessagesOnly() {
+		SharedPreferences globalPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+		return globalPrefs.getBoolean(PreferenceName.LIMIT_MESSAGES, true);
 	}
 
 	private void initialStateRetrieval() {
+		beginRefresh(AutoRefresh.PROJECTS);
+		beginRefresh(AutoRefresh.TASKS);
 		if (mDisconnecting) return;  // Started disconnect phase, don't bother with further data retrieval
+		// Requests of the following calls are sent while previous replies are received
+		mRpcClient.pipelineCall(RpcClient.CALL_GET_STATE);
+		mRpcClient.pipelineCall(RpcClient.CALL_GET_FILE_TRANSFERS);
+		mRpcClient.pipelineCall(RpcClient.CALL_GET_NOTICES, (mNotices.isEmpty()) ? 0 : mNotices.lastKey());
+		if (mMessages.isEmpty() && isRecentMessagesOnly())
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_MESSAGE_COUNT);
+		else
+			mRpcClient.pipelineCall(RpcClient.CALL_GET_MESSAGES, mMessages.getLastSeqno());
+		long requestTime = SystemClock.uptimeMillis();
 		CcState ccState = mRpcClient.getState();
 		if (ccState == null) {
 			if (Logging.INFO) Log.i(TAG, "RPC failed in initialStateRetrieval()");
@@ -1929,23 +2473,30 @@ public class ClientBridgeWorkerHandler extends Handler {
 			// but they report version in state
 			mClientVersion = VersionInfoCreator.create(ccState.version_info);
 		}
+		if (mLocalCache != null)
+			mLocalCacheGeneration = mLocalCache.publishState(ccState, requestTime);
 		mHaveCuda = ccState.have_cuda;
 		mHaveAti = ccState.have_ati;
 		
+		invalidateStateReplies();
 		dataSetProjects(ccState.projects);
 		updatedProjects(getProjects());
 		dataSetApps(ccState.apps);
 		if (mDisconnecting) return;  // already in disconnect phase
+		long setTasksStart = (Debugging.PERFORMANCE) ? System.nanoTime() : 0;
 		dataSetTasks(ccState.workunits, ccState.results);
+		if (Debugging.PERFORMANCE) PerformanceStats.record("dataSetTasks", setTasksStart,
+				ccState.results.size());
 		updatedTasks(getTasks());
 		// Retrieve also transfers. Most of time empty anyway, so it runs fast
 		updateTransfers(true);
+		// notices also should be retrieved (before messages, because their request is
+		// known in advance, so it can be pipelined)
+		if (mDisconnecting) return;  // already in disconnect phase
+		updateNotices(true);
 		if (mDisconnecting) return;  // already in disconnect phase
 		// Messages are useful in most of cases, so we start to retrieve them automatically as well
 		updateMessages(true);
-		// notices also should be retrieved
-		if (mDisconnecting) return;  // already in disconnect phase
-		updateNotices(true);
 		mInitialStateRetrieved = true;
 	}
 
@@ -1980,46 +2531,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 	}
 
 	private void dataSetTasks(ArrayList<Workunit> workunits, ArrayList<Result> results) {
-		if (Logging.DEBUG) Log.d(TAG, "dataSetTasks(): Begin update");
-		mTasks.clear();
-		mActiveTasks.clear();
-		// First, parse workunits, to create auxiliary map of workunits
-		mWorkunits.clear();
-		Iterator<Workunit> wi = workunits.iterator();
-		while (wi.hasNext()) {
-			Workunit wu = wi.next();
-			mWorkunits.put(wu.name, wu);
-		}
-		// Then, parse results to set the tasks data
-		Iterator<Result> ri = results.iterator();
-		while (ri.hasNext()) {
-			Result result = ri.next();
-			ProjectInfo pi = mProjects.get(result.project_url);
-			if (pi == null) {
-				if (Logging.WARNING) Log.w(TAG, "No project info for WU=" + result.name +
-						" (project_url: " + result.project_url + "), skipping WU");
-				continue;
-			}
-			Workunit workunit = mWorkunits.get(result.wu_name);
-			if (workunit == null) {
-				if (Logging.WARNING) Log.w(TAG, "No workunit info for WU=" + result.name +
-						" (wu_name: " + result.wu_name + "), skipping WU");
-				continue;
-			}
-			App app = mApps.get(workunit.app_name);
-			if (app == null) {
-				if (Logging.WARNING) Log.w(TAG, "No application info for WU=" + result.name +
-						" (app_name: " + workunit.app_name + "), skipping WU");
-				continue;
-			}
-			TaskInfo task = TaskInfoCreator.create(result, workunit, pi, app, mFormatter);
-			mTasks.put(task.taskName, task);
-			if (result.active_task) {
-				// This is also active task
-				mActiveTasks.add(result.name);
-			}
-		}
-		if (Logging.DEBUG) Log.d(TAG, "dataSetTasks(): End update");
+		mTasks.setTasks(workunits, results, mProjects, mApps, mFormatter);
 	}
 
 	private void dataSetTransfers(ArrayList<Transfer> transfers) {
@@ -2042,58 +2554,33 @@ public class ClientBridgeWorkerHandler extends Handler {
 	}
 
 	private boolean dataUpdateTasks(ArrayList<Result> results) {
-		if (Logging.DEBUG) Log.d(TAG, "dataUpdateTasks(): Begin update");
-		// Auxiliary set, to know which tasks were updated and which not
-		Set<String> oldTaskNames = new HashSet<String>(mTasks.keySet());
-		mActiveTasks.clear(); // We will build new record of active tasks
-		// Parse results to set the tasks data
-		Iterator<Result> ri = results.iterator();
-		while (ri.hasNext()) {
-			Result result = ri.next();
-			TaskInfo task = (TaskInfo)mTasks.get(result.name);
-			if (task == null) {
-				// Maybe new workunit wad downloaded meanwhile, so we have
-				// its result part, but not workunit part
-				if (Logging.DEBUG) Log.d(TAG,
-						"Task not found while trying dataUpdateTasks() - needs full updateCcState() update");
-				return false;
-			}
-			TaskInfoCreator.update(task, result, mFormatter);
-			if (result.active_task) {
-				// This is also active task
-				mActiveTasks.add(result.name);
-			}
-			// We updated this task - remove it from auxiliary set
-			oldTaskNames.remove(result.name);
-		}
-		// We updated all entries in mTasks, which were in results
-		// But, there could still be some obsolete tasks in mTasks
-		// e.g. those uploaded and reported successfully
-		// We should remove them now
-		if (oldTaskNames.size() > 0) {
-			if (Logging.DEBUG) Log.d(TAG, "dataUpdateTasks(): " + oldTaskNames.size() +
-					" obsolete tasks detected");
-			Iterator<String> it = oldTaskNames.iterator();
-			while (it.hasNext()) {
-				String obsoleteName = it.next();
-				mTasks.remove(obsoleteName);
-				if (Logging.DEBUG) Log.d(TAG, "dataUpdateTasks(): removed " + obsoleteName);
-			}
-		}
-		if (Logging.DEBUG) Log.d(TAG, "dataUpdateTasks(): End update");
-		return true;
-	}
-
-	private void dataUpdateMessages(ArrayList<Message> messages) {
-		if (messages == null) return;
+		return mTasks.updateTasks(results, mFormatter);
+	}
+
+	/* returns new messages */
+	private ArrayList<MessageInfo> dataUpdateMessages(ArrayList<Message> messages) {
+		ArrayList<MessageInfo> newMessages = new ArrayList<MessageInfo>(messages.size());
 		if (Logging.DEBUG) Log.d(TAG, "dataUpdateMessages(): Begin update");
 		Iterator<Message> mi = messages.iterator();
 		while (mi.hasNext()) {
 			edu.berkeley.boinc.lite.Message msg = mi.next();
+			if (msg.seqno <= mMessages.getLastSeqno())
+				continue; // already stored
 			MessageInfo message = MessageInfoCreator.create(msg, mFormatter);
-			mMessages.put(msg.seqno, message);
+			if (mMessages.add(message))
+				newMessages.add(message);
 		}
 		if (Logging.DEBUG) Log.d(TAG, "dataUpdateMessages(): End update");
+		return newMessages;
+	}
+
+	/**
+	 * Returns stored messages (called from UI thread)
+	 * @param seqNo sequence number
+	 * @return messages newer than seqNo
+	 */
+	public ArrayList<MessageInfo> getMessagesSince(int seqNo) {
+		return mMessages.getMessagesSince(seqNo);
 	}
 	
 	private void dataUpdateNotices(ArrayList<Notice> notices) {
@@ -2113,15 +2600,18 @@ public class ClientBridgeWorkerHandler extends Handler {
 	}
 
 	private final ArrayList<TaskInfo> getTasks() {
-		return new ArrayList<TaskInfo>(mTasks.values());
+		return mTasks.getTasks();
 	}
 
-	private final ArrayList<TransferInfo> getTransfers() {
-		return new ArrayList<TransferInfo>(mTransfers);
+	private boolean haveSuspendedTransfers() {
+		for (TransferInfo transfer: mTransfers)
+			if ((transfer.stateControl & TransferInfo.SUSPENDED) != 0)
+				return true;
+		return false;
 	}
 
-	private final ArrayList<MessageInfo> getMessages() {
-		return new ArrayList<MessageInfo>(mMessages.values());
+	private final ArrayList<TransferInfo> getTransfers() {
+		return new ArrayList<TransferInfo>(mTransfers);
 	}
 	
 	private final ArrayList<NoticeInfo> getNotices() {
@@ -19,10 +19,13 @@
 
 package sk.boinc.nativeboinc.bridge;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
 
 import edu.berkeley.boinc.lite.AccountIn;
 import edu.berkeley.boinc.lite.GlobalPreferences;
 import edu.berkeley.boinc.lite.ProxyInfo;
+import sk.boinc.nativeboinc.clientconnection.MessageInfo;
 import sk.boinc.nativeboinc.clientconnection.TaskDescriptor;
 import sk.boinc.nativeboinc.clientconnection.TransferDescriptor;
 import sk.boinc.nativeboinc.debug.Logging;
@@ -31,6 +34,7 @@ import sk.boinc.nativeboinc.util.ClientId;
 import android.content.Context;
 import android.os.ConditionVariable;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 
@@ -42,6 +46,27 @@ public class ClientBridgeWorkerThread extends Thread {
 	private ClientBridge.ReplyHandler mReplyHandler;
 	private Context mContext;
 	private NetStats mNetStats;
+	/* handler runs in thread shared by bridges (this thread is not started) */
+	private boolean mSharedWorker = false;
+	
+	/* priority lane: control operations (in FIFO order) run before queued updates */
+	private LinkedList<Runnable> mControlOps = new LinkedList<Runnable>();
+	/* user operations in the ordinary queue, control operations must not overtake them */
+	private int mQueuedUserOps = 0;
+	private Runnable mRunControlOps = new Runnable() {
+		@Override
+		public void run() {
+			while (true) {
+				Runnable controlOp;
+				synchronized (mControlOps) {
+					controlOp = mControlOps.poll();
+				}
+				if (controlOp == null)
+					break;
+				controlOp.run();
+			}
+		}
+	};
 
 	public ClientBridgeWorkerThread(
 			ConditionVariable lock, 
@@ -55,6 +80,19 @@ public class ClientBridgeWorkerThread extends Thread {
 		setDaemon(true);
 	}
 	
+	/**
+	 * Creates worker, whose handler runs in shared worker thread (this thread is not started).
+	 * Its RPC I/O is done by selector thread, so the shared thread does not wait for replies.
+	 */
+	public ClientBridgeWorkerThread(
+			final ClientBridge.ReplyHandler replyHandler, 
+			final Context context, 
+			final NetStats netStats,
+			Looper sharedLooper) {
+		mSharedWorker = true;
+		mHandler = new ClientBridgeWorkerHandler(sharedLooper, replyHandler, context, netStats);
+	}
+	
 	protected void initializeWorkerHandler() {
 		mHandler = new ClientBridgeWorkerHandler(mReplyHandler, mContext, mNetStats);
 	}
@@ -98,6 +136,24 @@ public class ClientBridgeWorkerThread extends Thread {
 
 	public void stopThread(ConditionVariable lock) {
 		mLock = lock;
+		if (mSharedWorker) {
+			// only our handler finishes, shared thread serves other bridges
+			mHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					if (Logging.DEBUG) Log.d(TAG, "Quit message received, releasing " + Thread.currentThread().toString());
+					mHandler.removeCallbacksAndMessages(null);
+					mHandler.cleanup();
+					mHandler = null;
+					SharedWorkerThread.release();
+					if (mLock != null) {
+						mLock.open();
+						mLock = null;
+					}
+				}
+			});
+			return;
+		}
 		mHandler.post(new Runnable() {
 			@Override
 			public void run() {
@@ -107,12 +163,56 @@ public class ClientBridgeWorkerThread extends Thread {
 		});
 	}
 
+	/* posts control operation to priority lane */
+	private void postControlOp(Runnable controlOp) {
+		boolean priority;
+		synchronized (mControlOps) {
+			// must not overtake connect and earlier user operations
+			priority = mHandler.isConnectionReady() && mQueuedUserOps == 0;
+			if (priority)
+				mControlOps.add(controlOp);
+		}
+		if (priority)
+			mHandler.postAtFrontOfQueue(mRunControlOps);
+		else
+			postUserOp(controlOp);
+	}
+	
+	/* posts user operation to ordinary queue (after queued updates) */
+	private void postUserOp(final Runnable userOp) {
+		synchronized (mControlOps) {
+			mQueuedUserOps++;
+		}
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (mControlOps) {
+					mQueuedUserOps--;
+				}
+				userOp.run();
+			}
+		});
+	}
+	
+	public void publishCachedData() {
+		// Execute in worker thread (priority lane, data are not retrieved)
+		postControlOp(new Runnable() {
+			@Override
+			public void run() {
+				mHandler.publishCachedData();
+			}
+		});
+	}
+	
 	public void connect(final ClientId remoteClient, final boolean retrieveInitialData) {
 		// Execute in worker thread
 		mHandler.post(new Runnable() {
 			@Override
 			public void run() {
-				mHandler.connect(remoteClient, retrieveInitialData);
+				if (mSharedWorker) // connection is awaited by selector thread
+					mHandler.connectAhead(remoteClient, retrieveInitialData);
+				else
+					mHandler.connect(remoteClient, retrieveInitialData);
 			}
 		});
 	}
@@ -133,6 +233,13 @@ public class ClientBridgeWorkerThread extends Thread {
 		return false;
 	}
 
+	public ArrayList<MessageInfo> getMessagesSince(int seqNo) {
+		// Run immediately NOW (from UI thread), message store is synchronized
+		if (mHandler != null)
+			return mHandler.getMessagesSince(seqNo);
+		return null;
+	}
+
 	public void cancelPendingUpdates(int refreshType) {
 		// Run immediately NOW (from UI thread)
 		if (mHandler != null)
@@ -142,11 +249,13 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 
 	public void updateClientMode() {
+		final long requestTime = SystemClock.uptimeMillis();
 		// Execute in worker thread
 		mHandler.post(new Runnable() {
 			@Override
 			public void run() {
-				mHandler.updateClientMode(false);
+				if (mHandler.dropRedundantUpdates(1<<AutoRefresh.CLIENT_MODE, requestTime) != 0)
+					mHandler.updateClientMode(false);
 			}
 		});
 	}
@@ -162,51 +271,78 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 
 	public void updateProjects() {
+		final long requestTime = SystemClock.uptimeMillis();
 		// Execute in worker thread
 		mHandler.post(new Runnable() {
 			@Override
 			public void run() {
-				mHandler.updateProjects(false);
+				if (mHandler.dropRedundantUpdates(1<<AutoRefresh.PROJECTS, requestTime) != 0)
+					mHandler.updateProjects(false);
 			}
 		});
 	}
 
 	public void updateTasks() {
+		final long requestTime = SystemClock.uptimeMillis();
 		// Execute in worker thread
 		mHandler.post(new Runnable() {
 			@Override
 			public void run() {
-				mHandler.updateTasks(false);
+				if (mHandler.dropRedundantUpdates(1<<AutoRefresh.TASKS, requestTime) != 0)
+					mHandler.updateTasks(false);
 			}
 		});
 	}
 
 	public void updateTransfers() {
+		final long requestTime = SystemClock.uptimeMillis();
 		// Execute in worker thread
 		mHandler.post(new Runnable() {
 			@Override
 			public void run() {
-				mHandler.updateTransfers(false);
+				if (mHandler.dropRedundantUpdates(1<<AutoRefresh.TRANSFERS, requestTime) != 0)
+					mHandler.updateTransfers(false);
 			}
 		});
 	}
 
 	public void updateMessages() {
+		final long requestTime = SystemClock.uptimeMillis();
 		// Execute in worker thread
 		mHandler.post(new Runnable() {
 			@Override
 			public void run() {
-				mHandler.updateMessages(false);
+				if (mHandler.dropRedundantUpdates(1<<AutoRefresh.MESSAGES, requestTime) != 0)
+					mHandler.updateMessages(false);
 			}
 		});
 	}
 	
 	public void updateNotices() {
+		final long requestTime = SystemClock.uptimeMillis();
 		// Execute in worker thread
 		mHandler.post(new Runnable() {
 			@Override
 			public void run() {
-				mHandler.updateNotices(false);
+				if (mHandler.dropRedundantUpdates(1<<AutoRefresh.NOTICES, requestTime) != 0)
+					mHandler.updateNotices(false);
+			}
+		});
+	}
+	
+	public void updateRefreshCycle(final int refreshMask) {
+		final long requestTime = SystemClock.uptimeMillis();
+		// Execute in worker thread
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				int runMask = mHandler.dropRedundantUpdates(refreshMask, requestTime);
+				if (runMask == 0)
+					return;
+				if (mSharedWorker) // replies are awaited by selector thread
+					mHandler.prefetchRefreshCycle(runMask);
+				else
+					mHandler.updateRefreshCycle(runMask);
 			}
 		});
 	}
@@ -222,7 +358,7 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void attachToBAM(final String name, final String url, final String password) {
-		mHandler.post(new Runnable() {
+		postUserOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.attachToBAM(name, url, password);
@@ -231,7 +367,7 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void synchronizeWithBAM() {
-		mHandler.post(new Runnable() {
+		postUserOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.synchronizeWithBAM();
@@ -240,7 +376,7 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void stopUsingBAM() {
-		mHandler.post(new Runnable() {
+		postUserOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.stopUsingBAM();
@@ -258,7 +394,7 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void lookupAccount(final AccountIn accountIn) {
-		mHandler.post(new Runnable() {
+		postUserOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.lookupAccount(accountIn);
@@ -267,7 +403,7 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void createAccount(final AccountIn accountIn) {
-		mHandler.post(new Runnable() {
+		postUserOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.createAccount(accountIn);
@@ -277,7 +413,7 @@ public class ClientBridgeWorkerThread extends Thread {
 	
 	public void projectAttach(final String url, final String authCode,
 			final String projectName) {
-		mHandler.post(new Runnable() {
+		postUserOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.projectAttach(url, authCode, projectName);
@@ -313,7 +449,7 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void setGlobalPrefsOverride(final String globalPrefs) {
-		mHandler.post(new Runnable() {
+		postUserOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.setGlobalPrefsOverride(globalPrefs);
@@ -323,7 +459,7 @@ public class ClientBridgeWorkerThread extends Thread {
 	
 	public void setGlobalPrefsOverrideStruct(final GlobalPreferences globalPrefs,
 			final boolean nativeBoinc) {
-		mHandler.post(new Runnable() {
+		postUserOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.setGlobalPrefsOverrideStruct(globalPrefs);
@@ -332,8 +468,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void runBenchmarks() {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.runBenchmarks();
@@ -351,7 +487,7 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void setProxySettings(final ProxyInfo proxyInfo) {
-		mHandler.post(new Runnable() {
+		postUserOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.setProxySettings(proxyInfo);
@@ -360,8 +496,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 
 	public void setRunMode(final int mode) {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.setRunMode(mode);
@@ -370,8 +506,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 
 	public void setNetworkMode(final int mode) {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.setNetworkMode(mode);
@@ -380,8 +516,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void setGpuMode(final int mode) {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.setGpuMode(mode);
@@ -390,8 +526,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 
 	public void shutdownCore() {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.shutdownCore();
@@ -400,8 +536,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 
 	public void doNetworkCommunication() {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.doNetworkCommunication();
@@ -410,8 +546,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 
 	public void projectOperation(final int operation, final String projectUrl) {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.projectOperation(operation, projectUrl);
@@ -420,8 +556,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void projectsOperation(final int operation, final String[] projectUrls) {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.projectsOperation(operation, projectUrls);
@@ -430,8 +566,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 
 	public void taskOperation(final int operation, final String projectUrl, final String taskName) {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.taskOperation(operation, projectUrl, taskName);
@@ -440,8 +576,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void tasksOperation(final int operation, final TaskDescriptor[] tasks) {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.tasksOperation(operation, tasks);
@@ -450,8 +586,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 
 	public void transferOperation(final int operation, final String projectUrl, final String fileName) {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.transferOperation(operation, projectUrl, fileName);
@@ -460,8 +596,8 @@ public class ClientBridgeWorkerThread extends Thread {
 	}
 	
 	public void transfersOperation(final int operation, final TransferDescriptor[] transfers) {
-		// Execute in worker thread
-		mHandler.post(new Runnable() {
+		// Execute in worker thread (priority lane)
+		postControlOp(new Runnable() {
 			@Override
 			public void run() {
 				mHandler.transfersOperation(operation, transfers);
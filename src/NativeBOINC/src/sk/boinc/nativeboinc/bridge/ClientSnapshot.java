@@ -0,0 +1,359 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.bridge;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import sk.boinc.nativeboinc.clientconnection.ProjectInfo;
+import sk.boinc.nativeboinc.clientconnection.TaskInfo;
+import sk.boinc.nativeboinc.clientconnection.TransferInfo;
+import sk.boinc.nativeboinc.debug.Logging;
+import sk.boinc.nativeboinc.util.ClientId;
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Last known projects, tasks and transfers of the client, stored in the private
+ * file (binary, versioned). It is shown while connecting, before
+ * the state of the client is retrieved.
+ * 
+ * @author mat
+ *
+ */
+public final class ClientSnapshot {
+	private static final String TAG = "ClientSnapshot";
+
+	private static final int MAGIC = 0x4e42534e; // 'NBSN'
+	private static final int VERSION = 1;
+	/* bound of the items count (corrupt file must not cause huge allocation) */
+	private static final int MAX_ITEMS_COUNT = 100000;
+
+	public final long savedTime;
+	public final ArrayList<ProjectInfo> projects;
+	public final ArrayList<TaskInfo> tasks;
+	public final ArrayList<TransferInfo> transfers;
+
+	private ClientSnapshot(long savedTime, ArrayList<ProjectInfo> projects,
+			ArrayList<TaskInfo> tasks, ArrayList<TransferInfo> transfers) {
+		this.savedTime = savedTime;
+		this.projects = projects;
+		this.tasks = tasks;
+		this.transfers = transfers;
+	}
+
+	/* snapshot file name of the client (address and port, without password) */
+	private static String getFileName(ClientId client) {
+		StringBuilder sb = new StringBuilder("snapshot_");
+		String address = client.getAddress();
+		for (int i = 0; i < address.length(); i++) {
+			char c = address.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+					c == '.' || c == '-')
+				sb.append(c);
+			else
+				sb.append('_');
+		}
+		sb.append('_');
+		sb.append(client.getPort());
+		sb.append(".bin");
+		return sb.toString();
+	}
+
+	/**
+	 * Loads snapshot of the client
+	 * @param context context
+	 * @param client client
+	 * @return snapshot or null if not available
+	 */
+	public static ClientSnapshot load(Context context, ClientId client) {
+		String fileName = getFileName(client);
+		if (!context.getFileStreamPath(fileName).exists())
+			return null;
+
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new BufferedInputStream(context.openFileInput(fileName)));
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+				throw new IOException("Unknown format");
+			long savedTime = input.readLong();
+
+			int count = readCount(input);
+			ArrayList<ProjectInfo> projects = new ArrayList<ProjectInfo>(count);
+			for (int i = 0; i < count; i++)
+				projects.add(readProject(input));
+
+			count = readCount(input);
+			ArrayList<TaskInfo> tasks = new ArrayList<TaskInfo>(count);
+			for (int i = 0; i < count; i++)
+				tasks.add(readTask(input));
+
+			count = readCount(input);
+			ArrayList<TransferInfo> transfers = new ArrayList<TransferInfo>(count);
+			for (int i = 0; i < count; i++)
+				transfers.add(readTransfer(input));
+
+			return new ClientSnapshot(savedTime, projects, tasks, transfers);
+		} catch(IOException ex) {
+			if (Logging.WARNING) Log.w(TAG, "Cant load snapshot " + fileName, ex);
+		} catch(RuntimeException ex) {
+			if (Logging.WARNING) Log.w(TAG, "Corrupt snapshot " + fileName, ex);
+		} finally {
+			try {
+				if (input != null)
+					input.close();
+			} catch(IOException ex) { }
+		}
+		// bad snapshot is rejected, it would fail at every connect
+		context.deleteFile(fileName);
+		return null;
+	}
+
+	/**
+	 * Saves snapshot of the client (written to temporary file, which replaces old snapshot)
+	 * @param context context
+	 * @param client client
+	 * @return true if successfully saved
+	 */
+	public static boolean save(Context context, ClientId client, Collection<ProjectInfo> projects,
+			Collection<TaskInfo> tasks, Collection<TransferInfo> transfers) {
+		String fileName = getFileName(client);
+		String tempFileName = fileName + ".tmp";
+
+		DataOutputStream output = null;
+		try {
+			output = new DataOutputStream(new BufferedOutputStream(context.openFileOutput(
+					tempFileName, Context.MODE_PRIVATE)));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(System.currentTimeMillis());
+
+			output.writeInt(projects.size());
+			for (ProjectInfo project: projects)
+				writeProject(output, project);
+
+			output.writeInt(tasks.size());
+			for (TaskInfo task: tasks)
+				writeTask(output, task);
+
+			output.writeInt(transfers.size());
+			for (TransferInfo transfer: transfers)
+				writeTransfer(output, transfer);
+
+			output.close();
+			output = null;
+		} catch(IOException ex) {
+			if (Logging.WARNING) Log.w(TAG, "Cant save snapshot " + fileName, ex);
+			context.deleteFile(tempFileName);
+			return false;
+		} finally {
+			try {
+				if (output != null)
+					output.close();
+			} catch(IOException ex) { }
+		}
+
+		File tempFile = context.getFileStreamPath(tempFileName);
+		if (!tempFile.renameTo(context.getFileStreamPath(fileName))) {
+			if (Logging.WARNING) Log.w(TAG, "Cant replace snapshot " + fileName);
+			context.deleteFile(tempFileName);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Deletes snapshot of the client (when host is removed)
+	 * @param context context
+	 * @param client client
+	 */
+	public static void delete(Context context, ClientId client) {
+		String fileName = getFileName(client);
+		context.deleteFile(fileName);
+		context.deleteFile(fileName + ".tmp");
+	}
+
+	/*
+	 * serialization of the models
+	 */
+
+	private static void writeString(DataOutputStream output, String s) throws IOException {
+		output.writeBoolean(s != null);
+		if (s != null)
+			output.writeUTF(s);
+	}
+
+	private static int readCount(DataInputStream input) throws IOException {
+		int count = input.readInt();
+		if (count < 0 || count > MAX_ITEMS_COUNT)
+			throw new IOException("Bad items count " + count);
+		return count;
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+		if (!input.readBoolean())
+			return null;
+		return input.readUTF();
+	}
+
+	private static void writeProject(DataOutputStream output, ProjectInfo project) throws IOException {
+		writeString(output, project.masterUrl);
+		output.writeInt(project.statusId);
+		output.writeInt(project.resShare);
+		writeString(output, project.project);
+		writeString(output, project.account);
+		writeString(output, project.team);
+		output.writeDouble(project.user_credit);
+		output.writeDouble(project.user_rac);
+		output.writeDouble(project.host_credit);
+		output.writeDouble(project.host_rac);
+		writeString(output, project.share);
+		writeString(output, project.status);
+		writeString(output, project.disk_usage);
+		output.writeInt(project.hostid);
+		writeString(output, project.venue);
+		output.writeBoolean(project.non_cpu_intensive);
+		output.writeBoolean(project.have_ati);
+		output.writeBoolean(project.have_cuda);
+		output.writeDouble(project.cpu_short_term_debt);
+		output.writeDouble(project.cpu_long_term_debt);
+		output.writeDouble(project.ati_short_term_debt);
+		output.writeDouble(project.ati_debt);
+		output.writeDouble(project.cuda_short_term_debt);
+		output.writeDouble(project.cuda_debt);
+		output.writeDouble(project.duration_correction_factor);
+	}
+
+	private static ProjectInfo readProject(DataInputStream input) throws IOException {
+		ProjectInfo project = new ProjectInfo();
+		project.masterUrl = readString(input);
+		project.statusId = input.readInt();
+		project.resShare = input.readInt();
+		project.project = readString(input);
+		project.account = readString(input);
+		project.team = readString(input);
+		project.user_credit = input.readDouble();
+		project.user_rac = input.readDouble();
+		project.host_credit = input.readDouble();
+		project.host_rac = input.readDouble();
+		project.share = readString(input);
+		project.status = readString(input);
+		project.disk_usage = readString(input);
+		project.hostid = input.readInt();
+		project.venue = readString(input);
+		project.non_cpu_intensive = input.readBoolean();
+		project.have_ati = input.readBoolean();
+		project.have_cuda = input.readBoolean();
+		project.cpu_short_term_debt = input.readDouble();
+		project.cpu_long_term_debt = input.readDouble();
+		project.ati_short_term_debt = input.readDouble();
+		project.ati_debt = input.readDouble();
+		project.cuda_short_term_debt = input.readDouble();
+		project.cuda_debt = input.readDouble();
+		project.duration_correction_factor = input.readDouble();
+		return project;
+	}
+
+	private static void writeTask(DataOutputStream output, TaskInfo task) throws IOException {
+		writeString(output, task.taskName);
+		writeString(output, task.projectUrl);
+		output.writeInt(task.stateControl);
+		output.writeInt(task.progInd);
+		output.writeLong(task.deadlineNum);
+		writeString(output, task.project);
+		writeString(output, task.application);
+		writeString(output, task.elapsed);
+		writeString(output, task.progress);
+		writeString(output, task.toCompletion);
+		writeString(output, task.deadline);
+		writeString(output, task.virtMemSize);
+		writeString(output, task.workSetSize);
+		writeString(output, task.cpuTime);
+		writeString(output, task.chckpntTime);
+		writeString(output, task.resources);
+		writeString(output, task.state);
+		output.writeInt(task.pid);
+		writeString(output, task.received_time);
+		writeString(output, task.rsc_fpops_est);
+		writeString(output, task.rsc_memory_bound);
+		writeString(output, task.directory);
+	}
+
+	private static TaskInfo readTask(DataInputStream input) throws IOException {
+		TaskInfo task = new TaskInfo();
+		task.taskName = readString(input);
+		task.projectUrl = readString(input);
+		task.stateControl = input.readInt();
+		task.progInd = input.readInt();
+		task.deadlineNum = input.readLong();
+		task.project = readString(input);
+		task.application = readString(input);
+		task.elapsed = readString(input);
+		task.progress = readString(input);
+		task.toCompletion = readString(input);
+		task.deadline = readString(input);
+		task.virtMemSize = readString(input);
+		task.workSetSize = readString(input);
+		task.cpuTime = readString(input);
+		task.chckpntTime = readString(input);
+		task.resources = readString(input);
+		task.state = readString(input);
+		task.pid = input.readInt();
+		task.received_time = readString(input);
+		task.rsc_fpops_est = readString(input);
+		task.rsc_memory_bound = readString(input);
+		task.directory = readString(input);
+		return task;
+	}
+
+	private static void writeTransfer(DataOutputStream output, TransferInfo transfer) throws IOException {
+		writeString(output, transfer.fileName);
+		writeString(output, transfer.projectUrl);
+		output.writeInt(transfer.stateControl);
+		output.writeInt(transfer.progInd);
+		writeString(output, transfer.project);
+		writeString(output, transfer.progress);
+		writeString(output, transfer.size);
+		writeString(output, transfer.elapsed);
+		writeString(output, transfer.speed);
+		writeString(output, transfer.state);
+	}
+
+	private static TransferInfo readTransfer(DataInputStream input) throws IOException {
+		TransferInfo transfer = new TransferInfo();
+		transfer.fileName = readString(input);
+		transfer.projectUrl = readString(input);
+		transfer.stateControl = input.readInt();
+		transfer.progInd = input.readInt();
+		transfer.project = readString(input);
+		transfer.progress = readString(input);
+		transfer.size = readString(input);
+		transfer.elapsed = readString(input);
+		transfer.speed = readString(input);
+		transfer.state = readString(input);
+		return transfer;
+	}
+}
@@ -0,0 +1,167 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.bridge;
+
+import java.util.ArrayList;
+
+import sk.boinc.nativeboinc.clientconnection.MessageInfo;
+import sk.boinc.nativeboinc.util.PreferenceName;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+/**
+ * Bounded store of the messages ordered by seqno (ring buffer).
+ * When store is full, oldest messages are dropped. Methods are synchronized,
+ * because messages are added by worker thread and read by UI thread.
+ * 
+ * @author mat
+ *
+ */
+public final class MessageStore {
+	public static final int DEFAULT_CAPACITY = 2000;
+
+	private MessageInfo[] mMessages;
+	private int[] mSeqnos;
+	private int mFirst = 0;	// position of the oldest message
+	private int mCount = 0;
+
+	public MessageStore(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive");
+		mMessages = new MessageInfo[capacity];
+		mSeqnos = new int[capacity];
+	}
+
+	/**
+	 * @return capacity chosen in preferences
+	 */
+	public static int getCapacity(Context context) {
+		SharedPreferences globalPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+		try {
+			int capacity = Integer.parseInt(globalPrefs.getString(PreferenceName.MESSAGES_CAPACITY,
+					Integer.toString(DEFAULT_CAPACITY)));
+			return (capacity > 0) ? capacity : DEFAULT_CAPACITY;
+		} catch(NumberFormatException ex) {
+			return DEFAULT_CAPACITY;
+		}
+	}
+
+	public synchronized int getCapacity() {
+		return mMessages.length;
+	}
+
+	/**
+	 * Changes capacity, newest messages are kept
+	 * @param capacity new capacity
+	 */
+	public synchronized void setCapacity(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive");
+		if (capacity == mMessages.length)
+			return;
+		MessageInfo[] messages = new MessageInfo[capacity];
+		int[] seqnos = new int[capacity];
+		int count = Math.min(mCount, capacity);
+		for (int i = 0; i < count; i++) {
+			int pos = position(mCount-count+i);
+			messages[i] = mMessages[pos];
+			seqnos[i] = mSeqnos[pos];
+		}
+		mMessages = messages;
+		mSeqnos = seqnos;
+		mFirst = 0;
+		mCount = count;
+	}
+
+	public synchronized int size() {
+		return mCount;
+	}
+
+	public synchronized boolean isEmpty() {
+		return mCount == 0;
+	}
+
+	/**
+	 * @return seqno of the newest message or 0 if store is empty
+	 */
+	public synchronized int getLastSeqno() {
+		if (mCount == 0)
+			return 0;
+		return mSeqnos[position(mCount-1)];
+	}
+
+	/**
+	 * Adds message, messages must be added in seqno order
+	 * @param message message
+	 * @return false if message is already stored (or it is older than stored messages)
+	 */
+	public synchronized boolean add(MessageInfo message) {
+		if (mCount != 0 && message.seqNo <= mSeqnos[position(mCount-1)])
+			return false;
+		int pos;
+		if (mCount == mMessages.length) {
+			// drop oldest
+			pos = mFirst;
+			mFirst = position(1);
+		} else {
+			pos = position(mCount);
+			mCount++;
+		}
+		mMessages[pos] = message;
+		mSeqnos[pos] = message.seqNo;
+		return true;
+	}
+
+	/**
+	 * @param seqNo sequence number
+	 * @return messages newer than seqNo (in seqno order)
+	 */
+	public synchronized ArrayList<MessageInfo> getMessagesSince(int seqNo) {
+		// binary search of the first message with greater seqno
+		int low = 0;
+		int high = mCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (mSeqnos[position(mid)] <= seqNo)
+				low = mid+1;
+			else
+				high = mid;
+		}
+		ArrayList<MessageInfo> messages = new ArrayList<MessageInfo>(mCount - low);
+		for (int i = low; i < mCount; i++)
+			messages.add(mMessages[position(i)]);
+		return messages;
+	}
+
+	public synchronized void clear() {
+		for (int i = 0; i < mMessages.length; i++)
+			mMessages[i] = null;
+		mFirst = 0;
+		mCount = 0;
+	}
+
+	/* position of the index-th message in arrays */
+	private int position(int index) {
+		int pos = mFirst + index;
+		return (pos < mMessages.length) ? pos : pos - mMessages.length;
+	}
+}
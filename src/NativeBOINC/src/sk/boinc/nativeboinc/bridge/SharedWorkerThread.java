@@ -0,0 +1,97 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package sk.boinc.nativeboinc.bridge;
+
+import sk.boinc.nativeboinc.debug.Logging;
+import android.os.ConditionVariable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * Worker thread shared by bridges of the monitored hosts (fleet mode). Their RPC I/O is
+ * done by the selector thread, so this thread does not wait for replies of the hosts
+ * and one thread can serve all of them.
+ * Thread is started by the first bridge and finishes, when last bridge is released.
+ * 
+ * @author mat
+ *
+ */
+final class SharedWorkerThread extends Thread {
+	private static final String TAG = "SharedWorkerThread";
+
+	private static SharedWorkerThread sInstance = null;
+	private static int sUsersCount = 0;
+
+	private ConditionVariable mLock = new ConditionVariable(false);
+	private Looper mLooper = null;
+
+	private SharedWorkerThread() {
+		super("SharedWorkerThread");
+		setDaemon(true);
+	}
+
+	/**
+	 * Returns looper of the shared worker thread (thread is started if needed)
+	 * @return looper
+	 * @throws RuntimeException if worker thread cannot start in a timely fashion
+	 */
+	static synchronized Looper acquire() throws RuntimeException {
+		if (sInstance == null) {
+			SharedWorkerThread thread = new SharedWorkerThread();
+			thread.start();
+			if (!thread.mLock.block(2000)) {
+				if (Logging.ERROR) Log.e(TAG, "SharedWorkerThread did not start in 2 seconds");
+				throw new RuntimeException("Worker thread cannot start");
+			}
+			sInstance = thread;
+		}
+		sUsersCount++;
+		return sInstance.mLooper;
+	}
+
+	/**
+	 * Releases worker thread, last release stops it (after already posted messages)
+	 */
+	static synchronized void release() {
+		if (sInstance == null || --sUsersCount != 0)
+			return;
+		final Looper looper = sInstance.mLooper;
+		sInstance = null;
+		new Handler(looper).post(new Runnable() {
+			@Override
+			public void run() {
+				if (Logging.DEBUG) Log.d(TAG, "Last bridge released, stopping " + Thread.currentThread().toString());
+				looper.quit();
+			}
+		});
+	}
+
+	@Override
+	public void run() {
+		if (Logging.DEBUG) Log.d(TAG, "run() - Started " + Thread.currentThread().toString());
+		Looper.prepare();
+		mLooper = Looper.myLooper();
+		mLock.open();
+		Looper.loop();
+		if (Logging.DEBUG) Log.d(TAG, "run() - Finished " + Thread.currentThread().toString());
+	}
+}
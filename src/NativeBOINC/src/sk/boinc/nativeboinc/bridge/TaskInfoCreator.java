@@ -22,6 +22,7 @@ package sk.boinc.nativeboinc.bridge;
 import sk.boinc.nativeboinc.R;
 import sk.boinc.nativeboinc.clientconnection.ProjectInfo;
 import sk.boinc.nativeboinc.clientconnection.TaskInfo;
+import sk.boinc.nativeboinc.clientconnection.TasksChanges;
 import android.content.res.Resources;
 import edu.berkeley.boinc.lite.App;
 import edu.berkeley.boinc.lite.Result;
@@ -151,6 +152,58 @@ public class TaskInfoCreator {
 		ti.resources = result.resources;
 	}
 
+	public static TaskInfo copy(final TaskInfo ti) {
+		TaskInfo copy = new TaskInfo();
+		copy.taskName = ti.taskName;
+		copy.projectUrl = ti.projectUrl;
+		copy.stateControl = ti.stateControl;
+		copy.progInd = ti.progInd;
+		copy.deadlineNum = ti.deadlineNum;
+		copy.project = ti.project;
+		copy.application = ti.application;
+		copy.elapsed = ti.elapsed;
+		copy.progress = ti.progress;
+		copy.toCompletion = ti.toCompletion;
+		copy.deadline = ti.deadline;
+		copy.virtMemSize = ti.virtMemSize;
+		copy.workSetSize = ti.workSetSize;
+		copy.cpuTime = ti.cpuTime;
+		copy.chckpntTime = ti.chckpntTime;
+		copy.resources = ti.resources;
+		copy.state = ti.state;
+		copy.pid = ti.pid;
+		copy.received_time = ti.received_time;
+		copy.rsc_fpops_est = ti.rsc_fpops_est;
+		copy.rsc_memory_bound = ti.rsc_memory_bound;
+		copy.directory = ti.directory;
+		return copy;
+	}
+
+	/**
+	 * Compares fields which can be changed by update()
+	 * @return changed fields (TasksChanges.XXX_CHANGED flags), 0 if nothing changed
+	 */
+	public static int compare(final TaskInfo prev, final TaskInfo ti) {
+		int fields = 0;
+		if (prev.stateControl != ti.stateControl || !equal(prev.state, ti.state))
+			fields |= TasksChanges.STATE_CHANGED;
+		if (prev.deadlineNum != ti.deadlineNum || !equal(prev.deadline, ti.deadline))
+			fields |= TasksChanges.DEADLINE_CHANGED;
+		if (prev.progInd != ti.progInd || !equal(prev.progress, ti.progress) ||
+				!equal(prev.elapsed, ti.elapsed) || !equal(prev.toCompletion, ti.toCompletion) ||
+				!equal(prev.cpuTime, ti.cpuTime) || !equal(prev.chckpntTime, ti.chckpntTime))
+			fields |= TasksChanges.PROGRESS_CHANGED;
+		if (prev.pid != ti.pid || !equal(prev.virtMemSize, ti.virtMemSize) ||
+				!equal(prev.workSetSize, ti.workSetSize) || !equal(prev.resources, ti.resources) ||
+				!equal(prev.directory, ti.directory) || !equal(prev.received_time, ti.received_time))
+			fields |= TasksChanges.OTHER_CHANGED;
+		return fields;
+	}
+
+	private static final boolean equal(String s1, String s2) {
+		return (s1 != null) ? s1.equals(s2) : (s2 == null);
+	}
+
 	private static final String formatTaskState(int state, int activeTaskState, final Resources resources) {
 		String result = resources.getString(R.string.unknown); // init for case something goes wrong
 		String[] states = resources.getStringArray(R.array.resultStates);
@@ -0,0 +1,205 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package sk.boinc.nativeboinc.bridge;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import sk.boinc.nativeboinc.clientconnection.ProjectInfo;
+import sk.boinc.nativeboinc.clientconnection.TaskInfo;
+import sk.boinc.nativeboinc.clientconnection.TasksChanges;
+import sk.boinc.nativeboinc.debug.Logging;
+import android.util.Log;
+import edu.berkeley.boinc.lite.App;
+import edu.berkeley.boinc.lite.Result;
+import edu.berkeley.boinc.lite.Workunit;
+
+/**
+ * Tasks of the client built from results (with workunits, projects and applications),
+ * and changes of the tasks since last published snapshot.
+ * Used by single (worker) thread, it does not depend on Handler.
+ * 
+ * @author mat
+ *
+ */
+public class TasksModel {
+	private static final String TAG = "TasksModel";
+	
+	private Map<String, Workunit> mWorkunits = new HashMap<String, Workunit>();
+	private Map<String, TaskInfo> mTasks = new HashMap<String, TaskInfo>();
+	private Set<String> mActiveTasks = new HashSet<String>();
+	private int mTasksSequence = 0; // sequence of the last published tasks snapshot
+	private TasksChanges mTasksChanges = null; // changes since last published snapshot
+	private boolean mTasksFullUpdate = true; // if changes are not known
+	
+	/**
+	 * Sets all tasks (from state)
+	 * @param workunits workunits from state
+	 * @param results results from state
+	 * @param projects projects by master url
+	 * @param apps applications by name
+	 * @param formatter formatter
+	 */
+	public void setTasks(ArrayList<Workunit> workunits, ArrayList<Result> results,
+			Map<String, ProjectInfo> projects, Map<String, App> apps, Formatter formatter) {
+		if (Logging.DEBUG) Log.d(TAG, "setTasks(): Begin update");
+		mTasks.clear();
+		mTasksChanges = null;
+		mTasksFullUpdate = true;
+		mActiveTasks.clear();
+		// First, parse workunits, to create auxiliary map of workunits
+		mWorkunits.clear();
+		Iterator<Workunit> wi = workunits.iterator();
+		while (wi.hasNext()) {
+			Workunit wu = wi.next();
+			mWorkunits.put(wu.name, wu);
+		}
+		// Then, parse results to set the tasks data
+		Iterator<Result> ri = results.iterator();
+		while (ri.hasNext()) {
+			Result result = ri.next();
+			ProjectInfo pi = projects.get(result.project_url);
+			if (pi == null) {
+				if (Logging.WARNING) Log.w(TAG, "No project info for WU=" + result.name +
+						" (project_url: " + result.project_url + "), skipping WU");
+				continue;
+			}
+			Workunit workunit = mWorkunits.get(result.wu_name);
+			if (workunit == null) {
+				if (Logging.WARNING) Log.w(TAG, "No workunit info for WU=" + result.name +
+						" (wu_name: " + result.wu_name + "), skipping WU");
+				continue;
+			}
+			App app = apps.get(workunit.app_name);
+			if (app == null) {
+				if (Logging.WARNING) Log.w(TAG, "No application info for WU=" + result.name +
+						" (app_name: " + workunit.app_name + "), skipping WU");
+				continue;
+			}
+			TaskInfo task = TaskInfoCreator.create(result, workunit, pi, app, formatter);
+			mTasks.put(task.taskName, task);
+			if (result.active_task) {
+				// This is also active task
+				mActiveTasks.add(result.name);
+			}
+		}
+		if (Logging.DEBUG) Log.d(TAG, "setTasks(): End update");
+	}
+	
+	/**
+	 * Updates tasks by results
+	 * @param results results
+	 * @param formatter formatter
+	 * @return false if some task is not known (full state must be retrieved)
+	 */
+	public boolean updateTasks(ArrayList<Result> results, Formatter formatter) {
+		if (Logging.DEBUG) Log.d(TAG, "updateTasks(): Begin update");
+		// Auxiliary set, to know which tasks were updated and which not
+		Set<String> oldTaskNames = new HashSet<String>(mTasks.keySet());
+		mActiveTasks.clear(); // We will build new record of active tasks
+		// Changes are collected only if previous tasks were published
+		TasksChanges changes = null;
+		if (mTasksChanges == null && !mTasksFullUpdate)
+			changes = mTasksChanges = new TasksChanges(mTasksSequence+1, mTasksSequence);
+		else {
+			mTasksChanges = null;
+			mTasksFullUpdate = true;
+		}
+		// Parse results to set the tasks data
+		Iterator<Result> ri = results.iterator();
+		while (ri.hasNext()) {
+			Result result = ri.next();
+			TaskInfo prevTask = (TaskInfo)mTasks.get(result.name);
+			if (prevTask == null) {
+				// Maybe new workunit wad downloaded meanwhile, so we have
+				// its result part, but not workunit part
+				if (Logging.DEBUG) Log.d(TAG,
+						"Task not found while trying updateTasks() - needs full updateCcState() update");
+				mTasksChanges = null;
+				mTasksFullUpdate = true;
+				return false;
+			}
+			// published tasks are not modified, changed task is replaced by updated copy
+			TaskInfo task = TaskInfoCreator.copy(prevTask);
+			TaskInfoCreator.update(task, result, formatter);
+			int changedFields = TaskInfoCreator.compare(prevTask, task);
+			if (changedFields != 0) {
+				mTasks.put(task.taskName, task);
+				if (changes != null)
+					changes.addChanged(prevTask, task, changedFields);
+			}
+			if (result.active_task) {
+				// This is also active task
+				mActiveTasks.add(result.name);
+			}
+			// We updated this task - remove it from auxiliary set
+			oldTaskNames.remove(result.name);
+		}
+		// We updated all entries in mTasks, which were in results
+		// But, there could still be some obsolete tasks in mTasks
+		// e.g. those uploaded and reported successfully
+		// We should remove them now
+		if (oldTaskNames.size() > 0) {
+			if (Logging.DEBUG) Log.d(TAG, "updateTasks(): " + oldTaskNames.size() +
+					" obsolete tasks detected");
+			Iterator<String> it = oldTaskNames.iterator();
+			while (it.hasNext()) {
+				String obsoleteName = it.next();
+				TaskInfo removedTask = mTasks.remove(obsoleteName);
+				if (changes != null && removedTask != null)
+					changes.removed.add(removedTask);
+				if (Logging.DEBUG) Log.d(TAG, "updateTasks(): removed " + obsoleteName);
+			}
+		}
+		if (Logging.DEBUG) Log.d(TAG, "updateTasks(): End update");
+		return true;
+	}
+	
+	/**
+	 * Starts new published snapshot of the tasks
+	 * @return changes since previous snapshot (full update if they are not known)
+	 */
+	public TasksChanges publishChanges() {
+		mTasksSequence++;
+		TasksChanges changes = (mTasksChanges != null && !mTasksFullUpdate) ? mTasksChanges :
+				new TasksChanges(mTasksSequence, TasksChanges.NO_SEQUENCE);
+		mTasksChanges = null;
+		mTasksFullUpdate = false;
+		return changes;
+	}
+	
+	public ArrayList<TaskInfo> getTasks() {
+		return new ArrayList<TaskInfo>(mTasks.values());
+	}
+	
+	public Collection<TaskInfo> values() {
+		return mTasks.values();
+	}
+	
+	public int size() {
+		return mTasks.size();
+	}
+}
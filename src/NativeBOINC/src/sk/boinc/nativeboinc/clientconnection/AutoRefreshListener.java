@@ -25,4 +25,8 @@ package sk.boinc.nativeboinc.clientconnection;
  */
 public interface AutoRefreshListener {
 	public abstract void onStartAutoRefresh(int requestType);
+	
+	/* called instead of update, when data are not changed since previous update,
+	 * returns true if periodic updates are allowed (as updatedXXX methods) */
+	public abstract boolean onUnchangedRefresh(int requestType);
 }
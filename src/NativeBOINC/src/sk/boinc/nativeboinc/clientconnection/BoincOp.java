@@ -133,6 +133,28 @@ public class BoincOp {
 		return false;
 	}
 	
+	/**
+	 * @param refreshType refresh type (AutoRefresh.XXX)
+	 * @return update operation of the refresh type or null
+	 */
+	public static BoincOp autoRefreshOp(int refreshType) {
+		switch(refreshType) {
+		case AutoRefresh.CLIENT_MODE:
+			return UpdateClientMode;
+		case AutoRefresh.PROJECTS:
+			return UpdateProjects;
+		case AutoRefresh.TASKS:
+			return UpdateTasks;
+		case AutoRefresh.TRANSFERS:
+			return UpdateTransfers;
+		case AutoRefresh.MESSAGES:
+			return UpdateMessages;
+		case AutoRefresh.NOTICES:
+			return UpdateNotices;
+		}
+		return null;
+	}
+	
 	public boolean isBAMOperation() {
 		return (opCode == OP_BAM_SYNCHRONIZE);
 	}
@@ -0,0 +1,36 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.clientconnection;
+
+import java.util.ArrayList;
+
+/**
+ * Receiver of the overview of the monitored hosts (fleet mode)
+ * 
+ * @author mat
+ *
+ */
+public interface ClientFleetReceiver extends ClientReceiver {
+	/**
+	 * called when summary of some host has been changed
+	 * @param overview summaries of the all monitored hosts
+	 */
+	public abstract void onFleetOverviewChanged(ArrayList<HostSummary> overview);
+}
@@ -19,6 +19,8 @@
 
 package sk.boinc.nativeboinc.clientconnection;
 
+import java.util.ArrayList;
+
 
 import edu.berkeley.boinc.lite.AccountIn;
 import edu.berkeley.boinc.lite.GlobalPreferences;
@@ -52,6 +54,8 @@ public interface ClientRequestHandler {
 	public abstract boolean updateTransfers();
 	public abstract boolean updateMessages();
 	public abstract boolean updateNotices();
+	/* runs updates of refreshMask (bits 1<<AutoRefresh.XXX) in one cycle */
+	public abstract boolean updateRefreshCycle(int refreshMask);
 	
 	public abstract void addToScheduledUpdates(ClientReceiver callback, int refreshType, int period); 
 	public abstract void cancelScheduledUpdates(int refreshType);
@@ -61,6 +65,9 @@ public interface ClientRequestHandler {
 	public abstract Object getPendingOutput(BoincOp boincOp);
 	public abstract boolean isOpBeingExecuted(BoincOp boincOp);
 	
+	/* returns stored messages newer than seqNo (null if not connected) */
+	public abstract ArrayList<MessageInfo> getMessagesSince(int seqNo);
+	
 	public abstract boolean isNativeConnected();
 	
 	/* this calls should enqueued only once, because read state of the client */
@@ -0,0 +1,37 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package sk.boinc.nativeboinc.clientconnection;
+
+/**
+ * Receiver of the notification about last known data of the client (snapshot),
+ * which are published before the current state is retrieved
+ * 
+ * @author mat
+ *
+ */
+public interface ClientSnapshotReceiver extends ClientReceiver {
+	/**
+	 * called after data of the snapshot has been published (by updatedXXX methods)
+	 * @param refreshType refresh type of the published data (AutoRefresh.XXX)
+	 * @param savedTime time when snapshot has been saved
+	 */
+	public abstract void restoredSnapshot(int refreshType, long savedTime);
+}
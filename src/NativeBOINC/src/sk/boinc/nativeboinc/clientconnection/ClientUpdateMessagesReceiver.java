@@ -26,5 +26,7 @@ import java.util.ArrayList;
  *
  */
 public interface ClientUpdateMessagesReceiver extends ClientReceiver {
+	/* messages contains only newly received messages (ordered by seqNo),
+	 * earlier messages can be retrieved by ClientRequestHandler.getMessagesSince */
 	public abstract boolean updatedMessages(ArrayList<MessageInfo> messages);
 }
@@ -0,0 +1,38 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.clientconnection;
+
+import java.util.ArrayList;
+
+/**
+ * Receiver which can apply changes of the tasks instead of whole list
+ * 
+ * @author mat
+ *
+ */
+public interface ClientUpdateTasksDeltaReceiver extends ClientUpdateTasksReceiver {
+	/**
+	 * Called instead of updatedTasks(tasks)
+	 * @param tasks snapshot of all tasks
+	 * @param changes changes since previous snapshot (or full update)
+	 * @return true if periodic updates are allowed
+	 */
+	public abstract boolean updatedTasks(ArrayList<TaskInfo> tasks, TasksChanges changes);
+}
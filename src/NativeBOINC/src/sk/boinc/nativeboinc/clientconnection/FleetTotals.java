@@ -0,0 +1,54 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package sk.boinc.nativeboinc.clientconnection;
+
+import java.util.ArrayList;
+
+/**
+ * Aggregate totals of the monitored hosts (fleet mode)
+ * 
+ * @author mat
+ *
+ */
+public class FleetTotals {
+	public int hostsCount = 0;
+	public int connectedHosts = 0;
+	public int failedHosts = 0;		// hosts with last error
+	public int tasksCount = 0;
+	public int runningTasks = 0;
+	public int progInd = 0;			// average progress of all running tasks (0-1000)
+	
+	public FleetTotals(ArrayList<HostSummary> overview) {
+		long progSum = 0;
+		for (HostSummary summary: overview) {
+			hostsCount++;
+			if (summary.connected)
+				connectedHosts++;
+			if (summary.lastError != null)
+				failedHosts++;
+			tasksCount += summary.tasksCount;
+			runningTasks += summary.runningTasks;
+			// host progress is average of its running tasks
+			progSum += (long)summary.progInd * summary.runningTasks;
+		}
+		progInd = (runningTasks != 0) ? (int)(progSum / runningTasks) : 0;
+	}
+}
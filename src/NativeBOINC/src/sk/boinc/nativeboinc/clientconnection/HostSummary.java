@@ -0,0 +1,55 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.clientconnection;
+
+import sk.boinc.nativeboinc.util.ClientId;
+
+/**
+ * Summary of the monitored host (fleet mode)
+ * 
+ * @author mat
+ *
+ */
+public class HostSummary {
+	public ClientId host;
+	public String nickname;
+	public boolean connected = false;
+	public int tasksCount = 0;
+	public int runningTasks = 0;
+	public int progInd = 0;			// average progress of running tasks (0-1000)
+	public String lastError = null;	// last error message (null if no error)
+	public long updateTime = 0;		// time of last update (from System.currentTimeMillis)
+	
+	public HostSummary(ClientId host) {
+		this.host = host;
+		this.nickname = host.getNickname();
+	}
+	
+	public HostSummary(HostSummary summary) {
+		this.host = summary.host;
+		this.nickname = summary.nickname;
+		this.connected = summary.connected;
+		this.tasksCount = summary.tasksCount;
+		this.runningTasks = summary.runningTasks;
+		this.progInd = summary.progInd;
+		this.lastError = summary.lastError;
+		this.updateTime = summary.updateTime;
+	}
+}
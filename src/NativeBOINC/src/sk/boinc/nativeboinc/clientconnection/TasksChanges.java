@@ -0,0 +1,83 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.clientconnection;
+
+import java.util.ArrayList;
+
+/**
+ * Changes of the tasks between two snapshots published by ClientBridge.
+ * Published TaskInfo objects are never modified, changed task is published as new object.
+ * 
+ * @author mat
+ *
+ */
+public class TasksChanges {
+	public static final int NO_SEQUENCE = -1;
+
+	/* changed fields */
+	public static final int STATE_CHANGED = 1;		// state, stateControl
+	public static final int DEADLINE_CHANGED = 2;	// deadline, deadlineNum
+	public static final int PROGRESS_CHANGED = 4;	// progress, elapsed, toCompletion, cpu times
+	public static final int OTHER_CHANGED = 8;		// pid, memory sizes, resources, ...
+
+	/* fields which change order of tasks in list */
+	public static final int ORDER_FIELDS = STATE_CHANGED | DEADLINE_CHANGED;
+
+	public int sequence;						// sequence number of the snapshot
+	public int baseSequence = NO_SEQUENCE;		// sequence of the previous snapshot (NO_SEQUENCE for full update)
+
+	public ArrayList<TaskInfo> added = new ArrayList<TaskInfo>();
+	public ArrayList<TaskInfo> removed = new ArrayList<TaskInfo>();	// previous objects of removed tasks
+	public ArrayList<TaskInfo> changed = new ArrayList<TaskInfo>();
+	public ArrayList<TaskInfo> changedPrevious = new ArrayList<TaskInfo>(); // previous objects of changed tasks
+	private int[] mChangedFields = new int[8];
+
+	public TasksChanges(int sequence, int baseSequence) {
+		this.sequence = sequence;
+		this.baseSequence = baseSequence;
+	}
+
+	public void addChanged(TaskInfo previous, TaskInfo task, int fields) {
+		int index = changed.size();
+		if (index == mChangedFields.length) {
+			int[] newFields = new int[index<<1];
+			System.arraycopy(mChangedFields, 0, newFields, 0, index);
+			mChangedFields = newFields;
+		}
+		mChangedFields[index] = fields;
+		changed.add(task);
+		changedPrevious.add(previous);
+	}
+
+	/**
+	 * @return changed fields of the changed task at index
+	 */
+	public int getChangedFields(int index) {
+		return mChangedFields[index];
+	}
+
+	public boolean isFullUpdate() {
+		return baseSequence == NO_SEQUENCE;
+	}
+
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+}
@@ -0,0 +1,125 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.debug;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+import android.util.Log;
+
+/**
+ * Collects timings of the named operations (parsing of the RPC replies, building
+ * the models) and periodically logs their summary. Calls should be guarded by
+ * Debugging.PERFORMANCE, so the release build does not contain them.
+ * 
+ * @author mat
+ *
+ */
+public final class PerformanceStats {
+	private static final String TAG = "PerformanceStats";
+
+	private static final int REPORT_PERIOD = 10;
+
+	private static final class Entry {
+		public int count = 0;
+		public long totalTime = 0;
+		public long minTime = Long.MAX_VALUE;
+		public long maxTime = 0;
+		public long totalItems = 0;
+	}
+
+	private static final HashMap<String, Entry> sEntries = new HashMap<String, Entry>();
+
+	private PerformanceStats() { }
+
+	/**
+	 * Records single run of the operation
+	 * @param name name of the operation
+	 * @param startTime start time (from System.nanoTime())
+	 * @param itemsCount number of processed items (tasks, messages, ...)
+	 */
+	public static void record(String name, long startTime, int itemsCount) {
+		recordTime(name, System.nanoTime() - startTime, itemsCount);
+	}
+
+	/**
+	 * Records single run of the operation, which time includes time of other activity
+	 * (for example waiting for data of the parsed reply)
+	 * @param name name of the operation
+	 * @param startTime start time (from System.nanoTime())
+	 * @param excludedTime time of other activity (nanoseconds), which is not counted
+	 * @param itemsCount number of processed items (tasks, messages, ...)
+	 */
+	public static void record(String name, long startTime, long excludedTime, int itemsCount) {
+		recordTime(name, System.nanoTime() - startTime - excludedTime, itemsCount);
+	}
+
+	private static void recordTime(String name, long time, int itemsCount) {
+		synchronized (sEntries) {
+			Entry entry = sEntries.get(name);
+			if (entry == null) {
+				entry = new Entry();
+				sEntries.put(name, entry);
+			}
+			entry.count++;
+			entry.totalTime += time;
+			entry.totalItems += itemsCount;
+			if (time < entry.minTime)
+				entry.minTime = time;
+			if (time > entry.maxTime)
+				entry.maxTime = time;
+
+			Log.d(TAG, name + " took " + (time/1000) + " us for " + itemsCount + " items");
+			if ((entry.count % REPORT_PERIOD) == 0)
+				Log.d(TAG, entrySummary(name, entry));
+		}
+	}
+
+	private static String entrySummary(String name, Entry entry) {
+		return name + ": " + entry.count + " runs, avg " +
+				(entry.totalTime/entry.count/1000) + " us, min " + (entry.minTime/1000) +
+				" us, max " + (entry.maxTime/1000) + " us, avg items " +
+				(entry.totalItems/entry.count);
+	}
+
+	/**
+	 * @return summary of the all recorded operations (one line per operation, sorted by name)
+	 */
+	public static String summary() {
+		StringBuilder sb = new StringBuilder();
+		synchronized (sEntries) {
+			ArrayList<String> names = new ArrayList<String>(sEntries.keySet());
+			Collections.sort(names);
+			for (String name: names)
+				sb.append(entrySummary(name, sEntries.get(name))).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Clears collected timings
+	 */
+	public static void reset() {
+		synchronized (sEntries) {
+			sEntries.clear();
+		}
+	}
+}
@@ -19,9 +19,7 @@
 
 package sk.boinc.nativeboinc.installer;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -32,6 +30,7 @@ import java.io.Reader;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.security.SignatureException;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -70,6 +69,11 @@ public class Downloader {
 	
 	private static final int NOTIFY_PERIOD = 400;
 	
+	private static final String PART_SUFFIX = ".part";
+	private static final String PART_STATE_SUFFIX = ".part.state";
+	/* partial downloads untouched for this time are deleted */
+	private static final long PART_EXPIRY = 2*24*3600*1000L;
+	
 	public Downloader(Context context, InstallerHandler installerHandler) {
 		mContext = context;
 		mInstallerHandler = installerHandler;
@@ -184,16 +188,18 @@ public class Downloader {
 	public static final int VERIFICATION_FAILED = 2;
 	public static final int VERIFICATION_CANCELLED = 4;
 	
-	public int verifyFile(File file, String urlString, boolean withProgress, int channelId,
-			InstallOp installOp, final String distribName, final String projectUrl)
-					throws InstallationException {
-		if (Logging.DEBUG) Log.d(TAG, "verifying file "+urlString);
+	/**
+	 * loads PGP key, downloads file signature and initializes verification
+	 * @return signature ready for update or null if cancelled
+	 */
+	private PGPSignature prepareSignature(String urlString, int channelId, InstallOp installOp,
+			String distribName, String projectUrl) throws InstallationException {
 		FileInputStream pgpStream = null;
 		
 		Thread currentThread = Thread.currentThread();
 		
 		if (currentThread.isInterrupted())	// if cancelled
-			return VERIFICATION_CANCELLED;
+			return null;
 		
 		try {
 			synchronized(this) {
@@ -207,7 +213,7 @@ public class Downloader {
 				
 				if (mPgpKeyContent == null) {
 					if (pgpStream == null) // cancelled
-						return VERIFICATION_CANCELLED;
+						return null;
 					
 					byte[] content = new byte[4096];
 					int readed = pgpStream.read(content);
@@ -220,7 +226,7 @@ public class Downloader {
 				}
 			}
 		} catch(InterruptedIOException ex) {
-			return VERIFICATION_CANCELLED;
+			return null;
 		} catch(IOException ex) {
 			mInstallerHandler.notifyError(channelId, installOp, distribName, projectUrl,
 					mContext.getString(R.string.loadPGPKeyError));
@@ -233,7 +239,7 @@ public class Downloader {
 		}
 		
 		if (currentThread.isInterrupted())
-			return VERIFICATION_CANCELLED;
+			return null;
 		
 		byte[] signContent = null;
 		InputStream signatureStream = null;
@@ -252,7 +258,7 @@ public class Downloader {
 			signContent = new byte[readed];
 			System.arraycopy(content, 0, signContent, 0, readed);
 		} catch(InterruptedIOException ex) {
-			return VERIFICATION_CANCELLED;
+			return null;
 		} catch(IOException ex) {
 			mInstallerHandler.notifyError(channelId, installOp, distribName, projectUrl,
 					mContext.getString(R.string.downloadSignatureError));
@@ -265,16 +271,10 @@ public class Downloader {
 		}
 		
 		if (currentThread.isInterrupted())
-			return VERIFICATION_CANCELLED;
-		
-		String opDesc = mContext.getString(R.string.verifySignature);
-		
-		if (channelId == InstallerService.DEFAULT_CHANNEL_ID)
-			mInstallerHandler.notifyOperation(distribName, projectUrl, opDesc);
+			return null;
 		
-		/* verify file signature */
+		/* initialize signature verification */
 		InputStream bIStream = new ByteArrayInputStream(signContent);
-		InputStream contentStream = null;
 		
 		try {
 			bIStream = PGPUtil.getDecoderStream(bIStream);
@@ -288,77 +288,99 @@ public class Downloader {
 	        PGPPublicKeyRingCollection pgpPubRingCollection = 
 	        	new PGPPublicKeyRingCollection(PGPUtil.getDecoderStream(keyInStream));
 	        
-	        contentStream = new BufferedInputStream(new FileInputStream(file));
-
 	        PGPSignature signature = pgpSignList.get(0);
 	        PGPPublicKey key = pgpPubRingCollection.getPublicKey(signature.getKeyID());
 	        
 	        signature.initVerify(key, "BC");
-
-	        long length = file.length();
-	        
-	        int ch;
-	        long readed = 0;
-	        long time = System.currentTimeMillis();
-	        
-	        while ((ch = contentStream.read()) >= 0) {
-	            signature.update((byte)ch);
-	            readed++;
-	            
-	            if(currentThread.isInterrupted())	// do cancel
-	            	return VERIFICATION_CANCELLED;
-	            
-	            if (withProgress && (readed & 8191) == 0) {
-	            	long newTime = System.currentTimeMillis(); 
-	            	if (newTime-time > NOTIFY_PERIOD) {
-	            		if (channelId == InstallerService.DEFAULT_CHANNEL_ID)
-	            			mInstallerHandler.notifyProgress(distribName, projectUrl, opDesc,
-	            					(int)((double)readed*10000.0/(double)length));
-	            		time = newTime;
-	            	}
-	            	/*try {
-						Thread.sleep(40);
-					} catch(InterruptedException ex) {
-						return VERIFICATION_CANCELLED;
-					}*/
-	            }
-	        }
-	        
-	        if (withProgress && channelId == InstallerService.DEFAULT_CHANNEL_ID)
-	        	mInstallerHandler.notifyProgress(distribName, projectUrl, opDesc,
-	        			InstallerProgressListener.FINISH_PROGRESS);
-	        
-	        if (signature.verify())
-	        	return VERIFIED_SUCCESFULLY;
-	        else
-	        	return VERIFICATION_FAILED;
+	        return signature;
 		} catch(InterruptedIOException ex) {
 			if (Logging.DEBUG) Log.d(TAG, "verif cancelled");
-			return VERIFICATION_CANCELLED;
+			return null;
 		} catch (Exception ex) {
 			if (Logging.DEBUG) Log.d(TAG, "verif failed:"+ex.getMessage());
 			mInstallerHandler.notifyError(channelId, installOp, distribName, projectUrl,
 					mContext.getString(R.string.verifySignatureError));
 			throw new InstallationException();
-		} finally {
-			try {
-				if (contentStream != null)
-					contentStream.close();
-			} catch(IOException ex) { }
 		}
 	}
 	
-	public void downloadFile(String urlString, String outFilename, final String opDesc,
-			final String messageError, final boolean withProgress, final int channelId,
-			final InstallOp installOp, final String distribName, final String projectUrl)
-					throws InstallationException {
+	private int finishVerification(PGPSignature signature, int channelId, InstallOp installOp,
+			String distribName, String projectUrl) throws InstallationException {
+		try {
+			if (signature.verify())
+				return VERIFIED_SUCCESFULLY;
+			else
+				return VERIFICATION_FAILED;
+		} catch (Exception ex) {
+			if (Logging.DEBUG) Log.d(TAG, "verif failed:"+ex.getMessage());
+			mInstallerHandler.notifyError(channelId, installOp, distribName, projectUrl,
+					mContext.getString(R.string.verifySignatureError));
+			throw new InstallationException();
+		}
+	}
+	
+	/**
+	 * Downloads file and verifies its signature in one pass: signature is fetched first
+	 * and updated by downloaded content (in file order) while it is written.
+	 * @return verification status (VERIFICATION_CANCELLED if download cancelled)
+	 */
+	public int downloadAndVerifyFile(String urlString, String outFilename, String opDesc,
+			String messageError, boolean withProgress, int channelId, InstallOp installOp,
+			String distribName, String projectUrl) throws InstallationException {
+		return downloadAndVerifyFile(urlString, outFilename, opDesc, messageError, withProgress,
+				channelId, installOp, distribName, projectUrl, null);
+	}
+	
+	/**
+	 * Downloads file and verifies its signature in one pass.
+	 * @param contentListener next stage which gets content after signature (can be null)
+	 * @return verification status (VERIFICATION_CANCELLED if download cancelled)
+	 */
+	public int downloadAndVerifyFile(String urlString, String outFilename, String opDesc,
+			String messageError, boolean withProgress, int channelId, InstallOp installOp,
+			String distribName, String projectUrl,
+			final ResumableDownload.ContentListener contentListener) throws InstallationException {
+		if (Logging.DEBUG) Log.d(TAG, "downloading and verifying file "+urlString);
 		
-		Thread currentThread = Thread.currentThread();
+		final PGPSignature signature = prepareSignature(urlString, channelId, installOp,
+				distribName, projectUrl);
+		if (signature == null)	// if cancelled
+			return VERIFICATION_CANCELLED;
+		
+		boolean isDownloaded = downloadFile(urlString, outFilename, opDesc, messageError,
+				withProgress, channelId, installOp, distribName, projectUrl,
+				new ResumableDownload.ContentListener() {
+					@Override
+					public void onContent(byte[] buffer, int offset, int length) throws IOException {
+						try {
+							signature.update(buffer, offset, length);
+						} catch(SignatureException ex) {
+							throw new IOException(ex.getMessage());
+						}
+						if (contentListener != null)
+							contentListener.onContent(buffer, offset, length);
+					}
+				});
+		
+		if (!isDownloaded)
+			return VERIFICATION_CANCELLED;
+		
+		return finishVerification(signature, channelId, installOp, distribName, projectUrl);
+	}
+	
+	/**
+	 * @return false if cancelled
+	 */
+	private boolean downloadFile(String urlString, String outFilename, final String opDesc,
+			final String messageError, final boolean withProgress, final int channelId,
+			final InstallOp installOp, final String distribName, final String projectUrl,
+			ResumableDownload.ContentListener contentListener) throws InstallationException {
 		
 		if (Logging.DEBUG) Log.d(TAG, "downloading file "+urlString);
 		
-		InputStream inStream = null;
-		FileOutputStream outStream = null;
+		// part files of cancelled (and never retried) installations
+		ResumableDownload.deleteExpiredParts(mContext.getFilesDir(), PART_SUFFIX, PART_STATE_SUFFIX,
+				PART_EXPIRY);
 		
 		try {
 			URL url = new URL(urlString);
@@ -366,71 +388,56 @@ public class Downloader {
 			if (channelId == InstallerService.DEFAULT_CHANNEL_ID)
 				mInstallerHandler.notifyOperation(distribName, projectUrl, opDesc);
 			
-			if (!url.getProtocol().equals("ftp")) {
-				/* if http protocol */
-				URLConnection urlConn = url.openConnection();
-				
-				urlConn.setConnectTimeout(12000);
-				urlConn.setReadTimeout(12000);
-				
-				inStream = urlConn.getInputStream();
-				outStream = new FileOutputStream(mContext.getFileStreamPath(outFilename));
-				
-				byte[] buffer = new byte[BUFFER_SIZE];
-				int length = urlConn.getContentLength();
-				int totalReaded = 0;
-				long currentTime = System.currentTimeMillis();
+			/* partial content is kept for resuming after broken download */
+			ResumableDownload download = new ResumableDownload(url,
+					mContext.getFileStreamPath(outFilename),
+					mContext.getFileStreamPath(outFilename + PART_SUFFIX),
+					mContext.getFileStreamPath(outFilename + PART_STATE_SUFFIX));
+			download.setContentListener(contentListener);
+			
+			final String rateUnit = mContext.getString(R.string.unitKBps);
+			final String verifyOpDesc = mContext.getString(R.string.verifySignature);
+			
+			boolean isDownloaded = download.run(new ResumableDownload.ProgressListener() {
+				private StringBuilder mStringBuilder = new StringBuilder();
 				
-				while(true) {
-					int readed = inStream.read(buffer);
-					if (readed == -1)
-						break;
-					
-					if (currentThread.isInterrupted())
-						break;	// if canceled
-					
-					outStream.write(buffer, 0, readed);
-					totalReaded += readed;
-					
-					if (length != -1 && withProgress) {
-						long newTime = System.currentTimeMillis();
-						if (newTime-currentTime > NOTIFY_PERIOD) {
-							if (channelId == InstallerService.DEFAULT_CHANNEL_ID)
-								mInstallerHandler.notifyProgress(distribName, projectUrl, opDesc,
-										(int)((double)totalReaded*10000.0/(double)length));
-							currentTime = newTime;
-						}
-					}
-					/*try {
-						Thread.sleep(60);
-					} catch(InterruptedException ex) {
-						currentThread.interrupt();
+				@Override
+				public void onProgress(long downloaded, long length, int bytesPerSecond) {
+					if (length <= 0 || !withProgress || channelId != InstallerService.DEFAULT_CHANNEL_ID)
 						return;
-					}*/
+					
+					mStringBuilder.setLength(0);
+					mStringBuilder.append(opDesc);
+					mStringBuilder.append(" (");
+					mStringBuilder.append(bytesPerSecond >> 10);
+					mStringBuilder.append(rateUnit);
+					mStringBuilder.append(")");
+					mInstallerHandler.notifyProgress(distribName, projectUrl, mStringBuilder.toString(),
+							(int)((double)downloaded*10000.0/(double)length));
 				}
 				
-				outStream.flush();
-				
-				if (withProgress && channelId == InstallerService.DEFAULT_CHANNEL_ID)
-					mInstallerHandler.notifyProgress(distribName, projectUrl, opDesc, 10000);
-			} else {
-				throw new UnsupportedOperationException("Unsupported operation");
-			}
+				@Override
+				public void onStreamProgress(long streamed, long length) {
+					if (!withProgress || channelId != InstallerService.DEFAULT_CHANNEL_ID)
+						return;
+					// content of other segments is verified after download
+					mInstallerHandler.notifyProgress(distribName, projectUrl, verifyOpDesc,
+							(int)((double)streamed*10000.0/(double)length));
+				}
+			});
+			
+			if (!isDownloaded)
+				return false;	// cancelled
+			
+			if (withProgress && channelId == InstallerService.DEFAULT_CHANNEL_ID)
+				mInstallerHandler.notifyProgress(distribName, projectUrl, opDesc, 10000);
+			return true;
 		} catch(InterruptedIOException ex) {
-			return; // cancelled
+			return false; // cancelled
 		} catch(IOException ex) {
-			mContext.deleteFile(outFilename);
+			if (Logging.WARNING) Log.w(TAG, "Download failed: "+ex.getMessage()+" for "+urlString);
 			mInstallerHandler.notifyError(channelId, installOp, distribName, projectUrl, messageError);
 			throw new InstallationException();
-		} finally {
-			try {
-				if (inStream != null)
-					inStream.close();
-			} catch (IOException ex) { }
-			try {
-				if (outStream != null)
-					outStream.close();
-			} catch (IOException ex) { }
 		}
 	}
 }
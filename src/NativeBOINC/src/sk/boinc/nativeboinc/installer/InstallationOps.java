@@ -24,11 +24,19 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import sk.boinc.nativeboinc.BoincManagerApplication;
 import sk.boinc.nativeboinc.R;
@@ -64,7 +72,6 @@ public class InstallationOps {
 	private BoincManagerApplication mApp = null;
 		
 	private static final int NOTIFY_PERIOD = 400;
-	private static final int BUFFER_SIZE = 4096;
 	
 	private String mExternalPath = null; 
 	
@@ -116,24 +123,11 @@ public class InstallationOps {
 		try {
 			/* download boinc client's list */
 			try {	/* download with ignoring */
-				mDownloader.downloadFile(clientListUrl, "client.xml",
+				int status = mDownloader.downloadAndVerifyFile(clientListUrl, "client.xml",
 						mContext.getString(R.string.clientListDownload), 
 						mContext.getString(R.string.clientListDownloadError), false,
 						channelId, installOp, "", "");
 				
-				if (Thread.interrupted()) { // if cancelled
-					if (Logging.DEBUG) Log.d(TAG, "updateClientDistrib interrupted");
-					mInstallerHandler.notifyCancel(channelId, installOp, "", "");
-					return null;
-				}
-				
-				/* if doesnt downloaded */
-				if (!mContext.getFileStreamPath("client.xml").exists())
-					return null;
-				
-				int status = mDownloader.verifyFile(mContext.getFileStreamPath("client.xml"),
-						clientListUrl, false, channelId, installOp, "", "");
-				
 				if (status == Downloader.VERIFICATION_CANCELLED) {
 					Thread.interrupted(); // clear interrupted flag
 					if (Logging.DEBUG) Log.d(TAG, "updateClientDistrib verif canceled");
@@ -244,20 +238,11 @@ public class InstallationOps {
 		String appListUrl = mContext.getString(R.string.installAppsSourceUrl)+"apps2.xml";
 		
 		try {
-			mDownloader.downloadFile(appListUrl, "apps.xml",  // new file, we break compatibility in this version
+			int status = mDownloader.downloadAndVerifyFile(appListUrl, "apps.xml",  // new file, we break compatibility in this version
 					mContext.getString(R.string.appListDownload),
 					mContext.getString(R.string.appListDownloadError), false, channelId, 
 					installOp, "", "");
 			
-			if (Thread.interrupted()) { // if cancelled
-				if (Logging.DEBUG) Log.d(TAG, "updateClientDistrib interrupted");
-				mInstallerHandler.notifyCancel(channelId, installOp, "", "");
-				return null;
-			}
-			
-			int status = mDownloader.verifyFile(mContext.getFileStreamPath("apps.xml"),
-					appListUrl, false, channelId, installOp, "", "");
-			
 			if (status == Downloader.VERIFICATION_CANCELLED) {
 				Thread.interrupted(); // clear interrupted flag
 				mInstallerHandler.notifyCancel(channelId, installOp, "", "");
@@ -492,7 +477,7 @@ public class InstallationOps {
 	 * Dump boinc files routines
 	 */
 	private long calculateDirectorySize(File dir) {
-		int length = 0;
+		long length = 0;
 		File[] dirFiles = dir.listFiles();
 		if (dirFiles == null)
 			return -1;
@@ -517,8 +502,6 @@ public class InstallationOps {
 		return length;
 	}
 	
-	private byte[] mBuffer = new byte[BUFFER_SIZE];
-	
 	private long mPreviousNotifyTime;
 	
 	private StringBuilder mStringBuilder = new StringBuilder();
@@ -528,6 +511,10 @@ public class InstallationOps {
 	private static final int COPY_TO_SDCARD = 1;
 	private static final int COPY_FROM_SDCARD = 2;
 	
+	private static final int COPY_WORKERS_NUM = 3;
+	/* maximal size of single transfer (granularity of progress and cancellation) */
+	private static final long COPY_CHUNK_SIZE = 1024*1024;
+	
 	private static interface ProgressNotifier {
 		public void notifyProgress(int progress);
 	}
@@ -537,23 +524,131 @@ public class InstallationOps {
 		private final long mInputSize;
 		private final int mMode;
 		private final ProgressNotifier mProgressNotifier;
+		/* if not null, unchanged files are skipped and removed files are deleted */
+		private final SyncManifest mManifest;
+		
+		private final AtomicLong mCopied = new AtomicLong(0);
+		private volatile boolean mCancelled = false;
+		private volatile IOException mError = null;
+		
+		/* copied directories (permissions are set after copying files) */
+		private final ArrayList<File> mInDirs = new ArrayList<File>();
+		private final ArrayList<File> mOutDirs = new ArrayList<File>();
+		
+		private class CopyFileTask implements Runnable {
+			private final File mInFile;
+			private final File mOutFile;
+			private final String mRelPath;
+			private final long mSize;
+			private final long mLastModified;
+			
+			public CopyFileTask(File inFile, File outFile, String relPath, long size,
+					long lastModified) {
+				mInFile = inFile;
+				mOutFile = outFile;
+				mRelPath = relPath;
+				mSize = size;
+				mLastModified = lastModified;
+			}
+			
+			@Override
+			public void run() {
+				if (mCancelled || mError != null)
+					return;
+				try {
+					if (copyFile(mInFile, mOutFile) && mManifest != null)
+						mManifest.put(mRelPath, mSize, mLastModified);
+				} catch(IOException ex) {
+					if (mError == null)
+						mError = ex;
+				}
+			}
+		}
 		
 		public CopyDirectoryHelper(long inputSize, int mode, ProgressNotifier progressNotifier) {
+			this(inputSize, mode, progressNotifier, null);
+		}
+		
+		public CopyDirectoryHelper(long inputSize, int mode, ProgressNotifier progressNotifier,
+				SyncManifest manifest) {
 			this.mInputSize = inputSize;
 			this.mMode = mode;
 			this.mProgressNotifier = progressNotifier;
+			this.mManifest = manifest;
 		}
 		
+		/**
+		 * copies directory by using pool of workers (files are walked in current thread)
+		 * @return copied bytes
+		 */
 		public long copyDirectory(File inDir, File outDir, long copied) throws IOException {
+			Thread currentThread = Thread.currentThread();
+			mCopied.set(copied);
+			
+			ExecutorService executor = Executors.newFixedThreadPool(COPY_WORKERS_NUM);
+			ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+			
+			try {
+				walkDirectory(inDir, outDir, "", executor, futures);
+				
+				/* wait for workers */
+				int waitIndex = 0;
+				while (waitIndex < futures.size()) {
+					if (mError != null)
+						throw mError;
+					// keep interrupt state for parent method
+					if (currentThread.isInterrupted()) // cancel
+						return mCopied.get();
+					
+					try {
+						futures.get(waitIndex).get(NOTIFY_PERIOD, TimeUnit.MILLISECONDS);
+						waitIndex++;
+					} catch(TimeoutException ex) {
+					} catch(InterruptedException ex) {
+						currentThread.interrupt();
+					} catch(ExecutionException ex) {
+						throw new IOException(ex.getMessage());
+					}
+					notifyProgress();
+				}
+				if (mError != null)
+					throw mError;
+				if (currentThread.isInterrupted()) // cancel
+					return mCopied.get();
+				
+				for (int i = 0; i < mInDirs.size(); i++) {
+					File dir = mInDirs.get(i);
+					applyExecsModes(dir, dir.listFiles(), mOutDirs.get(i));
+				}
+				return mCopied.get();
+			} finally {
+				mCancelled = true;
+				executor.shutdown();
+				awaitWorkers(executor);
+			}
+		}
+		
+		private void walkDirectory(File inDir, File outDir, String relPath, ExecutorService executor,
+				ArrayList<Future<?>> futures) throws IOException {
 			File[] inDirFiles = inDir.listFiles();
 			
 			if (inDirFiles == null)
 				throw new IOException("Cant access to directory!");
 			
+			mInDirs.add(inDir);
+			mOutDirs.add(outDir);
+			
+			if (mManifest != null)
+				deleteRemovedFiles(inDirFiles, outDir, relPath.length() == 0);
+			
 			for (File file: inDirFiles) {
 				if (file.getName().equals(EXECS_NAME))
 					continue; // skip '.__execs__' file
 				
+				// keep interrupt state for parent method
+				if (Thread.currentThread().isInterrupted() || mError != null) // cancel
+					return;
+				
 				mStringBuilder.setLength(0);
 				mStringBuilder.append(outDir.getPath());
 				mStringBuilder.append("/");
@@ -561,56 +656,140 @@ public class InstallationOps {
 				File outFile = new File(mStringBuilder.toString());
 				
 				if (file.isDirectory()) {
+					if (outFile.isFile())
+						outFile.delete();
 					if (!outFile.exists())
 						outFile.mkdir();
 					
-					copied = copyDirectory(file, outFile, copied);
-					
-					// keep interrupt state for parent method
-					if (Thread.currentThread().isInterrupted()) // cancel
-						return copied;
+					walkDirectory(file, outFile, relPath+file.getName()+"/", executor, futures);
 				} else {
-					FileInputStream inStream = null;
-					FileOutputStream outStream = null;
+					String fileRelPath = relPath+file.getName();
+					long size = file.length();
+					long lastModified = file.lastModified();
 					
-					try {
-						inStream = new FileInputStream(file);
-						outStream = new FileOutputStream(outFile);
-						
-						// keep interrupt state for parent method
-						if (Thread.currentThread().isInterrupted()) // cancel
-							return copied;
-						
-						while(true) {
-							/* main copy routine */
-							int readed = inStream.read(mBuffer);
-							
-							copied += readed;
-							
-							long currentNotifyTime = System.currentTimeMillis();
-							if (currentNotifyTime-mPreviousNotifyTime>NOTIFY_PERIOD) {
-								// notify about progress
-								mProgressNotifier.notifyProgress((int)(10000.0*(double)copied/(double)mInputSize));
-								mPreviousNotifyTime = currentNotifyTime;
-								
-								if (Thread.currentThread().isInterrupted()) // cancel
-									return copied;
-							}
-							
-							if (readed == -1)
-								break;
-							outStream.write(mBuffer, 0, readed);
+					if (mManifest != null) {
+						if (mManifest.isUnchanged(fileRelPath, size, lastModified, outFile)) {
+							// skip unchanged file
+							mManifest.put(fileRelPath, size, lastModified);
+							mCopied.addAndGet(size);
+							continue;
 						}
-						
-						outStream.flush();
-					} finally {
-						if (inStream != null)
-							inStream.close();
-						if (outStream != null)
-							outStream.close();
+						if (outFile.isDirectory())
+							deleteDirectory(outFile);
 					}
+					futures.add(executor.submit(new CopyFileTask(file, outFile, fileRelPath,
+							size, lastModified)));
+				}
+			}
+		}
+		
+		/**
+		 * deletes files in destination directory which does not exist in source directory
+		 */
+		private void deleteRemovedFiles(File[] inDirFiles, File outDir, boolean isRoot) {
+			String[] outNames = outDir.list();
+			if (outNames == null)
+				return;
+			
+			HashSet<String> inNames = new HashSet<String>();
+			for (File file: inDirFiles)
+				inNames.add(file.getName());
+			
+			for (String name: outNames) {
+				if (inNames.contains(name) || name.equals(EXECS_NAME) ||
+						(isRoot && name.equals(SyncManifest.MANIFEST_NAME)))
+					continue;
+				
+				File outFile = new File(outDir, name);
+				if (outFile.isDirectory())
+					deleteDirectory(outFile);
+				else
+					outFile.delete();
+			}
+		}
+		
+		/**
+		 * @return true if whole file copied
+		 */
+		private boolean copyFile(File inFile, File outFile) throws IOException {
+			FileInputStream inStream = null;
+			FileOutputStream outStream = null;
+			
+			try {
+				inStream = new FileInputStream(inFile);
+				outStream = new FileOutputStream(outFile);
+				
+				FileChannel inChannel = inStream.getChannel();
+				FileChannel outChannel = outStream.getChannel();
+				long size = inChannel.size();
+				long position = 0;
+				
+				/* main copy routine */
+				while (position < size) {
+					if (mCancelled)
+						return false;
+					long transferred = inChannel.transferTo(position,
+							Math.min(COPY_CHUNK_SIZE, size-position), outChannel);
+					if (transferred <= 0)
+						break;	// file truncated during copying
+					position += transferred;
+					mCopied.addAndGet(transferred);
 				}
+				return true;
+			} finally {
+				if (inStream != null)
+					inStream.close();
+				if (outStream != null)
+					outStream.close();
 			}
+		}
+		
+		private void notifyProgress() {
+			long currentNotifyTime = System.currentTimeMillis();
+			if (currentNotifyTime-mPreviousNotifyTime>NOTIFY_PERIOD) {
+				// notify about progress
+				mProgressNotifier.notifyProgress((int)(10000.0*(double)mCopied.get()/(double)mInputSize));
+				mPreviousNotifyTime = currentNotifyTime;
+			}
+		}
+		
+		/**
+		 * waits for finish of workers, keeps interrupt state
+		 */
+		private void awaitWorkers(ExecutorService executor) {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					if (executor.awaitTermination(NOTIFY_PERIOD, TimeUnit.MILLISECONDS))
+						break;
+				} catch(InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+		
+		/**
+		 * sets up permissions after directory was moved by renaming
+		 */
+		public void fixupMovedDirectory(File dir) throws IOException {
+			File[] dirFiles = dir.listFiles();
+			if (dirFiles == null)
+				throw new IOException("Cant access to directory!");
+			
+			for (File file: dirFiles)
+				if (file.isDirectory())
+					fixupMovedDirectory(file);
+			
+			applyExecsModes(dir, dirFiles, dir);
+			if (mMode == COPY_FROM_SDCARD) // internal memory does not use '.__execs__' files
+				new File(dir, EXECS_NAME).delete();
+		}
+		
+		private void applyExecsModes(File inDir, File[] inDirFiles, File outDir) throws IOException {
+			if (inDirFiles == null)
+				throw new IOException("Cant access to directory!");
 			
 			int execsFd = -1;
 			try {
@@ -645,7 +824,6 @@ public class InstallationOps {
 			} finally {
 				SDCardExecs.closeExecsLock(execsFd);
 			}
-			return copied;
 		}
 	}
 	
@@ -666,7 +844,12 @@ public class InstallationOps {
 		if (Logging.DEBUG) Log.d(TAG, "DumpBoinc: OutPath:"+outPath);
 		
 		File fileDir = new File(outPath);
-		deleteDirectory(fileDir);
+		/* if previous dump (with manifest) exists, only changed files will be copied */
+		File manifestFile = new File(fileDir, SyncManifest.MANIFEST_NAME);
+		SyncManifest previousManifest = SyncManifest.load(manifestFile);
+		if (previousManifest == null)
+			deleteDirectory(fileDir);
+		else if (Logging.DEBUG) Log.d(TAG, "DumpBoinc: incremental dump");
 		fileDir.mkdirs();
 				
 		File boincDir = new File(mInstallerHandler.getInstallPlacePath());
@@ -683,14 +866,18 @@ public class InstallationOps {
 		}
 		
 		mPreviousNotifyTime = System.currentTimeMillis();
+		SyncManifest manifest = new SyncManifest(previousManifest);
 		try {
+			// dump is not consistent until synchronization finishes
+			if (previousManifest != null)
+				manifestFile.delete();
 			new CopyDirectoryHelper(boincDirSize, COPY_NORMALLY, new ProgressNotifier() {
 						@Override
 						public void notifyProgress(int progress) {
 							mInstallerHandler.notifyProgress(InstallerService.BOINC_DUMP_ITEM_NAME, "",
 									mContext.getString(R.string.dumpBoincProgress), progress);
 						}
-					}).copyDirectory(boincDir, fileDir, 0);
+					}, manifest).copyDirectory(boincDir, fileDir, 0);
 			
 			if (Thread.interrupted()) {
 				mInstallerHandler.notifyCancel(InstallerService.BOINC_DUMP_ITEM_NAME, "");
@@ -699,6 +886,9 @@ public class InstallationOps {
 				mInstallerHandler.notifyFinish(InstallerService.BOINC_DUMP_ITEM_NAME, "");
 		} catch(IOException ex) {
 			mInstallerHandler.notifyError(InstallerService.BOINC_DUMP_ITEM_NAME, "", ex.getMessage());
+		} finally {
+			/* manifest contains only copied files (also if cancelled), next dump continues */
+			manifest.save(manifestFile);
 		}
 	}
 	
@@ -876,6 +1066,30 @@ public class InstallationOps {
 		mDistribManager.removeDistribsByProjectName(projectNames);
 	}
 	
+	/**
+	 * fast path of moving installation (if both places are in the same filesystem)
+	 * @return true if moved
+	 */
+	private boolean moveDirectoryByRename(File srcDir, File destDir, int mode) {
+		deleteDirectory(destDir);
+		destDir.delete();
+		destDir.getParentFile().mkdirs();
+		
+		if (!srcDir.renameTo(destDir))
+			return false;
+		
+		try {
+			new CopyDirectoryHelper(0, mode, null).fixupMovedDirectory(destDir);
+		} catch(IOException ex) {
+			// revert, installation will be copied
+			if (Logging.WARNING) Log.w(TAG, "Cant set up permissions after moving:"+ex.getMessage());
+			destDir.renameTo(srcDir);
+			return false;
+		}
+		if (Logging.DEBUG) Log.d(TAG, "Installation moved by renaming to "+destDir);
+		return true;
+	}
+	
 	/*
 	 * move installation from/to sdcard
 	 */
@@ -912,65 +1126,69 @@ public class InstallationOps {
 		File sdCardDir = new File(sdCardPath);
 		
 		if (mInstallerHandler.isInstallOnSDCard()) { // move to internal memory
-			long boincDirSize = calculateDirectorySize(sdCardDir);
-			
-			if (!intMemDir.isDirectory())
-				intMemDir.delete();
-			else // delete existing directory
-				deleteDirectory(intMemDir);
-			intMemDir.mkdirs();
-			
-			try {
-				new CopyDirectoryHelper(boincDirSize, COPY_FROM_SDCARD, new ProgressNotifier() {
-					@Override
-					public void notifyProgress(int progress) {
-						mInstallerHandler.notifyProgress(InstallerService.BOINC_MOVETO_ITEM_NAME, "",
-								mContext.getString(R.string.moveToProgress), progress);
-					}
-				}).copyDirectory(sdCardDir, intMemDir, 0);
+			if (!moveDirectoryByRename(sdCardDir, intMemDir, COPY_FROM_SDCARD)) {
+				long boincDirSize = calculateDirectorySize(sdCardDir);
+				
+				if (!intMemDir.isDirectory())
+					intMemDir.delete();
+				else // delete existing directory
+					deleteDirectory(intMemDir);
+				intMemDir.mkdirs();
 				
-				if (Thread.interrupted()) {
-					deleteDirectory(intMemDir); // delete if cancelled
-					mInstallerHandler.notifyCancel(InstallerService.BOINC_MOVETO_ITEM_NAME, "");
+				try {
+					new CopyDirectoryHelper(boincDirSize, COPY_FROM_SDCARD, new ProgressNotifier() {
+						@Override
+						public void notifyProgress(int progress) {
+							mInstallerHandler.notifyProgress(InstallerService.BOINC_MOVETO_ITEM_NAME, "",
+									mContext.getString(R.string.moveToProgress), progress);
+						}
+					}).copyDirectory(sdCardDir, intMemDir, 0);
+				
+					if (Thread.interrupted()) {
+						deleteDirectory(intMemDir); // delete if cancelled
+						mInstallerHandler.notifyCancel(InstallerService.BOINC_MOVETO_ITEM_NAME, "");
+						return;
+					}
+				} catch(IOException ex) {
+					deleteDirectory(intMemDir);
+					mInstallerHandler.notifyError(InstallerService.BOINC_MOVETO_ITEM_NAME, "", ex.getMessage());
 					return;
 				}
-			} catch(IOException ex) {
-				deleteDirectory(intMemDir);
-				mInstallerHandler.notifyError(InstallerService.BOINC_MOVETO_ITEM_NAME, "", ex.getMessage());
-				return;
+				// delete previous place
+				deleteDirectory(sdCardDir);
 			}
-			// delete previous place
-			deleteDirectory(sdCardDir);
 		} else { // move to sdcard memory
-			long boincDirSize = calculateDirectorySize(intMemDir);
-			
-			if (!sdCardDir.isDirectory())
-				sdCardDir.delete();
-			else // delete previous version
-				deleteDirectory(sdCardDir);
-			sdCardDir.mkdirs();
-			
-			try {
-				new CopyDirectoryHelper(boincDirSize, COPY_TO_SDCARD, new ProgressNotifier() {
-					@Override
-					public void notifyProgress(int progress) {
-						mInstallerHandler.notifyProgress(InstallerService.BOINC_MOVETO_ITEM_NAME, "",
-								mContext.getString(R.string.moveToProgress), progress);
-					}
-				}).copyDirectory(intMemDir, sdCardDir, 0);
+			if (!moveDirectoryByRename(intMemDir, sdCardDir, COPY_TO_SDCARD)) {
+				long boincDirSize = calculateDirectorySize(intMemDir);
+				
+				if (!sdCardDir.isDirectory())
+					sdCardDir.delete();
+				else // delete previous version
+					deleteDirectory(sdCardDir);
+				sdCardDir.mkdirs();
+				
+				try {
+					new CopyDirectoryHelper(boincDirSize, COPY_TO_SDCARD, new ProgressNotifier() {
+						@Override
+						public void notifyProgress(int progress) {
+							mInstallerHandler.notifyProgress(InstallerService.BOINC_MOVETO_ITEM_NAME, "",
+									mContext.getString(R.string.moveToProgress), progress);
+						}
+					}).copyDirectory(intMemDir, sdCardDir, 0);
 				
-				if (Thread.interrupted()) {
-					deleteDirectory(sdCardDir); // delete if cancelled
-					mInstallerHandler.notifyCancel(InstallerService.BOINC_MOVETO_ITEM_NAME, "");
+					if (Thread.interrupted()) {
+						deleteDirectory(sdCardDir); // delete if cancelled
+						mInstallerHandler.notifyCancel(InstallerService.BOINC_MOVETO_ITEM_NAME, "");
+						return;
+					}
+				} catch(IOException ex) {
+					deleteDirectory(sdCardDir);
+					mInstallerHandler.notifyError(InstallerService.BOINC_MOVETO_ITEM_NAME, "", ex.getMessage());
 					return;
 				}
-			} catch(IOException ex) {
-				deleteDirectory(sdCardDir);
-				mInstallerHandler.notifyError(InstallerService.BOINC_MOVETO_ITEM_NAME, "", ex.getMessage());
-				return;
+				// delete previous place
+				deleteDirectory(intMemDir);
 			}
-			// delete previous place
-			deleteDirectory(intMemDir);
 		}
 		
 		if (Thread.interrupted()) {
@@ -278,6 +278,9 @@ public class InstallerHandler extends Handler implements NativeBoincUpdateListen
 	
 	private static final int BUFFER_SIZE = 4096;
 	
+	/* staging directory for pipelined unpacking (in installation place) */
+	private static final String UNPACK_STAGING_DIR = "/.unpacking/";
+	
 	private ClientInstaller mClientInstaller = null;
 	
 	private boolean mClientShouldBeRun = false;
@@ -351,22 +354,12 @@ public class InstallerHandler extends Handler implements NativeBoincUpdateListen
 					// download from server
 					try {
 						String zipUrlString = mInstallerService.getString(R.string.installClientSourceUrl)+zipFilename; 
-						mDownloader.downloadFile(zipUrlString, "boinc_client.zip",
+						int status = mDownloader.downloadAndVerifyFile(zipUrlString, "boinc_client.zip",
 								mInstallerService.getString(R.string.downloadNativeClient),
 								mInstallerService.getString(R.string.downloadNativeClientError), true,
 								InstallerService.DEFAULT_CHANNEL_ID, InstallOp.ProgressOperation,
 								InstallerService.BOINC_CLIENT_ITEM_NAME, "");
 						
-						if (currentThread.isInterrupted()) {
-							mInstallerService.deleteFile("boinc_client.zip");
-							notifyCancel(InstallerService.BOINC_CLIENT_ITEM_NAME, "");
-							return;
-						}
-						
-						int status = mDownloader.verifyFile(mInstallerService.getFileStreamPath("boinc_client.zip"),
-								zipUrlString, true, InstallerService.DEFAULT_CHANNEL_ID,
-								InstallOp.ProgressOperation, InstallerService.BOINC_CLIENT_ITEM_NAME, "");
-						
 						if (status == Downloader.VERIFICATION_CANCELLED) {
 							mInstallerService.deleteFile("boinc_client.zip");
 							notifyCancel(InstallerService.BOINC_CLIENT_ITEM_NAME, "");
@@ -830,6 +823,56 @@ public class InstallerHandler extends Handler implements NativeBoincUpdateListen
 				projectAppFilePath, projectDirPathLength);
 	}
 	
+	/**
+	 * moves files unpacked during download (after verification) to project directory.
+	 * If zip can not be unpacked from stream, it is unpacked from downloaded file (zipPath)
+	 */
+	private ArrayList<String> commitProjectApplications(ProjectDistrib projectDistrib,
+			PipelinedUnpacker unpacker, String zipPath, boolean directInstallation) {
+		Thread currentThread = Thread.currentThread();
+		
+		ArrayList<String> fileList = null;
+		try {
+			fileList = unpacker.waitForFinish();
+		} catch(InterruptedException ex) {
+			notifyCancel(projectDistrib.projectName, projectDistrib.projectUrl);
+			return null;
+		}
+		
+		if (fileList == null) {
+			/* for example stored entries with data descriptor, ZipFile handles them */
+			if (Logging.INFO) Log.i(TAG, "Cant unpack during download, unpacking verified zip:"+
+					projectDistrib.projectUrl);
+			unpacker.abort();
+			return unpackProjectApplications(projectDistrib, zipPath, directInstallation);
+		}
+		
+		if (currentThread.isInterrupted()) {
+			notifyCancel(projectDistrib.projectName, projectDistrib.projectUrl);
+			return null;
+		}
+		
+		StringBuilder projectAppFilePath = new StringBuilder();
+		projectAppFilePath.append(mInstallPlacePath);
+		if (directInstallation)
+			projectAppFilePath.append("/projects/");
+		else
+			projectAppFilePath.append("/updates/");
+		
+		projectAppFilePath.append(escapeProjectUrl(projectDistrib.projectUrl));
+		projectAppFilePath.append("/");
+		int projectDirPathLength = projectAppFilePath.length();
+		
+		if (!unpacker.commit(new File(projectAppFilePath.toString()))) {
+			notifyError(projectDistrib.projectName, projectDistrib.projectUrl,
+					mInstallerService.getString(R.string.unpackApplicationError));
+			return null;
+		}
+		
+		return finalOfPuttingProjectApplications(fileList, projectDistrib,
+				projectAppFilePath, projectDirPathLength);
+	}
+	
 	private ArrayList<String> finalOfPuttingProjectApplications(ArrayList<String> fileList,
 			ProjectDistrib projectDistrib, StringBuilder projectAppFilePath, int projectDirPathLength) {
 		Thread currentThread = Thread.currentThread();
@@ -1030,6 +1073,7 @@ public class InstallerHandler extends Handler implements NativeBoincUpdateListen
 			mResourcesLocker.acquireAllLocks();
 			
 			Thread currentThread = Thread.currentThread();
+			PipelinedUnpacker unpacker = null;
 			try {
 				mInstallOpLock.lockOp(InstallOpLock.OP_PROJECT_INSTALL);
 				
@@ -1066,23 +1110,16 @@ public class InstallerHandler extends Handler implements NativeBoincUpdateListen
 				String outZipFilename = null;
 				if (!mFromSDCard) {
 					outZipFilename = mProjectDistrib.projectName+".zip";
+					/* unpacking runs concurrently with download and verification */
+					unpacker = new PipelinedUnpacker(new File(mInstallPlacePath + UNPACK_STAGING_DIR +
+							escapeProjectUrl(mProjectDistrib.projectUrl)));
+					unpacker.start();
 					try {
-						mDownloader.downloadFile(zipUrl, outZipFilename,
+						int status = mDownloader.downloadAndVerifyFile(zipUrl, outZipFilename,
 								mInstallerService.getString(R.string.downloadApplication),
 								mInstallerService.getString(R.string.downloadApplicationError), true,
 								InstallerService.DEFAULT_CHANNEL_ID, InstallOp.ProgressOperation,
-								mProjectDistrib.projectName, mProjectDistrib.projectUrl);
-						
-						if (currentThread.isInterrupted()) {
-							mInstallerService.deleteFile(outZipFilename);
-							notifyCancel(mProjectDistrib.projectName, mProjectDistrib.projectUrl);
-							return;
-						}
-						
-						int status = mDownloader.verifyFile(mInstallerService.getFileStreamPath(outZipFilename),
-								zipUrl, true, InstallerService.DEFAULT_CHANNEL_ID,
-								InstallOp.ProgressOperation, mProjectDistrib.projectName,
-								mProjectDistrib.projectUrl);
+								mProjectDistrib.projectName, mProjectDistrib.projectUrl, unpacker);
 						
 						if (status == Downloader.VERIFICATION_CANCELLED) {
 							mInstallerService.deleteFile(outZipFilename);
@@ -1094,6 +1131,7 @@ public class InstallerHandler extends Handler implements NativeBoincUpdateListen
 									mInstallerService.getString(R.string.verifySignatureFailed));
 							return;	// cancelled
 						}
+						unpacker.finishContent();
 					} catch(InstallationException ex) {
 						mInstallerService.deleteFile(outZipFilename);
 						return;
@@ -1114,11 +1152,15 @@ public class InstallerHandler extends Handler implements NativeBoincUpdateListen
 				
 				/* do install in project directory */
 				if (!mFromSDCard) {
-					mFileList = unpackProjectApplications(mProjectDistrib,
-							mInstallerService.getFileStreamPath(outZipFilename).getAbsolutePath(), directInstallation);
+					mFileList = commitProjectApplications(mProjectDistrib, unpacker,
+							mInstallerService.getFileStreamPath(outZipFilename).getAbsolutePath(),
+							directInstallation);
 					
 					if (outZipFilename != null)
 						mInstallerService.deleteFile(outZipFilename);
+					
+					if (mFileList == null)
+						return;
 				} else if (mInput.endsWith(".zip")) {
 					// if zip from sdcard
 					mFileList = unpackProjectApplications(mProjectDistrib, mInput, directInstallation);
@@ -1255,6 +1297,10 @@ public class InstallerHandler extends Handler implements NativeBoincUpdateListen
 				notifyError(mProjectDistrib.projectName, mProjectDistrib.projectUrl,
 	    				mInstallerService.getString(R.string.unexpectedError)+": "+ex.getMessage());
 			} finally {
+				/* remove not committed unpacked files */
+				if (unpacker != null)
+					unpacker.abort();
+				
 				if (removeSelf) {
 					/* release resources (wifi, CPU) during installation */
 					mResourcesLocker.releaseAllLocks();
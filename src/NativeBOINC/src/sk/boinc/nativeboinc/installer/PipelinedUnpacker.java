@@ -0,0 +1,255 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.installer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import sk.boinc.nativeboinc.debug.Logging;
+import android.util.Log;
+
+/**
+ * Unpacks zip while it is downloaded. Downloaded content goes through bounded buffer
+ * to unpacking thread which extracts files (without directories) to staging directory.
+ * Extracted files are moved to destination directory by commit, after verification.
+ * 
+ * @author mat
+ *
+ */
+public class PipelinedUnpacker implements ResumableDownload.ContentListener, Runnable {
+	private final static String TAG = "PipelinedUnpacker";
+	
+	private static final int PIPE_CAPACITY = 256*1024;
+	private static final int BUFFER_SIZE = 32768;
+	
+	private final File mStagingDir;
+	
+	/* bounded buffer between download and unpacking */
+	private final byte[] mPipe = new byte[PIPE_CAPACITY];
+	private int mPipeStart = 0;
+	private int mPipeCount = 0;
+	private boolean mEndOfContent = false;
+	private boolean mAborted = false;
+	/* unpacking finished (or failed), rest of content is not needed */
+	private boolean mDiscardContent = false;
+	
+	private Thread mThread = null;
+	private ArrayList<String> mFileList = new ArrayList<String>();
+	private IOException mError = null;
+	
+	private class PipeInputStream extends InputStream {
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return (read(one, 0, 1) == -1) ? -1 : (one[0] & 0xff);
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			return readPipe(buffer, offset, length);
+		}
+	}
+	
+	public PipelinedUnpacker(File stagingDir) {
+		mStagingDir = stagingDir;
+	}
+	
+	public void start() {
+		deleteStagingDir();
+		mStagingDir.mkdirs();
+		mThread = new Thread(this, "PipelinedUnpacker");
+		mThread.start();
+	}
+	
+	@Override
+	public synchronized void onContent(byte[] buffer, int offset, int length) throws IOException {
+		while (length > 0) {
+			while (mPipeCount == PIPE_CAPACITY && !mDiscardContent && !mAborted) {
+				try {
+					wait();
+				} catch(InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted");
+				}
+			}
+			if (mAborted)
+				throw new IOException("Unpacking aborted");
+			if (mDiscardContent)
+				return;
+			
+			int writePos = (mPipeStart + mPipeCount) % PIPE_CAPACITY;
+			int toWrite = Math.min(length, Math.min(PIPE_CAPACITY - mPipeCount,
+					PIPE_CAPACITY - writePos));
+			System.arraycopy(buffer, offset, mPipe, writePos, toWrite);
+			mPipeCount += toWrite;
+			offset += toWrite;
+			length -= toWrite;
+			notifyAll();
+		}
+	}
+	
+	private synchronized int readPipe(byte[] buffer, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		while (mPipeCount == 0 && !mEndOfContent && !mAborted) {
+			try {
+				wait();
+			} catch(InterruptedException ex) {
+				throw new IOException("Interrupted");
+			}
+		}
+		if (mAborted)
+			throw new IOException("Unpacking aborted");
+		if (mPipeCount == 0)
+			return -1;	// end of content
+		
+		int toRead = Math.min(length, Math.min(mPipeCount, PIPE_CAPACITY - mPipeStart));
+		System.arraycopy(mPipe, mPipeStart, buffer, offset, toRead);
+		mPipeStart = (mPipeStart + toRead) % PIPE_CAPACITY;
+		mPipeCount -= toRead;
+		notifyAll();
+		return toRead;
+	}
+	
+	@Override
+	public void run() {
+		ZipInputStream zipStream = new ZipInputStream(new PipeInputStream());
+		FileOutputStream outStream = null;
+		byte[] buffer = new byte[BUFFER_SIZE];
+		
+		try {
+			while (true) {
+				ZipEntry entry = zipStream.getNextEntry();
+				if (entry == null)
+					break;
+				if (entry.isDirectory())
+					continue;
+				
+				String entryName = entry.getName();
+				int slashIndex = entryName.lastIndexOf('/');
+				if (slashIndex != -1)
+					entryName = entryName.substring(slashIndex+1);
+				
+				mFileList.add(entryName);
+				outStream = new FileOutputStream(new File(mStagingDir, entryName));
+				while (true) {
+					int readed = zipStream.read(buffer);
+					if (readed == -1)
+						break;
+					outStream.write(buffer, 0, readed);
+				}
+				outStream.flush();
+				outStream.close();
+				outStream = null;
+			}
+		} catch(IOException ex) {
+			if (Logging.DEBUG) Log.d(TAG, "Unpacking failed: "+ex.getMessage());
+			mError = ex;
+		} finally {
+			try {
+				if (outStream != null)
+					outStream.close();
+			} catch(IOException ex) { }
+			synchronized(this) {
+				mDiscardContent = true;
+				notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * called after whole content passed to unpacker
+	 */
+	public synchronized void finishContent() {
+		mEndOfContent = true;
+		notifyAll();
+	}
+	
+	/**
+	 * waits for unpacking finish
+	 * @return list of unpacked files or null if unpacking failed (or no zip entries)
+	 */
+	public ArrayList<String> waitForFinish() throws InterruptedException {
+		mThread.join();
+		if (mError != null || mFileList.isEmpty())
+			return null;
+		return mFileList;
+	}
+	
+	/**
+	 * moves unpacked files to destination directory
+	 * @return true if success
+	 */
+	public boolean commit(File destDir) {
+		if (!destDir.isDirectory())
+			destDir.mkdirs();
+		for (String filename: mFileList) {
+			File destFile = new File(destDir, filename);
+			destFile.delete();
+			if (!new File(mStagingDir, filename).renameTo(destFile)) {
+				if (Logging.ERROR) Log.e(TAG, "Cant move unpacked file "+filename);
+				return false;
+			}
+		}
+		deleteStagingDir();
+		return true;
+	}
+	
+	/**
+	 * stops unpacking and removes unpacked files (can be called after commit)
+	 */
+	public void abort() {
+		synchronized(this) {
+			mAborted = true;
+			notifyAll();
+		}
+		if (mThread != null) {
+			// unpacking thread quits quickly after abort, keep interrupted state for caller
+			boolean interrupted = false;
+			while (mThread.isAlive()) {
+				try {
+					mThread.join();
+				} catch(InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+		deleteStagingDir();
+	}
+	
+	private void deleteStagingDir() {
+		File[] files = mStagingDir.listFiles();
+		if (files != null)
+			for (File file: files)
+				file.delete();
+		mStagingDir.delete();
+		// parent is shared by all unpackers, it is removed if no other unpacking runs
+		File parentDir = mStagingDir.getParentFile();
+		if (parentDir != null)
+			parentDir.delete();
+	}
+}
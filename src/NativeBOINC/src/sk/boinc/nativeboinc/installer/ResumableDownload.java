@@ -0,0 +1,631 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.installer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import sk.boinc.nativeboinc.debug.Logging;
+import android.util.Log;
+
+/**
+ * Download engine which keeps partial content in part file and download state
+ * (url, validator, segment positions) in state file. Broken HTTP download is continued
+ * by using Range requests, large files are downloaded by parallel segments.
+ * Other protocols (ftp) are downloaded by single stream without resuming.
+ * 
+ * @author mat
+ *
+ */
+public class ResumableDownload {
+	private final static String TAG = "ResumableDownload";
+	
+	public static interface ProgressListener {
+		/**
+		 * called periodically from download thread
+		 * @param length content length or -1 if unknown
+		 */
+		public void onProgress(long downloaded, long length, int bytesPerSecond);
+		
+		/**
+		 * called periodically while not streamed content (of other segments) is passed
+		 * from part file to content listener after download
+		 */
+		public void onStreamProgress(long streamed, long length);
+	}
+	
+	public static interface ContentListener {
+		/**
+		 * called with downloaded content in file order (from download threads)
+		 */
+		public void onContent(byte[] buffer, int offset, int length) throws IOException;
+	}
+	
+	private static final int CONNECT_TIMEOUT = 12000;
+	private static final int READ_TIMEOUT = 12000;
+	
+	/* buffer grows while network fills it completely */
+	private static final int MIN_BUFFER_SIZE = 8192;
+	private static final int MAX_BUFFER_SIZE = 65536;
+	
+	/* files smaller than this are downloaded by single connection */
+	private static final long SEGMENTED_MIN_LENGTH = 2*1024*1024;
+	private static final int MAX_SEGMENTS = 3;
+	
+	private static final int NOTIFY_PERIOD = 400;
+	private static final int SAVE_STATE_PERIOD = 1000;
+	
+	private final URL mUrl;
+	private final File mOutFile;
+	private final File mPartFile;
+	private final File mStateFile;
+	
+	private String mValidator = null;
+	private long mLength = -1;
+	private Segment[] mSegments = null;
+	/* whole content response got for range request, reused by fresh download */
+	private URLConnection mWholeContentConn = null;
+	
+	private FileChannel mPartChannel = null;
+	private volatile boolean mCancelled = false;
+	
+	private ContentListener mContentListener = null;
+	/* content before this position was passed to content listener */
+	private volatile long mStreamedPosition = 0;
+	
+	private class Segment implements Runnable {
+		public final long start;
+		public final long end;	// exclusive, -1 if unknown
+		public volatile long position;
+		
+		public URLConnection connection = null;
+		public volatile IOException error = null;
+		public volatile boolean finished = false;
+		
+		public Segment(long start, long end, long position) {
+			this.start = start;
+			this.end = end;
+			this.position = position;
+		}
+		
+		public boolean isComplete() {
+			return end != -1 && position >= end;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				transfer(this);
+			} catch(IOException ex) {
+				if (!mCancelled)
+					error = ex;
+			} catch(RuntimeException ex) {
+				// some connection implementations throw it after disconnect from other thread
+				if (!mCancelled)
+					error = new IOException(ex.getMessage());
+			} finally {
+				disconnect(this);
+				finished = true;
+			}
+		}
+	}
+	
+	public ResumableDownload(URL url, File outFile, File partFile, File stateFile) {
+		mUrl = url;
+		mOutFile = outFile;
+		mPartFile = partFile;
+		mStateFile = stateFile;
+	}
+	
+	/**
+	 * Sets listener which gets whole content in file order. Content of first segment
+	 * is passed while it is downloaded, rest (other segments, resumed part) is read
+	 * from part file after download.
+	 */
+	public void setContentListener(ContentListener listener) {
+		mContentListener = listener;
+	}
+	
+	/**
+	 * Downloads file to out file. On error partial content is kept for next attempt.
+	 * @return false if cancelled (interrupted state of current thread is kept)
+	 * @throws IOException if download failed
+	 */
+	public boolean run(ProgressListener listener) throws IOException {
+		Thread currentThread = Thread.currentThread();
+		Thread[] threads = null;
+		
+		try {
+			if (!loadState() || !reopenSegments())
+				startFresh();
+			
+			if (mLength != -1)
+				saveState();
+			
+			mPartChannel = new RandomAccessFile(mPartFile, "rw").getChannel();
+			
+			threads = new Thread[mSegments.length];
+			for (int i = 0; i < mSegments.length; i++) {
+				if (mSegments[i].isComplete()) {
+					mSegments[i].finished = true;
+					continue;
+				}
+				threads[i] = new Thread(mSegments[i], "DownloadSegment");
+				threads[i].start();
+			}
+			
+			long notifyTime = System.currentTimeMillis();
+			long saveTime = notifyTime;
+			long notifiedBytes = getDownloaded();
+			int bytesPerSecond = 0;
+			
+			while (true) {
+				Thread waitThread = null;
+				for (int i = 0; i < mSegments.length; i++) {
+					Segment segment = mSegments[i];
+					if (segment.error != null)
+						throw segment.error;
+					if (!segment.finished && waitThread == null)
+						waitThread = threads[i];
+				}
+				if (waitThread == null)
+					break;	// all finished
+				
+				try {
+					waitThread.join(NOTIFY_PERIOD);
+				} catch(InterruptedException ex) {
+					currentThread.interrupt();
+				}
+				
+				if (currentThread.isInterrupted()) {
+					if (Logging.DEBUG) Log.d(TAG, "Download cancelled: "+mUrl);
+					cancelSegments(threads);
+					if (mLength != -1)
+						saveState();
+					return false;
+				}
+				
+				long newTime = System.currentTimeMillis();
+				if (newTime-notifyTime >= NOTIFY_PERIOD) {
+					long downloaded = getDownloaded();
+					int current = (int)((downloaded-notifiedBytes)*1000/(newTime-notifyTime));
+					// smoothed throughput
+					bytesPerSecond = (bytesPerSecond == 0) ? current : (bytesPerSecond*3 + current) >> 2;
+					if (listener != null)
+						listener.onProgress(downloaded, mLength, bytesPerSecond);
+					notifyTime = newTime;
+					notifiedBytes = downloaded;
+				}
+				if (mLength != -1 && newTime-saveTime >= SAVE_STATE_PERIOD) {
+					saveState();
+					saveTime = newTime;
+				}
+			}
+			
+			for (Segment segment: mSegments)
+				if (segment.error != null)
+					throw segment.error;
+			
+			if (mLength == -1)	// length is known after end of stream
+				mLength = mSegments[0].position;
+			else
+				for (Segment segment: mSegments)
+					if (!segment.isComplete())
+						throw new IOException("Incomplete content");
+			
+			if (mContentListener != null && !streamRemaining(listener)) {
+				if (Logging.DEBUG) Log.d(TAG, "Download cancelled: "+mUrl);
+				saveState();
+				return false;
+			}
+			
+			mPartChannel.truncate(mLength);
+			mPartChannel.close();
+			mPartChannel = null;
+			
+			mOutFile.delete();
+			if (!mPartFile.renameTo(mOutFile))
+				throw new IOException("Cant rename part file");
+			mStateFile.delete();
+			return true;
+		} catch(IOException ex) {
+			cancelSegments(threads);
+			if (currentThread.isInterrupted() && mSegments != null && mLength != -1) {
+				// interrupt closes part channel during read or write
+				saveState();
+				return false;
+			}
+			if (mSegments != null && mLength != -1)
+				saveState();	// keep for next attempt
+			else // can not be resumed
+				mPartFile.delete();
+			throw ex;
+		} finally {
+			if (mPartChannel != null) {
+				try {
+					mPartChannel.close();
+				} catch(IOException ex) { }
+				mPartChannel = null;
+			}
+		}
+	}
+	
+	/**
+	 * Deletes part files (and their state files) of abandoned downloads
+	 * @param dir directory with part files
+	 * @param partSuffix suffix of part files
+	 * @param stateSuffix suffix of state files
+	 * @param maxAge age (in milliseconds) since last write, after which download is abandoned
+	 * @return number of deleted part files
+	 */
+	public static int deleteExpiredParts(File dir, String partSuffix, String stateSuffix, long maxAge) {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return 0;
+		
+		long now = System.currentTimeMillis();
+		int deleted = 0;
+		for (File file: files) {
+			String name = file.getName();
+			File partFile, stateFile;
+			if (name.endsWith(stateSuffix)) {
+				stateFile = file;
+				partFile = new File(dir, name.substring(0, name.length()-stateSuffix.length()) +
+						partSuffix);
+				if (partFile.exists())
+					continue;	// handled with part file
+			} else if (name.endsWith(partSuffix)) {
+				partFile = file;
+				stateFile = new File(dir, name.substring(0, name.length()-partSuffix.length()) +
+						stateSuffix);
+			} else
+				continue;
+			
+			long lastWrite = Math.max(partFile.lastModified(), stateFile.lastModified());
+			if (now-lastWrite < maxAge)
+				continue;
+			
+			if (Logging.DEBUG) Log.d(TAG, "Delete abandoned download " + name);
+			if (partFile.delete())
+				deleted++;
+			stateFile.delete();
+		}
+		return deleted;
+	}
+	
+	private long getDownloaded() {
+		long downloaded = 0;
+		for (Segment segment: mSegments)
+			downloaded += segment.position - segment.start;
+		return downloaded;
+	}
+	
+	private void cancelSegments(Thread[] threads) {
+		mCancelled = true;
+		if (mSegments == null)
+			return;
+		for (Segment segment: mSegments)
+			disconnect(segment);	// unblocks reading
+		if (threads == null)
+			return;
+		for (Thread thread: threads) {
+			if (thread == null)
+				continue;
+			try {
+				thread.join();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	private static void disconnect(Segment segment) {
+		URLConnection conn = segment.connection;
+		if (conn instanceof HttpURLConnection)
+			((HttpURLConnection)conn).disconnect();
+	}
+	
+	private URLConnection openConnection(long start, long end) throws IOException {
+		URLConnection conn = mUrl.openConnection();
+		conn.setConnectTimeout(CONNECT_TIMEOUT);
+		conn.setReadTimeout(READ_TIMEOUT);
+		if (start > 0 || end != -1) {
+			conn.setRequestProperty("Range", "bytes=" + start + "-" + ((end != -1) ? (end-1) : ""));
+			if (mValidator != null)
+				conn.setRequestProperty("If-Range", mValidator);
+		}
+		return conn;
+	}
+	
+	/* downloads whole file from begin */
+	private void startFresh() throws IOException {
+		mPartFile.delete();
+		mStateFile.delete();
+		mSegments = null;
+		mValidator = null;
+		mLength = -1;
+		mStreamedPosition = 0;
+		
+		URLConnection conn = mWholeContentConn;
+		mWholeContentConn = null;
+		if (conn == null)
+			conn = openConnection(0, -1);
+		int segmentsCount = 1;
+		
+		if (conn instanceof HttpURLConnection) {
+			HttpURLConnection httpConn = (HttpURLConnection)conn;
+			int code = httpConn.getResponseCode();
+			if (code != HttpURLConnection.HTTP_OK) {
+				httpConn.disconnect();
+				throw new IOException("Bad response: " + code);
+			}
+			mValidator = conn.getHeaderField("ETag");
+			if (mValidator == null)
+				mValidator = conn.getHeaderField("Last-Modified");
+			mLength = conn.getContentLength();
+			
+			if (mLength >= SEGMENTED_MIN_LENGTH &&
+					"bytes".equalsIgnoreCase(conn.getHeaderField("Accept-Ranges")))
+				segmentsCount = MAX_SEGMENTS;
+		} else
+			mLength = conn.getContentLength();
+		
+		if (mLength == -1) {
+			mSegments = new Segment[] { new Segment(0, -1, 0) };
+		} else {
+			mSegments = new Segment[segmentsCount];
+			long segmentLength = mLength / segmentsCount;
+			for (int i = 0; i < segmentsCount; i++) {
+				long start = i*segmentLength;
+				long end = (i == segmentsCount-1) ? mLength : start+segmentLength;
+				mSegments[i] = new Segment(start, end, start);
+			}
+		}
+		// first segment continues in first response
+		mSegments[0].connection = conn;
+		if (Logging.DEBUG) Log.d(TAG, "Start download " + mUrl + ", length: " + mLength +
+				", segments: " + segmentsCount);
+	}
+	
+	/**
+	 * opens range requests for unfinished segments of resumed download
+	 * @return false if download can not be resumed
+	 */
+	private boolean reopenSegments() throws IOException {
+		long downloaded = getDownloaded();
+		for (Segment segment: mSegments) {
+			if (segment.isComplete())
+				continue;
+			
+			URLConnection conn = openConnection(segment.position, segment.end);
+			segment.connection = conn;
+			int code = (conn instanceof HttpURLConnection) ?
+					((HttpURLConnection)conn).getResponseCode() : -1;
+			if (code != HttpURLConnection.HTTP_PARTIAL ||
+					!checkContentRange(conn.getHeaderField("Content-Range"), segment.position)) {
+				// file changed or server does not support ranges
+				if (Logging.DEBUG) Log.d(TAG, "Cant resume download " + mUrl);
+				if (code == HttpURLConnection.HTTP_OK) {
+					// whole (new) content, fresh download continues in this response
+					segment.connection = null;
+					mWholeContentConn = conn;
+				}
+				for (Segment toClose: mSegments)
+					disconnect(toClose);
+				return false;
+			}
+		}
+		if (Logging.DEBUG) Log.d(TAG, "Resume download " + mUrl + " from " + downloaded +
+				" of " + mLength);
+		return true;
+	}
+	
+	/* checks 'bytes start-end/total' */
+	private boolean checkContentRange(String contentRange, long start) {
+		if (contentRange == null || !contentRange.startsWith("bytes "))
+			return false;
+		int dash = contentRange.indexOf('-');
+		int slash = contentRange.indexOf('/');
+		if (dash == -1 || slash == -1)
+			return false;
+		try {
+			return Long.parseLong(contentRange.substring(6, dash).trim()) == start &&
+					Long.parseLong(contentRange.substring(slash+1).trim()) == mLength;
+		} catch(NumberFormatException ex) {
+			return false;
+		}
+	}
+	
+	private void transfer(Segment segment) throws IOException {
+		URLConnection conn = segment.connection;
+		if (conn == null) {	// next segments of fresh download
+			conn = openConnection(segment.position, segment.end);
+			segment.connection = conn;
+			if (mCancelled)
+				return;
+			if (((HttpURLConnection)conn).getResponseCode() != HttpURLConnection.HTTP_PARTIAL ||
+					!checkContentRange(conn.getHeaderField("Content-Range"), segment.position))
+				throw new IOException("Range request failed");
+		}
+		InputStream inStream = conn.getInputStream();
+		ByteBuffer byteBuffer = null;
+		byte[] buffer = new byte[MIN_BUFFER_SIZE];
+		
+		try {
+			while (!mCancelled) {
+				int toRead = buffer.length;
+				if (segment.end != -1) {
+					long remaining = segment.end - segment.position;
+					if (remaining <= 0)
+						break;
+					if (remaining < toRead)
+						toRead = (int)remaining;
+				}
+				
+				int readed = inStream.read(buffer, 0, toRead);
+				if (readed == -1) {
+					if (segment.end != -1)
+						throw new IOException("Premature end of content");
+					break;
+				}
+				
+				if (byteBuffer == null || byteBuffer.array() != buffer)
+					byteBuffer = ByteBuffer.wrap(buffer);
+				byteBuffer.limit(readed);
+				byteBuffer.position(0);
+				long position = segment.position;
+				while (byteBuffer.hasRemaining())
+					position += mPartChannel.write(byteBuffer, position);
+				
+				if (mContentListener != null && segment.start == 0 &&
+						segment.position == mStreamedPosition) {
+					mContentListener.onContent(buffer, 0, readed);
+					mStreamedPosition = position;
+				}
+				segment.position = position;
+				
+				// adaptive buffer: grow while network delivers full buffers
+				if (readed == buffer.length && buffer.length < MAX_BUFFER_SIZE)
+					buffer = new byte[buffer.length << 1];
+			}
+		} finally {
+			try {
+				inStream.close();
+			} catch(IOException ex) { }
+		}
+	}
+	
+	/**
+	 * passes not streamed content from part file to content listener
+	 * @return false if cancelled
+	 */
+	private boolean streamRemaining(ProgressListener listener) throws IOException {
+		Thread currentThread = Thread.currentThread();
+		ByteBuffer byteBuffer = ByteBuffer.allocate(MAX_BUFFER_SIZE);
+		long position = mStreamedPosition;
+		long notifyTime = System.currentTimeMillis();
+		
+		while (position < mLength) {
+			if (listener != null) {
+				long newTime = System.currentTimeMillis();
+				if (newTime-notifyTime >= NOTIFY_PERIOD) {
+					listener.onStreamProgress(position, mLength);
+					notifyTime = newTime;
+				}
+			}
+
+			if (currentThread.isInterrupted())
+				return false;
+			
+			byteBuffer.clear();
+			if (mLength-position < byteBuffer.capacity())
+				byteBuffer.limit((int)(mLength-position));
+			int readed = mPartChannel.read(byteBuffer, position);
+			if (readed == -1)
+				throw new IOException("Unexpected end of part file");
+			
+			mContentListener.onContent(byteBuffer.array(), 0, readed);
+			position += readed;
+		}
+		mStreamedPosition = position;
+		return true;
+	}
+	
+	/* state file: url, validator, length, segments count, then 'start end position' lines */
+	private boolean loadState() {
+		if (!mStateFile.exists() || !mPartFile.exists())
+			return false;
+		
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(mStateFile));
+			if (!mUrl.toString().equals(reader.readLine()))
+				return false;
+			String validator = reader.readLine();
+			long length = Long.parseLong(reader.readLine());
+			int count = Integer.parseInt(reader.readLine());
+			if (length <= 0 || count <= 0 || count > MAX_SEGMENTS)
+				return false;
+			
+			Segment[] segments = new Segment[count];
+			long partLength = mPartFile.length();
+			for (int i = 0; i < count; i++) {
+				String[] fields = reader.readLine().split(" ");
+				long start = Long.parseLong(fields[0]);
+				long end = Long.parseLong(fields[1]);
+				long position = Long.parseLong(fields[2]);
+				if (start < 0 || end > length || position < start || position > end)
+					return false;
+				if (position > start && position > partLength)
+					return false;	// part file was truncated
+				segments[i] = new Segment(start, end, position);
+			}
+			
+			mValidator = (validator.length() != 0) ? validator : null;
+			mLength = length;
+			mSegments = segments;
+			return true;
+		} catch(Exception ex) {	// bad state file
+			if (Logging.WARNING) Log.w(TAG, "Cant load download state " + mStateFile);
+			return false;
+		} finally {
+			try {
+				if (reader != null)
+					reader.close();
+			} catch(IOException ex) { }
+		}
+	}
+	
+	private void saveState() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(mUrl.toString()).append('\n');
+		sb.append((mValidator != null) ? mValidator : "").append('\n');
+		sb.append(mLength).append('\n');
+		sb.append(mSegments.length).append('\n');
+		for (Segment segment: mSegments)
+			sb.append(segment.start).append(' ').append(segment.end).append(' ')
+				.append(segment.position).append('\n');
+		
+		Writer writer = null;
+		try {
+			writer = new FileWriter(mStateFile);
+			writer.write(sb.toString());
+			writer.flush();
+		} catch(IOException ex) {
+			if (Logging.WARNING) Log.w(TAG, "Cant save download state " + mStateFile);
+		} finally {
+			try {
+				if (writer != null)
+					writer.close();
+			} catch(IOException ex) { }
+		}
+	}
+}
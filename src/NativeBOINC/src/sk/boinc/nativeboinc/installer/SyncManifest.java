@@ -0,0 +1,147 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.installer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import sk.boinc.nativeboinc.debug.Logging;
+import android.util.Log;
+
+/**
+ * Manifest of synchronized directory: size and modification time of source files
+ * (by relative path) which was copied by previous synchronization.
+ * 
+ * @author mat
+ *
+ */
+public class SyncManifest {
+	private final static String TAG = "SyncManifest";
+	
+	public static final String MANIFEST_NAME = ".__sync_manifest__";
+	
+	private static class Entry {
+		public final long size;
+		public final long lastModified;
+		
+		public Entry(long size, long lastModified) {
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+	
+	private final SyncManifest mPrevious;
+	private final HashMap<String, Entry> mEntries = new HashMap<String, Entry>();
+	
+	/**
+	 * @param previous manifest from previous synchronization (can be null)
+	 */
+	public SyncManifest(SyncManifest previous) {
+		mPrevious = previous;
+	}
+	
+	/**
+	 * checks whether source file is not changed since previous synchronization
+	 */
+	public boolean isUnchanged(String relPath, long size, long lastModified, File destFile) {
+		if (mPrevious == null)
+			return false;
+		Entry entry = mPrevious.mEntries.get(relPath);
+		return entry != null && entry.size == size && entry.lastModified == lastModified &&
+				destFile.length() == size && destFile.isFile();
+	}
+	
+	/**
+	 * records synchronized file (can be called from many threads)
+	 */
+	public synchronized void put(String relPath, long size, long lastModified) {
+		mEntries.put(relPath, new Entry(size, lastModified));
+	}
+	
+	/**
+	 * loads manifest
+	 * @return manifest or null if not exists or is bad
+	 */
+	public static SyncManifest load(File file) {
+		if (!file.exists())
+			return null;
+		
+		SyncManifest manifest = new SyncManifest(null);
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(file));
+			while (true) {
+				String line = reader.readLine();
+				if (line == null)
+					break;
+				/* line: size lastModified path */
+				int firstSpace = line.indexOf(' ');
+				int secondSpace = line.indexOf(' ', firstSpace+1);
+				if (firstSpace == -1 || secondSpace == -1)
+					return null;
+				manifest.mEntries.put(line.substring(secondSpace+1),
+						new Entry(Long.parseLong(line.substring(0, firstSpace)),
+						Long.parseLong(line.substring(firstSpace+1, secondSpace))));
+			}
+			return manifest;
+		} catch(Exception ex) {
+			if (Logging.WARNING) Log.w(TAG, "Cant load manifest "+file);
+			return null;
+		} finally {
+			try {
+				if (reader != null)
+					reader.close();
+			} catch(IOException ex) { }
+		}
+	}
+	
+	public synchronized boolean save(File file) {
+		BufferedWriter writer = null;
+		try {
+			writer = new BufferedWriter(new FileWriter(file));
+			for (Map.Entry<String, Entry> mapEntry: mEntries.entrySet()) {
+				Entry entry = mapEntry.getValue();
+				writer.write(Long.toString(entry.size));
+				writer.write(' ');
+				writer.write(Long.toString(entry.lastModified));
+				writer.write(' ');
+				writer.write(mapEntry.getKey());
+				writer.write('\n');
+			}
+			writer.flush();
+			return true;
+		} catch(IOException ex) {
+			if (Logging.WARNING) Log.w(TAG, "Cant save manifest "+file);
+			file.delete();
+			return false;
+		} finally {
+			try {
+				if (writer != null)
+					writer.close();
+			} catch(IOException ex) { }
+		}
+	}
+}
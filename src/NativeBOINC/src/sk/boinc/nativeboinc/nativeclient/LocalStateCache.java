@@ -0,0 +1,159 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.nativeclient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.berkeley.boinc.lite.App;
+import edu.berkeley.boinc.lite.CcState;
+import edu.berkeley.boinc.lite.Project;
+import edu.berkeley.boinc.lite.Result;
+import edu.berkeley.boinc.lite.Workunit;
+import android.os.SystemClock;
+
+/**
+ * Shared cache of the native (local) client state. State and results retrieved
+ * by NativeBoincService or by manager bridge (connected to native client) are
+ * published here, so other consumer uses them instead of querying client again.
+ * Published objects are read-only (they are shared between threads).
+ * 
+ * @author mat
+ *
+ */
+public final class LocalStateCache {
+	/* maximal age (in milliseconds) of the results, which are used instead of query */
+	public static final int SHARED_MAX_AGE = 5000;
+	
+	private static final LocalStateCache sInstance = new LocalStateCache();
+	
+	/**
+	 * Indexes of the state (projects, apps and workunits), read-only
+	 */
+	public static final class StateSnapshot {
+		public final Map<String, Project> projects;
+		public final Map<String, App> apps;
+		public final Map<String, Workunit> workunits;
+		
+		private StateSnapshot(CcState ccState) {
+			HashMap<String, Project> projectsMap = new HashMap<String, Project>();
+			for (Project project: ccState.projects)
+				projectsMap.put(project.master_url, project);
+			HashMap<String, App> appsMap = new HashMap<String, App>();
+			for (App app: ccState.apps)
+				appsMap.put(app.name, app);
+			HashMap<String, Workunit> workunitsMap = new HashMap<String, Workunit>();
+			for (Workunit workunit: ccState.workunits)
+				workunitsMap.put(workunit.name, workunit);
+			projects = Collections.unmodifiableMap(projectsMap);
+			apps = Collections.unmodifiableMap(appsMap);
+			workunits = Collections.unmodifiableMap(workunitsMap);
+		}
+	}
+	
+	private StateSnapshot mState = null;
+	private ArrayList<Result> mResults = null;
+	/* time of the request of the results (uptime) */
+	private long mResultsTime = 0;
+	/* time of the last operation, which changed the client state (uptime) */
+	private long mChangeTime = 0;
+	/* incremented with each published results */
+	private int mResultsGeneration = 0;
+	
+	private LocalStateCache() { }
+	
+	public static LocalStateCache getInstance() {
+		return sInstance;
+	}
+	
+	/**
+	 * Publishes state (its results are published too)
+	 * @param ccState state of the native client
+	 * @param requestTime uptime, when state was requested
+	 * @return generation of the published results
+	 */
+	public synchronized int publishState(CcState ccState, long requestTime) {
+		mState = new StateSnapshot(ccState);
+		return publishResults(ccState.results, requestTime);
+	}
+	
+	/**
+	 * Publishes results
+	 * @param results results of the native client
+	 * @param requestTime uptime, when results were requested
+	 * @return generation of the published results
+	 */
+	public synchronized int publishResults(ArrayList<Result> results, long requestTime) {
+		mResults = results;
+		mResultsTime = requestTime;
+		return ++mResultsGeneration;
+	}
+	
+	/**
+	 * Confirms, that results of the generation are still current (reply was unchanged)
+	 * @param generation generation of the results
+	 * @param requestTime uptime, when results were requested
+	 */
+	public synchronized void confirmResults(int generation, long requestTime) {
+		if (mResults != null && generation == mResultsGeneration)
+			mResultsTime = requestTime;
+	}
+	
+	/**
+	 * Notifies, that operation changed client state, so results requested before
+	 * are not current
+	 */
+	public synchronized void notifyStateChanged() {
+		mChangeTime = SystemClock.uptimeMillis();
+	}
+	
+	/**
+	 * @return state snapshot or null, if state was not published
+	 */
+	public synchronized StateSnapshot getState() {
+		return mState;
+	}
+	
+	/**
+	 * @param maxAge maximal age of the results (in milliseconds)
+	 * @return results or null, if they are older than maxAge or than last change
+	 */
+	public synchronized ArrayList<Result> getResults(long maxAge) {
+		if (mResults == null || SystemClock.uptimeMillis() - mResultsTime > maxAge ||
+				mResultsTime < mChangeTime)
+			return null;
+		return mResults;
+	}
+	
+	public synchronized int getResultsGeneration() {
+		return mResultsGeneration;
+	}
+	
+	/**
+	 * Forgets published data (when native client is stopped)
+	 */
+	public synchronized void clear() {
+		mState = null;
+		mResults = null;
+		mResultsGeneration++;
+	}
+}
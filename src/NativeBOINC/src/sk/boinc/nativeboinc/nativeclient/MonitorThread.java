@@ -39,8 +39,9 @@ public class MonitorThread extends Thread {
 	private static final String TAG = "MonitorThread";
 	
 	private String mAuthCode = null;
-	private boolean mDoQuit = false;
-	private boolean mIsWorking = false;
+	private volatile boolean mDoQuit = false;
+	private volatile boolean mIsWorking = false;
+	private volatile boolean mConnectionLost = false;
 	
 	public static final int STATE_UNKNOWN = 0;
 	public static final int STATE_TASKS_RAN = 1;
@@ -128,38 +129,49 @@ public class MonitorThread extends Thread {
 			
 			if (Logging.DEBUG) Log.d(TAG, "Client monitor opened");
 			
+			ArrayList<ClientEvent> events = new ArrayList<ClientEvent>();
 			while (!mDoQuit) {
-				ClientEvent event = clientMonitor.poll();
-				if (event == null)
-					continue;
+				events.clear();
+				clientMonitor.pollEvents(events);
 				
-				/* update current state */
-				switch(event.type) {
-				case ClientEvent.EVENT_RUN_TASKS:
-					mCurrentState = STATE_TASKS_RAN;
-					break;
-				case ClientEvent.EVENT_SUSPEND_ALL_TASKS:
-					mCurrentState = STATE_TASKS_SUSPENDED;
-					break;
-				case ClientEvent.EVENT_RUN_BENCHMARK:
-					mCurrentState = STATE_BENCHMARK_RAN;
-					break;
-				case ClientEvent.EVENT_FINISH_BENCHMARK:
-					mCurrentState = STATE_TASKS_SUSPENDED;
-					break;
-				default:
+				for (ClientEvent event: events) {
+					updateCurrentState(event);
+					if (Logging.DEBUG) Log.d(TAG, "Notify client event. type: " + event.type +
+							",projectUrl: " + event.projectUrl);
 				}
-				
-				if (Logging.DEBUG) Log.d(TAG, "Notify client event. type: " + event.type +
-						",projectUrl: " + event.projectUrl);
-				notifyMonitorEvent(event);
+				notifyMonitorEvents(events.toArray(new ClientEvent[events.size()]));
 			}
 		} catch(IOException ex) {
-			if (Logging.ERROR) Log.e(TAG, "Error at monitor event polling");
+			if (!mDoQuit) {
+				if (Logging.ERROR) Log.e(TAG, "Error at monitor event polling");
+				mConnectionLost = true;
+			}
 		} finally {
+			mIsWorking = false;
 			if (clientMonitor.isConnected())
 				clientMonitor.close();
 		}
+		if (mConnectionLost)	// events are no longer delivered
+			notifyMonitorDoesntWork();
+	}
+	
+	/* update current state */
+	private void updateCurrentState(ClientEvent event) {
+		switch(event.type) {
+		case ClientEvent.EVENT_RUN_TASKS:
+			mCurrentState = STATE_TASKS_RAN;
+			break;
+		case ClientEvent.EVENT_SUSPEND_ALL_TASKS:
+			mCurrentState = STATE_TASKS_SUSPENDED;
+			break;
+		case ClientEvent.EVENT_RUN_BENCHMARK:
+			mCurrentState = STATE_BENCHMARK_RAN;
+			break;
+		case ClientEvent.EVENT_FINISH_BENCHMARK:
+			mCurrentState = STATE_TASKS_SUSPENDED;
+			break;
+		default:
+		}
 	}
 	
 	public void quitFromThread() {
@@ -167,11 +179,13 @@ public class MonitorThread extends Thread {
 		mDoQuit = true;
 	}
 	
-	private synchronized void notifyMonitorEvent(final ClientEvent event) {
+	/* events of one batch are delivered by single message */
+	private synchronized void notifyMonitorEvents(final ClientEvent[] events) {
 		mListenerHandler.post(new Runnable() {
 			@Override
 			public void run() {
-				mListenerHandler.onMonitorEvent(event);
+				for (ClientEvent event: events)
+					mListenerHandler.onMonitorEvent(event);
 			}
 		});
 	}
@@ -185,6 +199,11 @@ public class MonitorThread extends Thread {
 		});
 	}
 	
+	/* check whether monitor was working and lost connection (mostly when client exits) */
+	public boolean isConnectionLost() {
+		return mConnectionLost;
+	}
+	
 	/* check whether client monitor is working */
 	public boolean isWorking() {
 		return mIsWorking && !mDoQuit;
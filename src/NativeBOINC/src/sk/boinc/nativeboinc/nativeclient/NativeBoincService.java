@@ -71,6 +71,7 @@ import android.os.Handler;
 import android.os.IBinder;
 import android.os.PowerManager;
 import android.os.PowerManager.WakeLock;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.util.Log;
 import android.widget.Toast;
@@ -632,10 +633,109 @@ public class NativeBoincService extends Service implements MonitorListener,
 		private int mBoincPid = -1;
 		private boolean mBoincIsKilled = false;
 		
+		/* readiness probe: backoff starts at few ms and doubles up to max delay */
+		private static final int PROBE_INITIAL_DELAY = 5;
+		private static final int PROBE_MAX_DELAY = 200;
+		private static final int CONNECT_TIMEOUT = 5000;
+		private static final int AUTHORIZE_TIMEOUT = 2000;
+		private static final int MONITOR_AUTHORIZE_TIMEOUT = 2000;
+		
 		public NativeBoincThread(boolean secondStart) {
 			this.mSecondStart = secondStart;
 		}
 		
+		/**
+		 * Opens connection with native client as soon as GUI RPC port accepts connections.
+		 * @return true if connection opened before timeout
+		 */
+		private boolean probeOpen(ExtendedRpcClient rpcClient, int timeout) {
+			long deadline = SystemClock.uptimeMillis() + timeout;
+			int delay = PROBE_INITIAL_DELAY;
+			while (true) {
+				if (rpcClient.open("127.0.0.1", 31416))
+					return true;
+				if (SystemClock.uptimeMillis() + delay > deadline)
+					return false;
+				try {
+					Thread.sleep(delay);
+				} catch(InterruptedException ex) { }
+				delay = Math.min(delay << 1, PROBE_MAX_DELAY);
+			}
+		}
+		
+		/**
+		 * Authorizes connection, retrying with short backoff until timeout
+		 */
+		private boolean probeAuthorize(ExtendedRpcClient rpcClient, String password, int timeout) {
+			long deadline = SystemClock.uptimeMillis() + timeout;
+			int delay = PROBE_INITIAL_DELAY;
+			while (true) {
+				if (Logging.DEBUG) Log.d(TAG, "Try to authorize...");
+				if (rpcClient.authorize(password))
+					return true;
+				if (SystemClock.uptimeMillis() + delay > deadline)
+					return false;
+				try {
+					Thread.sleep(delay);
+				} catch(InterruptedException ex) { }
+				delay = Math.min(delay << 1, PROBE_MAX_DELAY);
+			}
+		}
+		
+		/**
+		 * Authorizes monitor access on own connection, concurrently with first state fetch.
+		 * Connection is kept opened until native client finishes.
+		 */
+		private class MonitorAuthorizer extends Thread {
+			private final String mPassword;
+			private final ExtendedRpcClient mRpcClient = new ExtendedRpcClient();
+			private String mAuthCode = null;
+			private long mFinishTime = -1;
+			
+			public MonitorAuthorizer(String password) {
+				super("MonitorAuthorizer");
+				mPassword = password;
+			}
+			
+			@Override
+			public void run() {
+				if (Logging.DEBUG) Log.d(TAG, "Trying to authorize monitor access");
+				if (probeOpen(mRpcClient, MONITOR_AUTHORIZE_TIMEOUT) &&
+						probeAuthorize(mRpcClient, mPassword, MONITOR_AUTHORIZE_TIMEOUT)) {
+					long deadline = SystemClock.uptimeMillis() + MONITOR_AUTHORIZE_TIMEOUT;
+					int delay = PROBE_INITIAL_DELAY;
+					while (true) {
+						mAuthCode = mRpcClient.authorizeMonitor();
+						if (mAuthCode != null || SystemClock.uptimeMillis() + delay > deadline)
+							break;
+						try {
+							Thread.sleep(delay);
+						} catch(InterruptedException ex) { }
+						delay = Math.min(delay << 1, PROBE_MAX_DELAY);
+					}
+				}
+				mFinishTime = SystemClock.uptimeMillis();
+			}
+			
+			public String getAuthCode() {
+				try {
+					join();
+				} catch(InterruptedException ex) { }
+				return mAuthCode;
+			}
+			
+			public long getFinishTime() {
+				return mFinishTime;
+			}
+			
+			public void closeConnection() {
+				try {
+					join();
+				} catch(InterruptedException ex) { }
+				mRpcClient.close();
+			}
+		}
+		
 		@Override
 		public void run() {
 			SharedPreferences globalPrefs = PreferenceManager.getDefaultSharedPreferences(
@@ -650,6 +750,8 @@ public class NativeBoincService extends Service implements MonitorListener,
 			
 			mShutdownCommandWasPerformed = false;
 			
+			long startTime = SystemClock.uptimeMillis();
+			
 			String programName = NativeBoincService.this.getFileStreamPath("boinc_client")
 					.getAbsolutePath();
 			
@@ -688,26 +790,13 @@ public class NativeBoincService extends Service implements MonitorListener,
 				return;
 			}
 			
-			try {
-				Thread.sleep(500); // sleep 0.5 seconds
-			} catch(InterruptedException ex) { }
-			/* open client */
+			long execTime = SystemClock.uptimeMillis();
+			
+			/* open client (connect as soon as GUI RPC port accepts) */
 			if (Logging.DEBUG) Log.d(TAG, "Connecting with native client");
 			
 			ExtendedRpcClient rpcClient = new ExtendedRpcClient();
-			boolean isRpcOpened = false;
-			for (int i = 0; i < 4; i++) {
-				if (rpcClient.open("127.0.0.1", 31416)) {
-					isRpcOpened = true;
-					break;
-				} else {
-					try {
-						Thread.sleep(500); // sleep 0.5 seconds
-					} catch(InterruptedException ex) { }
-				}
-			}
-			
-			if (!isRpcOpened) {
+			if (!probeOpen(rpcClient, CONNECT_TIMEOUT)) {
 				if (Logging.ERROR) Log.e(TAG, "Connecting with native client failed");
 				mNativeBoincThread = null;
 				notifyClientError(getString(R.string.connectNativeClientError));
@@ -729,22 +818,21 @@ public class NativeBoincService extends Service implements MonitorListener,
 				NativeBoincUtils.killAllBoincZombies();
 				return;
 			}
-			boolean isAuthorized = false;
-			for (int i = 0; i < 4; i++) {
-				if (Logging.DEBUG) Log.d(TAG, "Try to authorize...");
-				if (rpcClient.authorize(password)) {
-					isAuthorized = true;
-					break;
-				}
-			}
-			if (!isAuthorized) {
+			long connectTime = SystemClock.uptimeMillis();
+			
+			if (!probeAuthorize(rpcClient, password, AUTHORIZE_TIMEOUT)) {
 				if (Logging.ERROR) Log.e(TAG, "Authorizing with native client failed");
 				mNativeBoincThread = null;
 				notifyClientError(getString(R.string.nativeAuthorizeError));
 				killNativeBoinc();
 				NativeBoincUtils.killAllBoincZombies();
 				return;
-			} 
+			}
+			long authorizeTime = SystemClock.uptimeMillis();
+			
+			// authorize monitor (overlaps with first state fetch)
+			MonitorAuthorizer monitorAuthorizer = new MonitorAuthorizer(password);
+			monitorAuthorizer.start();
 			
 			if (Logging.DEBUG) Log.d(TAG, "Acquire wake lock");
 			if (!usePartial) {
@@ -755,28 +843,6 @@ public class NativeBoincService extends Service implements MonitorListener,
 					mPartialWakeLock.acquire();	// partial lock
 			}
 			
-			String monitorAuthCode = null;
-			// authorize monitor
-			if (Logging.DEBUG) Log.d(TAG, "Trying to authorize monitor access");
-			try {
-				Thread.sleep(300);
-			} catch(InterruptedException ex) { }
-			
-			if (rpcClient != null) {
-				// try 3 times connect with client monitor
-				for (int i = 0; i < 3; i++) {
-					monitorAuthCode = rpcClient.authorizeMonitor();
-					if (monitorAuthCode != null)
-						break; // if success
-					try {
-						Thread.sleep(300);
-					} catch(InterruptedException ex) { }
-				}
-				if (monitorAuthCode == null) {
-					if (Logging.INFO) Log.i(TAG, "Cant authorize monitor access"); 
-				}
-			}
-			
 			// worker thread
 			ConditionVariable lock = new ConditionVariable(false);
 			NativeBoincWorkerThread workerThread; 
@@ -790,12 +856,6 @@ public class NativeBoincService extends Service implements MonitorListener,
 				if (Logging.DEBUG) Log.d(TAG, "NativeBoincWorkerThread started successfully");
 			mWorkerThread = workerThread;
 			
-			// monitor thread
-			if (monitorAuthCode != null) {
-				mMonitorThread = new MonitorThread(mMonitorListenerHandler, monitorAuthCode);
-				mMonitorThread.start();
-			}
-			
 			// configure client
 			if (mSecondStart) {
 				if (Logging.DEBUG) Log.d(TAG, "Configure native client");
@@ -810,6 +870,21 @@ public class NativeBoincService extends Service implements MonitorListener,
 			mApp.setRestartedAfterReinstall();
 			notifyClientStart();
 			
+			// monitor thread
+			String monitorAuthCode = monitorAuthorizer.getAuthCode();
+			if (monitorAuthCode != null) {
+				mMonitorThread = new MonitorThread(mMonitorListenerHandler, monitorAuthCode);
+				mMonitorThread.start();
+			} else {
+				if (Logging.INFO) Log.i(TAG, "Cant authorize monitor access");
+			}
+			
+			if (Logging.INFO) Log.i(TAG, "Startup timing: exec " + (execTime - startTime) +
+					"ms, connect " + (connectTime - execTime) + "ms, authorize " +
+					(authorizeTime - connectTime) + "ms, monitor " +
+					(monitorAuthorizer.getFinishTime() - authorizeTime) + "ms, total " +
+					(SystemClock.uptimeMillis() - startTime) + "ms");
+			
 			int exitCode = 0;
 			
 			try { /* waiting to quit */
@@ -824,6 +899,7 @@ public class NativeBoincService extends Service implements MonitorListener,
 			}
 			
 			rpcClient = null;
+			monitorAuthorizer.closeConnection();
 			
 			if (Logging.DEBUG) Log.d(TAG, "boinc_client has been finished");
 			
@@ -1566,6 +1642,11 @@ public class NativeBoincService extends Service implements MonitorListener,
 	
 	@Override
 	public void onMonitorDoesntWork() {
+		if (mMonitorThread != null && mMonitorThread.isConnectionLost()) {
+			// not error of monitor startup, listeners just fall back to polling
+			if (Logging.INFO) Log.i(TAG, "Client monitor lost connection");
+			return;
+		}
 		Intent intent = new Intent(NativeBoincService.this, ClientMonitorErrorActivity.class);
 		intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
 		startActivity(intent);
@@ -5,6 +5,7 @@ package sk.boinc.nativeboinc.nativeclient;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -17,6 +18,7 @@ import java.util.List;
 import sk.boinc.nativeboinc.BoincManagerApplication;
 
 import android.content.Context;
+import android.os.SystemClock;
 
 /**
  * @author mat
@@ -59,148 +61,267 @@ public class NativeBoincUtils {
 			"</global_preferences>";
 	
 	/* kill processes routines */
-	private static void killBoincProcesses(List<String> pidStrings) {
-		for (String pid: pidStrings) {
-			android.os.Process.sendSignal(Integer.parseInt(pid), 2);
-			try {
-				Thread.sleep(100);	// 0.4 second
-			} catch (InterruptedException e) { }
-			android.os.Process.sendSignal(Integer.parseInt(pid), 2);
-			try {
-				Thread.sleep(100);	// 0.4 second
-			} catch (InterruptedException e) { }
-			android.os.Process.sendSignal(Integer.parseInt(pid), 2);
+	
+	private static final int PROC_BUFFER_SIZE = 1024;
+	
+	private static final int REAP_POLL_INTERVAL = 20;
+	private static final int SIGINT_RESEND_INTERVAL = 100;
+	
+	/* boinc_client: three SIGINTs (0, 0.1, 0.2 second), SIGKILL after 0.6 second */
+	private static final int NATIVE_BOINC_SIGINT_ROUNDS = 3;
+	private static final int NATIVE_BOINC_KILL_TIMEOUT = 600;
+	/* other processes: one SIGINT, SIGKILL after 0.4 second */
+	private static final int ZOMBIE_KILL_TIMEOUT = 400;
+	
+	/* process entry from /proc scan */
+	private static class ProcEntry {
+		public int pid;
+		public int ppid;
+		public int pgrp;
+		public boolean isNativeBoinc;
+	}
+	
+	/**
+	 * reads beginning of proc file to buffer
+	 * @return length of read content or -1 if failed
+	 */
+	private static int readProcFile(String path, byte[] buffer) {
+		FileInputStream inStream = null;
+		try {
+			inStream = new FileInputStream(path);
+			int length = 0;
+			while (length < buffer.length) {
+				int readed = inStream.read(buffer, length, buffer.length - length);
+				if (readed == -1)
+					break;
+				length += readed;
+			}
+			return length;
+		} catch(IOException ex) {
+			return -1;
+		} finally {
 			try {
-				Thread.sleep(400);	// 0.4 second
-			} catch (InterruptedException e) { }
-			/* fallback killing (by using SIGKILL signal) */
-			android.os.Process.sendSignal(Integer.parseInt(pid), 9);
+				if (inStream != null)
+					inStream.close();
+			} catch(IOException ex) { }
 		}
 	}
 	
-	private static void killProcesses(List<String> pidStrings) {
-		for (String pid: pidStrings) {
-			android.os.Process.sendSignal(Integer.parseInt(pid), 2);
-			try {
-				Thread.sleep(400);	// 0.4 second
-			} catch (InterruptedException e) { }
-			/* fallback killing (by using SIGKILL signal) */
-			android.os.Process.sendSignal(Integer.parseInt(pid), 9);
+	/* parses real uid from /proc/<pid>/status content */
+	private static int parseStatusUid(byte[] buffer, int length) {
+		int lineStart = 0;
+		while (lineStart + 4 < length) {
+			if (buffer[lineStart] == 'U' && buffer[lineStart+1] == 'i' &&
+					buffer[lineStart+2] == 'd' && buffer[lineStart+3] == ':') {
+				int i = lineStart + 4;
+				while (i < length && (buffer[i] == ' ' || buffer[i] == '\t'))
+					i++;	// skip all spaces
+				if (i >= length || buffer[i] < '0' || buffer[i] > '9')
+					return -1;
+				int uid = 0;
+				for (; i < length && buffer[i] >= '0' && buffer[i] <= '9'; i++)
+					uid = uid*10 + (buffer[i]-'0');
+				return uid;
+			}
+			// skip to next line
+			while (lineStart < length && buffer[lineStart] != '\n')
+				lineStart++;
+			lineStart++;
 		}
+		return -1;
 	}
 	
-	public static void killAllNativeBoincs(Context context) {
-		String nativeBoincPath = context.getFileStreamPath("boinc_client").getAbsolutePath();
-		File procDir = new File("/proc/");
-		/* scan /proc directory */
-		List<String> pids = new ArrayList<String>();
-		BufferedReader cmdLineReader = null;
+	/**
+	 * parses /proc/<pid>/stat content (after command name)
+	 * @return index of state character or -1 if failed
+	 */
+	private static int findStatState(byte[] buffer, int length) {
+		// command name can contain spaces and parentheses, find last ')'
+		int i = length-1;
+		while (i >= 0 && buffer[i] != ')')
+			i--;
+		if (i < 0 || i+2 >= length)
+			return -1;
+		return i+2;
+	}
+	
+	/* parses decimal field from stat, returns index after field */
+	private static int parseStatField(byte[] buffer, int length, int start, int[] out) {
+		int i = start;
+		while (i < length && buffer[i] == ' ')
+			i++;
+		int value = 0;
+		for (; i < length && buffer[i] >= '0' && buffer[i] <= '9'; i++)
+			value = value*10 + (buffer[i]-'0');
+		out[0] = value;
+		return i;
+	}
+	
+	private static boolean isProcessAlive(int pid, byte[] buffer) {
+		int length = readProcFile("/proc/" + pid + "/stat", buffer);
+		if (length <= 0)
+			return false;	// process disappeared
+		int stateIndex = findStatState(buffer, length);
+		if (stateIndex == -1)
+			return false;
+		byte state = buffer[stateIndex];
+		return state != 'Z' && state != 'X';
+	}
+	
+	/**
+	 * scans /proc directory for own processes (filtered by uid first, cmdline and stat
+	 * are read only for matched processes). One buffer is reused for all reads.
+	 * @param nativeBoincPath path to boinc_client (if null cmdline is not checked)
+	 */
+	private static List<ProcEntry> scanOwnProcesses(String nativeBoincPath, byte[] buffer) {
+		List<ProcEntry> entries = new ArrayList<ProcEntry>();
+		String[] names = new File("/proc/").list();
+		if (names == null)
+			return entries;
 		
-		for (File dir: procDir.listFiles()) {
-			String dirName = dir.getName();
-			if (!dir.isDirectory())
-				continue;
+		int uid = android.os.Process.myUid();
+		int myPid = android.os.Process.myPid();
+		byte[] pathBytes = (nativeBoincPath != null) ? nativeBoincPath.getBytes() : null;
+		int[] field = new int[1];
+		
+		for (String name: names) {
 			/* if process directory */
+			int length = name.length();
+			if (length == 0)
+				continue;
+			int pid = 0;
 			boolean isNumber = true;
-			for (int i = 0; i < dirName.length(); i++)
-				if (!Character.isDigit(dirName.charAt(i))) {
+			for (int i = 0; i < length; i++) {
+				char c = name.charAt(i);
+				if (c < '0' || c > '9') {
 					isNumber = false;
 					break;
 				}
-			if (!isNumber)
+				pid = pid*10 + (c-'0');
+			}
+			if (!isNumber || pid == myPid)
 				continue;
 			
-			try {
-				cmdLineReader = new BufferedReader(new FileReader(
-						new File(dir.getAbsolutePath()+"/cmdline")));
-				
-				String cmdLine = cmdLineReader.readLine();
-				if (cmdLine != null && cmdLine.startsWith(nativeBoincPath)) /* is found */
-					pids.add(dirName);				
-			} catch (IOException ex) {
+			String procPath = "/proc/" + name;
+			length = readProcFile(procPath + "/status", buffer);
+			if (length <= 0 || parseStatusUid(buffer, length) != uid)
 				continue;
-			} finally {
-				try {
-					cmdLineReader.close();
-				} catch(IOException ex) { }
+			
+			ProcEntry entry = new ProcEntry();
+			entry.pid = pid;
+			
+			if (pathBytes != null) {
+				length = readProcFile(procPath + "/cmdline", buffer);
+				if (length >= pathBytes.length) {
+					boolean matches = true;
+					for (int i = 0; i < pathBytes.length; i++)
+						if (buffer[i] != pathBytes[i]) {
+							matches = false;
+							break;
+						}
+					entry.isNativeBoinc = matches;
+				}
+			}
+			
+			length = readProcFile(procPath + "/stat", buffer);
+			int stateIndex = (length > 0) ? findStatState(buffer, length) : -1;
+			if (stateIndex != -1) {
+				int i = parseStatField(buffer, length, stateIndex+1, field);
+				entry.ppid = field[0];
+				parseStatField(buffer, length, i, field);
+				entry.pgrp = field[0];
 			}
+			entries.add(entry);
 		}
-		
-		/* do kill processes */
-		killBoincProcesses(pids);
+		return entries;
 	}
 	
-	public static void killAllBoincZombies() {
-		File procDir = new File("/proc/");
-		List<String> pids = new ArrayList<String>();
-		BufferedReader cmdLineReader = null;
+	/**
+	 * Signals all targets at once, then polls exit state of all targets and followers
+	 * until single deadline. Processes which still live after deadline are killed
+	 * by SIGKILL.
+	 * @param targets processes which get SIGINT
+	 * @param followers processes which are only waited for (SIGKILLed after deadline)
+	 */
+	private static void reapProcesses(List<Integer> targets, List<Integer> followers,
+			int sigintRounds, int timeout, byte[] buffer) {
+		if (targets.isEmpty() && followers.isEmpty())
+			return;
+		
+		for (int pid: targets)
+			android.os.Process.sendSignal(pid, 2);
+		
+		List<Integer> pending = new ArrayList<Integer>(targets.size() + followers.size());
+		pending.addAll(targets);
+		pending.addAll(followers);
 		
-		String uid = Integer.toString(android.os.Process.myUid());
-		String myPid = Integer.toString(android.os.Process.myPid());
+		long startTime = SystemClock.uptimeMillis();
+		long deadline = startTime + timeout;
+		int sentRounds = 1;
 		
-		for (File dir: procDir.listFiles()) {
-			String dirName = dir.getName();
+		while (true) {
+			for (int i = pending.size()-1; i >= 0; i--)
+				if (!isProcessAlive(pending.get(i), buffer))
+					pending.remove(i);
+			if (pending.isEmpty())
+				return;
 			
-			if (!dir.isDirectory())
-				continue;
-			/* if process directory */
-			boolean isNumber = true;
-			for (int i = 0; i < dirName.length(); i++)
-				if (!Character.isDigit(dirName.charAt(i))) {
-					isNumber = false;
-					break;
-				}
-			if (!isNumber)
-				continue;
+			long now = SystemClock.uptimeMillis();
+			if (now >= deadline)
+				break;
 			
-			if (dirName.equals(myPid)) // if my pid
-				continue;
+			if (sentRounds < sigintRounds && now >= startTime + sentRounds*SIGINT_RESEND_INTERVAL) {
+				for (int pid: targets)
+					if (pending.contains(pid))
+						android.os.Process.sendSignal(pid, 2);
+				sentRounds++;
+			}
 			
 			try {
-				cmdLineReader = new BufferedReader(new FileReader(
-						new File(dir.getAbsolutePath()+"/status")));
-				
-				while (true) {
-					String line = cmdLineReader.readLine();
-					if (line == null)
-						break;
-					
-					if (line.startsWith("Uid:")) {
-						// extract first number
-						int i = 4;
-						int start = 0, end = 4;
-						int length = line.length();
-						for (i = 4; i < length; i++)
-							if (Character.isDigit(line.charAt(i)))	// skip all spaces
-								break;
-						// if digit
-						if (Character.isDigit(line.charAt(i))) {
-							start = i;
-							for (; i < length; i++)
-								if (!Character.isDigit(line.charAt(i)))
-									break;
-							end = i;
-						}
-						String processUid = line.substring(start, end);
-						if (uid.equals(processUid)) { // if uid matches
-							pids.add(dirName);
-						}
-						break;
-					}
-				}
-			} catch(IOException ex) {
-				continue;
-			} finally {
-				try {
-					if (cmdLineReader != null)
-						cmdLineReader.close();
-				} catch(IOException ex) { }
-			}
+				Thread.sleep(Math.min(REAP_POLL_INTERVAL, deadline - now));
+			} catch (InterruptedException e) { }
 		}
 		
+		/* fallback killing (by using SIGKILL signal) */
+		for (int pid: pending)
+			android.os.Process.sendSignal(pid, 9);
+	}
+	
+	public static void killAllNativeBoincs(Context context) {
+		String nativeBoincPath = context.getFileStreamPath("boinc_client").getAbsolutePath();
+		byte[] buffer = new byte[PROC_BUFFER_SIZE];
+		/* scan /proc directory */
+		List<ProcEntry> entries = scanOwnProcesses(nativeBoincPath, buffer);
+		
+		List<Integer> pids = new ArrayList<Integer>();
+		for (ProcEntry entry: entries)
+			if (entry.isNativeBoinc)
+				pids.add(entry.pid);
+		
+		/* children and process group members of boinc_client (science applications)
+		 * will be shut down by client, we only wait for them */
+		List<Integer> followers = new ArrayList<Integer>();
+		for (ProcEntry entry: entries)
+			if (!entry.isNativeBoinc && (pids.contains(entry.ppid) || pids.contains(entry.pgrp)))
+				followers.add(entry.pid);
+		
+		/* do kill processes */
+		reapProcesses(pids, followers, NATIVE_BOINC_SIGINT_ROUNDS, NATIVE_BOINC_KILL_TIMEOUT,
+				buffer);
+	}
+	
+	public static void killAllBoincZombies() {
+		byte[] buffer = new byte[PROC_BUFFER_SIZE];
+		List<ProcEntry> entries = scanOwnProcesses(null, buffer);
+		
+		List<Integer> pids = new ArrayList<Integer>(entries.size());
+		for (ProcEntry entry: entries)
+			pids.add(entry.pid);
+		
 		// kill processes
-		killProcesses(pids);
+		reapProcesses(pids, new ArrayList<Integer>(0), 1, ZOMBIE_KILL_TIMEOUT, buffer);
 	}
+
 	
 	/* fallback kill zombies */
 	public static void killZombieClient(Context context) {
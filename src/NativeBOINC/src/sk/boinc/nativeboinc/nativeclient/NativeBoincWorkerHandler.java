@@ -39,6 +39,7 @@ import edu.berkeley.boinc.nativeboinc.ExtendedRpcClient;
 import edu.berkeley.boinc.nativeboinc.UpdateProjectAppsReply;
 import android.content.Context;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 
 /**
@@ -54,9 +55,8 @@ public class NativeBoincWorkerHandler extends Handler {
 	
 	private Formatter mFormatter = null;
 	
-	private HashMap<String, App> mApps = new HashMap<String, App>();
-	private HashMap<String, Workunit> mWorkunits = new HashMap<String, Workunit>();
-	private HashMap<String, Project> mProjects = new HashMap<String, Project>();
+	/* projects, apps and workunits are taken from shared state */
+	private LocalStateCache mStateCache = LocalStateCache.getInstance();
 	private HashMap<String, TaskItem> mTasks = new HashMap<String, TaskItem>();
 	
 	public NativeBoincWorkerHandler(final Context context, final NativeBoincService.ListenerHandler listenerHandler,
@@ -83,7 +83,10 @@ public class NativeBoincWorkerHandler extends Handler {
 			return;
 		}
 		
-		ArrayList<Result> results = mRpcClient.getActiveResults();
+		// results retrieved recently (also by manager) contain active results
+		ArrayList<Result> results = mStateCache.getResults(LocalStateCache.SHARED_MAX_AGE);
+		if (results == null)
+			results = mRpcClient.getActiveResults();
 		
 		if (results == null) {
 			notifyGlobalProgress(channelId, -1.0);
@@ -109,6 +112,7 @@ public class NativeBoincWorkerHandler extends Handler {
 	}
 	
 	private boolean updateState(int channelId) {
+		long requestTime = SystemClock.uptimeMillis();
 		CcState ccState = mRpcClient.getState();
 		
 		if (ccState == null)  {
@@ -117,27 +121,30 @@ public class NativeBoincWorkerHandler extends Handler {
 			return false;
 		}
 		
-		mProjects.clear();
-		for (Project project: ccState.projects)
-			mProjects.put(project.master_url, project);
-		
-		mApps.clear();
-		for (App app: ccState.apps)
-			mApps.put(app.name, app);
-		
-		mWorkunits.clear();
-		for (Workunit workunit: ccState.workunits)
-			mWorkunits.put(workunit.name, workunit);
-				
+		mStateCache.publishState(ccState, requestTime);
+		buildTasks(mStateCache.getState(), ccState.results, true);
+		return true;
+	}
+	
+	/*
+	 * creates tasks from results and state. If state is not current, returns false
+	 * when it is incomplete, otherwise incomplete results are skipped
+	 */
+	private boolean buildTasks(LocalStateCache.StateSnapshot state, ArrayList<Result> results,
+			boolean currentState) {
 		mTasks.clear();
 		/* update tasks */
-		for (Result result: ccState.results) {
-			Project project = mProjects.get(result.project_url);
-			Workunit workunit = mWorkunits.get(result.wu_name);
+		for (Result result: results) {
+			Project project = state.projects.get(result.project_url);
+			Workunit workunit = state.workunits.get(result.wu_name);
 			App app = null;
 			if (workunit != null)
-				app = mApps.get(workunit.app_name);
+				app = state.apps.get(workunit.app_name);
 			if (project == null || workunit == null || app == null) {
+				if (!currentState) {
+					mTasks.clear();
+					return false;
+				}
 				if (Logging.WARNING) Log.w(TAG, "Warning datasets are incomplete! skipping result "+
 							result.name);
 				continue;
@@ -176,16 +183,23 @@ public class NativeBoincWorkerHandler extends Handler {
 		if (mRpcClient == null)
 			return;
 		
-		ArrayList<Result> results = mRpcClient.getResults();
+		// results retrieved recently (also by manager) are used
+		ArrayList<Result> results = mStateCache.getResults(LocalStateCache.SHARED_MAX_AGE);
 		if (results == null) {
-			notifyNativeBoincServiceError(channelId, WorkerOp.GetTasks,
-					mContext.getString(R.string.nativeClientResultsError));
-			return;
+			long requestTime = SystemClock.uptimeMillis();
+			results = mRpcClient.getResults();
+			if (results == null) {
+				notifyNativeBoincServiceError(channelId, WorkerOp.GetTasks,
+						mContext.getString(R.string.nativeClientResultsError));
+				return;
+			}
+			mStateCache.publishResults(results, requestTime);
 		}
 		// try to update results
 		if (!updateTasks(results)) {
-			// try to update whole ccstate
-			if (!updateState(channelId))
+			// try to create tasks from shared state, otherwise update whole ccstate
+			LocalStateCache.StateSnapshot state = mStateCache.getState();
+			if ((state == null || !buildTasks(state, results, false)) && !updateState(channelId))
 				return;
 		}
 		notifyResults(channelId, new ArrayList<TaskItem>(mTasks.values()));
@@ -324,6 +338,7 @@ public class NativeBoincWorkerHandler extends Handler {
 	public void shutdownClient() {
 		if (mRpcClient != null) {
 			removeCallbacks(mUpdatingPoller);
+			mStateCache.clear();
 			mRpcClient.quit();
 			mRpcClient.close();
 			mRpcClient = null;
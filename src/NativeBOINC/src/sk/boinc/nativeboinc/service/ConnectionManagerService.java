@@ -19,8 +19,11 @@
 
 package sk.boinc.nativeboinc.service;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import edu.berkeley.boinc.lite.AccountIn;
@@ -31,19 +34,24 @@ import sk.boinc.nativeboinc.BoincManagerApplication;
 import sk.boinc.nativeboinc.bridge.ClientBridge;
 import sk.boinc.nativeboinc.bridge.ClientBridgeCallback;
 import sk.boinc.nativeboinc.clientconnection.BoincOp;
+import sk.boinc.nativeboinc.clientconnection.ClientFleetReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientPollReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientReceiver;
 import sk.boinc.nativeboinc.clientconnection.ClientRequestHandler;
+import sk.boinc.nativeboinc.clientconnection.HostSummary;
+import sk.boinc.nativeboinc.clientconnection.MessageInfo;
 import sk.boinc.nativeboinc.clientconnection.NoConnectivityException;
 import sk.boinc.nativeboinc.clientconnection.TaskDescriptor;
 import sk.boinc.nativeboinc.clientconnection.TransferDescriptor;
 import sk.boinc.nativeboinc.debug.Logging;
 import sk.boinc.nativeboinc.util.ClientId;
+import sk.boinc.nativeboinc.util.HostListDbAdapter;
 import sk.boinc.nativeboinc.util.PreferenceName;
 import android.app.Service;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+import android.database.Cursor;
 import android.os.Binder;
 import android.os.Handler;
 import android.os.IBinder;
@@ -59,6 +67,9 @@ public class ConnectionManagerService extends Service implements
 
 	private static final int TERMINATE_GRACE_PERIOD_CONN = 45;
 	private static final int TERMINATE_GRACE_PERIOD_IDLE = 3;
+	
+	/* maximal number of simultaneously monitored hosts (each bridge has own worker thread) */
+	public static final int FLEET_MAX_HOSTS = 16;
 
 	public class LocalBinder extends Binder {
 		public ConnectionManagerService getService() {
@@ -75,6 +86,14 @@ public class ConnectionManagerService extends Service implements
 	private Set<ClientBridge> mDyingBridges = new HashSet<ClientBridge>();
 	private Set<ClientReceiver> mObservers = new HashSet<ClientReceiver>();
 	private NetworkStatisticsHandler mNetStats = null;
+	
+	// fleet mode: bridges of the monitored hosts (except current bridge) in LRU order
+	private boolean mFleetMode = false;
+	private int mFleetMaxHosts = 0;
+	private LinkedHashMap<ClientId, ClientBridge> mFleetBridges =
+			new LinkedHashMap<ClientId, ClientBridge>(16, 0.75f, true);
+	private Map<ClientId, FleetHostMonitor> mFleetMonitors =
+			new LinkedHashMap<ClientId, FleetHostMonitor>();
 
 	private BoincManagerApplication mApp = null;
 	
@@ -132,6 +151,9 @@ public class ConnectionManagerService extends Service implements
 				public void run() {
 					// We remove reference to self
 					mTerminateRunnable = null;
+					// Stop monitoring of other hosts
+					if (mFleetMode)
+						stopFleetMonitoring();
 					// Disconnect client if still connected
 					if (mClientBridge != null) {
 						// Still connected to some client - disconnect it now
@@ -219,7 +241,11 @@ public class ConnectionManagerService extends Service implements
 	@Override
 	public void bridgeDisconnected(ClientBridge clientBridge) {
 		// The bridge got disconnected (explicit disconnect, connect unsuccessful, abnormal close etc)
-		if (mClientBridge == clientBridge) {
+		if (removeFleetBridge(clientBridge)) {
+			// Monitored host disconnected, its summary is kept (with last error)
+			if (Logging.INFO) Log.i(TAG, "Unsolicited disconnect of monitored ClientBridge");
+		}
+		else if (mClientBridge == clientBridge) {
 			// The currently connected bridge was disconnected.
 			// This is unsolicited disconnect
 			if (Logging.INFO) Log.i(TAG, "Unsolicited disconnect of ClientBridge");
@@ -285,9 +311,23 @@ public class ConnectionManagerService extends Service implements
 	public void connect(ClientId host, boolean retrieveInitialData) throws NoConnectivityException {
 		if (Logging.DEBUG) Log.d(TAG, "connect() to host " + ((host != null) ? host.getNickname() : "(none)"));
 		
+		if (mFleetMode) {
+			ClientBridge fleetBridge = mFleetBridges.remove(host);
+			if (fleetBridge != null) {
+				// Host is monitored, its bridge is already connected
+				switchToBridge(fleetBridge);
+				return;
+			}
+		}
+		
 		if (mClientBridge != null) {
-			// Connected to some client - disconnect it first
-			disconnect();
+			if (mFleetMode && mClientBridge.getClientId() != null) {
+				// Keep monitoring of the current client
+				moveToFleet(mClientBridge);
+				mClientBridge = null;
+			} else
+				// Connected to some client - disconnect it first
+				disconnect();
 		}
 		//if (mConnectivityStatus.isConnected()) {
 		// wake lock syncing
@@ -303,6 +343,8 @@ public class ConnectionManagerService extends Service implements
 				ClientReceiver observer = it.next();
 				mClientBridge.registerStatusObserver(observer);
 			}
+			if (mFleetMode)
+				addFleetMonitor(mClientBridge, host);
 			// Finally, initiate connection to remote client
 			mClientBridge.connect(host, retrieveInitialData);
 			
@@ -336,6 +378,181 @@ public class ConnectionManagerService extends Service implements
 		}
 	}
 	
+	/**
+	 * Starts monitoring of the hosts from host list (fleet mode). Bridges of the monitored
+	 * hosts are kept connected, hence switching between them (by connect) is instant.
+	 * @param maxHosts maximal number of the monitored hosts (with current host)
+	 */
+	public void startFleetMonitoring(int maxHosts) {
+		if (maxHosts > FLEET_MAX_HOSTS)
+			maxHosts = FLEET_MAX_HOSTS;
+		if (Logging.DEBUG) Log.d(TAG, "startFleetMonitoring(): max hosts " + maxHosts);
+		mFleetMode = true;
+		mFleetMaxHosts = maxHosts;
+		
+		ClientId currentHost = null;
+		if (mClientBridge != null) {
+			currentHost = mClientBridge.getClientId();
+			if (currentHost != null && !mFleetMonitors.containsKey(currentHost))
+				addFleetMonitor(mClientBridge, currentHost);
+		}
+		evictFleetBridges();
+		
+		ArrayList<ClientId> hosts = new ArrayList<ClientId>();
+		HostListDbAdapter dbAdapter = new HostListDbAdapter(this);
+		try {
+			dbAdapter.open();
+			Cursor cursor = dbAdapter.fetchAllHosts();
+			if (cursor != null) {
+				while (cursor.moveToNext())
+					hosts.add(new ClientId(cursor));
+				cursor.close();
+			}
+		} finally {
+			dbAdapter.close();
+		}
+		
+		for (ClientId host: hosts) {
+			if (getFleetSize() >= mFleetMaxHosts)
+				break;
+			if (host.equals(currentHost) || mFleetBridges.containsKey(host))
+				continue; // already monitored
+			if (host.isNativeClient() && !mApp.isBoincClientRun())
+				continue; // native client is not running
+			
+			ClientBridge bridge;
+			try {
+				if (!host.isLocalHost()) // if not native client
+					// remote hosts share one worker thread, their I/O is done by selector thread
+					bridge = new ClientBridge(this, mNetStats, false, true);
+				else // if native we dont attach net statistics
+					bridge = new ClientBridge(this, null, true);
+			} catch(RuntimeException ex) {
+				if (Logging.ERROR) Log.e(TAG, "Cannot create bridge for " + host.getNickname());
+				continue;
+			}
+			addFleetMonitor(bridge, host);
+			mFleetBridges.put(host, bridge);
+			bridge.connect(host, true);
+		}
+		onHostSummaryChanged();
+	}
+	
+	/**
+	 * Stops monitoring of the hosts (current bridge is kept)
+	 */
+	public void stopFleetMonitoring() {
+		if (Logging.DEBUG) Log.d(TAG, "stopFleetMonitoring()");
+		mFleetMode = false;
+		ClientBridge[] bridges = mFleetBridges.values().toArray(new ClientBridge[0]);
+		mFleetBridges.clear();
+		for (ClientBridge bridge: bridges)
+			disconnectFleetBridge(bridge);
+		for (FleetHostMonitor monitor: mFleetMonitors.values())
+			monitor.getBridge().releaseStatusObserver(monitor);
+		mFleetMonitors.clear();
+		onHostSummaryChanged();
+	}
+	
+	public boolean isFleetMode() {
+		return mFleetMode;
+	}
+	
+	/**
+	 * @return summaries of the monitored hosts (empty if fleet mode is not active)
+	 */
+	public ArrayList<HostSummary> getFleetOverview() {
+		ArrayList<HostSummary> overview = new ArrayList<HostSummary>(mFleetMonitors.size());
+		for (FleetHostMonitor monitor: mFleetMonitors.values())
+			overview.add(monitor.getSummary());
+		return overview;
+	}
+	
+	/* called by monitors (in UI thread) */
+	void onHostSummaryChanged() {
+		ArrayList<HostSummary> overview = null;
+		for (ClientReceiver observer: mObservers) {
+			if (observer instanceof ClientFleetReceiver) {
+				if (overview == null)
+					overview = getFleetOverview();
+				((ClientFleetReceiver)observer).onFleetOverviewChanged(overview);
+			}
+		}
+	}
+	
+	private int getFleetSize() {
+		return mFleetBridges.size() + ((mClientBridge != null) ? 1 : 0);
+	}
+	
+	private void addFleetMonitor(ClientBridge bridge, ClientId host) {
+		FleetHostMonitor oldMonitor = mFleetMonitors.remove(host);
+		if (oldMonitor != null) // monitor of previous (disconnected) bridge
+			oldMonitor.getBridge().releaseStatusObserver(oldMonitor);
+		FleetHostMonitor monitor = new FleetHostMonitor(this, bridge, host);
+		mFleetMonitors.put(host, monitor);
+		bridge.registerStatusObserver(monitor);
+	}
+	
+	/* makes bridge of the monitored host current bridge */
+	private void switchToBridge(ClientBridge bridge) {
+		if (Logging.DEBUG) Log.d(TAG, "Switching to monitored host " + bridge.getClientId().getNickname());
+		if (mClientBridge != null)
+			moveToFleet(mClientBridge);
+		synchronized(mWakeLocker) {
+			mClientBridge = bridge;
+			// Propagate all current observers to bridge (they are notified about connection)
+			for (ClientReceiver observer: mObservers)
+				mClientBridge.registerStatusObserver(observer);
+			// observers get data immediately
+			mClientBridge.publishCachedData();
+			setUpWakeLock();
+		}
+	}
+	
+	/* moves current bridge to monitored bridges */
+	private void moveToFleet(ClientBridge bridge) {
+		for (ClientReceiver observer: mObservers)
+			bridge.releaseStatusObserver(observer);
+		mFleetBridges.put(bridge.getClientId(), bridge);
+		evictFleetBridges();
+	}
+	
+	/* disconnects least recently used bridges above limit */
+	private void evictFleetBridges() {
+		while (!mFleetBridges.isEmpty() && getFleetSize() > mFleetMaxHosts) {
+			Iterator<Map.Entry<ClientId, ClientBridge>> it = mFleetBridges.entrySet().iterator();
+			ClientBridge bridge = it.next().getValue();
+			it.remove();
+			if (Logging.DEBUG) Log.d(TAG, "Stop monitoring of the least recently used host");
+			disconnectFleetBridge(bridge);
+		}
+	}
+	
+	private void disconnectFleetBridge(ClientBridge bridge) {
+		ClientId host = bridge.getClientId();
+		if (host != null) {
+			FleetHostMonitor monitor = mFleetMonitors.get(host);
+			if (monitor != null && monitor.getBridge() == bridge) {
+				mFleetMonitors.remove(host);
+				bridge.releaseStatusObserver(monitor);
+			}
+		}
+		mDyingBridges.add(bridge);
+		bridge.disconnect();
+	}
+	
+	/* returns true if bridge was monitored bridge */
+	private boolean removeFleetBridge(ClientBridge bridge) {
+		Iterator<ClientBridge> it = mFleetBridges.values().iterator();
+		while (it.hasNext()) {
+			if (it.next() == bridge) {
+				it.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	@Override
 	public int getAutoRefresh() {
 		if (mClientBridge != null)
@@ -424,6 +641,14 @@ public class ConnectionManagerService extends Service implements
 		return false;
 	}
 	
+	@Override
+	public boolean updateRefreshCycle(int refreshMask) {
+		if (mClientBridge != null) {
+			return mClientBridge.updateRefreshCycle(refreshMask);
+		}
+		return false;
+	}
+	
 	@Override
 	public void addToScheduledUpdates(ClientReceiver callback, int refreshType, int period) {
 		if (mClientBridge != null)
@@ -561,6 +786,14 @@ public class ConnectionManagerService extends Service implements
 		return false;
 	}
 	
+	@Override
+	public ArrayList<MessageInfo> getMessagesSince(int seqNo) {
+		if (mClientBridge != null) {
+			return mClientBridge.getMessagesSince(seqNo);
+		}
+		return null;
+	}
+	
 	@Override
 	public boolean getGlobalPrefsWorking() {
 		if (mClientBridge != null) {
@@ -0,0 +1,120 @@
+/* 
+ * NativeBOINC - Native BOINC Client with Manager
+ * Copyright (C) 2011, Mateusz Szpakowski
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.nativeboinc.service;
+
+import java.util.ArrayList;
+
+import sk.boinc.nativeboinc.bridge.ClientBridge;
+import sk.boinc.nativeboinc.clientconnection.BoincOp;
+import sk.boinc.nativeboinc.clientconnection.ClientUpdateTasksReceiver;
+import sk.boinc.nativeboinc.clientconnection.HostSummary;
+import sk.boinc.nativeboinc.clientconnection.TaskInfo;
+import sk.boinc.nativeboinc.clientconnection.VersionInfo;
+import sk.boinc.nativeboinc.debug.Logging;
+import sk.boinc.nativeboinc.util.ClientId;
+import android.util.Log;
+
+/**
+ * Monitor of the host in fleet mode: keeps tasks of the host periodically updated
+ * and maintains summary of the host. Monitor stays registered in bridge,
+ * also when bridge is used by the manager.
+ * 
+ * @author mat
+ *
+ */
+class FleetHostMonitor implements ClientUpdateTasksReceiver {
+	private static final String TAG = "FleetHostMonitor";
+	
+	private final ConnectionManagerService mService;
+	private final ClientBridge mBridge;
+	private final ClientId mHost;
+	private final HostSummary mSummary;
+	
+	public FleetHostMonitor(ConnectionManagerService service, ClientBridge bridge, ClientId host) {
+		mService = service;
+		mBridge = bridge;
+		mHost = host;
+		mSummary = new HostSummary(host);
+	}
+	
+	public ClientBridge getBridge() {
+		return mBridge;
+	}
+	
+	public ClientId getHost() {
+		return mHost;
+	}
+	
+	public HostSummary getSummary() {
+		return new HostSummary(mSummary);
+	}
+	
+	@Override
+	public boolean clientError(BoincOp boincOp, int errorNum, String message) {
+		mSummary.lastError = message;
+		mService.onHostSummaryChanged();
+		return false; // error is not handled here
+	}
+
+	@Override
+	public void clientConnectionProgress(BoincOp boincOp, int progress) {
+		// do nothing
+	}
+
+	@Override
+	public void clientConnected(VersionInfo clientVersion) {
+		if (Logging.DEBUG) Log.d(TAG, "Monitored host connected: " + mHost.getNickname());
+		mSummary.connected = true;
+		mSummary.lastError = null;
+		mService.onHostSummaryChanged();
+		if (mSummary.updateTime == 0) // tasks not retrieved with initial data
+			mBridge.updateTasks();
+	}
+
+	@Override
+	public void clientDisconnected(boolean disconnectedByManager) {
+		if (Logging.DEBUG) Log.d(TAG, "Monitored host disconnected: " + mHost.getNickname());
+		mSummary.connected = false;
+		mService.onHostSummaryChanged();
+	}
+
+	@Override
+	public void onClientIsWorking(boolean isWorking) {
+		// do nothing
+	}
+
+	@Override
+	public boolean updatedTasks(ArrayList<TaskInfo> tasks) {
+		int runningTasks = 0;
+		int progInd = 0;
+		for (TaskInfo task: tasks) {
+			if (task.stateControl == TaskInfo.RUNNING) {
+				runningTasks++;
+				progInd += task.progInd;
+			}
+		}
+		mSummary.tasksCount = tasks.size();
+		mSummary.runningTasks = runningTasks;
+		mSummary.progInd = (runningTasks != 0) ? progInd / runningTasks : 0;
+		mSummary.updateTime = System.currentTimeMillis();
+		mService.onHostSummaryChanged();
+		return true; // always periodically updated
+	}
+}
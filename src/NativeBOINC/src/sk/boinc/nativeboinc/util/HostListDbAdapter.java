@@ -222,6 +222,31 @@ public class HostListDbAdapter {
 		return clientId;
 	}
 
+	/**
+	 * Fetch single host by row ID
+	 * 
+	 * @param rowId the row ID of the host to retrieve
+	 * @return ClientId class if host is successfully retrieved or null if host is not found
+	 */
+	public ClientId fetchHost(long rowId) {
+		ClientId clientId = null;
+		try {
+			Cursor cur = mDb.query(true, TABLE_HOSTS,
+					new String[] {KEY_ROWID, FIELD_HOST_NICKNAME, FIELD_HOST_ADDRESS, FIELD_HOST_PORT, FIELD_HOST_PASSWORD},
+					KEY_ROWID + "=" + rowId, null, null, null, null, null);
+			if (cur != null) {
+				if (cur.moveToFirst()) {
+					clientId = new ClientId(cur);
+				}
+				cur.close();
+			}
+		} catch (SQLException ex) { // if error
+			if (Logging.ERROR) Log.e(TAG, "SQLException at fetchHost: "+ ex.getMessage());
+			return null;
+		}
+		return clientId;
+	}
+
 	/**
 	 * Check, whether host's nickname is unique in database
 	 * 
@@ -32,12 +32,14 @@ public interface PreferenceName {
 	public static final String AUTO_UPDATE_WIFI = "autoUpdateIntervalWiFi";
 	public static final String AUTO_UPDATE_MOBILE = "autoUpdateIntervalMobile";
 	public static final String AUTO_UPDATE_LOCALHOST = "autoUpdateIntervalLocalhost";
+	public static final String AUTO_UPDATE_ADAPTIVE = "autoUpdateAdaptive";
 	public static final String WIDGET_UPDATE = "widgetUpdateInterval";
 	public static final String SCREEN_LOCK_UPDATE = "screenLockUpdateInterval";
 	public static final String COLLECT_STATS = "trackNetworkUsage";
 	public static final String UPGRADE_INFO_SHOWN_VERSION = "upgradeInfoShownVersion";
 	public static final String LAST_ACTIVE_TAB = "lastActiveTab";
 	public static final String LIMIT_MESSAGES = "limitMessages";
+	public static final String MESSAGES_CAPACITY = "messagesCapacity";
 	public static final String LAST_MESSAGES_FILTER = "lastMessagesFilter";
 	public static final String BUG_CATCHER_ENABLED = "bugCatcherEnabled";
 	